@@ -16,16 +16,19 @@ import org.springframework.web.context.request.WebRequest;
 import org.springframework.web.multipart.MultipartFile;
 import org.springframework.web.server.ResponseStatusException;
 import org.springframework.web.servlet.support.ServletUriComponentsBuilder;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 import pt.psoft.g1.psoftg1.authormanagement.model.Author;
 import pt.psoft.g1.psoftg1.authormanagement.services.AuthorService;
 import pt.psoft.g1.psoftg1.authormanagement.services.CreateAuthorRequest;
 import pt.psoft.g1.psoftg1.authormanagement.services.UpdateAuthorRequest;
+import pt.psoft.g1.psoftg1.authormanagement.services.AuthorExportDTO;
 import pt.psoft.g1.psoftg1.bookmanagement.api.BookView;
 import pt.psoft.g1.psoftg1.bookmanagement.api.BookViewMapper;
 import pt.psoft.g1.psoftg1.bookmanagement.model.Book;
 import pt.psoft.g1.psoftg1.exceptions.NotFoundException;
 import pt.psoft.g1.psoftg1.readermanagement.model.ReaderDetails;
 import pt.psoft.g1.psoftg1.shared.api.ListResponse;
+import pt.psoft.g1.psoftg1.shared.api.StreamingExporter;
 import pt.psoft.g1.psoftg1.shared.services.ConcurrencyService;
 import pt.psoft.g1.psoftg1.shared.services.FileStorageService;
 import pt.psoft.g1.psoftg1.usermanagement.model.User;
@@ -41,6 +44,7 @@ import java.util.Optional;
 @RequestMapping("/api/authors")
 public class AuthorController {
     private final AuthorService authorService;
+    private final StreamingExporter streamingExporter;
     private final AuthorViewMapper authorViewMapper;
     private final ConcurrencyService concurrencyService;
     private final FileStorageService fileStorageService;
@@ -159,7 +163,10 @@ public class AuthorController {
     @ResponseStatus(HttpStatus.OK)
     public ResponseEntity<byte[]> getSpecificAuthorPhoto(@PathVariable("authorNumber")
                                                              @Parameter(description = "The number of the Author to find")
-                                                             final String authorNumber) {
+                                                             final String authorNumber,
+                                                         @RequestParam(value = "size", required = false)
+                                                         @Parameter(description = "A photo size such as small or medium, or none for the original")
+                                                         final String size) {
 
         Author authorDetails = authorService.findByAuthorNumber(authorNumber)
                 .orElseThrow(() -> new NotFoundException(Author.class, authorNumber));
@@ -170,7 +177,7 @@ public class AuthorController {
         }
 
         String photoFile = authorDetails.getPhoto().getPhotoFile();
-        byte[] image = this.fileStorageService.getFile(photoFile);
+        byte[] image = this.fileStorageService.getFile(photoFile, size);
         String fileFormat = this.fileStorageService.getExtension(authorDetails.getPhoto().getPhotoFile())
                 .orElseThrow(() -> new ValidationException("Unable to get file extension"));
 
@@ -198,6 +205,19 @@ public class AuthorController {
         return authorViewMapper.toAuthorCoAuthorBooksView(author, coAuthorViews);
     }
 
+    @Operation(summary = "Gets the collaboration distance between two authors, with a shortest chain of co-authors")
+    @GetMapping("/{authorNumber}/collaboration/{otherAuthorNumber}")
+    public CollaborationPathView getCollaborationPath(@PathVariable("authorNumber") final String authorNumber,
+                                                      @PathVariable("otherAuthorNumber") final String otherAuthorNumber) {
+        authorService.findByAuthorNumber(authorNumber)
+                .orElseThrow(() -> new NotFoundException(Author.class, authorNumber));
+        authorService.findByAuthorNumber(otherAuthorNumber)
+                .orElseThrow(() -> new NotFoundException(Author.class, otherAuthorNumber));
+        return authorService.findCollaborationPath(authorNumber, otherAuthorNumber)
+                .map(path -> new CollaborationPathView(path.size() - 1, authorViewMapper.toAuthorView(path)))
+                .orElseGet(() -> new CollaborationPathView(null, List.of()));
+    }
+
     //Delete a foto
     @Operation(summary = "Deletes a author photo")
     @DeleteMapping("/{authorNumber}/photo")
@@ -217,4 +237,12 @@ public class AuthorController {
 
         return ResponseEntity.ok().build();
     }
+
+    @Operation(summary = "Exports all authors as NDJSON or CSV, streamed as they are read")
+    @GetMapping(value = "/export")
+    public ResponseEntity<StreamingResponseBody> exportAuthors(
+            @RequestParam(value = "format", defaultValue = "ndjson") final String format,
+            @RequestParam(value = "gzip", defaultValue = "false") final boolean gzip) {
+        return streamingExporter.export("authors", AuthorExportDTO.COLUMNS, authorService::exportAll, format, gzip);
+    }
 }
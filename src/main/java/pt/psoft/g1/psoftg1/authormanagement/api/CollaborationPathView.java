@@ -0,0 +1,19 @@
+package pt.psoft.g1.psoftg1.authormanagement.api;
+
+import io.swagger.v3.oas.annotations.media.Schema;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Schema(description = "A shortest chain of co-authorships between two authors")
+public class CollaborationPathView {
+    @Schema(description = "The number of co-authorships on the chain, or null if no chain joins the authors")
+    private Integer distance;
+    @Schema(description = "The authors on the chain, from the first to the second, both included")
+    private List<AuthorView> path;
+}
@@ -1,33 +1,43 @@
 package pt.psoft.g1.psoftg1.authormanagement.infrastructure.repositories.impl;
 
-import org.springframework.data.domain.Page;
-import org.springframework.data.domain.Pageable;
+import jakarta.persistence.QueryHint;
+import org.hibernate.jpa.HibernateHints;
 import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
 import org.springframework.data.repository.CrudRepository;
-import pt.psoft.g1.psoftg1.authormanagement.api.AuthorLendingView;
+import org.springframework.data.repository.query.Param;
 import pt.psoft.g1.psoftg1.authormanagement.model.Author;
 import pt.psoft.g1.psoftg1.authormanagement.repositories.AuthorRepository;
+import pt.psoft.g1.psoftg1.authormanagement.services.AuthorExportDTO;
+import pt.psoft.g1.psoftg1.authormanagement.services.AuthorNameDTO;
 
+import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
+import java.util.stream.Stream;
 
 public interface SpringDataAuthorRepository extends AuthorRepository, CrudRepository<Author, Long> {
     @Override
     Optional<Author> findByAuthorNumber(String authorNumber);
 
     @Override
-    @Query("SELECT new pt.psoft.g1.psoftg1.authormanagement.api.AuthorLendingView(a.name.name, COUNT(l.pk)) " +
-            "FROM Book b " +
-            "JOIN b.authors a " +
-            "JOIN Lending l ON l.book.pk = b.pk " +
-            "GROUP BY a.name " +
-            "ORDER BY COUNT(l) DESC")
-    Page<AuthorLendingView> findTopAuthorByLendings(Pageable pageable);
+    @Query("SELECT a " +
+            "FROM Author a " +
+            "WHERE a.authorNumber IN :authorNumbers")
+    List<Author> findByAuthorNumbers(@Param("authorNumbers") Collection<String> authorNumbers);
 
-    @Query("SELECT DISTINCT coAuthor FROM Book b " +
-            "JOIN b.authors coAuthor " +
-            "WHERE b IN (SELECT b FROM Book b JOIN b.authors a WHERE a.authorNumber = :authorNumber) " +
-            "AND coAuthor.authorNumber <> :authorNumber")
-    List<Author> findCoAuthorsByAuthorNumber(Long authorNumber);
+    @Override
+    @Query("SELECT new pt.psoft.g1.psoftg1.authormanagement.services.AuthorExportDTO(" +
+                "a.authorNumber, a.name.name, a.bio.bio) " +
+            "FROM Author a " +
+            "ORDER BY a.authorNumber")
+    @QueryHints(@QueryHint(name = HibernateHints.HINT_FETCH_SIZE, value = "500"))
+    Stream<AuthorExportDTO> streamAllForExport();
+
+    @Override
+    @Query("SELECT new pt.psoft.g1.psoftg1.authormanagement.services.AuthorNameDTO(a.authorNumber, a.name.name) " +
+            "FROM Author a")
+    @QueryHints(@QueryHint(name = HibernateHints.HINT_FETCH_SIZE, value = "500"))
+    Stream<AuthorNameDTO> streamAllNames();
 }
 
@@ -10,6 +10,7 @@ import pt.psoft.g1.psoftg1.shared.model.EntityWithPhoto;
 import pt.psoft.g1.psoftg1.shared.model.Name;
 
 @Entity
+@Table(indexes = @Index(name = "ix_author_search_key", columnList = "SEARCH_KEY"))
 public class Author extends EntityWithPhoto {
     @Id
     @Column(name = "AUTHOR_NUMBER")
@@ -1,23 +1,34 @@
 package pt.psoft.g1.psoftg1.authormanagement.repositories;
 
-import org.springframework.data.domain.Page;
-import org.springframework.data.domain.Pageable;
-import pt.psoft.g1.psoftg1.authormanagement.api.AuthorLendingView;
 import pt.psoft.g1.psoftg1.authormanagement.model.Author;
+import pt.psoft.g1.psoftg1.authormanagement.services.AuthorExportDTO;
+import pt.psoft.g1.psoftg1.authormanagement.services.AuthorNameDTO;
+import pt.psoft.g1.psoftg1.shared.model.StringUtilsCustom;
 
+import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
+import java.util.stream.Stream;
 
 public interface AuthorRepository {
 
     Optional<Author> findByAuthorNumber(String authorNumber);
-    List<Author> searchByNameNameStartsWith(String name);
-    List<Author> searchByNameName(String name);
+    List<Author> searchByNameSearchKeyStartsWith(String searchKey);
+    List<Author> searchByNameSearchKey(String searchKey);
+
+    /**
+     * @return the authors with the given name, ignoring case, diacritics and punctuation
+     */
+    default List<Author> searchByNameName(String name) {
+        return searchByNameSearchKey(StringUtilsCustom.toSearchKey(name));
+    }
+
     Author save(Author author);
     Iterable<Author> findAll();
-    Page<AuthorLendingView> findTopAuthorByLendings (Pageable pageableRules);
     void delete(Author author);
-    List<Author> findCoAuthorsByAuthorNumber(String authorNumber);
+    List<Author> findByAuthorNumbers(Collection<String> authorNumbers);
     void deleteAll();
 
+    Stream<AuthorExportDTO> streamAllForExport();
+    Stream<AuthorNameDTO> streamAllNames();
 }
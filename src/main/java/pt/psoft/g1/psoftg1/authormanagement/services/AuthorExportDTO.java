@@ -0,0 +1,25 @@
+package pt.psoft.g1.psoftg1.authormanagement.services;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import pt.psoft.g1.psoftg1.shared.services.ExportRow;
+
+import java.util.Arrays;
+import java.util.List;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class AuthorExportDTO implements ExportRow {
+    public static final List<String> COLUMNS = List.of("authorNumber", "name", "bio");
+
+    private String authorNumber;
+    private String name;
+    private String bio;
+
+    @Override
+    public List<Object> values() {
+        return Arrays.asList(authorNumber, name, bio);
+    }
+}
@@ -0,0 +1,13 @@
+package pt.psoft.g1.psoftg1.authormanagement.services;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class AuthorNameDTO {
+    private String authorNumber;
+    private String name;
+}
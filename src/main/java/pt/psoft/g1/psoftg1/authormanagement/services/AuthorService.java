@@ -6,6 +6,7 @@ import pt.psoft.g1.psoftg1.bookmanagement.model.Book;
 
 import java.util.List;
 import java.util.Optional;
+import java.util.stream.Stream;
 
 public interface AuthorService {
 
@@ -25,5 +26,16 @@ public interface AuthorService {
 
     List<Author> findCoAuthorsByAuthorNumber(String authorNumber);
 
+    /**
+     * @return the authors on a shortest chain of co-authorships between two authors, both included, or empty if no
+     * chain joins them
+     */
+    Optional<List<Author>> findCollaborationPath(String fromAuthorNumber, String toAuthorNumber);
+
     Optional<Author> removeAuthorPhoto(String authorNumber, long desiredVersion);
+
+    /**
+     * Streams all the authors for export. The stream must be consumed, and closed, within a transaction.
+     */
+    Stream<AuthorExportDTO> exportAll();
 }
@@ -1,8 +1,6 @@
 package pt.psoft.g1.psoftg1.authormanagement.services;
 
 import lombok.RequiredArgsConstructor;
-import org.springframework.data.domain.PageRequest;
-import org.springframework.data.domain.Pageable;
 import org.springframework.stereotype.Service;
 import org.springframework.web.multipart.MultipartFile;
 import pt.psoft.g1.psoftg1.authormanagement.api.AuthorLendingView;
@@ -10,11 +8,21 @@ import pt.psoft.g1.psoftg1.authormanagement.model.Author;
 import pt.psoft.g1.psoftg1.authormanagement.repositories.AuthorRepository;
 import pt.psoft.g1.psoftg1.bookmanagement.model.Book;
 import pt.psoft.g1.psoftg1.bookmanagement.repositories.BookRepository;
+import pt.psoft.g1.psoftg1.bookmanagement.services.BookAutocompleteIndex;
+import pt.psoft.g1.psoftg1.bookmanagement.services.BookCache;
+import pt.psoft.g1.psoftg1.bookmanagement.services.BookSearchIndex;
 import pt.psoft.g1.psoftg1.exceptions.NotFoundException;
+import pt.psoft.g1.psoftg1.lendingmanagement.services.LeaderboardEntryDTO;
+import pt.psoft.g1.psoftg1.lendingmanagement.services.LendingLeaderboards;
 import pt.psoft.g1.psoftg1.shared.repositories.PhotoRepository;
+import pt.psoft.g1.psoftg1.shared.model.StringUtilsCustom;
 
+import java.util.ArrayList;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
+import java.util.stream.Stream;
 
 @Service
 @RequiredArgsConstructor
@@ -24,6 +32,11 @@ public class AuthorServiceImpl implements AuthorService {
     private final AuthorMapper mapper;
     private final PhotoRepository photoRepository;
     private final FactoryAuthor factoryAuthor; 
+    private final BookAutocompleteIndex bookAutocompleteIndex;
+    private final LendingLeaderboards lendingLeaderboards;
+    private final CoAuthorGraph coAuthorGraph;
+    private final BookCache bookCache;
+    private final BookSearchIndex bookSearchIndex;
 
     @Override
     public Iterable<Author> findAll() {
@@ -37,7 +50,7 @@ public class AuthorServiceImpl implements AuthorService {
 
     @Override
     public List<Author> findByName(String name) {
-        return authorRepository.searchByNameNameStartsWith(name);
+        return authorRepository.searchByNameSearchKeyStartsWith(StringUtilsCustom.toSearchKey(name));
     }
 
     @Override
@@ -62,7 +75,9 @@ public class AuthorServiceImpl implements AuthorService {
         }
         final Author author = factoryAuthor.generateAuthor(resource);
         //final Author author = mapper.create(resource);
-        return authorRepository.save(author);
+        final Author savedAuthor = authorRepository.save(author);
+        bookAutocompleteIndex.add(savedAuthor);
+        return savedAuthor;
     }
 
     @Override
@@ -91,17 +106,31 @@ public class AuthorServiceImpl implements AuthorService {
         }
         // since we got the object from the database we can check the version in memory
         // and apply the patch
+        final String previousName = author.getName();
         author.applyPatch(desiredVersion, request);
 
         // in the meantime some other user might have changed this object on the
         // database, so concurrency control will still be applied when we try to save
         // this updated object
-        return authorRepository.save(author);
+        final Author savedAuthor = authorRepository.save(author);
+        bookAutocompleteIndex.add(savedAuthor);
+        if (!savedAuthor.getName().equals(previousName)) {
+            // cached and indexed books hold the names of their authors
+            final List<Book> books = bookRepository.findBooksByAuthorNumber(authorNumber);
+            bookCache.evictAll(books.stream().map(Book::getIsbn).toList());
+            books.forEach(bookSearchIndex::index);
+        }
+        return savedAuthor;
     }
     @Override
     public List<AuthorLendingView> findTopAuthorByLendings() {
-        Pageable pageableRules = PageRequest.of(0,5);
-        return authorRepository.findTopAuthorByLendings(pageableRules).getContent();
+        final List<AuthorLendingView> topAuthors = new ArrayList<>();
+        for (LeaderboardEntryDTO entry : lendingLeaderboards.top(LendingLeaderboards.Board.AUTHORS,
+                LendingLeaderboards.Window.ALL_TIME, 5)) {
+            authorRepository.findByAuthorNumber(entry.getKey()).ifPresent(author ->
+                    topAuthors.add(new AuthorLendingView(author.getName(), entry.getLendingCount())));
+        }
+        return topAuthors;
     }
 
     @Override
@@ -111,7 +140,29 @@ public class AuthorServiceImpl implements AuthorService {
 
     @Override
     public List<Author> findCoAuthorsByAuthorNumber(String authorNumber) {
-        return authorRepository.findCoAuthorsByAuthorNumber(authorNumber);
+        return findInOrder(coAuthorGraph.coAuthors(authorNumber));
+    }
+
+    @Override
+    public Optional<List<Author>> findCollaborationPath(String fromAuthorNumber, String toAuthorNumber) {
+        return coAuthorGraph.shortestPath(fromAuthorNumber, toAuthorNumber).map(this::findInOrder);
+    }
+
+    // the authors with the given numbers, in the same order
+    private List<Author> findInOrder(List<String> authorNumbers) {
+        if (authorNumbers.isEmpty())
+            return new ArrayList<>();
+        final Map<String, Author> authors = new HashMap<>();
+        for (Author author : authorRepository.findByAuthorNumbers(authorNumbers)) {
+            authors.put(author.getAuthorNumber(), author);
+        }
+        final List<Author> result = new ArrayList<>();
+        for (String authorNumber : authorNumbers) {
+            final Author author = authors.get(authorNumber);
+            if (author != null)
+                result.add(author);
+        }
+        return result;
     }
     @Override
     public Optional<Author> removeAuthorPhoto(String authorNumber, long desiredVersion) {
@@ -125,5 +176,9 @@ public class AuthorServiceImpl implements AuthorService {
         return updatedAuthor;
     }
 
+    @Override
+    public Stream<AuthorExportDTO> exportAll() {
+        return authorRepository.streamAllForExport();
+    }
 }
 
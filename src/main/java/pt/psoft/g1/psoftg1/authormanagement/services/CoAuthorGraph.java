@@ -0,0 +1,288 @@
+package pt.psoft.g1.psoftg1.authormanagement.services;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+import pt.psoft.g1.psoftg1.authormanagement.model.Author;
+import pt.psoft.g1.psoftg1.bookmanagement.model.Book;
+import pt.psoft.g1.psoftg1.bookmanagement.repositories.BookRepository;
+import pt.psoft.g1.psoftg1.bookmanagement.services.BookAuthorDTO;
+import pt.psoft.g1.psoftg1.shared.services.AfterCommit;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+
+/**
+ * Who wrote a book with whom, held in memory so that co-authors and collaboration distances need no query.
+ * <p>Authors are numbered with primitive int ids, and the graph is kept as compressed sparse rows: the co-authors of
+ * author {@code i} are {@code neighbours[offsets[i]]} up to {@code neighbours[offsets[i + 1]]}, sorted by id. It is
+ * built from the authors of every book once the application is ready. The authors of a book that is created or
+ * changed are recorded once its transaction commits, and the rows are rebuilt on the next read, so an import of many
+ * books rebuilds them once.
+ * <p>Collaboration distances are found by a breadth-first search from both authors, expanding the smaller frontier.
+ */
+@Component
+public class CoAuthorGraph {
+    private static final Logger logger = LogManager.getLogger();
+
+    private final BookRepository bookRepository;
+    private final TransactionTemplate readOnly;
+
+    // the authors of each book, by ISBN, and the ids of the authors; guarded by this
+    private final Map<String, int[]> bookAuthors = new HashMap<>();
+    private final Map<String, Integer> ids = new HashMap<>();
+    private final List<String> authorNumbers = new ArrayList<>();
+
+    private volatile boolean stale;
+    private volatile Graph graph = new Graph(new String[0], Map.of(), new int[1], new int[0]);
+
+    public CoAuthorGraph(BookRepository bookRepository, PlatformTransactionManager transactionManager) {
+        this.bookRepository = bookRepository;
+        this.readOnly = new TransactionTemplate(transactionManager);
+        this.readOnly.setReadOnly(true);
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void load() {
+        final long start = System.nanoTime();
+        final Map<String, List<String>> books = readOnly.execute(status -> {
+            final Map<String, List<String>> authorsByBook = new HashMap<>();
+            try (Stream<BookAuthorDTO> rows = bookRepository.streamAllBookAuthors()) {
+                rows.forEach(row -> authorsByBook.computeIfAbsent(row.getIsbn(), k -> new ArrayList<>())
+                        .add(row.getAuthorNumber()));
+            }
+            return authorsByBook;
+        });
+        synchronized (this) {
+            // books recorded meanwhile were committed after the read, so they are kept
+            books.forEach((isbn, authors) -> {
+                if (!bookAuthors.containsKey(isbn))
+                    put(isbn, authors);
+            });
+            stale = true;
+        }
+        final Graph loaded = graph();
+        logger.info("Co-author graph loaded with {} authors and {} collaborations in {} ms",
+                loaded.authorNumbers.length, loaded.neighbours.length / 2,
+                TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start));
+    }
+
+    /**
+     * Records the authors of a created or changed book once the current transaction commits.
+     */
+    public void index(Book book) {
+        final String isbn = book.getIsbn();
+        final List<String> authors = book.getAuthors().stream().map(Author::getAuthorNumber).toList();
+        AfterCommit.execute(() -> {
+            synchronized (this) {
+                put(isbn, authors);
+                stale = true;
+            }
+        });
+    }
+
+    /**
+     * @return the numbers of the authors who wrote a book with the author, in the order they were first seen
+     */
+    public List<String> coAuthors(String authorNumber) {
+        final Graph current = graph();
+        final Integer id = current.ids.get(authorNumber);
+        if (id == null)
+            return List.of();
+        final List<String> result = new ArrayList<>(current.offsets[id + 1] - current.offsets[id]);
+        for (int i = current.offsets[id]; i < current.offsets[id + 1]; i++) {
+            result.add(current.authorNumbers[current.neighbours[i]]);
+        }
+        return result;
+    }
+
+    /**
+     * @return the numbers of the authors on a shortest chain of co-authorships from one author to the other, both
+     * included, so the collaboration distance is its size minus one; empty if no chain joins them
+     */
+    public Optional<List<String>> shortestPath(String fromAuthorNumber, String toAuthorNumber) {
+        if (fromAuthorNumber.equals(toAuthorNumber))
+            return Optional.of(List.of(fromAuthorNumber));
+        final Graph current = graph();
+        final Integer from = current.ids.get(fromAuthorNumber);
+        final Integer to = current.ids.get(toAuthorNumber);
+        if (from == null || to == null)
+            return Optional.empty();
+        return Optional.ofNullable(current.shortestPath(from, to));
+    }
+
+    private Graph graph() {
+        if (!stale)
+            return graph;
+        synchronized (this) {
+            if (stale) {
+                graph = build();
+                stale = false;
+            }
+            return graph;
+        }
+    }
+
+    private void put(String isbn, List<String> authors) {
+        final int[] authorIds = authors.stream().mapToInt(this::id).sorted().distinct().toArray();
+        bookAuthors.put(isbn, authorIds);
+    }
+
+    private int id(String authorNumber) {
+        return ids.computeIfAbsent(authorNumber, k -> {
+            authorNumbers.add(k);
+            return authorNumbers.size() - 1;
+        });
+    }
+
+    // lists every pair of authors of each book, then sorts each row and drops the pairs repeated by other books
+    private Graph build() {
+        final int n = authorNumbers.size();
+        final int[] start = new int[n + 1];
+        for (int[] authors : bookAuthors.values()) {
+            for (int author : authors) {
+                start[author + 1] += authors.length - 1;
+            }
+        }
+        for (int i = 0; i < n; i++) {
+            start[i + 1] += start[i];
+        }
+        final int[] pairs = new int[start[n]];
+        final int[] next = Arrays.copyOf(start, n);
+        for (int[] authors : bookAuthors.values()) {
+            for (int author : authors) {
+                for (int coAuthor : authors) {
+                    if (coAuthor != author)
+                        pairs[next[author]++] = coAuthor;
+                }
+            }
+        }
+        final int[] offsets = new int[n + 1];
+        int size = 0;
+        for (int i = 0; i < n; i++) {
+            Arrays.sort(pairs, start[i], start[i + 1]);
+            offsets[i] = size;
+            int previous = -1;
+            for (int j = start[i]; j < start[i + 1]; j++) {
+                if (pairs[j] != previous)
+                    pairs[size++] = pairs[j];
+                previous = pairs[j];
+            }
+        }
+        offsets[n] = size;
+        return new Graph(authorNumbers.toArray(new String[0]), new HashMap<>(ids), offsets,
+                Arrays.copyOf(pairs, size));
+    }
+
+    private static final class Graph {
+        final String[] authorNumbers;
+        final Map<String, Integer> ids;
+        final int[] offsets;
+        final int[] neighbours;
+
+        Graph(String[] authorNumbers, Map<String, Integer> ids, int[] offsets, int[] neighbours) {
+            this.authorNumbers = authorNumbers;
+            this.ids = ids;
+            this.offsets = offsets;
+            this.neighbours = neighbours;
+        }
+
+        // a bidirectional breadth-first search, or null if the authors are not connected
+        List<String> shortestPath(int from, int to) {
+            final int n = authorNumbers.length;
+            final Side forward = new Side(n, from);
+            final Side backward = new Side(n, to);
+            while (forward.size > 0 && backward.size > 0) {
+                final Side side = forward.size <= backward.size ? forward : backward;
+                final Side other = side == forward ? backward : forward;
+                // the whole level is expanded, as the first meeting is not always on a shortest path
+                int meeting = -1;
+                int best = Integer.MAX_VALUE;
+                final int[] frontier = side.frontier;
+                final int frontierSize = side.size;
+                side.clearNext();
+                for (int f = 0; f < frontierSize; f++) {
+                    final int author = frontier[f];
+                    for (int i = offsets[author]; i < offsets[author + 1]; i++) {
+                        final int coAuthor = neighbours[i];
+                        if (side.distance[coAuthor] >= 0)
+                            continue;
+                        side.visit(coAuthor, author);
+                        if (other.distance[coAuthor] >= 0
+                                && side.distance[coAuthor] + other.distance[coAuthor] < best) {
+                            best = side.distance[coAuthor] + other.distance[coAuthor];
+                            meeting = coAuthor;
+                        }
+                    }
+                }
+                if (meeting >= 0)
+                    return path(forward, backward, meeting);
+                side.advance();
+            }
+            return null;
+        }
+
+        private List<String> path(Side forward, Side backward, int meeting) {
+            final List<String> path = new ArrayList<>();
+            for (int author = meeting; author >= 0; author = forward.parent[author]) {
+                path.add(authorNumbers[author]);
+            }
+            Collections.reverse(path);
+            for (int author = backward.parent[meeting]; author >= 0; author = backward.parent[author]) {
+                path.add(authorNumbers[author]);
+            }
+            return path;
+        }
+    }
+
+    // the search from one end: distances and parents of the visited authors, and the current frontier
+    private static final class Side {
+        final int[] distance;
+        final int[] parent;
+        int[] frontier;
+        int size;
+        int[] next;
+        int nextSize;
+
+        Side(int n, int start) {
+            distance = new int[n];
+            parent = new int[n];
+            Arrays.fill(distance, -1);
+            distance[start] = 0;
+            parent[start] = -1;
+            frontier = new int[]{start};
+            size = 1;
+            next = new int[16];
+        }
+
+        void clearNext() {
+            nextSize = 0;
+        }
+
+        void visit(int author, int from) {
+            distance[author] = distance[from] + 1;
+            parent[author] = from;
+            if (nextSize == next.length)
+                next = Arrays.copyOf(next, next.length * 2);
+            next[nextSize++] = author;
+        }
+
+        void advance() {
+            final int[] previous = frontier;
+            frontier = next;
+            size = nextSize;
+            next = previous;
+        }
+    }
+}
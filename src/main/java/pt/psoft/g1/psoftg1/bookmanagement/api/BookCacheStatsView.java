@@ -0,0 +1,20 @@
+package pt.psoft.g1.psoftg1.bookmanagement.api;
+
+import io.swagger.v3.oas.annotations.media.Schema;
+import lombok.Data;
+
+@Data
+@Schema(description = "Statistics of the book cache since the application started")
+public class BookCacheStatsView {
+    private long hitCount;
+    private long missCount;
+    private double hitRate;
+    private long evictionCount;
+    private long evictionWeight;
+    private long size;
+
+    @Schema(description = "Estimated heap used by the cached books, in bytes")
+    private long weight;
+
+    private long maximumWeight;
+}
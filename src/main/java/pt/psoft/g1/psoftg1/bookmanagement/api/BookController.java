@@ -1,6 +1,7 @@
 package pt.psoft.g1.psoftg1.bookmanagement.api;
 
 import io.swagger.v3.oas.annotations.Operation;
+import io.swagger.v3.oas.annotations.Parameter;
 import io.swagger.v3.oas.annotations.tags.Tag;
 import jakarta.validation.Valid;
 import jakarta.validation.ValidationException;
@@ -14,6 +15,7 @@ import org.springframework.web.context.request.WebRequest;
 import org.springframework.web.multipart.MultipartFile;
 import org.springframework.web.server.ResponseStatusException;
 import org.springframework.web.servlet.support.ServletUriComponentsBuilder;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 import pt.psoft.g1.psoftg1.bookmanagement.model.Book;
 import pt.psoft.g1.psoftg1.bookmanagement.services.*;
 import pt.psoft.g1.psoftg1.exceptions.ConflictException;
@@ -22,17 +24,19 @@ import pt.psoft.g1.psoftg1.lendingmanagement.services.LendingService;
 import pt.psoft.g1.psoftg1.readermanagement.model.ReaderDetails;
 import pt.psoft.g1.psoftg1.readermanagement.services.ReaderService;
 import pt.psoft.g1.psoftg1.shared.api.ListResponse;
+import pt.psoft.g1.psoftg1.shared.api.StreamingExporter;
 import pt.psoft.g1.psoftg1.shared.services.ConcurrencyService;
 import pt.psoft.g1.psoftg1.shared.services.FileStorageService;
+import pt.psoft.g1.psoftg1.shared.services.Page;
 import pt.psoft.g1.psoftg1.shared.services.SearchRequest;
 import pt.psoft.g1.psoftg1.usermanagement.model.User;
 import pt.psoft.g1.psoftg1.usermanagement.services.UserService;
 
-import java.util.Comparator;
-import java.util.HashSet;
+import java.io.BufferedReader;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
 import java.util.List;
-import java.util.Set;
-import java.util.stream.Collectors;
 
 @Tag(name = "Books", description = "Endpoints for managing Books")
 @RestController
@@ -40,6 +44,8 @@ import java.util.stream.Collectors;
 @RequestMapping("/api/books")
 public class BookController {
     private final BookService bookService;
+    private final BookImporter bookImporter;
+    private final StreamingExporter streamingExporter;
     private final LendingService lendingService;
     private final ConcurrencyService concurrencyService;
     private final FileStorageService fileStorageService;
@@ -85,7 +91,7 @@ public class BookController {
     @GetMapping(value = "/{isbn}")
     public ResponseEntity<BookView> findByIsbn(@PathVariable final String isbn) {
 
-        final var book = bookService.findByIsbn(isbn);
+        final var book = bookService.findSnapshotByIsbn(isbn);
 
         BookView bookView = bookViewMapper.toBookView(book);
 
@@ -112,18 +118,21 @@ public class BookController {
     @Operation(summary = "Gets a book photo")
     @GetMapping("/{isbn}/photo")
     @ResponseStatus(HttpStatus.OK)
-    public ResponseEntity<byte[]> getSpecificBookPhoto(@PathVariable("isbn") final String isbn) {
+    public ResponseEntity<byte[]> getSpecificBookPhoto(@PathVariable("isbn") final String isbn,
+                                                       @RequestParam(value = "size", required = false)
+                                                       @Parameter(description = "A photo size such as small or medium, or none for the original")
+                                                       final String size) {
 
-        Book book = bookService.findByIsbn(isbn);
+        BookSnapshot book = bookService.findSnapshotByIsbn(isbn);
 
         //In case the user has no photo, just return a 200 OK without body
-        if (book.getPhoto() == null) {
+        if (book.getPhotoFile() == null) {
             return ResponseEntity.ok().build();
         }
 
-        String photoFile = book.getPhoto().getPhotoFile();
-        byte[] image = fileStorageService.getFile(photoFile);
-        String fileFormat = fileStorageService.getExtension(book.getPhoto().getPhotoFile()).orElseThrow(() -> new ValidationException("Unable to get file extension"));
+        String photoFile = book.getPhotoFile();
+        byte[] image = fileStorageService.getFile(photoFile, size);
+        String fileFormat = fileStorageService.getExtension(photoFile).orElseThrow(() -> new ValidationException("Unable to get file extension"));
 
         if (image == null) {
             return ResponseEntity.ok().build();
@@ -166,43 +175,26 @@ public class BookController {
                 .body(bookViewMapper.toBookView(book));
     }
 
-    @Operation(summary = "Gets Books by title or genre")
+    @Operation(summary = "Gets a page of Books by title, genre or author name")
     @GetMapping
     public ListResponse<BookView> findBooks(@RequestParam(value = "title", required = false) final String title,
                                             @RequestParam(value = "genre", required = false) final String genre,
-                                            @RequestParam(value = "authorName", required = false) final String authorName) {
+                                            @RequestParam(value = "authorName", required = false) final String authorName,
+                                            @RequestParam(value = "page", defaultValue = "1") final int number,
+                                            @RequestParam(value = "limit", defaultValue = "10") final int limit,
+                                            @RequestParam(value = "cursor", required = false) final String cursor) {
 
         //Este método, como está, faz uma junção 'OR'.
         //Para uma junção 'AND', ver o "/search"
 
-        List<Book> booksByTitle = null;
-        if (title != null)
-            booksByTitle = bookService.findByTitle(title);
-
-        List<Book> booksByGenre = null;
-        if (genre != null)
-            booksByGenre = bookService.findByGenre(genre);
-
-        List<Book> booksByAuthorName = null;
-        if (authorName != null)
-            booksByAuthorName = bookService.findByAuthorName(authorName);
-
-        Set<Book> bookSet = new HashSet<>();
-        if (booksByTitle != null)
-            bookSet.addAll(booksByTitle);
-        if (booksByGenre != null)
-            bookSet.addAll(booksByGenre);
-        if (booksByAuthorName != null)
-            bookSet.addAll(booksByAuthorName);
-
-        List<Book> books = bookSet.stream()
-                .sorted(Comparator.comparing(b -> b.getTitle().toString()))
-                .collect(Collectors.toList());
+        final var page = new Page(number, limit, cursor);
+        final var query = new SearchBooksQuery(title, genre, authorName);
+        final List<Book> books = bookService.findBooks(page, query);
 
         if (books.isEmpty())
             throw new NotFoundException("No books found with the provided criteria");
 
-        return new ListResponse<>(bookViewMapper.toBookView(books));
+        return new ListResponse<>(bookViewMapper.toBookView(books), page.nextCursor(books, query::cursorOf));
     }
 
     @Operation(summary = "Gets the top 5 books lent")
@@ -225,7 +217,7 @@ public class BookController {
     @GetMapping(value = "/{isbn}/avgDuration")
     public @ResponseBody ResponseEntity<BookAverageLendingDurationView> getAvgLendingDurationByIsbn(
             @PathVariable("isbn") final String isbn) {
-        final var book = bookService.findByIsbn(isbn);
+        final var book = bookService.findSnapshotByIsbn(isbn);
         Double avgDuration = lendingService.getAvgLendingDurationByIsbn(isbn);
 
         return ResponseEntity.ok().body(bookViewMapper.toBookAverageLendingDurationView(book, avgDuration));
@@ -234,9 +226,47 @@ public class BookController {
     @PostMapping("/search")
     public ListResponse<BookView> searchBooks(
             @RequestBody final SearchRequest<SearchBooksQuery> request) {
-        final var bookList = bookService.searchBooks(request.getPage(), request.getQuery());
-        return new ListResponse<>(bookViewMapper.toBookView(bookList));
+        final var page = request.getPage() != null ? request.getPage() : new Page();
+        final var query = request.getQuery() != null ? request.getQuery() : new SearchBooksQuery();
+        final var bookList = bookService.searchBooks(page, query);
+        return new ListResponse<>(bookViewMapper.toBookView(bookList), page.nextCursor(bookList, query::cursorOf));
+    }
+
+    @Operation(summary = "Searches the title, authors, genre and description of all books, best matches first")
+    @GetMapping("/search")
+    public ListResponse<BookView> searchFullText(
+            @RequestParam("q") final String query,
+            @RequestParam(value = "limit", defaultValue = "10") final int limit) {
+        return new ListResponse<>(bookViewMapper.toBookView(bookService.searchFullText(query, limit)));
     }
 
+    @Operation(summary = "Completes the search text with book titles and author names, most lent first")
+    @GetMapping("/autocomplete")
+    public ListResponse<CompletionView> autocomplete(
+            @RequestParam("q") final String prefix,
+            @RequestParam(value = "limit", defaultValue = "10") final int limit) {
+        return new ListResponse<>(bookViewMapper.toCompletionView(bookService.autocomplete(prefix, limit)));
+    }
+
+    @Operation(summary = "Imports a catalogue of books from UTF-8 CSV, reporting the rows that were not imported")
+    @PostMapping(value = "/import", consumes = "text/csv")
+    public BookImportReportView importBooks(final InputStream csv) {
+        final var reader = new BufferedReader(new InputStreamReader(csv, StandardCharsets.UTF_8));
+        return bookViewMapper.toBookImportReportView(bookImporter.importCsv(reader));
+    }
+
+    @Operation(summary = "Gets the hit, miss and eviction statistics of the book cache")
+    @GetMapping("/cache/stats")
+    public BookCacheStatsView getCacheStats() {
+        return bookViewMapper.toBookCacheStatsView(bookService.getCacheStats());
+    }
+
+    @Operation(summary = "Exports all books as NDJSON or CSV, streamed as they are read")
+    @GetMapping(value = "/export")
+    public ResponseEntity<StreamingResponseBody> exportBooks(
+            @RequestParam(value = "format", defaultValue = "ndjson") final String format,
+            @RequestParam(value = "gzip", defaultValue = "false") final boolean gzip) {
+        return streamingExporter.export("books", BookExportDTO.COLUMNS, bookService::exportAll, format, gzip);
+    }
 }
 
@@ -0,0 +1,15 @@
+package pt.psoft.g1.psoftg1.bookmanagement.api;
+
+import io.swagger.v3.oas.annotations.media.Schema;
+import lombok.Data;
+
+@Data
+@Schema(description = "A row of an imported catalogue that was not imported")
+public class BookImportErrorView {
+    @Schema(description = "Line of the file the row starts on, counting the header as line 1")
+    private int line;
+
+    private String isbn;
+
+    private String message;
+}
@@ -0,0 +1,19 @@
+package pt.psoft.g1.psoftg1.bookmanagement.api;
+
+import io.swagger.v3.oas.annotations.media.Schema;
+import lombok.Data;
+
+import java.util.List;
+
+@Data
+@Schema(description = "Outcome of a catalogue import")
+public class BookImportReportView {
+    private long rowCount;
+    private long importedCount;
+    private long failedCount;
+    private long elapsedMillis;
+    private double rowsPerSecond;
+
+    @Schema(description = "Errors of the first failed rows")
+    private List<BookImportErrorView> errors;
+}
@@ -6,7 +6,12 @@ import org.mapstruct.Named;
 import org.springframework.web.servlet.support.ServletUriComponentsBuilder;
 import pt.psoft.g1.psoftg1.authormanagement.model.Author;
 import pt.psoft.g1.psoftg1.bookmanagement.model.Book;
+import pt.psoft.g1.psoftg1.bookmanagement.services.BookCacheStatsDTO;
 import pt.psoft.g1.psoftg1.bookmanagement.services.BookCountDTO;
+import pt.psoft.g1.psoftg1.bookmanagement.services.BookImportErrorDTO;
+import pt.psoft.g1.psoftg1.bookmanagement.services.BookImportReportDTO;
+import pt.psoft.g1.psoftg1.bookmanagement.services.BookSnapshot;
+import pt.psoft.g1.psoftg1.bookmanagement.services.CompletionDTO;
 import pt.psoft.g1.psoftg1.shared.api.MapperInterface;
 
 import java.util.HashMap;
@@ -26,6 +31,10 @@ public abstract class BookViewMapper extends MapperInterface {
 
     public abstract List<BookView> toBookView(List<Book> bookList);
 
+    @Mapping(target = "authors", source = "authorNames")
+    @Mapping(target = "_links", expression = "java(mapLinks(book))")
+    public abstract BookView toBookView(BookSnapshot book);
+
     @Mapping(target = "bookView", source = "book")
     public abstract BookCountView toBookCountView(BookCountDTO bookCountDto);
 
@@ -33,6 +42,30 @@ public abstract class BookViewMapper extends MapperInterface {
 
     public abstract BookAverageLendingDurationView toBookAverageLendingDurationView(Book book, Double averageLendingDuration);
 
+    public abstract BookAverageLendingDurationView toBookAverageLendingDurationView(BookSnapshot book, Double averageLendingDuration);
+
+    @Mapping(target = "hitCount", expression = "java(stats.getHitCount())")
+    @Mapping(target = "missCount", expression = "java(stats.getMissCount())")
+    @Mapping(target = "hitRate", expression = "java(stats.getHitRate())")
+    @Mapping(target = "evictionCount", expression = "java(stats.getEvictionCount())")
+    @Mapping(target = "evictionWeight", expression = "java(stats.getEvictionWeight())")
+    @Mapping(target = "size", expression = "java(stats.getSize())")
+    @Mapping(target = "weight", expression = "java(stats.getWeight())")
+    @Mapping(target = "maximumWeight", expression = "java(stats.getMaximumWeight())")
+    public abstract BookCacheStatsView toBookCacheStatsView(BookCacheStatsDTO stats);
+
+    public abstract List<CompletionView> toCompletionView(List<CompletionDTO> completions);
+
+    @Mapping(target = "rowCount", expression = "java(report.getRowCount())")
+    @Mapping(target = "importedCount", expression = "java(report.getImportedCount())")
+    @Mapping(target = "failedCount", expression = "java(report.getFailedCount())")
+    @Mapping(target = "elapsedMillis", expression = "java(report.getElapsedMillis())")
+    @Mapping(target = "rowsPerSecond", expression = "java(report.getRowsPerSecond())")
+    public abstract BookImportReportView toBookImportReportView(BookImportReportDTO report);
+
+    @Mapping(target = "line", expression = "java(error.getLine())")
+    public abstract BookImportErrorView toBookImportErrorView(BookImportErrorDTO error);
+
     protected List<String> mapAuthors(List<Author> authors) {
         return authors.stream()
                 .map(Author::getName)
@@ -41,19 +74,27 @@ public abstract class BookViewMapper extends MapperInterface {
 
     @Named(value = "mapBookLinks")
     public Map<String, Object> mapLinks(final Book book) {
+        return bookLinks(book.getIsbn(), book.getAuthors().stream().map(Author::getAuthorNumber).toList());
+    }
+
+    public Map<String, Object> mapLinks(final BookSnapshot book) {
+        return bookLinks(book.getIsbn(), book.getAuthorNumbers());
+    }
+
+    private Map<String, Object> bookLinks(final String isbn, final List<String> authorNumbers) {
         String bookUri = ServletUriComponentsBuilder.fromCurrentContextPath()
                 .path("/api/books/")
-                .path(book.getIsbn())
+                .path(isbn)
                 .toUriString();
 
         Map<String, Object> links = new HashMap<>();
         links.put("self", bookUri);
 
-        List<Map<String, String>> authorLinks = book.getAuthors().stream()
-                .map(author -> {
+        List<Map<String, String>> authorLinks = authorNumbers.stream()
+                .map(authorNumber -> {
                     String authorUri = ServletUriComponentsBuilder.fromCurrentContextPath()
                             .path("/api/authors/")
-                            .path(author.getAuthorNumber())
+                            .path(authorNumber)
                             .toUriString();
                     Map<String, String> authorLink = new HashMap<>();
                     authorLink.put("href", authorUri);
@@ -62,14 +103,13 @@ public abstract class BookViewMapper extends MapperInterface {
                 .collect(Collectors.toList());
 
         links.put("authors", authorLinks);
-        links.put("photo", generatePhotoUrl(book));
+        links.put("photo", generatePhotoUrl(isbn));
 
         return links;
     }
 
 
-    protected String generatePhotoUrl(Book book) {
-        String isbn = book.getIsbn();
+    protected String generatePhotoUrl(String isbn) {
         return ServletUriComponentsBuilder.fromCurrentContextPath().path("/api/books/{isbn}/photo").buildAndExpand(isbn).toUri().toString();
     }
 }
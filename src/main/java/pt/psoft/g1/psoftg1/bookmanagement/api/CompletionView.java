@@ -0,0 +1,18 @@
+package pt.psoft.g1.psoftg1.bookmanagement.api;
+
+import io.swagger.v3.oas.annotations.media.Schema;
+import lombok.Data;
+
+@Data
+@Schema(description = "A book title or author name completing the search text")
+public class CompletionView {
+    @Schema(description = "TITLE or AUTHOR")
+    private String type;
+
+    @Schema(description = "ISBN of the book, or number of the author")
+    private String key;
+
+    private String text;
+
+    private Long lendingCount;
+}
@@ -3,25 +3,34 @@ package pt.psoft.g1.psoftg1.bookmanagement.infrastructure.repositories.impl;
 import jakarta.persistence.EntityManager;
 import jakarta.persistence.TypedQuery;
 import jakarta.persistence.criteria.*;
+import jakarta.persistence.QueryHint;
 import lombok.RequiredArgsConstructor;
-import org.springframework.data.domain.Page;
-import org.springframework.data.domain.Pageable;
+import org.hibernate.jpa.HibernateHints;
+import org.springframework.data.jpa.repository.EntityGraph;
 import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
 import org.springframework.data.repository.CrudRepository;
 import org.springframework.data.repository.query.Param;
 import org.springframework.util.StringUtils;
 import pt.psoft.g1.psoftg1.authormanagement.model.Author;
 import pt.psoft.g1.psoftg1.bookmanagement.model.Book;
-import pt.psoft.g1.psoftg1.bookmanagement.services.BookCountDTO;
 import pt.psoft.g1.psoftg1.bookmanagement.model.Isbn;
 import pt.psoft.g1.psoftg1.bookmanagement.repositories.BookRepository;
 import pt.psoft.g1.psoftg1.bookmanagement.services.SearchBooksQuery;
+import pt.psoft.g1.psoftg1.bookmanagement.services.BookAuthorDTO;
+import pt.psoft.g1.psoftg1.bookmanagement.services.BookExportDTO;
+import pt.psoft.g1.psoftg1.bookmanagement.services.BookGenreDTO;
+import pt.psoft.g1.psoftg1.bookmanagement.services.BookSearchDocumentDTO;
+import pt.psoft.g1.psoftg1.bookmanagement.services.BookTitleDTO;
 import pt.psoft.g1.psoftg1.genremanagement.model.Genre;
+import pt.psoft.g1.psoftg1.shared.infrastructure.repositories.impl.Keyset;
+import pt.psoft.g1.psoftg1.shared.services.Cursor;
 
-import java.time.LocalDate;
 import java.util.ArrayList;
+import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
+import java.util.stream.Stream;
 
 public interface SpringDataBookRepository  extends BookRepository, BookRepoCustom, CrudRepository<Book, Isbn> {
 
@@ -31,22 +40,28 @@ public interface SpringDataBookRepository  extends BookRepository, BookRepoCusto
     Optional<Book> findByIsbn(@Param("isbn") String isbn);
 
     @Override
-    @Query("SELECT new pt.psoft.g1.psoftg1.bookmanagement.services.BookCountDTO(b, COUNT(l)) " +
-                "FROM Book b " +
-                "JOIN Lending l ON l.book = b " +
-                "WHERE l.startDate > :oneYearAgo " +
-                "GROUP BY b " +
-                "ORDER BY COUNT(l) DESC")
-    Page<BookCountDTO> findTop5BooksLent(@Param("oneYearAgo") LocalDate oneYearAgo, Pageable pageable);
+    @EntityGraph(Book.SUMMARY_GRAPH)
+    @Query("SELECT b " +
+            "FROM Book b " +
+            "WHERE b.isbn.isbn IN :isbns")
+    List<Book> findByIsbns(@Param("isbns") Collection<String> isbns);
+
+    @Override
+    @Query("SELECT b.isbn.isbn " +
+            "FROM Book b " +
+            "WHERE b.isbn.isbn IN :isbns")
+    List<String> findExistingIsbns(@Param("isbns") Collection<String> isbns);
 
 
     @Override
+    @EntityGraph(Book.SUMMARY_GRAPH)
     @Query("SELECT b " +
             "FROM Book b " +
             "WHERE b.genre.genre LIKE %:genre%")
     List<Book> findByGenre(@Param("genre") String genre);
 
     @Override
+    @EntityGraph(Book.SUMMARY_GRAPH)
     @Query("SELECT b FROM Book b WHERE b.title.title LIKE %:title%")
     List<Book> findByTitle(@Param("title") String title);
 
@@ -60,22 +75,70 @@ public interface SpringDataBookRepository  extends BookRepository, BookRepoCusto
             , nativeQuery = true)
     List<Book> findByAuthorName(@Param("authorName") String authorName);
 
+    // filtered in a subquery, as a join on b.authors would be reused to fetch only the matching author
     @Override
-    @Query(value =
-            "SELECT b.* " +
+    @EntityGraph(Book.SUMMARY_GRAPH)
+    @Query("SELECT b " +
             "FROM Book b " +
-            "JOIN BOOK_AUTHORS on b.pk = BOOK_AUTHORS.BOOK_PK " +
-            "JOIN AUTHOR a on BOOK_AUTHORS.AUTHORS_AUTHOR_NUMBER = a.AUTHOR_NUMBER " +
-            "WHERE a.AUTHOR_NUMBER = :authorNumber "
-            , nativeQuery = true)
-    List<Book> findBooksByAuthorNumber(String authorNumber);
+            "WHERE EXISTS (SELECT 1 FROM b.authors a WHERE a.authorNumber = :authorNumber)")
+    List<Book> findBooksByAuthorNumber(@Param("authorNumber") String authorNumber);
+
+
+    @Override
+    @Query("SELECT new pt.psoft.g1.psoftg1.bookmanagement.services.BookExportDTO(" +
+                "b.isbn.isbn, b.title.title, g.genre, LISTAGG(a.authorNumber, ';'), b.description.description) " +
+            "FROM Book b " +
+            "JOIN b.genre g " +
+            "LEFT JOIN b.authors a " +
+            "GROUP BY b.pk, b.isbn.isbn, b.title.title, g.genre, b.description.description " +
+            "ORDER BY b.pk")
+    @QueryHints(@QueryHint(name = HibernateHints.HINT_FETCH_SIZE, value = "500"))
+    Stream<BookExportDTO> streamAllForExport();
+
+    @Override
+    @Query("SELECT new pt.psoft.g1.psoftg1.bookmanagement.services.BookSearchDocumentDTO(" +
+                "b.isbn.isbn, b.title.title, g.genre, LISTAGG(a.name.name, ';'), b.description.description) " +
+            "FROM Book b " +
+            "JOIN b.genre g " +
+            "LEFT JOIN b.authors a " +
+            "GROUP BY b.pk, b.isbn.isbn, b.title.title, g.genre, b.description.description")
+    @QueryHints(@QueryHint(name = HibernateHints.HINT_FETCH_SIZE, value = "500"))
+    Stream<BookSearchDocumentDTO> streamAllForSearchIndex();
 
+    @Override
+    @Query("SELECT new pt.psoft.g1.psoftg1.bookmanagement.services.BookTitleDTO(" +
+                "b.isbn.isbn, b.title.title, LISTAGG(a.authorNumber, ';'), " +
+                "(SELECT COUNT(l) FROM Lending l WHERE l.book = b)) " +
+            "FROM Book b " +
+            "LEFT JOIN b.authors a " +
+            "GROUP BY b.pk, b.isbn.isbn, b.title.title")
+    @QueryHints(@QueryHint(name = HibernateHints.HINT_FETCH_SIZE, value = "500"))
+    Stream<BookTitleDTO> streamAllTitles();
+
+    @Override
+    @Query("SELECT new pt.psoft.g1.psoftg1.bookmanagement.services.BookGenreDTO(b.isbn.isbn, g.genre) " +
+            "FROM Book b " +
+            "JOIN b.genre g")
+    @QueryHints(@QueryHint(name = HibernateHints.HINT_FETCH_SIZE, value = "500"))
+    Stream<BookGenreDTO> streamAllGenres();
+
+    @Override
+    @Query("SELECT new pt.psoft.g1.psoftg1.bookmanagement.services.BookAuthorDTO(b.isbn.isbn, a.authorNumber) " +
+            "FROM Book b " +
+            "JOIN b.authors a")
+    @QueryHints(@QueryHint(name = HibernateHints.HINT_FETCH_SIZE, value = "500"))
+    Stream<BookAuthorDTO> streamAllBookAuthors();
 }
 
 
 interface BookRepoCustom {
     List<Book> searchBooks(pt.psoft.g1.psoftg1.shared.services.Page page, SearchBooksQuery query);
 
+    List<Book> findBooksMatchingAny(pt.psoft.g1.psoftg1.shared.services.Page page, SearchBooksQuery query);
+
+    List<String> findIsbnsByGenre(String genre, Collection<String> excluded, int limit);
+
+    void insertAll(List<Genre> genres, List<Author> authors, List<Book> books);
 }
 
 @RequiredArgsConstructor
@@ -109,13 +172,107 @@ class BookRepoCustomImpl implements BookRepoCustom {
         if (StringUtils.hasText(authorName))
             where.add(cb.like(authorJoin.get("name").get("name"), authorName + "%"));
 
+        // Order by title, alphabetically, with the ISBN as tie-breaker
+        final Path<String> titleKey = root.get("title").get("title");
+        final Path<String> isbnKey = root.get("isbn").get("isbn");
+        if (page.getCursor() != null) {
+            final Cursor cursor = Cursor.decode(page.getCursor(), 2);
+            where.add(Keyset.after(cb, titleKey, cursor.get(0), isbnKey, cursor.get(1), false));
+        }
+
+        cq.where(where.toArray(new Predicate[0]));
+        cq.orderBy(cb.asc(titleKey), cb.asc(isbnKey));
+
+        final TypedQuery<Book> q = em.createQuery(cq);
+        if (page.getCursor() == null)
+            q.setFirstResult((page.getNumber() - 1) * page.getLimit());
+        q.setMaxResults(page.getLimit());
+
+        return q.getResultList();
+    }
+
+    @Override
+    public List<String> findIsbnsByGenre(String genre, Collection<String> excluded, int limit)
+    {
+        final CriteriaBuilder cb = em.getCriteriaBuilder();
+        final CriteriaQuery<String> cq = cb.createQuery(String.class);
+        final Root<Book> root = cq.from(Book.class);
+        final Path<String> isbnKey = root.get("isbn").get("isbn");
+        cq.select(isbnKey);
+
+        final List<Predicate> where = new ArrayList<>();
+        where.add(cb.equal(root.get("genre").get("genre"), genre));
+        if (!excluded.isEmpty())
+            where.add(cb.not(isbnKey.in(excluded)));
+
+        cq.where(where.toArray(new Predicate[0]));
+        cq.orderBy(cb.asc(isbnKey));
+
+        return em.createQuery(cq).setMaxResults(limit).getResultList();
+    }
+
+    @Override
+    public List<Book> findBooksMatchingAny(pt.psoft.g1.psoftg1.shared.services.Page page, SearchBooksQuery query)
+    {
+        final CriteriaBuilder cb = em.getCriteriaBuilder();
+        final CriteriaQuery<Book> cq = cb.createQuery(Book.class);
+        final Root<Book> root = cq.from(Book.class);
+        cq.select(root);
+
+        final List<Predicate> any = new ArrayList<>();
+
+        if (StringUtils.hasText(query.getTitle()))
+            any.add(cb.like(root.get("title").get("title"), "%" + query.getTitle() + "%"));
+
+        if (StringUtils.hasText(query.getGenre()))
+            any.add(cb.like(root.get("genre").get("genre"), "%" + query.getGenre() + "%"));
+
+        if (StringUtils.hasText(query.getAuthorName())) {
+            // a subquery rather than a join, so a book with several matching authors is listed once
+            final Subquery<String> byAuthor = cq.subquery(String.class);
+            final Join<Book, Author> authorJoin = byAuthor.correlate(root).join("authors");
+            byAuthor.select(authorJoin.get("authorNumber"))
+                    .where(cb.like(authorJoin.get("name").get("name"), query.getAuthorName() + "%"));
+            any.add(cb.exists(byAuthor));
+        }
+
+        if (any.isEmpty())
+            return new ArrayList<>();
+
+        final List<Predicate> where = new ArrayList<>();
+        where.add(cb.or(any.toArray(new Predicate[0])));
+
+        // Order by title, alphabetically, with the ISBN as tie-breaker
+        final Path<String> titleKey = root.get("title").get("title");
+        final Path<String> isbnKey = root.get("isbn").get("isbn");
+        if (page.getCursor() != null) {
+            final Cursor cursor = Cursor.decode(page.getCursor(), 2);
+            where.add(Keyset.after(cb, titleKey, cursor.get(0), isbnKey, cursor.get(1), false));
+        }
+
         cq.where(where.toArray(new Predicate[0]));
-        cq.orderBy(cb.asc(root.get("title"))); // Order by title, alphabetically
+        cq.orderBy(cb.asc(titleKey), cb.asc(isbnKey));
 
         final TypedQuery<Book> q = em.createQuery(cq);
-        q.setFirstResult((page.getNumber() - 1) * page.getLimit());
+        if (page.getCursor() == null)
+            q.setFirstResult((page.getNumber() - 1) * page.getLimit());
         q.setMaxResults(page.getLimit());
 
         return q.getResultList();
     }
+
+    @Override
+    public void insertAll(List<Genre> genres, List<Author> authors, List<Book> books) {
+        for (Genre genre : genres) {
+            em.persist(genre);
+        }
+        for (Author author : authors) {
+            em.persist(author);
+        }
+        for (Book book : books) {
+            em.persist(book);
+        }
+        em.flush();
+        em.clear();
+    }
 }
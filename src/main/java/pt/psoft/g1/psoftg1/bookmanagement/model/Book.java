@@ -16,10 +16,18 @@ import java.util.List;
 import java.util.Objects;
 
 @Entity
+@NamedEntityGraph(name = Book.SUMMARY_GRAPH, attributeNodes = {
+        @NamedAttributeNode("genre"),
+        @NamedAttributeNode("authors"),
+        @NamedAttributeNode("photo")
+})
 @Table(name = "Book", uniqueConstraints = {
         @UniqueConstraint(name = "uc_book_isbn", columnNames = {"ISBN"})
 })
 public class Book extends EntityWithPhoto {
+    /**Fetches everything a book view shows with the book, for queries that are not paged.*/
+    public static final String SUMMARY_GRAPH = "Book.summary";
+
     @Id
     @Getter
     String pk;
@@ -60,7 +68,7 @@ public class Book extends EntityWithPhoto {
 
     private void setAuthors(List<Author> authors) {this.authors = authors; }
 
-    public String getDescription(){ return this.description.toString(); }
+    public String getDescription(){ return this.description == null ? null : this.description.toString(); }
 
     public Book(String pk,String isbn, String title, String description, Genre genre, List<Author> authors, String photoURI) {
         this.pk=pk;
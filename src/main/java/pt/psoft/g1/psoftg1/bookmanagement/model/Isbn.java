@@ -16,56 +16,96 @@ public class Isbn implements Serializable {
 
     String isbn;
 
+    /**
+     * @param isbn an ISBN-13 or ISBN-10, possibly with hyphens or spaces
+     * @throws IllegalArgumentException if it is not a valid ISBN; an ISBN-10 is kept as its ISBN-13
+     */
     public Isbn(String isbn) {
-        if (isValidIsbn(isbn)) {
-            this.isbn = isbn;
-        } else {
-            throw new IllegalArgumentException("Invalid ISBN-13 format or check digit.");
-        }
-    }
-
-    protected Isbn() {};
-
-    private static boolean isValidIsbn(String isbn) {
-        if(isbn == null)
+        if (isbn == null)
             throw new IllegalArgumentException("Isbn cannot be null");
-        return (isbn.length() == 10) ? isValidIsbn10(isbn) : isValidIsbn13(isbn);
+        final String canonical = canonical(isbn);
+        if (canonical == null)
+            throw new IllegalArgumentException("Invalid ISBN format or check digit.");
+        this.isbn = canonical;
     }
 
-    private static boolean isValidIsbn10(String isbn) {
-        if (!isbn.matches("\\d{9}[\\dX]")) {
-            return false;
-        }
+    protected Isbn() {};
 
-        int sum = 0;
-        for (int i = 0; i < 9; i++) {
-            sum += (isbn.charAt(i) - '0') * (10 - i);
+    /**
+     * @return the ISBN as 13 digits, which is how books are stored and looked up, or null if it is not a valid
+     * ISBN-13 or ISBN-10. An ISBN that already is 13 digits is returned as is.
+     */
+    public static String canonical(String isbn) {
+        if (isbn == null)
+            return null;
+        final long value = toIsbn13(isbn);
+        if (value < 0)
+            return null;
+        if (isbn.length() == 13 && isbn.indexOf('-') < 0 && isbn.indexOf(' ') < 0)
+            return isbn;
+        final char[] digits = new char[13];
+        long rest = value;
+        for (int i = 12; i >= 0; i--) {
+            digits[i] = (char) ('0' + rest % 10);
+            rest /= 10;
         }
-
-        char lastChar = isbn.charAt(9);
-        int lastDigit = (lastChar == 'X') ? 10 : lastChar - '0';
-        sum += lastDigit;
-
-        return sum % 11 == 0;
+        return new String(digits);
     }
 
-    private static boolean isValidIsbn13(String isbn) {
-        if (isbn == null || !isbn.matches("\\d{13}")) {
-            return false;
-        }
-
-        int sum = 0;
-        for (int i = 0; i < 12; i++) {
-            int digit = Integer.parseInt(isbn.substring(i, i + 1));
-            sum += (i % 2 == 0) ? digit : digit * 3;
-        }
+    /**
+     * @return the canonical form of the ISBN if it is valid, or the ISBN unchanged, so a lookup of an invalid ISBN
+     * simply finds nothing
+     */
+    public static String canonicalOrSelf(String isbn) {
+        final String canonical = canonical(isbn);
+        return canonical == null ? isbn : canonical;
+    }
 
-        int checksum = 10 - (sum % 10);
-        if (checksum == 10) {
-            checksum = 0;
+    /**
+     * Validates an ISBN-13 or ISBN-10 in a single pass, skipping hyphens and spaces, without allocating.
+     *
+     * @return the ISBN-13 as a number, with an ISBN-10 converted to its 978 ISBN-13, or -1 if it is not valid
+     */
+    public static long toIsbn13(CharSequence isbn) {
+        long value = 0;
+        long firstNine = 0;
+        int count = 0;
+        boolean checkX = false;
+        // checksums of the digits as an ISBN-13, as an ISBN-10, and as the ISBN-13 of an ISBN-10, where 978 weighs 38
+        int sum13 = 0;
+        int sum10 = 0;
+        int sum978 = 38;
+        final int length = isbn.length();
+        for (int i = 0; i < length; i++) {
+            final char c = isbn.charAt(i);
+            if (c == '-' || c == ' ')
+                continue;
+            final int digit;
+            if (c >= '0' && c <= '9')
+                digit = c - '0';
+            else if ((c == 'X' || c == 'x') && count == 9)
+                digit = 10;
+            else
+                return -1;
+            // an X check digit must be the last, and no ISBN has more than 13 digits
+            if (checkX || count == 13)
+                return -1;
+            checkX = digit == 10;
+            value = value * 10 + digit;
+            sum13 += (count & 1) == 0 ? digit : digit * 3;
+            if (count < 10)
+                sum10 += digit * (10 - count);
+            if (count < 9) {
+                firstNine = firstNine * 10 + digit;
+                sum978 += (count & 1) == 0 ? digit * 3 : digit;
+            }
+            count++;
         }
-
-        return checksum == Integer.parseInt(isbn.substring(12));
+        if (count == 13)
+            return sum13 % 10 == 0 ? value : -1;
+        if (count == 10 && sum10 % 11 == 0)
+            return 9_780_000_000_000L + firstNine * 10 + (10 - sum978 % 10) % 10;
+        return -1;
     }
 
     public String toString() {
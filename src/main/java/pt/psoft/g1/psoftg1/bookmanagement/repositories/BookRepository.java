@@ -1,15 +1,20 @@
 package pt.psoft.g1.psoftg1.bookmanagement.repositories;
 
-import org.springframework.data.domain.Page;
-import org.springframework.data.domain.Pageable;
 import org.springframework.data.repository.query.Param;
+import pt.psoft.g1.psoftg1.authormanagement.model.Author;
 import pt.psoft.g1.psoftg1.bookmanagement.model.Book;
-import pt.psoft.g1.psoftg1.bookmanagement.services.BookCountDTO;
 import pt.psoft.g1.psoftg1.bookmanagement.services.SearchBooksQuery;
+import pt.psoft.g1.psoftg1.bookmanagement.services.BookAuthorDTO;
+import pt.psoft.g1.psoftg1.bookmanagement.services.BookExportDTO;
+import pt.psoft.g1.psoftg1.bookmanagement.services.BookGenreDTO;
+import pt.psoft.g1.psoftg1.bookmanagement.services.BookSearchDocumentDTO;
+import pt.psoft.g1.psoftg1.bookmanagement.services.BookTitleDTO;
+import pt.psoft.g1.psoftg1.genremanagement.model.Genre;
 
-import java.time.LocalDate;
+import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
+import java.util.stream.Stream;
 
 
 /**
@@ -22,11 +27,40 @@ public interface BookRepository {
     List<Book> findByTitle(@Param("title") String title);
     List<Book> findByAuthorName(@Param("authorName") String authorName);
     Optional<Book> findByIsbn(@Param("isbn") String isbn);
-    Page<BookCountDTO> findTop5BooksLent(@Param("oneYearAgo") LocalDate oneYearAgo, Pageable pageable);
+    List<Book> findByIsbns(Collection<String> isbns);
+    List<String> findExistingIsbns(Collection<String> isbns);
     List<Book> findBooksByAuthorNumber(String authorNumber);
 
     List<Book> searchBooks(pt.psoft.g1.psoftg1.shared.services.Page page, SearchBooksQuery query);
 
+    /**
+     * One page of the books matching any of the criteria, ordered by title then ISBN: a title containing the given
+     * title, a genre containing the given genre, or an author whose name starts with the given author name. The
+     * comparisons are case-sensitive and the text is not escaped, so {@code %} and {@code _} in it are {@code LIKE}
+     * wildcards. Blank criteria are ignored.
+     */
+    List<Book> findBooksMatchingAny(pt.psoft.g1.psoftg1.shared.services.Page page, SearchBooksQuery query);
+
+    /**
+     * @param genre     exact name of the genre
+     * @param excluded  ISBNs to leave out
+     * @param limit     maximum number of ISBNs
+     * @return ISBNs of books of the genre, in ISBN order
+     */
+    List<String> findIsbnsByGenre(String genre, Collection<String> excluded, int limit);
+
     Book save(Book book);
+
+    /**
+     * Inserts new genres, authors and books in one flush, so the inserts are sent in JDBC batches, then detaches
+     * every entity of the persistence context so it does not grow from one chunk of an import to the next.
+     * Must be called in a transaction.
+     */
+    void insertAll(List<Genre> genres, List<Author> authors, List<Book> books);
     void delete(Book book);
+    Stream<BookExportDTO> streamAllForExport();
+    Stream<BookSearchDocumentDTO> streamAllForSearchIndex();
+    Stream<BookTitleDTO> streamAllTitles();
+    Stream<BookGenreDTO> streamAllGenres();
+    Stream<BookAuthorDTO> streamAllBookAuthors();
 }
@@ -0,0 +1,376 @@
+package pt.psoft.g1.psoftg1.bookmanagement.services;
+
+import lombok.RequiredArgsConstructor;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.annotation.Transactional;
+import pt.psoft.g1.psoftg1.authormanagement.model.Author;
+import pt.psoft.g1.psoftg1.authormanagement.repositories.AuthorRepository;
+import pt.psoft.g1.psoftg1.authormanagement.services.AuthorNameDTO;
+import pt.psoft.g1.psoftg1.bookmanagement.model.Book;
+import pt.psoft.g1.psoftg1.bookmanagement.repositories.BookRepository;
+import pt.psoft.g1.psoftg1.shared.services.AfterCommit;
+import pt.psoft.g1.psoftg1.shared.services.SearchText;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Stream;
+
+/**
+ * Completes the text typed in the catalogue search box with book titles and author names, most lent first.
+ * <p>Titles and names are folded by {@link SearchText} and kept in a radix tree. Names can also be completed
+ * from any of their words, and titles after a leading article ("maias" completes "Os Maias"). Every node caches
+ * the best {@value #MAX_COMPLETIONS} completions of its subtree, so a lookup only walks the prefix. A change only
+ * clears the caches along the paths of the changed entry, which are rebuilt from the children on the next lookup.
+ * <p>The index is loaded once the application is ready, with the lending count of every book and author, and
+ * kept current by the book, author and lending services. Changes made inside a transaction are only applied after
+ * it commits.
+ */
+@Component
+@RequiredArgsConstructor
+public class BookAutocompleteIndex {
+    /**Maximum number of completions of a prefix.*/
+    public static final int MAX_COMPLETIONS = 20;
+
+    private static final int[] NO_IDS = new int[0];
+    private static final Node[] NO_CHILDREN = new Node[0];
+
+    private final BookRepository bookRepository;
+    private final AuthorRepository authorRepository;
+
+    private final Node root = new Node("");
+    private final List<Entry> entries = new ArrayList<>();
+    private final Map<String, Integer> titleIds = new HashMap<>();
+    private final Map<String, Integer> authorIds = new HashMap<>();
+    private final Map<String, String[]> bookAuthors = new HashMap<>();
+
+    @EventListener(ApplicationReadyEvent.class)
+    @Transactional(readOnly = true)
+    public void load() {
+        final Map<String, Long> authorLendings = new HashMap<>();
+        try (Stream<BookTitleDTO> titles = bookRepository.streamAllTitles()) {
+            titles.forEach(title -> {
+                final String[] authorNumbers = title.getAuthorNumbers() == null
+                        ? new String[0] : title.getAuthorNumbers().split(";");
+                putTitle(title.getIsbn(), title.getTitle(), authorNumbers, title.getLendingCount());
+                for (String authorNumber : authorNumbers) {
+                    authorLendings.merge(authorNumber, title.getLendingCount(), Long::sum);
+                }
+            });
+        }
+        try (Stream<AuthorNameDTO> authors = authorRepository.streamAllNames()) {
+            authors.forEach(author -> putAuthor(author.getAuthorNumber(), author.getName(),
+                    authorLendings.getOrDefault(author.getAuthorNumber(), 0L)));
+        }
+    }
+
+    /**
+     * Adds the title of a book, or replaces its previous title.
+     */
+    public void add(Book book) {
+        final String isbn = book.getIsbn();
+        final String title = book.getTitle().toString();
+        final String[] authorNumbers = book.getAuthors().stream().map(Author::getAuthorNumber).toArray(String[]::new);
+        AfterCommit.execute(() -> putTitle(isbn, title, authorNumbers, 0));
+    }
+
+    /**
+     * Adds the name of an author, or replaces their previous name.
+     */
+    public void add(Author author) {
+        final String authorNumber = author.getAuthorNumber();
+        final String name = author.getName();
+        AfterCommit.execute(() -> putAuthor(authorNumber, name, 0));
+    }
+
+    /**
+     * Counts a new lending of a book, and of its authors.
+     */
+    public void lent(String isbn) {
+        AfterCommit.execute(() -> countLending(isbn));
+    }
+
+    /**
+     * @param prefix    text typed so far; accents, case and punctuation are ignored
+     * @param limit     maximum number of completions, up to {@value #MAX_COMPLETIONS}
+     * @return the titles and names starting with {@code prefix}, most lent first
+     */
+    public synchronized List<CompletionDTO> complete(String prefix, int limit) {
+        final String key = String.join(" ", SearchText.words(prefix));
+        final List<CompletionDTO> completions = new ArrayList<>();
+        if (key.isEmpty())
+            return completions;
+
+        final Node node = find(key);
+        if (node == null)
+            return completions;
+        final int[] best = top(node);
+        for (int i = 0; i < best.length && i < limit; i++) {
+            final Entry entry = entries.get(best[i]);
+            completions.add(new CompletionDTO(entry.type, entry.key, entry.text, entry.lendingCount));
+        }
+        return completions;
+    }
+
+    synchronized void putTitle(String isbn, String title, String[] authorNumbers, long lendingCount) {
+        bookAuthors.put(isbn, authorNumbers);
+        put(titleIds, CompletionDTO.Type.TITLE, isbn, title, lendingCount);
+    }
+
+    synchronized void putAuthor(String authorNumber, String name, long lendingCount) {
+        put(authorIds, CompletionDTO.Type.AUTHOR, authorNumber, name, lendingCount);
+    }
+
+    synchronized void countLending(String isbn) {
+        increment(titleIds.get(isbn));
+        for (String authorNumber : bookAuthors.getOrDefault(isbn, new String[0])) {
+            increment(authorIds.get(authorNumber));
+        }
+    }
+
+    private void put(Map<String, Integer> ids, CompletionDTO.Type type, String key, String text, long lendingCount) {
+        final Integer id = ids.get(key);
+        if (id == null) {
+            final Entry entry = new Entry(type, key, text, lendingCount);
+            ids.put(key, entries.size());
+            entries.add(entry);
+            for (String path : entry.paths) {
+                insert(path, entries.size() - 1);
+            }
+            return;
+        }
+
+        final Entry entry = entries.get(id);
+        if (entry.text.equals(text))
+            return;
+        for (String path : entry.paths) {
+            remove(path, id);
+        }
+        entry.setText(text);
+        for (String path : entry.paths) {
+            insert(path, id);
+        }
+    }
+
+    private void increment(Integer id) {
+        if (id == null)
+            return;
+        final Entry entry = entries.get(id);
+        entry.lendingCount++;
+        for (String path : entry.paths) {
+            invalidate(path);
+        }
+    }
+
+    private void insert(String path, int id) {
+        Node node = root;
+        int i = 0;
+        while (true) {
+            node.top = null;
+            if (i == path.length()) {
+                node.ids = Arrays.copyOf(node.ids, node.ids.length + 1);
+                node.ids[node.ids.length - 1] = id;
+                return;
+            }
+
+            final int c = node.childIndex(path.charAt(i));
+            if (c < 0) {
+                final Node leaf = new Node(path.substring(i));
+                leaf.ids = new int[]{id};
+                node.insertChild(-c - 1, leaf);
+                return;
+            }
+
+            Node child = node.children[c];
+            final int common = commonPrefix(child.label, path, i);
+            if (common < child.label.length()) {
+                // the path leaves the edge halfway, so the edge is split there
+                final Node split = new Node(child.label.substring(0, common));
+                child.label = child.label.substring(common);
+                split.children = new Node[]{child};
+                node.children[c] = split;
+                child = split;
+            }
+            node = child;
+            i += common;
+        }
+    }
+
+    private void remove(String path, int id) {
+        final List<Node> nodes = new ArrayList<>();
+        Node node = root;
+        int i = 0;
+        while (node != null) {
+            nodes.add(node);
+            node.top = null;
+            if (i == path.length())
+                break;
+            final int c = node.childIndex(path.charAt(i));
+            node = c < 0 ? null : node.children[c];
+            if (node != null)
+                i += node.label.length();
+        }
+        if (node == null)
+            return;
+
+        node.ids = Arrays.stream(node.ids).filter(other -> other != id).toArray();
+        // prune the branch that no longer leads to any entry
+        for (int n = nodes.size() - 1; n > 0; n--) {
+            final Node leaf = nodes.get(n);
+            if (leaf.ids.length > 0 || leaf.children.length > 0)
+                break;
+            nodes.get(n - 1).removeChild(leaf);
+        }
+    }
+
+    private void invalidate(String path) {
+        Node node = root;
+        int i = 0;
+        while (node != null) {
+            node.top = null;
+            if (i == path.length())
+                return;
+            final int c = node.childIndex(path.charAt(i));
+            node = c < 0 ? null : node.children[c];
+            if (node != null)
+                i += node.label.length();
+        }
+    }
+
+    // the node whose subtree holds the paths starting with prefix, if any
+    private Node find(String prefix) {
+        Node node = root;
+        int i = 0;
+        while (i < prefix.length()) {
+            final int c = node.childIndex(prefix.charAt(i));
+            if (c < 0)
+                return null;
+            node = node.children[c];
+            final int common = commonPrefix(node.label, prefix, i);
+            if (common < node.label.length() && i + common < prefix.length())
+                return null;
+            i += common;
+        }
+        return node;
+    }
+
+    private int[] top(Node node) {
+        if (node.top != null)
+            return node.top;
+
+        int[] candidates = node.ids;
+        for (Node child : node.children) {
+            final int[] best = top(child);
+            final int length = candidates.length;
+            candidates = Arrays.copyOf(candidates, length + best.length);
+            System.arraycopy(best, 0, candidates, length, best.length);
+        }
+        // an entry reachable by two of its paths appears twice
+        final int[] best = Arrays.stream(candidates).distinct().boxed()
+                .sorted(this::compare)
+                .limit(MAX_COMPLETIONS)
+                .mapToInt(Integer::intValue)
+                .toArray();
+        node.top = best;
+        return best;
+    }
+
+    private int compare(int a, int b) {
+        final Entry x = entries.get(a);
+        final Entry y = entries.get(b);
+        if (x.lendingCount != y.lendingCount)
+            return Long.compare(y.lendingCount, x.lendingCount);
+        final int byText = x.paths[0].compareTo(y.paths[0]);
+        return byText != 0 ? byText : Integer.compare(a, b);
+    }
+
+    private static int commonPrefix(String label, String path, int from) {
+        int n = 0;
+        while (n < label.length() && from + n < path.length() && label.charAt(n) == path.charAt(from + n)) {
+            n++;
+        }
+        return n;
+    }
+
+    private static final class Entry {
+        final CompletionDTO.Type type;
+        final String key;
+        String text;
+        // folded text, then the suffixes it can also be completed from
+        String[] paths;
+        long lendingCount;
+
+        Entry(CompletionDTO.Type type, String key, String text, long lendingCount) {
+            this.type = type;
+            this.key = key;
+            this.lendingCount = lendingCount;
+            setText(text);
+        }
+
+        void setText(String text) {
+            this.text = text;
+            final List<String> words = SearchText.words(text);
+            final List<String> paths = new ArrayList<>();
+            paths.add(String.join(" ", words));
+            if (type == CompletionDTO.Type.AUTHOR) {
+                for (int i = 1; i < words.size(); i++) {
+                    if (!SearchText.isStopWord(words.get(i)))
+                        paths.add(String.join(" ", words.subList(i, words.size())));
+                }
+            } else {
+                int first = 0;
+                while (first < words.size() - 1 && SearchText.isStopWord(words.get(first))) {
+                    first++;
+                }
+                if (first > 0)
+                    paths.add(String.join(" ", words.subList(first, words.size())));
+            }
+            this.paths = paths.toArray(new String[0]);
+        }
+    }
+
+    private static final class Node {
+        String label;
+        Node[] children = NO_CHILDREN;
+        // entries whose path ends here
+        int[] ids = NO_IDS;
+        // best entries of the subtree, or null when it has to be recomputed
+        int[] top;
+
+        Node(String label) {
+            this.label = label;
+        }
+
+        int childIndex(char c) {
+            int low = 0;
+            int high = children.length - 1;
+            while (low <= high) {
+                final int mid = (low + high) >>> 1;
+                final char m = children[mid].label.charAt(0);
+                if (m < c)
+                    low = mid + 1;
+                else if (m > c)
+                    high = mid - 1;
+                else
+                    return mid;
+            }
+            return -low - 1;
+        }
+
+        void insertChild(int index, Node child) {
+            final Node[] grown = new Node[children.length + 1];
+            System.arraycopy(children, 0, grown, 0, index);
+            grown[index] = child;
+            System.arraycopy(children, index, grown, index + 1, children.length - index);
+            children = grown;
+        }
+
+        void removeChild(Node child) {
+            children = Arrays.stream(children).filter(other -> other != child).toArray(Node[]::new);
+        }
+    }
+}
@@ -0,0 +1,100 @@
+package pt.psoft.g1.psoftg1.bookmanagement.services;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.stats.CacheStats;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+import pt.psoft.g1.psoftg1.bookmanagement.model.Book;
+import pt.psoft.g1.psoftg1.bookmanagement.model.Isbn;
+import pt.psoft.g1.psoftg1.bookmanagement.repositories.BookRepository;
+import pt.psoft.g1.psoftg1.shared.services.AfterCommit;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.Optional;
+
+/**
+ * Read-through cache of {@link BookSnapshot}s by ISBN, bounded both in number of books and in estimated heap.
+ * <p>Eviction is W-TinyLFU (Caffeine), so books looked up often stay cached even when a scan of rarely read books
+ * goes through. A book is loaded inside the cache's per-key computation, and changes evict it after their
+ * transaction commits, which waits for any load of the same book in progress; a load can therefore never put back
+ * a version older than the committed one.
+ * <p>Evictions only reach the cache of the instance that made the change, so books also expire
+ * {@code book-cache.expire-after-write-seconds} after they are loaded: changes made by other instances are served
+ * stale for at most that long.
+ */
+@Component
+public class BookCache {
+    private final BookRepository bookRepository;
+    private final TransactionTemplate readOnly;
+    private final long maximumWeight;
+    private final Cache<String, BookSnapshot> cache;
+
+    public BookCache(BookRepository bookRepository,
+                     PlatformTransactionManager transactionManager,
+                     @Value("${book-cache.maximum-size}") long maximumSize,
+                     @Value("${book-cache.maximum-weight}") long maximumWeight,
+                     @Value("${book-cache.expire-after-write-seconds}") long expireAfterWriteSeconds) {
+        this.bookRepository = bookRepository;
+        this.readOnly = new TransactionTemplate(transactionManager);
+        this.readOnly.setReadOnly(true);
+        this.maximumWeight = maximumWeight;
+        // Caffeine bounds either the count or the weight: giving every book a minimum weight bounds both
+        final int minimumWeight = (int) Math.max(1, maximumWeight / maximumSize);
+        this.cache = Caffeine.newBuilder()
+                .maximumWeight(maximumWeight)
+                .weigher((String isbn, BookSnapshot book) -> Math.max(minimumWeight, book.weight()))
+                .expireAfterWrite(Duration.ofSeconds(expireAfterWriteSeconds))
+                .recordStats()
+                .build();
+    }
+
+    /**
+     * @return the book with the given ISBN, from the cache or else from the database
+     */
+    public Optional<BookSnapshot> get(String isbn) {
+        return Optional.ofNullable(cache.get(Isbn.canonicalOrSelf(isbn), this::load));
+    }
+
+    /**
+     * Evicts a changed book once the current transaction commits, unless a newer version is already cached.
+     * @param book  the book as saved, with its new {@code @Version}
+     */
+    public void evict(Book book) {
+        final String isbn = book.getIsbn();
+        AfterCommit.execute(() -> {
+            final long version = book.getVersion() == null ? Long.MAX_VALUE : book.getVersion();
+            cache.asMap().computeIfPresent(isbn, (k, cached) -> cached.getVersion() < version ? null : cached);
+        });
+    }
+
+    /**
+     * Evicts books whose cached snapshot changed without a new version of the book, such as the books of a renamed
+     * author, once the current transaction commits.
+     */
+    public void evictAll(List<String> isbns) {
+        AfterCommit.execute(() -> cache.invalidateAll(isbns));
+    }
+
+    public BookCacheStatsDTO stats() {
+        final CacheStats stats = cache.stats();
+        final long weight = cache.policy().eviction()
+                .map(eviction -> eviction.weightedSize().orElse(0))
+                .orElse(0L);
+        return new BookCacheStatsDTO(stats.hitCount(), stats.missCount(), stats.hitRate(), stats.evictionCount(),
+                stats.evictionWeight(), cache.estimatedSize(), weight, maximumWeight);
+    }
+
+    // runs pending evictions now, instead of on the next cache accesses
+    void cleanUp() {
+        cache.cleanUp();
+    }
+
+    private BookSnapshot load(String isbn) {
+        // a snapshot copies the authors, which are loaded lazily
+        return readOnly.execute(status -> bookRepository.findByIsbn(isbn).map(BookSnapshot::of).orElse(null));
+    }
+}
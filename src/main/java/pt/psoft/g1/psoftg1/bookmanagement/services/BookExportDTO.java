@@ -0,0 +1,28 @@
+package pt.psoft.g1.psoftg1.bookmanagement.services;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import pt.psoft.g1.psoftg1.shared.services.ExportRow;
+
+import java.util.Arrays;
+import java.util.List;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class BookExportDTO implements ExportRow {
+    public static final List<String> COLUMNS = List.of("isbn", "title", "genre", "authors", "description");
+
+    private String isbn;
+    private String title;
+    private String genre;
+    /**Author numbers, separated by {@code ;}.*/
+    private String authors;
+    private String description;
+
+    @Override
+    public List<Object> values() {
+        return Arrays.asList(isbn, title, genre, authors, description);
+    }
+}
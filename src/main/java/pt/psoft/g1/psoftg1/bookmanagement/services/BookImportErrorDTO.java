@@ -0,0 +1,15 @@
+package pt.psoft.g1.psoftg1.bookmanagement.services;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class BookImportErrorDTO {
+    /**Line of the file the row starts on, counting the header as line 1.*/
+    private int line;
+    private String isbn;
+    private String message;
+}
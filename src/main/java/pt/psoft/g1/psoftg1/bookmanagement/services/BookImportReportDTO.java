@@ -0,0 +1,20 @@
+package pt.psoft.g1.psoftg1.bookmanagement.services;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class BookImportReportDTO {
+    private long rowCount;
+    private long importedCount;
+    private long failedCount;
+    private long elapsedMillis;
+    private double rowsPerSecond;
+    /**Errors of the first failed rows, up to {@value BookImporter#MAX_REPORTED_ERRORS}.*/
+    private List<BookImportErrorDTO> errors;
+}
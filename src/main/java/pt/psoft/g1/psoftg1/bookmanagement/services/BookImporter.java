@@ -0,0 +1,332 @@
+package pt.psoft.g1.psoftg1.bookmanagement.services;
+
+import lombok.RequiredArgsConstructor;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.PropertySource;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+import pt.psoft.g1.psoftg1.authormanagement.model.Author;
+import pt.psoft.g1.psoftg1.authormanagement.repositories.AuthorRepository;
+import pt.psoft.g1.psoftg1.authormanagement.services.CoAuthorGraph;
+import pt.psoft.g1.psoftg1.bookmanagement.model.Book;
+import pt.psoft.g1.psoftg1.bookmanagement.model.Isbn;
+import pt.psoft.g1.psoftg1.bookmanagement.repositories.BookRepository;
+import pt.psoft.g1.psoftg1.exceptions.ConflictException;
+import pt.psoft.g1.psoftg1.genremanagement.model.Genre;
+import pt.psoft.g1.psoftg1.genremanagement.services.GenreRegistry;
+import pt.psoft.g1.psoftg1.idgenerator.IdGenerator;
+import pt.psoft.g1.psoftg1.shared.services.CsvReader;
+
+import java.io.Reader;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.stream.IntStream;
+
+/**
+ * Imports a partner catalogue from CSV, with a header line naming the {@code title}, {@code authors} (separated by
+ * {@code ;}), {@code genre}, {@code description} and {@code isbn} columns, in any order.
+ * <p>The file is read in chunks of {@code bookImportChunkSize} rows, so memory use is bounded by the chunk size. The
+ * books of a chunk are built, and so validated, in parallel. Genres and authors are matched by name against
+ * dictionaries loaded once per import, and the missing ones are created with the books. Each chunk is one
+ * transaction that inserts everything with JDBC batching, using ids allocated up front from {@link IdGenerator}.
+ * <p>A row that fails is reported with its line and does not stop the import. If a chunk cannot be written, all of
+ * its rows are reported as failed.
+ */
+@Component
+@RequiredArgsConstructor
+@PropertySource({"classpath:config/library.properties"})
+public class BookImporter {
+    private static final Logger logger = LogManager.getLogger();
+
+    /**Maximum number of errors in a report; the failed rows are all counted.*/
+    public static final int MAX_REPORTED_ERRORS = 1000;
+
+    static final String IMPORTED_AUTHOR_BIO = "Imported with a partner catalogue";
+
+    private static final List<String> REQUIRED_COLUMNS = List.of("title", "authors", "genre", "isbn");
+
+    private final BookRepository bookRepository;
+    private final GenreRegistry genreRegistry;
+    private final AuthorRepository authorRepository;
+    private final IdGenerator idGenerator;
+    private final PlatformTransactionManager transactionManager;
+    private final BookSearchIndex bookSearchIndex;
+    private final BookAutocompleteIndex bookAutocompleteIndex;
+    private final CoAuthorGraph coAuthorGraph;
+
+    private final AtomicBoolean running = new AtomicBoolean();
+
+    @Value("${bookImportChunkSize}")
+    private int chunkSize;
+
+    /**
+     * @param csv the catalogue, read up to its end but not closed
+     * @return how many rows were imported, how fast, and why the others were not
+     * @throws IllegalArgumentException if the header lacks a required column, or a quoted field is not closed
+     * @throws ConflictException if an import is already running
+     */
+    public BookImportReportDTO importCsv(Reader csv) {
+        if (!running.compareAndSet(false, true))
+            throw new ConflictException("A catalogue import is already running");
+        try {
+            return new Run(new CsvReader(csv)).execute();
+        } finally {
+            running.set(false);
+        }
+    }
+
+    private final class Run {
+        private final CsvReader reader;
+        private final long start = System.nanoTime();
+        private final Map<String, Genre> genres = new HashMap<>();
+        private final Map<String, Author> authors = new HashMap<>();
+        private final Set<String> importedIsbns = new HashSet<>();
+        private final List<BookImportErrorDTO> errors = new ArrayList<>();
+        private Map<String, Integer> columns;
+        private int columnCount;
+        // ids allocated for the current chunk
+        private final Set<String> chunkIds = new HashSet<>();
+        private long rowCount;
+        private long importedCount;
+        private long failedCount;
+
+        Run(CsvReader reader) {
+            this.reader = reader;
+        }
+
+        BookImportReportDTO execute() {
+            columns = readHeader();
+            new TransactionTemplate(transactionManager).executeWithoutResult(status -> {
+                for (Author author : authorRepository.findAll()) {
+                    authors.putIfAbsent(author.getName(), author);
+                }
+            });
+
+            final List<Row> chunk = new ArrayList<>(chunkSize);
+            for (List<String> fields = reader.next(); fields != null; fields = reader.next()) {
+                if (fields.size() == 1 && fields.get(0).isBlank())
+                    continue;
+                chunk.add(new Row(reader.getLine(), fields));
+                if (chunk.size() == chunkSize) {
+                    importChunk(chunk);
+                    chunk.clear();
+                }
+            }
+            if (!chunk.isEmpty())
+                importChunk(chunk);
+
+            final long elapsedMillis = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+            final double rowsPerSecond = rowCount * 1000.0 / Math.max(elapsedMillis, 1);
+            logger.info("Catalogue import: {} of {} rows imported in {} ms ({} rows/s)", importedCount, rowCount,
+                    elapsedMillis, String.format("%.1f", rowsPerSecond));
+            return new BookImportReportDTO(rowCount, importedCount, failedCount, elapsedMillis, rowsPerSecond,
+                    errors);
+        }
+
+        private Map<String, Integer> readHeader() {
+            final List<String> header = reader.next();
+            if (header == null)
+                throw new IllegalArgumentException("The catalogue is empty");
+            columnCount = header.size();
+            final Map<String, Integer> columns = new HashMap<>();
+            for (int i = 0; i < header.size(); i++) {
+                columns.put(header.get(i).replace("\uFEFF", "").trim().toLowerCase(Locale.ROOT), i);
+            }
+            for (String column : REQUIRED_COLUMNS) {
+                if (!columns.containsKey(column))
+                    throw new IllegalArgumentException("The catalogue header lacks the " + column + " column");
+            }
+            return columns;
+        }
+
+        private void importChunk(List<Row> chunk) {
+            rowCount += chunk.size();
+            // genres and authors first seen in this chunk, only kept if the chunk is written
+            final Map<String, Genre> newGenres = new HashMap<>();
+            final Map<String, Author> newAuthors = new HashMap<>();
+            chunkIds.clear();
+            final String[] ids = allocateIds(chunk.size());
+
+            for (Row row : chunk) {
+                try {
+                    resolve(row, newGenres, newAuthors);
+                } catch (IllegalArgumentException e) {
+                    row.error = e.getMessage();
+                }
+            }
+
+            IntStream.range(0, chunk.size()).parallel().forEach(i -> {
+                final Row row = chunk.get(i);
+                if (row.error != null)
+                    return;
+                try {
+                    row.book = new Book(ids[i], row.isbn, row.field("title"), row.field("description"), row.genre,
+                            row.authors, null);
+                } catch (IllegalArgumentException e) {
+                    row.error = e.getMessage();
+                }
+            });
+
+            final Set<String> chunkIsbns = new HashSet<>();
+            for (Row row : chunk) {
+                if (row.book != null && (importedIsbns.contains(row.isbn) || !chunkIsbns.add(row.isbn)))
+                    row.fail("Duplicate ISBN " + row.isbn + " in the catalogue");
+            }
+            if (!chunkIsbns.isEmpty()) {
+                final Set<String> existing = new HashSet<>(bookRepository.findExistingIsbns(chunkIsbns));
+                for (Row row : chunk) {
+                    if (row.book != null && existing.contains(row.isbn))
+                        row.fail("Book with ISBN " + row.isbn + " already exists");
+                }
+            }
+
+            final List<Book> books = new ArrayList<>();
+            final Set<Genre> usedGenres = new LinkedHashSet<>();
+            final Set<Author> usedAuthors = new LinkedHashSet<>();
+            for (Row row : chunk) {
+                if (row.book == null)
+                    continue;
+                books.add(row.book);
+                if (newGenres.get(row.genre.getGenre()) == row.genre)
+                    usedGenres.add(row.genre);
+                for (Author author : row.authors) {
+                    if (newAuthors.get(author.getName()) == author)
+                        usedAuthors.add(author);
+                }
+            }
+            if (!books.isEmpty())
+                write(chunk, books, usedGenres, usedAuthors);
+
+            for (Row row : chunk) {
+                if (row.error == null) {
+                    importedCount++;
+                    importedIsbns.add(row.isbn);
+                    continue;
+                }
+                failedCount++;
+                if (errors.size() < MAX_REPORTED_ERRORS)
+                    errors.add(new BookImportErrorDTO(row.line, row.isbn, row.error));
+            }
+        }
+
+        private void write(List<Row> chunk, List<Book> books, Set<Genre> usedGenres, Set<Author> usedAuthors) {
+            try {
+                new TransactionTemplate(transactionManager).executeWithoutResult(status -> {
+                    bookRepository.insertAll(new ArrayList<>(usedGenres), new ArrayList<>(usedAuthors), books);
+                    for (Author author : usedAuthors) {
+                        bookAutocompleteIndex.add(author);
+                    }
+                    for (Book book : books) {
+                        bookSearchIndex.index(book);
+                        bookAutocompleteIndex.add(book);
+                        coAuthorGraph.index(book);
+                    }
+                });
+            } catch (RuntimeException e) {
+                logger.warn("Catalogue import: chunk of {} books not written", books.size(), e);
+                for (Row row : chunk) {
+                    if (row.book != null)
+                        row.fail("Chunk not written: " + e.getMessage());
+                }
+                return;
+            }
+            for (Genre genre : usedGenres) {
+                genres.put(genre.getGenre(), genre);
+                genreRegistry.register(genre);
+            }
+            for (Author author : usedAuthors) {
+                authors.put(author.getName(), author);
+            }
+        }
+
+        // finds the genre and authors of a row by name, or creates them for this chunk
+        private void resolve(Row row, Map<String, Genre> newGenres, Map<String, Author> newAuthors) {
+            if (row.fields.size() != columnCount)
+                throw new IllegalArgumentException("Expected " + columnCount + " fields but found "
+                        + row.fields.size());
+            // the canonical ISBN-13, so ISBN-10s and hyphenated ISBNs are matched against the same key
+            row.isbn = Isbn.canonicalOrSelf(row.field("isbn"));
+
+            final String genreName = row.field("genre");
+            if (genreName == null)
+                throw new IllegalArgumentException("Genre cannot be blank");
+            row.genre = newGenres.get(genreName);
+            if (row.genre == null)
+                row.genre = genres.computeIfAbsent(genreName, name -> genreRegistry.find(name).orElse(null));
+            if (row.genre == null)
+                row.genre = newGenres.computeIfAbsent(genreName, Genre::new);
+
+            final String authorNames = row.field("authors");
+            if (authorNames == null)
+                throw new IllegalArgumentException("Author list is empty");
+            final Map<String, Author> rowAuthors = new LinkedHashMap<>();
+            for (String authorName : authorNames.split(";")) {
+                final String name = authorName.trim();
+                if (name.isEmpty() || rowAuthors.containsKey(name))
+                    continue;
+                Author author = authors.get(name);
+                if (author == null)
+                    author = newAuthors.get(name);
+                if (author == null) {
+                    author = new Author(allocateIds(1)[0], name, IMPORTED_AUTHOR_BIO, null);
+                    newAuthors.put(name, author);
+                }
+                rowAuthors.put(name, author);
+            }
+            row.authors = new ArrayList<>(rowAuthors.values());
+        }
+
+        // ids not allocated before in the chunk, as some generators may repeat an id within the same millisecond
+        private String[] allocateIds(int count) {
+            final String[] ids = new String[count];
+            int allocated = 0;
+            while (allocated < count) {
+                final String id = idGenerator.generateId();
+                if (chunkIds.add(id))
+                    ids[allocated++] = id;
+            }
+            return ids;
+        }
+
+        private final class Row {
+            final int line;
+            final List<String> fields;
+            String isbn;
+            Genre genre;
+            List<Author> authors;
+            Book book;
+            String error;
+
+            Row(int line, List<String> fields) {
+                this.line = line;
+                this.fields = fields;
+            }
+
+            // the trimmed value of a column, or null if it is missing or blank
+            String field(String column) {
+                final Integer index = columns.get(column);
+                if (index == null || index >= fields.size())
+                    return null;
+                final String value = fields.get(index).trim();
+                return value.isEmpty() ? null : value;
+            }
+
+            void fail(String message) {
+                book = null;
+                error = message;
+            }
+        }
+    }
+}
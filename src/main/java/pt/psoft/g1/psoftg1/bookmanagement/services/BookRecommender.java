@@ -0,0 +1,409 @@
+package pt.psoft.g1.psoftg1.bookmanagement.services;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.annotation.PropertySource;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+import pt.psoft.g1.psoftg1.bookmanagement.repositories.BookRepository;
+import pt.psoft.g1.psoftg1.lendingmanagement.repositories.LendingRepository;
+import pt.psoft.g1.psoftg1.lendingmanagement.services.ReaderBookDTO;
+import pt.psoft.g1.psoftg1.shared.services.AfterCommit;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.stream.IntStream;
+import java.util.stream.Stream;
+
+/**
+ * Suggests books to a reader from what the readers of the same books also borrowed, falling back to the most
+ * borrowed books of the genres they are interested in.
+ * <p>The model is an item-to-item similarity matrix: two books are similar when the same readers borrowed both,
+ * scored by the cosine of their sets of readers. Only the {@code suggestionsNeighbours} most similar books of each
+ * book are kept, as compressed sparse rows of primitive arrays. The model is built from the lending history once the
+ * application is ready and again by {@code suggestionsRebuildCron}, and its rows are computed in parallel.
+ * <p>The suggestions of a reader add up the similarities of the books they borrowed and leave those books out. They
+ * are cached per reader until the reader borrows a book or changes their interests, or the model is rebuilt.
+ */
+@Component
+@PropertySource({"classpath:config/library.properties"})
+public class BookRecommender {
+    private static final Logger logger = LogManager.getLogger();
+
+    private final BookRepository bookRepository;
+    private final LendingRepository lendingRepository;
+    private final TransactionTemplate readOnly;
+    private final int limit;
+    private final int limitPerGenre;
+    private final int neighbourCount;
+    private final Cache<String, List<String>> suggestions;
+    // incremented whenever suggestions are forgotten, so one computed meanwhile is not cached
+    private final AtomicLong invalidations = new AtomicLong();
+
+    private volatile Model model = new ModelBuilder().build(0);
+
+    public BookRecommender(BookRepository bookRepository,
+                           LendingRepository lendingRepository,
+                           PlatformTransactionManager transactionManager,
+                           @Value("${suggestionsLimit}") int limit,
+                           @Value("${suggestionsLimitPerGenre}") int limitPerGenre,
+                           @Value("${suggestionsNeighbours}") int neighbourCount,
+                           @Value("${book-suggestions.cache-maximum-size}") long cacheMaximumSize) {
+        this.bookRepository = bookRepository;
+        this.lendingRepository = lendingRepository;
+        this.readOnly = new TransactionTemplate(transactionManager);
+        this.readOnly.setReadOnly(true);
+        this.limit = limit;
+        this.limitPerGenre = limitPerGenre;
+        this.neighbourCount = neighbourCount;
+        this.suggestions = Caffeine.newBuilder()
+                .maximumSize(cacheMaximumSize)
+                .build();
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void load() {
+        rebuild();
+    }
+
+    /**
+     * Rebuilds the similarity model from the whole lending history, and forgets every cached suggestion.
+     */
+    @Scheduled(cron = "${suggestionsRebuildCron}")
+    public void rebuild() {
+        final long start = System.nanoTime();
+        final ModelBuilder builder = readOnly.execute(status -> {
+            final ModelBuilder history = new ModelBuilder();
+            try (Stream<BookGenreDTO> books = bookRepository.streamAllGenres()) {
+                books.forEach(book -> history.addBook(book.getIsbn(), book.getGenre()));
+            }
+            try (Stream<ReaderBookDTO> readerBooks = lendingRepository.streamReaderBooks()) {
+                readerBooks.forEach(readerBook -> history.addReaderBook(readerBook.getReaderNumber(), readerBook.getIsbn()));
+            }
+            return history;
+        });
+        // the rows are computed outside the transaction, which only reads the history
+        model = builder.build(neighbourCount);
+        invalidations.incrementAndGet();
+        suggestions.invalidateAll();
+        logger.info("Book suggestion model rebuilt with {} books and {} similarities in {} ms", model.isbns.length,
+                model.neighbours.length, TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start));
+    }
+
+    /**
+     * @param readerNumber  the reader
+     * @param interests     genres the reader is interested in, for when the lending history is not enough
+     * @return the ISBNs of the books suggested to the reader, best first, leaving out those they borrowed
+     */
+    public List<String> suggest(String readerNumber, List<String> interests) {
+        final List<String> cached = suggestions.getIfPresent(readerNumber);
+        if (cached != null)
+            return cached;
+        // computed outside the cache, which would otherwise hold the reader's entry during the queries
+        final long invalidation = invalidations.get();
+        final List<String> computed = compute(readerNumber, interests);
+        if (invalidations.get() == invalidation)
+            suggestions.put(readerNumber, computed);
+        return computed;
+    }
+
+    /**
+     * Forgets the cached suggestions of a reader once the current transaction commits, after they borrow a book or
+     * change their interests.
+     */
+    public void invalidate(String readerNumber) {
+        AfterCommit.execute(() -> {
+            invalidations.incrementAndGet();
+            suggestions.invalidate(readerNumber);
+        });
+    }
+
+    private List<String> compute(String readerNumber, List<String> interests) {
+        final Model current = model;
+        final Set<String> borrowed = new HashSet<>(lendingRepository.listBorrowedIsbnsByReaderNumber(readerNumber));
+        final List<String> result = current.similar(borrowed, limit);
+
+        final Set<String> excluded = new HashSet<>(borrowed);
+        excluded.addAll(result);
+        for (String genre : interests) {
+            int added = 0;
+            for (int book : current.popularByGenre.getOrDefault(genre, ModelBuilder.NO_IDS)) {
+                if (added == limitPerGenre || result.size() == limit)
+                    break;
+                if (excluded.add(current.isbns[book])) {
+                    result.add(current.isbns[book]);
+                    added++;
+                }
+            }
+            if (added < limitPerGenre && result.size() < limit) {
+                // books created since the model was built
+                for (String isbn : bookRepository.findIsbnsByGenre(genre, excluded,
+                        Math.min(limitPerGenre - added, limit - result.size()))) {
+                    excluded.add(isbn);
+                    result.add(isbn);
+                }
+            }
+        }
+        return List.copyOf(result);
+    }
+
+    /**
+     * Immutable similarity model. The neighbours of book {@code i}, most similar first, are in
+     * {@code neighbours[offsets[i]]} to {@code neighbours[offsets[i + 1] - 1]}, with their similarities at the same
+     * positions of {@code similarities}.
+     */
+    static final class Model {
+        final String[] isbns;
+        final Map<String, Integer> ids;
+        final int[] offsets;
+        final int[] neighbours;
+        final float[] similarities;
+        // ids of the books of each genre, most borrowed first
+        final Map<String, int[]> popularByGenre;
+
+        Model(String[] isbns, Map<String, Integer> ids, int[] offsets, int[] neighbours, float[] similarities,
+              Map<String, int[]> popularByGenre) {
+            this.isbns = isbns;
+            this.ids = ids;
+            this.offsets = offsets;
+            this.neighbours = neighbours;
+            this.similarities = similarities;
+            this.popularByGenre = popularByGenre;
+        }
+
+        /**
+         * @return the ISBNs of the books most similar to the borrowed ones, best first, leaving out borrowed ones
+         */
+        List<String> similar(Set<String> borrowed, int limit) {
+            final Map<Integer, Float> scores = new HashMap<>();
+            for (String isbn : borrowed) {
+                final Integer book = ids.get(isbn);
+                if (book == null)
+                    continue;
+                for (int i = offsets[book]; i < offsets[book + 1]; i++) {
+                    if (!borrowed.contains(isbns[neighbours[i]]))
+                        scores.merge(neighbours[i], similarities[i], Float::sum);
+                }
+            }
+            final List<String> result = new ArrayList<>(limit);
+            scores.entrySet().stream()
+                    .sorted(Map.Entry.<Integer, Float>comparingByValue().reversed()
+                            .thenComparing(entry -> isbns[entry.getKey()]))
+                    .limit(limit)
+                    .forEach(entry -> result.add(isbns[entry.getKey()]));
+            return result;
+        }
+    }
+
+    /**
+     * Collects the books and the lending history, then computes the similarity rows.
+     */
+    static final class ModelBuilder {
+        static final int[] NO_IDS = new int[0];
+
+        private final List<String> isbns = new ArrayList<>();
+        private final List<String> genres = new ArrayList<>();
+        private final Map<String, Integer> ids = new HashMap<>();
+        private final Map<String, Integer> readers = new HashMap<>();
+        // (reader, book) pairs, by id
+        private int[] pairReaders = new int[16];
+        private int[] pairBooks = new int[16];
+        private int pairs;
+
+        void addBook(String isbn, String genre) {
+            if (ids.putIfAbsent(isbn, isbns.size()) == null) {
+                isbns.add(isbn);
+                genres.add(genre);
+            }
+        }
+
+        /**
+         * Adds a book borrowed by a reader, once per reader and book. Books not added before are ignored.
+         */
+        void addReaderBook(String readerNumber, String isbn) {
+            final Integer book = ids.get(isbn);
+            if (book == null)
+                return;
+            if (pairs == pairBooks.length) {
+                pairReaders = Arrays.copyOf(pairReaders, pairs * 2);
+                pairBooks = Arrays.copyOf(pairBooks, pairs * 2);
+            }
+            pairReaders[pairs] = readers.computeIfAbsent(readerNumber, k -> readers.size());
+            pairBooks[pairs] = book;
+            pairs++;
+        }
+
+        Model build(int neighbourCount) {
+            final int bookCount = isbns.size();
+            final int[] bookOffsets = offsets(pairBooks, bookCount);
+            final int[] bookReaders = group(bookOffsets, pairBooks, pairReaders);
+            final int[] readerOffsets = offsets(pairReaders, readers.size());
+            final int[] readerBooks = group(readerOffsets, pairReaders, pairBooks);
+
+            final int[][] rowNeighbours = new int[bookCount][];
+            final float[][] rowSimilarities = new float[bookCount][];
+            // per-thread scratch: co-borrowing counts, indexed by book, and the books with a count
+            final ThreadLocal<int[][]> scratch = ThreadLocal.withInitial(() -> new int[][]{new int[bookCount], new int[bookCount]});
+            IntStream.range(0, bookCount).parallel().forEach(book -> {
+                final int[] counts = scratch.get()[0];
+                final int[] touched = scratch.get()[1];
+                int touchedCount = 0;
+                for (int r = bookOffsets[book]; r < bookOffsets[book + 1]; r++) {
+                    final int reader = bookReaders[r];
+                    for (int b = readerOffsets[reader]; b < readerOffsets[reader + 1]; b++) {
+                        final int other = readerBooks[b];
+                        if (other != book && counts[other]++ == 0)
+                            touched[touchedCount++] = other;
+                    }
+                }
+
+                final Neighbours best = new Neighbours(Math.min(neighbourCount, touchedCount));
+                final int readersOfBook = bookOffsets[book + 1] - bookOffsets[book];
+                for (int t = 0; t < touchedCount; t++) {
+                    final int other = touched[t];
+                    final int readersOfOther = bookOffsets[other + 1] - bookOffsets[other];
+                    best.offer(other, (float) (counts[other] / Math.sqrt((double) readersOfBook * readersOfOther)));
+                    counts[other] = 0;
+                }
+                best.sort();
+                rowNeighbours[book] = best.ids;
+                rowSimilarities[book] = best.similarities;
+            });
+
+            final int[] offsets = new int[bookCount + 1];
+            for (int book = 0; book < bookCount; book++) {
+                offsets[book + 1] = offsets[book] + rowNeighbours[book].length;
+            }
+            final int[] neighbours = new int[offsets[bookCount]];
+            final float[] similarities = new float[offsets[bookCount]];
+            for (int book = 0; book < bookCount; book++) {
+                System.arraycopy(rowNeighbours[book], 0, neighbours, offsets[book], rowNeighbours[book].length);
+                System.arraycopy(rowSimilarities[book], 0, similarities, offsets[book], rowSimilarities[book].length);
+            }
+
+            final Map<String, List<Integer>> byGenre = new HashMap<>();
+            for (int book = 0; book < bookCount; book++) {
+                byGenre.computeIfAbsent(genres.get(book), k -> new ArrayList<>()).add(book);
+            }
+            final Map<String, int[]> popularByGenre = new HashMap<>();
+            final Comparator<Integer> mostBorrowed = Comparator.<Integer>comparingInt(
+                    book -> bookOffsets[book + 1] - bookOffsets[book]).reversed()
+                    .thenComparing(isbns::get);
+            byGenre.forEach((genre, books) -> popularByGenre.put(genre,
+                    books.stream().sorted(mostBorrowed).mapToInt(Integer::intValue).toArray()));
+
+            return new Model(isbns.toArray(new String[0]), new HashMap<>(ids), offsets, neighbours, similarities,
+                    popularByGenre);
+        }
+
+        // start of the values of each key in the grouped array, and the total at the end
+        private int[] offsets(int[] keys, int keyCount) {
+            final int[] offsets = new int[keyCount + 1];
+            for (int i = 0; i < pairs; i++) {
+                offsets[keys[i] + 1]++;
+            }
+            for (int key = 0; key < keyCount; key++) {
+                offsets[key + 1] += offsets[key];
+            }
+            return offsets;
+        }
+
+        private int[] group(int[] offsets, int[] keys, int[] values) {
+            final int[] next = Arrays.copyOf(offsets, offsets.length - 1);
+            final int[] grouped = new int[pairs];
+            for (int i = 0; i < pairs; i++) {
+                grouped[next[keys[i]]++] = values[i];
+            }
+            return grouped;
+        }
+    }
+
+    /**
+     * The most similar books seen so far, in a bounded min-heap whose root is the least similar one. Ties go to the
+     * lowest id, so the model does not depend on the order the rows are computed in.
+     */
+    private static final class Neighbours {
+        final int[] ids;
+        final float[] similarities;
+        private int size;
+
+        Neighbours(int capacity) {
+            ids = new int[capacity];
+            similarities = new float[capacity];
+        }
+
+        void offer(int id, float similarity) {
+            if (size < ids.length) {
+                ids[size] = id;
+                similarities[size] = similarity;
+                siftUp(size++);
+            } else if (size > 0 && worse(ids[0], similarities[0], id, similarity)) {
+                ids[0] = id;
+                similarities[0] = similarity;
+                siftDown(0, size);
+            }
+        }
+
+        // sorts the heap in place, most similar first
+        void sort() {
+            for (int end = size - 1; end > 0; end--) {
+                swap(0, end);
+                siftDown(0, end);
+            }
+        }
+
+        private static boolean worse(int id, float similarity, int otherId, float otherSimilarity) {
+            return similarity < otherSimilarity || (similarity == otherSimilarity && id > otherId);
+        }
+
+        private void siftUp(int i) {
+            while (i > 0) {
+                final int parent = (i - 1) / 2;
+                if (!worse(ids[i], similarities[i], ids[parent], similarities[parent]))
+                    return;
+                swap(i, parent);
+                i = parent;
+            }
+        }
+
+        private void siftDown(int i, int end) {
+            while (true) {
+                int worst = i;
+                final int left = 2 * i + 1;
+                final int right = left + 1;
+                if (left < end && worse(ids[left], similarities[left], ids[worst], similarities[worst]))
+                    worst = left;
+                if (right < end && worse(ids[right], similarities[right], ids[worst], similarities[worst]))
+                    worst = right;
+                if (worst == i)
+                    return;
+                swap(i, worst);
+                i = worst;
+            }
+        }
+
+        private void swap(int a, int b) {
+            final int id = ids[a];
+            ids[a] = ids[b];
+            ids[b] = id;
+            final float similarity = similarities[a];
+            similarities[a] = similarities[b];
+            similarities[b] = similarity;
+        }
+    }
+}
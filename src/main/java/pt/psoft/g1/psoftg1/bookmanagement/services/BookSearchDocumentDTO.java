@@ -0,0 +1,32 @@
+package pt.psoft.g1.psoftg1.bookmanagement.services;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import pt.psoft.g1.psoftg1.authormanagement.model.Author;
+import pt.psoft.g1.psoftg1.bookmanagement.model.Book;
+
+import java.util.stream.Collectors;
+
+/**
+ * Text of a book indexed by {@link BookSearchIndex}.
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class BookSearchDocumentDTO {
+    private String isbn;
+    private String title;
+    private String genre;
+    /**Author names, separated by {@code ;}.*/
+    private String authorNames;
+    private String description;
+
+    public static BookSearchDocumentDTO of(Book book) {
+        return new BookSearchDocumentDTO(book.getIsbn(),
+                book.getTitle().toString(),
+                book.getGenre().toString(),
+                book.getAuthors().stream().map(Author::getName).collect(Collectors.joining(";")),
+                book.getDescription());
+    }
+}
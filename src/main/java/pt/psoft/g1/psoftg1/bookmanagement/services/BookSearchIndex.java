@@ -0,0 +1,253 @@
+package pt.psoft.g1.psoftg1.bookmanagement.services;
+
+import lombok.RequiredArgsConstructor;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.annotation.Transactional;
+import pt.psoft.g1.psoftg1.bookmanagement.model.Book;
+import pt.psoft.g1.psoftg1.bookmanagement.repositories.BookRepository;
+import pt.psoft.g1.psoftg1.shared.services.AfterCommit;
+import pt.psoft.g1.psoftg1.shared.services.SearchText;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.stream.Stream;
+
+/**
+ * In-memory inverted index of the catalogue, over the title, author names, genre and description of every book.
+ * <p>Words are folded by {@link SearchText}, so accents and case are ignored. Each word maps to a postings list of
+ * the books that contain it, in document order, with a weight that depends on the fields it appears in. A search
+ * merges the postings of the query words, scores the books with BM25 (without length normalization) and keeps the
+ * best ones in a bounded heap, so its cost depends on the number of matches, not on the size of the catalogue.
+ * <p>The index is loaded once the application is ready and kept current by {@link BookService} when books are
+ * created or updated. Changes made inside a transaction are only applied after it commits.
+ */
+@Component
+@RequiredArgsConstructor
+public class BookSearchIndex {
+    static final float TITLE_WEIGHT = 4f;
+    static final float AUTHOR_WEIGHT = 3f;
+    static final float GENRE_WEIGHT = 2f;
+    static final float DESCRIPTION_WEIGHT = 1f;
+
+    // BM25 term frequency saturation
+    private static final float K1 = 1.2f;
+
+    private final BookRepository bookRepository;
+
+    private final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+    private final Map<String, Postings> postings = new HashMap<>();
+    // ISBN of each document id; null once the book is re-indexed, until the next compaction
+    private final List<String> isbns = new ArrayList<>();
+    private final Map<String, Integer> documentIds = new HashMap<>();
+
+    @EventListener(ApplicationReadyEvent.class)
+    @Transactional(readOnly = true)
+    public void load() {
+        try (Stream<BookSearchDocumentDTO> documents = bookRepository.streamAllForSearchIndex()) {
+            documents.forEach(this::put);
+        }
+    }
+
+    /**
+     * Adds a book to the index, or replaces its previous text.
+     */
+    public void index(Book book) {
+        final BookSearchDocumentDTO document = BookSearchDocumentDTO.of(book);
+        AfterCommit.execute(() -> put(document));
+    }
+
+    /**
+     * @param query words to look for, in any field; books containing more of them, or rarer ones, rank first
+     * @param limit maximum number of results
+     * @return the ISBNs of the best matching books, best first
+     */
+    public List<String> search(String query, int limit) {
+        final List<String> terms = new ArrayList<>(new LinkedHashSet<>(SearchText.tokens(query)));
+        if (terms.isEmpty() || limit <= 0)
+            return new ArrayList<>();
+
+        lock.readLock().lock();
+        try {
+            final Postings[] lists = new Postings[terms.size()];
+            final float[] idfs = new float[terms.size()];
+            final int documentCount = documentIds.size();
+            int n = 0;
+            for (String term : terms) {
+                final Postings list = postings.get(term);
+                if (list == null)
+                    continue;
+                // the postings may still hold re-indexed documents, so the count is only an estimate
+                final float df = Math.min(list.size, documentCount);
+                lists[n] = list;
+                idfs[n++] = (float) Math.log(1 + (documentCount - df + 0.5f) / (df + 0.5f));
+            }
+
+            final PriorityQueue<Hit> best = new PriorityQueue<>(limit + 1, Hit.WORST_FIRST);
+            final int[] cursors = new int[n];
+            while (true) {
+                // postings are sorted by document id, so the lists are merged in a single pass
+                int document = Integer.MAX_VALUE;
+                for (int i = 0; i < n; i++) {
+                    if (cursors[i] < lists[i].size)
+                        document = Math.min(document, lists[i].documents[cursors[i]]);
+                }
+                if (document == Integer.MAX_VALUE)
+                    break;
+
+                float score = 0;
+                for (int i = 0; i < n; i++) {
+                    final Postings list = lists[i];
+                    if (cursors[i] < list.size && list.documents[cursors[i]] == document) {
+                        final float weight = list.weights[cursors[i]];
+                        score += idfs[i] * weight * (K1 + 1) / (weight + K1);
+                        cursors[i]++;
+                    }
+                }
+
+                final String isbn = isbns.get(document);
+                if (isbn == null)
+                    continue;
+                final Hit hit = new Hit(isbn, score);
+                if (best.size() < limit) {
+                    best.add(hit);
+                } else if (Hit.WORST_FIRST.compare(hit, best.peek()) > 0) {
+                    best.poll();
+                    best.add(hit);
+                }
+            }
+
+            final Hit[] hits = best.toArray(new Hit[0]);
+            Arrays.sort(hits, Hit.WORST_FIRST.reversed());
+            final List<String> result = new ArrayList<>(hits.length);
+            for (Hit hit : hits) {
+                result.add(hit.isbn);
+            }
+            return result;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    public int size() {
+        lock.readLock().lock();
+        try {
+            return documentIds.size();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    void put(BookSearchDocumentDTO document) {
+        final Map<String, Float> weights = new LinkedHashMap<>();
+        addField(weights, document.getTitle(), TITLE_WEIGHT);
+        addField(weights, document.getAuthorNames(), AUTHOR_WEIGHT);
+        addField(weights, document.getGenre(), GENRE_WEIGHT);
+        addField(weights, document.getDescription(), DESCRIPTION_WEIGHT);
+
+        lock.writeLock().lock();
+        try {
+            final Integer previous = documentIds.remove(document.getIsbn());
+            if (previous != null)
+                isbns.set(previous, null);
+
+            final int id = isbns.size();
+            isbns.add(document.getIsbn());
+            documentIds.put(document.getIsbn(), id);
+            for (Map.Entry<String, Float> entry : weights.entrySet()) {
+                postings.computeIfAbsent(entry.getKey(), k -> new Postings()).add(id, entry.getValue());
+            }
+
+            if (isbns.size() > 2 * documentIds.size())
+                compact();
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    private static void addField(Map<String, Float> weights, String text, float weight) {
+        for (String term : SearchText.tokens(text)) {
+            weights.merge(term, weight, Float::sum);
+        }
+    }
+
+    // Drops the ids of re-indexed books and renumbers the rest, keeping their order. Callers hold the write lock.
+    private void compact() {
+        final int[] renumbered = new int[isbns.size()];
+        final List<String> live = new ArrayList<>(documentIds.size());
+        for (int id = 0; id < isbns.size(); id++) {
+            final String isbn = isbns.get(id);
+            if (isbn == null) {
+                renumbered[id] = -1;
+            } else {
+                renumbered[id] = live.size();
+                documentIds.put(isbn, live.size());
+                live.add(isbn);
+            }
+        }
+        isbns.clear();
+        isbns.addAll(live);
+
+        for (Iterator<Postings> it = postings.values().iterator(); it.hasNext(); ) {
+            final Postings list = it.next();
+            list.renumber(renumbered);
+            if (list.size == 0)
+                it.remove();
+        }
+    }
+
+    /**
+     * Documents containing a word, in ascending id order, with the weight of the word in each of them.
+     */
+    private static final class Postings {
+        private int[] documents = new int[2];
+        private float[] weights = new float[2];
+        private int size;
+
+        void add(int document, float weight) {
+            if (size == documents.length) {
+                documents = Arrays.copyOf(documents, size + (size >> 1) + 1);
+                weights = Arrays.copyOf(weights, documents.length);
+            }
+            documents[size] = document;
+            weights[size] = weight;
+            size++;
+        }
+
+        void renumber(int[] renumbered) {
+            int kept = 0;
+            for (int i = 0; i < size; i++) {
+                final int id = renumbered[documents[i]];
+                if (id >= 0) {
+                    documents[kept] = id;
+                    weights[kept] = weights[i];
+                    kept++;
+                }
+            }
+            size = kept;
+        }
+    }
+
+    private static final class Hit {
+        static final Comparator<Hit> WORST_FIRST = Comparator.<Hit>comparingDouble(hit -> hit.score)
+                .thenComparing(hit -> hit.isbn, Comparator.reverseOrder());
+
+        final String isbn;
+        final float score;
+
+        Hit(String isbn, float score) {
+            this.isbn = isbn;
+            this.score = score;
+        }
+    }
+}
@@ -5,14 +5,26 @@ import pt.psoft.g1.psoftg1.bookmanagement.model.Book;
 import pt.psoft.g1.psoftg1.shared.services.Page;
 
 import java.util.List;
+import java.util.stream.Stream;
 
 /**
  *
  */
 public interface BookService {
+    /**Maximum number of results of a full-text search.*/
+    int MAX_SEARCH_RESULTS = 100;
+
     Book create(CreateBookRequest request, String isbn);
     Book save(Book book);
     Book findByIsbn(String isbn);
+
+    /**
+     * Read-only lookup of a book, answered from {@link BookCache} when possible. Use {@link #findByIsbn} when the
+     * book is to be changed or referenced by another entity.
+     */
+    BookSnapshot findSnapshotByIsbn(String isbn);
+    BookCacheStatsDTO getCacheStats();
+
     Book update(UpdateBookRequest request, String currentVersion);
     List<Book> findByGenre(String genre);
     List<Book> findByTitle(String title);
@@ -21,4 +33,29 @@ public interface BookService {
     Book removeBookPhoto(String isbn, long desiredVersion);
     List<Book> getBooksSuggestionsForReader(String readerNumber);
     List<Book> searchBooks(Page page, SearchBooksQuery query);
+
+    /**
+     * @return one page of the books matching any of the criteria of {@code query}, ordered by title then ISBN
+     */
+    List<Book> findBooks(Page page, SearchBooksQuery query);
+
+    /**
+     * Searches the title, author names, genre and description of all books, ignoring accents and case.
+     * @param query words to look for
+     * @param limit maximum number of results, up to {@value #MAX_SEARCH_RESULTS}
+     * @return the best matching books, best first
+     */
+    List<Book> searchFullText(String query, int limit);
+
+    /**
+     * @param prefix    text typed so far in the catalogue search box
+     * @param limit     maximum number of completions, up to {@value BookAutocompleteIndex#MAX_COMPLETIONS}
+     * @return the book titles and author names starting with {@code prefix}, most lent first
+     */
+    List<CompletionDTO> autocomplete(String prefix, int limit);
+
+    /**
+     * Streams all the books for export. The stream must be consumed, and closed, within a transaction.
+     */
+    Stream<BookExportDTO> exportAll();
 }
@@ -1,30 +1,33 @@
 package pt.psoft.g1.psoftg1.bookmanagement.services;
 
-import org.springframework.beans.factory.annotation.Value;
 import org.springframework.context.annotation.PropertySource;
-import org.springframework.data.domain.PageRequest;
-import org.springframework.data.domain.Pageable;
 import org.springframework.stereotype.Service;
 
 import org.springframework.web.multipart.MultipartFile;
 import pt.psoft.g1.psoftg1.authormanagement.model.Author;
+import pt.psoft.g1.psoftg1.authormanagement.services.CoAuthorGraph;
 import pt.psoft.g1.psoftg1.bookmanagement.model.*;
 import pt.psoft.g1.psoftg1.bookmanagement.repositories.BookRepository;
 import lombok.RequiredArgsConstructor;
-import pt.psoft.g1.psoftg1.genremanagement.repositories.GenreRepository;
+import pt.psoft.g1.psoftg1.genremanagement.services.GenreRegistry;
 import pt.psoft.g1.psoftg1.authormanagement.repositories.AuthorRepository;
 import pt.psoft.g1.psoftg1.exceptions.ConflictException;
 import pt.psoft.g1.psoftg1.exceptions.NotFoundException;
 import pt.psoft.g1.psoftg1.genremanagement.model.Genre;
+import pt.psoft.g1.psoftg1.lendingmanagement.services.LeaderboardEntryDTO;
+import pt.psoft.g1.psoftg1.lendingmanagement.services.LendingLeaderboards;
 import pt.psoft.g1.psoftg1.readermanagement.model.ReaderDetails;
 import pt.psoft.g1.psoftg1.readermanagement.repositories.ReaderRepository;
 import pt.psoft.g1.psoftg1.shared.repositories.PhotoRepository;
 import pt.psoft.g1.psoftg1.shared.services.Page;
 
-import java.time.LocalDate;
 import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
+import java.util.stream.Stream;
 
 @Service
 @RequiredArgsConstructor
@@ -32,17 +35,21 @@ import java.util.Optional;
 public class BookServiceImpl implements BookService {
 
 	private final BookRepository bookRepository;
-	private final GenreRepository genreRepository;
+	private final GenreRegistry genreRegistry;
 	private final AuthorRepository authorRepository;
 	private final PhotoRepository photoRepository;
 	private final ReaderRepository readerRepository;
 	private final FactoryBook factoryBook;
-
-	@Value("${suggestionsLimitPerGenre}")
-	private long suggestionsLimitPerGenre;
+	private final BookSearchIndex bookSearchIndex;
+	private final BookAutocompleteIndex bookAutocompleteIndex;
+	private final BookCache bookCache;
+	private final LendingLeaderboards lendingLeaderboards;
+	private final BookRecommender bookRecommender;
+	private final CoAuthorGraph coAuthorGraph;
 
 	@Override
 	public Book create(CreateBookRequest request, String isbn) {
+		isbn = Isbn.canonicalOrSelf(isbn);
 
 		if(bookRepository.findByIsbn(isbn).isPresent()){
 			throw new ConflictException("Book with ISBN " + isbn + " already exists");
@@ -68,12 +75,16 @@ public class BookServiceImpl implements BookService {
 			request.setPhotoURI(null);
 		}
 
-		final var genre = genreRepository.findByString(request.getGenre())
+		final var genre = genreRegistry.find(request.getGenre())
 				.orElseThrow(() -> new NotFoundException("Genre not found"));
 
 		Book newBook = factoryBook.generateBook(request,isbn, genre, authors, photoURI);
 
-        return bookRepository.save(newBook);
+		final Book savedBook = bookRepository.save(newBook);
+		bookSearchIndex.index(savedBook);
+		bookAutocompleteIndex.add(savedBook);
+		coAuthorGraph.index(savedBook);
+		return savedBook;
 	}
 
 
@@ -104,7 +115,7 @@ public class BookServiceImpl implements BookService {
 		}
 
         if (request.getGenre() != null) {
-            Optional<Genre> genre = genreRepository.findByString(request.getGenre());
+            Optional<Genre> genre = genreRegistry.find(request.getGenre());
             if (genre.isEmpty()) {
                 throw new NotFoundException("Genre not found");
             }
@@ -113,22 +124,42 @@ public class BookServiceImpl implements BookService {
 
         book.applyPatch(Long.parseLong(currentVersion), request);
 
-		bookRepository.save(book);
-
+		final Book savedBook = bookRepository.save(book);
+		bookSearchIndex.index(book);
+		bookAutocompleteIndex.add(book);
+		coAuthorGraph.index(book);
+		bookCache.evict(savedBook);
 
 		return book;
 	}
 
 	@Override
 	public Book save(Book book) {
-		return this.bookRepository.save(book);
+		final Book savedBook = this.bookRepository.save(book);
+		bookSearchIndex.index(savedBook);
+		bookAutocompleteIndex.add(savedBook);
+		coAuthorGraph.index(savedBook);
+		bookCache.evict(savedBook);
+		return savedBook;
 	}
 
 	@Override
 	public List<BookCountDTO> findTop5BooksLent(){
-		LocalDate oneYearAgo = LocalDate.now().minusYears(1);
-		Pageable pageableRules = PageRequest.of(0,5);
-		return this.bookRepository.findTop5BooksLent(oneYearAgo, pageableRules).getContent();
+		final List<LeaderboardEntryDTO> top = lendingLeaderboards.top(LendingLeaderboards.Board.BOOKS,
+				LendingLeaderboards.Window.LAST_YEAR, 5);
+		if (top.isEmpty())
+			return new ArrayList<>();
+		final Map<String, Book> books = new HashMap<>();
+		for (Book book : bookRepository.findByIsbns(top.stream().map(LeaderboardEntryDTO::getKey).toList())) {
+			books.put(book.getIsbn(), book);
+		}
+		final List<BookCountDTO> topBooks = new ArrayList<>(top.size());
+		for (LeaderboardEntryDTO entry : top) {
+			final Book book = books.get(entry.getKey());
+			if (book != null)
+				topBooks.add(new BookCountDTO(book, entry.getLendingCount()));
+		}
+		return topBooks;
 	}
 
 	@Override
@@ -143,6 +174,7 @@ public class BookServiceImpl implements BookService {
 
 		book.removePhoto(desiredVersion);
 		var updatedBook = bookRepository.save(book);
+		bookCache.evict(updatedBook);
 		photoRepository.deleteByPhotoFile(photoFile);
 		return updatedBook;
 	}
@@ -162,39 +194,39 @@ public class BookServiceImpl implements BookService {
 	}
 
 	public Book findByIsbn(String isbn) {
-		return this.bookRepository.findByIsbn(isbn)
+		return this.bookRepository.findByIsbn(Isbn.canonicalOrSelf(isbn))
 				.orElseThrow(() -> new NotFoundException(Book.class, isbn));
 	}
 
-	public List<Book> getBooksSuggestionsForReader(String readerNumber) {
-		List<Book> books = new ArrayList<>();
+	@Override
+	public BookSnapshot findSnapshotByIsbn(String isbn) {
+		return bookCache.get(isbn)
+				.orElseThrow(() -> new NotFoundException(Book.class, isbn));
+	}
+
+	@Override
+	public BookCacheStatsDTO getCacheStats() {
+		return bookCache.stats();
+	}
 
+	public List<Book> getBooksSuggestionsForReader(String readerNumber) {
 		ReaderDetails readerDetails = readerRepository.findByReaderNumber(readerNumber)
 				.orElseThrow(() -> new NotFoundException("Reader not found with provided login"));
-		List<Genre> interestList = readerDetails.getInterestList();
+		List<String> interests = readerDetails.getInterestList().stream().map(Genre::toString).toList();
 
-		if(interestList.isEmpty()) {
-			throw new NotFoundException("Reader has no interests");
+		final List<String> isbns = bookRecommender.suggest(readerNumber, interests);
+		if (isbns.isEmpty()) {
+			if (interests.isEmpty())
+				throw new NotFoundException("Reader has no interests");
+			return new ArrayList<>();
 		}
 
-		for(Genre genre : interestList) {
-			List<Book> tempBooks = bookRepository.findByGenre(genre.toString());
-			if(tempBooks.isEmpty()) {
-				continue;
-			}
-
-			long genreBookCount = 0;
-
-            for (Book loopBook : tempBooks) {
-                if (genreBookCount >= suggestionsLimitPerGenre) {
-                    break;
-                }
-
-                books.add(loopBook);
-				genreBookCount++;
-            }
+		final Map<String, Integer> rank = new HashMap<>();
+		for (int i = 0; i < isbns.size(); i++) {
+			rank.put(isbns.get(i), i);
 		}
-
+		final List<Book> books = new ArrayList<>(bookRepository.findByIsbns(isbns));
+		books.sort(Comparator.comparing(book -> rank.get(book.getIsbn())));
 		return books;
 	}
 
@@ -208,4 +240,43 @@ public class BookServiceImpl implements BookService {
 		}
 		return bookRepository.searchBooks(page, query);
 	}
+
+	@Override
+	public List<Book> findBooks(Page page, SearchBooksQuery query) {
+		if (page.getNumber() < 1)
+			throw new IllegalArgumentException("Paging must start with page 1");
+		if (page.getLimit() < 1 || page.getLimit() > 100)
+			throw new IllegalArgumentException("Limit must be between 1 and 100");
+		return bookRepository.findBooksMatchingAny(page, query);
+	}
+
+	@Override
+	public List<Book> searchFullText(String query, int limit) {
+		if (limit < 1 || limit > MAX_SEARCH_RESULTS)
+			throw new IllegalArgumentException("Limit must be between 1 and " + MAX_SEARCH_RESULTS);
+
+		final List<String> isbns = bookSearchIndex.search(query, limit);
+		if (isbns.isEmpty())
+			return new ArrayList<>();
+
+		final Map<String, Integer> rank = new HashMap<>();
+		for (int i = 0; i < isbns.size(); i++) {
+			rank.put(isbns.get(i), i);
+		}
+		final List<Book> books = new ArrayList<>(bookRepository.findByIsbns(isbns));
+		books.sort(Comparator.comparing(book -> rank.get(book.getIsbn())));
+		return books;
+	}
+
+	@Override
+	public List<CompletionDTO> autocomplete(String prefix, int limit) {
+		if (limit < 1 || limit > BookAutocompleteIndex.MAX_COMPLETIONS)
+			throw new IllegalArgumentException("Limit must be between 1 and " + BookAutocompleteIndex.MAX_COMPLETIONS);
+		return bookAutocompleteIndex.complete(prefix, limit);
+	}
+
+	@Override
+	public Stream<BookExportDTO> exportAll() {
+		return bookRepository.streamAllForExport();
+	}
 }
@@ -0,0 +1,57 @@
+package pt.psoft.g1.psoftg1.bookmanagement.services;
+
+import lombok.Getter;
+import lombok.ToString;
+import pt.psoft.g1.psoftg1.authormanagement.model.Author;
+import pt.psoft.g1.psoftg1.bookmanagement.model.Book;
+
+import java.util.List;
+
+/**
+ * Immutable copy of a {@link Book} and of the names of its authors, as kept by {@link BookCache}.
+ */
+@Getter
+@ToString
+public final class BookSnapshot {
+    private final String pk;
+    private final String isbn;
+    private final String title;
+    private final String genre;
+    private final String description;
+    private final List<String> authorNumbers;
+    private final List<String> authorNames;
+    private final String photoFile;
+    private final long version;
+
+    private BookSnapshot(Book book) {
+        this.pk = book.getPk();
+        this.isbn = book.getIsbn();
+        this.title = book.getTitle().toString();
+        this.genre = book.getGenre().toString();
+        this.description = book.getDescription();
+        this.authorNumbers = book.getAuthors().stream().map(Author::getAuthorNumber).toList();
+        this.authorNames = book.getAuthors().stream().map(Author::getName).toList();
+        this.photoFile = book.getPhoto() == null ? null : book.getPhoto().getPhotoFile();
+        this.version = book.getVersion() == null ? 0 : book.getVersion();
+    }
+
+    public static BookSnapshot of(Book book) {
+        return new BookSnapshot(book);
+    }
+
+    /**
+     * @return an estimate of the heap used by this snapshot, in bytes
+     */
+    int weight() {
+        int chars = length(pk) + length(isbn) + length(title) + length(genre) + length(description) + length(photoFile);
+        for (int i = 0; i < authorNumbers.size(); i++) {
+            chars += length(authorNumbers.get(i)) + length(authorNames.get(i));
+        }
+        // object headers and fields, plus one String per value (Latin-1 strings use a byte per character)
+        return 64 + (6 + 2 * authorNumbers.size()) * 40 + chars;
+    }
+
+    private static int length(String value) {
+        return value == null ? 0 : value.length();
+    }
+}
@@ -0,0 +1,16 @@
+package pt.psoft.g1.psoftg1.bookmanagement.services;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class BookTitleDTO {
+    private String isbn;
+    private String title;
+    /**Author numbers, separated by {@code ;}.*/
+    private String authorNumbers;
+    private long lendingCount;
+}
@@ -0,0 +1,21 @@
+package pt.psoft.g1.psoftg1.bookmanagement.services;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * A book title or author name completing the text typed in the catalogue search box.
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class CompletionDTO {
+    public enum Type { TITLE, AUTHOR }
+
+    private Type type;
+    /**ISBN of the book, or number of the author.*/
+    private String key;
+    private String text;
+    private long lendingCount;
+}
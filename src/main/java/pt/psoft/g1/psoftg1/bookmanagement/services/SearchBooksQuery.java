@@ -3,6 +3,8 @@ package pt.psoft.g1.psoftg1.bookmanagement.services;
 import lombok.AllArgsConstructor;
 import lombok.Data;
 import lombok.NoArgsConstructor;
+import pt.psoft.g1.psoftg1.bookmanagement.model.Book;
+import pt.psoft.g1.psoftg1.shared.services.Cursor;
 
 @Data
 @NoArgsConstructor
@@ -11,4 +13,11 @@ public class SearchBooksQuery {
     private String title;
     private String genre;
     private String authorName;
+
+    /**
+     * @return the {@link Cursor} of the search results following {@code book}
+     */
+    public String cursorOf(Book book) {
+        return Cursor.encode(book.getTitle().toString(), book.getIsbn());
+    }
 }
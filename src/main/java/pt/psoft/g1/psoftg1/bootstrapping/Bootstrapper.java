@@ -13,10 +13,12 @@ import pt.psoft.g1.psoftg1.authormanagement.repositories.AuthorRepository;
 import pt.psoft.g1.psoftg1.bookmanagement.model.Book;
 import pt.psoft.g1.psoftg1.genremanagement.model.Genre;
 import pt.psoft.g1.psoftg1.bookmanagement.repositories.BookRepository;
+import pt.psoft.g1.psoftg1.genremanagement.repositories.GenreLendingStatsRepository;
 import pt.psoft.g1.psoftg1.genremanagement.repositories.GenreRepository;
 import pt.psoft.g1.psoftg1.idgenerator.IdGenerator;
 import pt.psoft.g1.psoftg1.exceptions.NotFoundException;
 import pt.psoft.g1.psoftg1.lendingmanagement.model.Lending;
+import pt.psoft.g1.psoftg1.lendingmanagement.repositories.LendingDurationStatsRepository;
 import pt.psoft.g1.psoftg1.lendingmanagement.repositories.LendingRepository;
 import pt.psoft.g1.psoftg1.readermanagement.model.ReaderDetails;
 import pt.psoft.g1.psoftg1.readermanagement.repositories.ReaderRepository;
@@ -44,6 +46,8 @@ public class Bootstrapper implements CommandLineRunner {
     private final BookRepository bookRepository;
     private final AuthorRepository authorRepository;
     private final LendingRepository lendingRepository;
+    private final LendingDurationStatsRepository lendingDurationStatsRepository;
+    private final GenreLendingStatsRepository genreLendingStatsRepository;
     private final ReaderRepository readerRepository;
     private final PhotoRepository photoRepository;
     private final IdGenerator idGenerator;
@@ -58,6 +62,8 @@ public class Bootstrapper implements CommandLineRunner {
         createBooks();
         loadForbiddenNames();
         createLendings();
+        lendingDurationStatsRepository.rebuild();
+        genreLendingStatsRepository.rebuild();
         createPhotos();
     }
 
@@ -1,8 +1,10 @@
 package pt.psoft.g1.psoftg1.genremanagement.api;
 
+import io.swagger.v3.oas.annotations.Operation;
 import io.swagger.v3.oas.annotations.tags.Tag;
 import jakarta.validation.Valid;
 import lombok.RequiredArgsConstructor;
+import org.springframework.http.HttpStatus;
 import org.springframework.web.bind.annotation.*;
 import pt.psoft.g1.psoftg1.exceptions.NotFoundException;
 import pt.psoft.g1.psoftg1.genremanagement.services.GenreService;
@@ -60,4 +62,11 @@ public class GenreController {
 
         return new ListResponse<>(viewList);
     }
+
+    @Operation(summary = "Recomputes the per genre and month lending statistics from the lendings")
+    @PostMapping("/lendingStats/rebuild")
+    @ResponseStatus(HttpStatus.NO_CONTENT)
+    public void rebuildLendingStats() {
+        genreService.rebuildLendingStats();
+    }
 }
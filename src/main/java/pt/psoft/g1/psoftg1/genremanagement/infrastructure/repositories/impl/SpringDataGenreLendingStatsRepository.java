@@ -0,0 +1,106 @@
+package pt.psoft.g1.psoftg1.genremanagement.infrastructure.repositories.impl;
+
+import jakarta.persistence.EntityManager;
+import lombok.RequiredArgsConstructor;
+import org.springframework.data.repository.CrudRepository;
+import org.springframework.transaction.annotation.Transactional;
+import pt.psoft.g1.psoftg1.genremanagement.model.GenreLendingStats;
+import pt.psoft.g1.psoftg1.genremanagement.repositories.GenreLendingStatsRepository;
+import pt.psoft.g1.psoftg1.shared.infrastructure.repositories.impl.InsertIfAbsent;
+
+import java.util.List;
+import java.util.LongSummaryStatistics;
+
+public interface SpringDataGenreLendingStatsRepository extends GenreLendingStatsRepository, GenreLendingStatsRepoCustom, CrudRepository<GenreLendingStats, GenreLendingStats.Key> {
+}
+
+interface GenreLendingStatsRepoCustom {
+    void addLendings(GenreLendingStats.Key key, long count);
+    void addReturns(GenreLendingStats.Key key, LongSummaryStatistics durations);
+    void rebuild();
+}
+
+@RequiredArgsConstructor
+class GenreLendingStatsRepoCustomImpl implements GenreLendingStatsRepoCustom {
+    private final EntityManager em;
+
+    /**
+     * Increments the row in a single UPDATE statement, so concurrent lendings never lose an update.
+     */
+    @Override
+    @Transactional
+    public void addLendings(GenreLendingStats.Key key, long count) {
+        if (count == 0)
+            return;
+        // the first lending of the month creates its row, unless another transaction created it meanwhile
+        if (incrementLendings(key, count) == 0 && !insert(key, count, 0, 0))
+            incrementLendings(key, count);
+    }
+
+    private int incrementLendings(GenreLendingStats.Key key, long count) {
+        return em.createQuery("UPDATE GenreLendingStats s " +
+                        "SET s.lendingCount = s.lendingCount + :count " +
+                        "WHERE s.genre = :genre AND s.year = :year AND s.month = :month")
+                .setParameter("count", count)
+                .setParameter("genre", key.getGenre())
+                .setParameter("year", key.getYear())
+                .setParameter("month", key.getMonth())
+                .executeUpdate();
+    }
+
+    @Override
+    @Transactional
+    public void addReturns(GenreLendingStats.Key key, LongSummaryStatistics durations) {
+        if (durations.getCount() == 0)
+            return;
+        // creating the lendings adds the row, so it is only missing if they predate the aggregates
+        if (incrementReturns(key, durations) == 0
+                && !insert(key, durations.getCount(), durations.getCount(), durations.getSum()))
+            incrementReturns(key, durations);
+    }
+
+    private int incrementReturns(GenreLendingStats.Key key, LongSummaryStatistics durations) {
+        return em.createQuery("UPDATE GenreLendingStats s " +
+                        "SET s.returnedCount = s.returnedCount + :count, " +
+                            "s.totalDays = s.totalDays + :totalDays " +
+                        "WHERE s.genre = :genre AND s.year = :year AND s.month = :month")
+                .setParameter("count", durations.getCount())
+                .setParameter("totalDays", durations.getSum())
+                .setParameter("genre", key.getGenre())
+                .setParameter("year", key.getYear())
+                .setParameter("month", key.getMonth())
+                .executeUpdate();
+    }
+
+    private boolean insert(GenreLendingStats.Key key, long lendingCount, long returnedCount, long totalDays) {
+        return InsertIfAbsent.execute(em, "INSERT INTO GENRE_LENDING_STATS " +
+                        "(GENRE, STATS_YEAR, STATS_MONTH, LENDING_COUNT, RETURNED_COUNT, TOTAL_DAYS) VALUES (?, ?, ?, ?, ?, ?)",
+                key.getGenre(), key.getYear(), key.getMonth(), lendingCount, returnedCount, totalDays);
+    }
+
+    @Override
+    @Transactional
+    public void rebuild() {
+        em.createQuery("DELETE FROM GenreLendingStats").executeUpdate();
+
+        final List<Object[]> rows = em.createQuery("SELECT g.genre, " +
+                        "EXTRACT(YEAR FROM l.startDate), " +
+                        "EXTRACT(MONTH FROM l.startDate), " +
+                        "COUNT(l), " +
+                        "COUNT(l.returnedDate), " +
+                        "COALESCE(SUM((l.returnedDate - l.startDate) BY DAY), 0) " +
+                        "FROM Lending l " +
+                        "JOIN l.book b " +
+                        "JOIN b.genre g " +
+                        "GROUP BY g.genre, EXTRACT(YEAR FROM l.startDate), EXTRACT(MONTH FROM l.startDate)", Object[].class)
+                .getResultList();
+
+        for (Object[] row : rows) {
+            em.persist(new GenreLendingStats(
+                    new GenreLendingStats.Key((String) row[0], ((Number) row[1]).intValue(), ((Number) row[2]).intValue()),
+                    ((Number) row[3]).longValue(),
+                    ((Number) row[4]).longValue(),
+                    ((Number) row[5]).longValue()));
+        }
+    }
+}
@@ -1,9 +1,7 @@
 package pt.psoft.g1.psoftg1.genremanagement.infrastructure.repositories.impl;
 
 import jakarta.persistence.EntityManager;
-import jakarta.persistence.Tuple;
 import jakarta.persistence.TypedQuery;
-import jakarta.persistence.criteria.*;
 import jakarta.validation.constraints.NotNull;
 import lombok.RequiredArgsConstructor;
 import org.springframework.data.domain.Page;
@@ -11,15 +9,15 @@ import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.CrudRepository;
 import org.springframework.data.repository.query.Param;
-import pt.psoft.g1.psoftg1.bookmanagement.model.Book;
 import pt.psoft.g1.psoftg1.bookmanagement.services.GenreBookCountDTO;
 import pt.psoft.g1.psoftg1.genremanagement.model.Genre;
+import pt.psoft.g1.psoftg1.genremanagement.model.GenreLendingStats;
 import pt.psoft.g1.psoftg1.genremanagement.repositories.GenreRepository;
 import pt.psoft.g1.psoftg1.genremanagement.services.GenreLendingsDTO;
 import pt.psoft.g1.psoftg1.genremanagement.services.GenreLendingsPerMonthDTO;
-import pt.psoft.g1.psoftg1.lendingmanagement.model.Lending;
 
 import java.time.LocalDate;
+import java.time.YearMonth;
 import java.util.*;
 
 public interface SpringDataGenreRepository extends GenreRepository, GenreRepoCustom, CrudRepository<Genre, Integer> {
@@ -48,6 +46,10 @@ interface GenreRepoCustom{
 
 }
 
+/**
+ * The lending reports read the per genre and month aggregates of {@link GenreLendingStats}, which hold one row per
+ * genre and month whatever the number of lendings, so they are only as precise as a month.
+ */
 @RequiredArgsConstructor
 class GenreRepoCustomImpl implements GenreRepoCustom {
 
@@ -55,144 +57,70 @@ class GenreRepoCustomImpl implements GenreRepoCustom {
 
     @Override
     public List<GenreLendingsPerMonthDTO> getLendingsPerMonthLastYearByGenre(){
-        CriteriaBuilder cb = entityManager.getCriteriaBuilder();
-        CriteriaQuery<Tuple> cq = cb.createTupleQuery();
-        Root<Lending> lendingRoot = cq.from(Lending.class);
-        Join<Lending, Book> bookJoin = lendingRoot.join("book");
-        Join<Book, Genre> genreJoin = bookJoin.join("genre");
-
-        Expression<Integer> year = cb.function("YEAR", Integer.class, lendingRoot.get("startDate"));
-        Expression<Integer> month = cb.function("MONTH", Integer.class, lendingRoot.get("startDate"));
-
-        Expression<Long> lendingCount = cb.count(lendingRoot);
-
-        cq.multiselect(genreJoin.get("genre"), year, month, lendingCount);
-        cq.groupBy(genreJoin.get("genre"), year, month);
-
-        // Predicate to filter the last 12 months
-        LocalDate now = LocalDate.now();
-        LocalDate twelveMonthsAgo = now.minusMonths(12);
-        Predicate datePredicate = cb.between(lendingRoot.get("startDate"),
-                java.sql.Date.valueOf(twelveMonthsAgo),
-                java.sql.Date.valueOf(now));
-
-        cq.where(datePredicate);
-        cq.orderBy(cb.asc(year), cb.asc(month), cb.asc(genreJoin.get("genre")));
-
-        TypedQuery<Tuple> query = entityManager.createQuery(cq);
-        List<Tuple> results = query.getResultList();
-
-        // Grouping results by year and month
-        Map<Integer, Map<Integer, List<GenreLendingsDTO>>> groupedResults = new HashMap<>();
-
-        for (Tuple result : results) {
-            String genre = result.get(0, String.class);
-            int resultYear = result.get(1, Integer.class);
-            int resultMonth = result.get(2, Integer.class);
-            long count = result.get(3, Long.class);
-            GenreLendingsDTO genreLendingsDTO = new GenreLendingsDTO(genre, count);
-
-            groupedResults
-                    .computeIfAbsent(resultYear, k -> new HashMap<>())
-                    .computeIfAbsent(resultMonth, k -> new ArrayList<>())
-                    .add(genreLendingsDTO);
+        final LocalDate now = LocalDate.now();
+        final List<GenreLendingStats> stats = findInMonths(YearMonth.from(now.minusMonths(12)), YearMonth.from(now),
+                "s.lendingCount > 0");
+
+        final Map<YearMonth, List<GenreLendingsDTO>> groupedResults = new LinkedHashMap<>();
+        for (GenreLendingStats s : stats) {
+            groupedResults.computeIfAbsent(YearMonth.of(s.getYear(), s.getMonth()), k -> new ArrayList<>())
+                    .add(new GenreLendingsDTO(s.getGenre(), s.getLendingCount()));
         }
-
         return getGenreLendingsPerMonthDtos(groupedResults);
     }
 
-
     @Override
     public List<GenreLendingsDTO> getAverageLendingsInMonth(LocalDate month, pt.psoft.g1.psoftg1.shared.services.Page page){
-        int days = month.lengthOfMonth();
-        LocalDate firstOfMonth = LocalDate.of(month.getYear(), month.getMonth(), 1);
-        LocalDate lastOfMonth = LocalDate.of(month.getYear(), month.getMonth(), days);
-
-        CriteriaBuilder cb = entityManager.getCriteriaBuilder();
-        CriteriaQuery<GenreLendingsDTO> cq = cb.createQuery(GenreLendingsDTO.class);
-
-        Root<Lending> lendingRoot = cq.from(Lending.class);
-        Join<Lending, Book> bookJoin = lendingRoot.join("book", JoinType.LEFT);
-        Join<Book, Genre> genreJoin = bookJoin.join("genre", JoinType.LEFT);
-
-        Expression<Long> loanCount = cb.count(lendingRoot.get("pk"));
-        Expression<Number> dailyAvgLoans = cb.quot(cb.toDouble(loanCount), cb.literal(days));
-
-        cq.multiselect(genreJoin, dailyAvgLoans);
-        cq.groupBy(genreJoin.get("pk"));
-
-        Predicate startDatePredicate = cb.greaterThanOrEqualTo(lendingRoot.get("startDate"), firstOfMonth);
-        Predicate endDatePredicate = cb.lessThanOrEqualTo(lendingRoot.get("startDate"), lastOfMonth);
-
-        Predicate finalPredicate = cb.and(startDatePredicate, endDatePredicate);
-
-        cq.where(finalPredicate);
-
-        final TypedQuery<GenreLendingsDTO> q = entityManager.createQuery(cq);
+        final TypedQuery<GenreLendingStats> q = entityManager.createQuery("SELECT s FROM GenreLendingStats s " +
+                        "WHERE s.year = :year AND s.month = :month AND s.lendingCount > 0 " +
+                        "ORDER BY s.genre", GenreLendingStats.class)
+                .setParameter("year", month.getYear())
+                .setParameter("month", month.getMonthValue());
         q.setFirstResult((page.getNumber() - 1) * page.getLimit());
         q.setMaxResults(page.getLimit());
 
-        return q.getResultList();
+        final List<GenreLendingsDTO> result = new ArrayList<>();
+        for (GenreLendingStats s : q.getResultList()) {
+            result.add(new GenreLendingsDTO(s.getGenre(), s.getDailyAverageLendings()));
+        }
+        return result;
     }
 
     @Override
     public List<GenreLendingsPerMonthDTO> getLendingsAverageDurationPerMonth(LocalDate startDate, LocalDate endDate){
-        CriteriaBuilder cb = entityManager.getCriteriaBuilder();
-        CriteriaQuery<Tuple> cq = cb.createTupleQuery();
-
-        Root<Lending> lendingRoot = cq.from(Lending.class);
-        Join<Lending, Book> bookJoin = lendingRoot.join("book");
-        Join<Book, Genre> genreJoin = bookJoin.join("genre");
-
-        Expression<Integer> yearExpr = cb.function("YEAR", Integer.class, lendingRoot.get("startDate"));
-        Expression<Integer> monthExpr = cb.function("MONTH", Integer.class, lendingRoot.get("startDate"));
-        Expression<Long> lendingDurationInDays = cb.diff(lendingRoot.get("returnedDate"), lendingRoot.get("startDate"));
-        double nanoSecondsInADay = 86400.0*1E9;
-        Expression<Number> durationInDays = cb.quot(cb.toDouble(lendingDurationInDays),nanoSecondsInADay);
-        Expression<Double> averageDuration = cb.avg(cb.toDouble(durationInDays));
-
-        cq.multiselect(genreJoin.get("genre"), yearExpr, monthExpr, averageDuration);
-        cq.groupBy(genreJoin.get("genre"), yearExpr, monthExpr);
-        cq.orderBy(cb.asc(yearExpr), cb.asc(monthExpr), cb.asc(genreJoin.get("genre")));
-
-        Predicate startDatePredicate = cb.greaterThanOrEqualTo(lendingRoot.get("startDate"), startDate);
-        Predicate endDatePredicate = cb.lessThanOrEqualTo(lendingRoot.get("startDate"), endDate);
-        Predicate returnedPredicate = cb.isNotNull(lendingRoot.get("returnedDate"));
-        Predicate finalPredicate = cb.and(startDatePredicate, endDatePredicate, returnedPredicate);
-
-        cq.where(finalPredicate);
-
-        List<Tuple> results = entityManager.createQuery(cq).getResultList();
-        Map<Integer, Map<Integer, List<GenreLendingsDTO>>> groupedResults = new HashMap<>();
-
-        for (Tuple result : results) {
-            String genre = result.get(0, String.class);
-            int yearValue = result.get(1, Integer.class);
-            int monthValue = result.get(2, Integer.class);
-            Double averageDurationValue = result.get(3, Double.class);
-            GenreLendingsDTO genreLendingsDTO = new GenreLendingsDTO(genre, averageDurationValue);
-
-            groupedResults
-                    .computeIfAbsent(yearValue, k -> new HashMap<>())
-                    .computeIfAbsent(monthValue, k -> new ArrayList<>())
-                    .add(genreLendingsDTO);
-        }
+        final List<GenreLendingStats> stats = findInMonths(YearMonth.from(startDate), YearMonth.from(endDate),
+                "s.returnedCount > 0");
 
+        final Map<YearMonth, List<GenreLendingsDTO>> groupedResults = new LinkedHashMap<>();
+        for (GenreLendingStats s : stats) {
+            groupedResults.computeIfAbsent(YearMonth.of(s.getYear(), s.getMonth()), k -> new ArrayList<>())
+                    .add(new GenreLendingsDTO(s.getGenre(), s.getAverageDays()));
+        }
         return getGenreLendingsPerMonthDtos(groupedResults);
     }
 
+    // the aggregates of the months from first to last, both included, ordered by month then genre
+    private List<GenreLendingStats> findInMonths(YearMonth first, YearMonth last, String condition) {
+        return entityManager.createQuery("SELECT s FROM GenreLendingStats s " +
+                        "WHERE (s.year > :firstYear OR (s.year = :firstYear AND s.month >= :firstMonth)) " +
+                        "AND (s.year < :lastYear OR (s.year = :lastYear AND s.month <= :lastMonth)) " +
+                        "AND " + condition + " " +
+                        "ORDER BY s.year, s.month, s.genre", GenreLendingStats.class)
+                .setParameter("firstYear", first.getYear())
+                .setParameter("firstMonth", first.getMonthValue())
+                .setParameter("lastYear", last.getYear())
+                .setParameter("lastMonth", last.getMonthValue())
+                .getResultList();
+    }
+
     @NotNull
-    private List<GenreLendingsPerMonthDTO> getGenreLendingsPerMonthDtos(Map<Integer, Map<Integer, List<GenreLendingsDTO>>> groupedResults) {
+    private List<GenreLendingsPerMonthDTO> getGenreLendingsPerMonthDtos(Map<YearMonth, List<GenreLendingsDTO>> groupedResults) {
         List<GenreLendingsPerMonthDTO> lendingsPerMonth = new ArrayList<>();
-        for (Map.Entry<Integer, Map<Integer, List<GenreLendingsDTO>>> yearEntry : groupedResults.entrySet()) {
-            int yearValue = yearEntry.getKey();
-            for (Map.Entry<Integer, List<GenreLendingsDTO>> monthEntry : yearEntry.getValue().entrySet()) {
-                int monthValue = monthEntry.getKey();
-                List<GenreLendingsDTO> values = monthEntry.getValue();
-                lendingsPerMonth.add(new GenreLendingsPerMonthDTO(yearValue, monthValue, values));
-            }
+        for (Map.Entry<YearMonth, List<GenreLendingsDTO>> monthEntry : groupedResults.entrySet()) {
+            YearMonth month = monthEntry.getKey();
+            lendingsPerMonth.add(new GenreLendingsPerMonthDTO(month.getYear(), month.getMonthValue(), monthEntry.getValue()));
         }
 
         return lendingsPerMonth;
     }
-}
\ No newline at end of file
+}
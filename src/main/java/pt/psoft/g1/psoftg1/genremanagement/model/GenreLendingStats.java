@@ -0,0 +1,115 @@
+package pt.psoft.g1.psoftg1.genremanagement.model;
+
+import jakarta.persistence.Column;
+import jakarta.persistence.Entity;
+import jakarta.persistence.Id;
+import jakarta.persistence.IdClass;
+import jakarta.persistence.Table;
+import jakarta.validation.constraints.PositiveOrZero;
+import lombok.AccessLevel;
+import lombok.AllArgsConstructor;
+import lombok.EqualsAndHashCode;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+
+import java.io.Serializable;
+import java.time.LocalDate;
+import java.time.YearMonth;
+import java.util.Comparator;
+
+/**
+ * The {@code GenreLendingStats} class keeps running aggregates of the lendings of the books of a genre that started in
+ * a given month, so the genre reports can be read without joining and grouping the {@code Lending} table.
+ * <p>There is one row per genre and month, updated in place with atomic increments whenever a lending is created or
+ * returned. Returned lendings count in the month they started, as their durations are reported by starting month.
+ * @see pt.psoft.g1.psoftg1.genremanagement.repositories.GenreLendingStatsRepository
+ */
+@Getter
+@Entity
+@IdClass(GenreLendingStats.Key.class)
+@Table(name = "GENRE_LENDING_STATS")
+public class GenreLendingStats {
+    @Id
+    @Column(name = "GENRE", length = 100)
+    private String genre;
+
+    @Id
+    @Column(name = "STATS_YEAR")
+    private int year;
+
+    @Id
+    @Column(name = "STATS_MONTH")
+    private int month;
+
+    /**Number of lendings that started in the month.*/
+    @PositiveOrZero
+    private long lendingCount;
+
+    /**Number of those lendings that were returned.*/
+    @PositiveOrZero
+    private long returnedCount;
+
+    /**Sum of the durations of the returned lendings, in days.*/
+    @PositiveOrZero
+    private long totalDays;
+
+    public GenreLendingStats(Key key, long lendingCount, long returnedCount, long totalDays) {
+        if(key.getGenre() == null || key.getGenre().isBlank())
+            throw new IllegalArgumentException("Genre cannot be blank");
+        if(returnedCount < 0 || lendingCount < returnedCount || totalDays < 0)
+            throw new IllegalArgumentException("Invalid genre lending aggregates");
+        this.genre = key.getGenre();
+        this.year = key.getYear();
+        this.month = key.getMonth();
+        this.lendingCount = lendingCount;
+        this.returnedCount = returnedCount;
+        this.totalDays = totalDays;
+    }
+
+    /**
+     * @return the average number of lendings started per day of the month.
+     */
+    public double getDailyAverageLendings() {
+        return (double) lendingCount / YearMonth.of(year, month).lengthOfMonth();
+    }
+
+    /**
+     * @return the average duration of the returned lendings, in days, or {@code null} if none was returned.
+     */
+    public Double getAverageDays() {
+        return returnedCount == 0 ? null : (double) totalDays / returnedCount;
+    }
+
+    /**Protected empty constructor for ORM only.*/
+    protected GenreLendingStats() {}
+
+    /**
+     * Identifies the row of a genre and month. Keys sort by genre, then month, which is the order rows are updated in.
+     */
+    @Getter
+    @EqualsAndHashCode
+    @AllArgsConstructor
+    @NoArgsConstructor(access = AccessLevel.PROTECTED)
+    public static class Key implements Serializable, Comparable<Key> {
+        private static final Comparator<Key> ORDER = Comparator.comparing(Key::getGenre)
+                .thenComparingInt(Key::getYear)
+                .thenComparingInt(Key::getMonth);
+
+        private String genre;
+        private int year;
+        private int month;
+
+        /**
+         * @param genre     name of the genre of the lent book
+         * @param startDate start date of the lending
+         */
+        public static Key of(String genre, LocalDate startDate) {
+            return new Key(genre, startDate.getYear(), startDate.getMonthValue());
+        }
+
+        @Override
+        public int compareTo(Key other) {
+            return ORDER.compare(this, other);
+        }
+    }
+}
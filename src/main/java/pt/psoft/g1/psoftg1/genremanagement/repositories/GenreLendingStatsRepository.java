@@ -0,0 +1,26 @@
+package pt.psoft.g1.psoftg1.genremanagement.repositories;
+
+import pt.psoft.g1.psoftg1.genremanagement.model.GenreLendingStats;
+
+import java.util.LongSummaryStatistics;
+
+public interface GenreLendingStatsRepository {
+    /**
+     * Adds lendings started in the month of {@code key} to its aggregates, creating them if needed.
+     * @param key   genre and starting month of the lendings
+     * @param count number of lendings
+     */
+    void addLendings(GenreLendingStats.Key key, long count);
+
+    /**
+     * Adds returned lendings started in the month of {@code key} to its aggregates, in a single statement.
+     * @param key       genre and starting month of the lendings
+     * @param durations durations of the lendings, in days
+     */
+    void addReturns(GenreLendingStats.Key key, LongSummaryStatistics durations);
+
+    /**
+     * Discards all aggregates and recomputes them from the lendings.
+     */
+    void rebuild();
+}
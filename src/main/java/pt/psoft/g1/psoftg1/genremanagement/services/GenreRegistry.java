@@ -0,0 +1,143 @@
+package pt.psoft.g1.psoftg1.genremanagement.services;
+
+import lombok.RequiredArgsConstructor;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+import pt.psoft.g1.psoftg1.genremanagement.model.Genre;
+import pt.psoft.g1.psoftg1.genremanagement.repositories.GenreRepository;
+import pt.psoft.g1.psoftg1.shared.services.AfterCommit;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+
+/**
+ * Every genre, held in memory so that resolving a genre by name needs no query.
+ * <p>Each genre name is interned to a compact int id, from 0 up, which never changes while the application runs, so
+ * other in-memory structures can store a genre as an int. Genres are loaded once the application is ready, and a
+ * genre saved later is added once its transaction commits. A name that is not known yet is looked up in the
+ * repository, so genres saved by other means are found too.
+ * <p>Lookups read an immutable snapshot, which changes are copied into, as genres are read far more than created.
+ */
+@Component
+@RequiredArgsConstructor
+public class GenreRegistry {
+    private static final Logger logger = LogManager.getLogger();
+
+    private final GenreRepository genreRepository;
+
+    private volatile Snapshot snapshot = new Snapshot(Map.of(), new Genre[0]);
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void load() {
+        final List<Genre> genres = new ArrayList<>();
+        genreRepository.findAll().forEach(genres::add);
+        synchronized (this) {
+            snapshot = snapshot.with(genres);
+        }
+        logger.info("Genre registry loaded with {} genres", snapshot.genres.length);
+    }
+
+    /**
+     * Adds a created genre once the current transaction commits.
+     */
+    public void register(Genre genre) {
+        AfterCommit.execute(() -> {
+            synchronized (this) {
+                snapshot = snapshot.with(List.of(genre));
+            }
+        });
+    }
+
+    /**
+     * Adds a genre right away, for callers holding a genre that is already committed.
+     * @return the id of the genre
+     */
+    public int intern(Genre genre) {
+        final Integer id = snapshot.ids.get(genre.getGenre());
+        if (id != null)
+            return id;
+        synchronized (this) {
+            snapshot = snapshot.with(List.of(genre));
+            return snapshot.ids.get(genre.getGenre());
+        }
+    }
+
+    /**
+     * @return the genre with that name, looked up in the repository if it is not known yet
+     */
+    public Optional<Genre> find(String name) {
+        if (name == null)
+            return Optional.empty();
+        final Snapshot current = snapshot;
+        final Integer id = current.ids.get(name);
+        if (id != null)
+            return Optional.of(current.genres[id]);
+        final Optional<Genre> genre = genreRepository.findByString(name);
+        genre.ifPresent(this::register);
+        return genre;
+    }
+
+    /**
+     * @return the id of the genre with that name, or -1 if it is not known
+     */
+    public int idOf(String name) {
+        final Integer id = snapshot.ids.get(name);
+        return id == null ? -1 : id;
+    }
+
+    /**
+     * @return the genre with that id
+     * @throws IndexOutOfBoundsException if no genre has that id
+     */
+    public Genre get(int id) {
+        return snapshot.genres[id];
+    }
+
+    /**
+     * @return the number of known genres, which is one more than the highest id
+     */
+    public int size() {
+        return snapshot.genres.length;
+    }
+
+    /**
+     * @return every known genre, ordered by id
+     */
+    public List<Genre> findAll() {
+        return List.of(snapshot.genres);
+    }
+
+    private static final class Snapshot {
+        final Map<String, Integer> ids;
+        final Genre[] genres;
+
+        Snapshot(Map<String, Integer> ids, Genre[] genres) {
+            this.ids = ids;
+            this.genres = genres;
+        }
+
+        // a copy with the genres added, where known names keep their id and refer to the latest genre
+        Snapshot with(List<Genre> added) {
+            final Map<String, Integer> newIds = new HashMap<>(ids);
+            final Genre[] newGenres = Arrays.copyOf(genres, genres.length + added.size());
+            int size = genres.length;
+            for (Genre genre : added) {
+                final Integer id = newIds.get(genre.getGenre());
+                if (id != null) {
+                    newGenres[id] = genre;
+                } else {
+                    newIds.put(genre.getGenre(), size);
+                    newGenres[size++] = genre;
+                }
+            }
+            return new Snapshot(newIds, Arrays.copyOf(newGenres, size));
+        }
+    }
+}
@@ -15,4 +15,9 @@ public interface GenreService {
     List<GenreLendingsDTO> getAverageLendings(GetAverageLendingsQuery query, Page page);
     List<GenreLendingsPerMonthDTO> getLendingsPerMonthLastYearByGenre();
     List<GenreLendingsPerMonthDTO> getLendingsAverageDurationPerMonth(String startDate, String endDate);
+
+    /**
+     * Recomputes the per genre and month lending statistics the reports read from the lendings.
+     */
+    void rebuildLendingStats();
 }
@@ -7,6 +7,7 @@ import org.springframework.stereotype.Service;
 import pt.psoft.g1.psoftg1.bookmanagement.services.GenreBookCountDTO;
 import pt.psoft.g1.psoftg1.exceptions.NotFoundException;
 import pt.psoft.g1.psoftg1.genremanagement.model.Genre;
+import pt.psoft.g1.psoftg1.genremanagement.repositories.GenreLendingStatsRepository;
 import pt.psoft.g1.psoftg1.genremanagement.repositories.GenreRepository;
 import pt.psoft.g1.psoftg1.shared.services.Page;
 
@@ -20,10 +21,12 @@ import java.util.Optional;
 public class GenreServiceImpl implements GenreService {
 
     private final GenreRepository genreRepository;
+    private final GenreLendingStatsRepository genreLendingStatsRepository;
+    private final GenreRegistry genreRegistry;
 
 
     public Optional<Genre> findByString(String name) {
-        return genreRepository.findByString(name);
+        return genreRegistry.find(name);
     }
 
     @Override
@@ -39,7 +42,9 @@ public class GenreServiceImpl implements GenreService {
 
     @Override
     public Genre save(Genre genre) {
-        return this.genreRepository.save(genre);
+        final Genre saved = this.genreRepository.save(genre);
+        genreRegistry.register(saved);
+        return saved;
     }
 
     @Override
@@ -79,4 +84,9 @@ public class GenreServiceImpl implements GenreService {
 
         return list;
     }
+
+    @Override
+    public void rebuildLendingStats(){
+        genreLendingStatsRepository.rebuild();
+    }
 }
@@ -0,0 +1,25 @@
+package pt.psoft.g1.psoftg1.lendingmanagement.api;
+
+import io.swagger.v3.oas.annotations.media.Schema;
+import lombok.Data;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+
+@Data
+@Schema(description = "Progress and metrics of a fine accrual run")
+public class FineAccrualRunView {
+    private LocalDate runDate;
+
+    private String lastLendingNumber;
+
+    private long processedCount;
+
+    private long elapsedMillis;
+
+    private double rowsPerSecond;
+
+    private LocalDateTime startedAt;
+
+    private LocalDateTime finishedAt;
+}
@@ -0,0 +1,12 @@
+package pt.psoft.g1.psoftg1.lendingmanagement.api;
+
+import io.swagger.v3.oas.annotations.media.Schema;
+import lombok.Data;
+
+@Data
+@Schema(description = "A book, author, reader or genre and its number of lendings")
+public class LeaderboardEntryView {
+    @Schema(description = "ISBN, author number, reader number or genre name")
+    private String key;
+    private long lendingCount;
+}
@@ -0,0 +1,24 @@
+package pt.psoft.g1.psoftg1.lendingmanagement.api;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+import io.swagger.v3.oas.annotations.media.Schema;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@JsonInclude(JsonInclude.Include.NON_NULL)
+@Schema(description = "The outcome of one item of a batch of Lendings")
+public class LendingBatchItemView {
+    /**Position of the item in the batch request.*/
+    private int index;
+
+    /**HTTP status the item would have had as a single request.*/
+    private int status;
+
+    private String error;
+
+    private LendingView lending;
+}
@@ -5,6 +5,7 @@ import io.swagger.v3.oas.annotations.Parameter;
 import io.swagger.v3.oas.annotations.tags.Tag;
 import jakarta.validation.Valid;
 import lombok.RequiredArgsConstructor;
+import org.hibernate.StaleObjectStateException;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
@@ -14,16 +15,27 @@ import org.springframework.web.bind.annotation.*;
 import org.springframework.web.context.request.WebRequest;
 import org.springframework.web.server.ResponseStatusException;
 import org.springframework.web.servlet.support.ServletUriComponentsBuilder;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+import pt.psoft.g1.psoftg1.exceptions.ConflictException;
+import pt.psoft.g1.psoftg1.exceptions.LendingForbiddenException;
 import pt.psoft.g1.psoftg1.exceptions.NotFoundException;
 import pt.psoft.g1.psoftg1.lendingmanagement.model.Lending;
 import pt.psoft.g1.psoftg1.lendingmanagement.services.CreateLendingRequest;
+import pt.psoft.g1.psoftg1.lendingmanagement.services.CreateLendingsBatchRequest;
+import pt.psoft.g1.psoftg1.lendingmanagement.services.LeaderboardEntryDTO;
+import pt.psoft.g1.psoftg1.lendingmanagement.services.LendingBatchItemResult;
+import pt.psoft.g1.psoftg1.lendingmanagement.services.LendingDueDateIndex;
 import pt.psoft.g1.psoftg1.lendingmanagement.services.LendingService;
+import pt.psoft.g1.psoftg1.lendingmanagement.services.LendingSummaryDTO;
+import pt.psoft.g1.psoftg1.lendingmanagement.services.ReturnLendingsBatchRequest;
 import pt.psoft.g1.psoftg1.lendingmanagement.services.SearchLendingQuery;
 import pt.psoft.g1.psoftg1.lendingmanagement.services.SetLendingReturnedRequest;
+import pt.psoft.g1.psoftg1.lendingmanagement.services.LendingExportDTO;
 import pt.psoft.g1.psoftg1.readermanagement.api.ReaderLendingsAvgPerMonthView;
 import pt.psoft.g1.psoftg1.readermanagement.model.ReaderDetails;
 import pt.psoft.g1.psoftg1.readermanagement.services.ReaderService;
 import pt.psoft.g1.psoftg1.shared.api.ListResponse;
+import pt.psoft.g1.psoftg1.shared.api.StreamingExporter;
 import pt.psoft.g1.psoftg1.shared.services.ConcurrencyService;
 import pt.psoft.g1.psoftg1.shared.services.Page;
 import pt.psoft.g1.psoftg1.shared.services.SearchRequest;
@@ -31,6 +43,7 @@ import pt.psoft.g1.psoftg1.usermanagement.model.Librarian;
 import pt.psoft.g1.psoftg1.usermanagement.model.User;
 import pt.psoft.g1.psoftg1.usermanagement.services.UserService;
 
+import java.util.ArrayList;
 import java.util.List;
 import java.util.Objects;
 
@@ -40,6 +53,7 @@ import java.util.Objects;
 @RequestMapping("/api/lendings")
 public class LendingController {
     private final LendingService lendingService;
+    private final StreamingExporter streamingExporter;
     private final ReaderService readerService;
     private final UserService userService;
     private final ConcurrencyService concurrencyService;
@@ -63,6 +77,51 @@ public class LendingController {
                 .body(lendingViewMapper.toLendingView(lending));
     }
 
+    @Operation(summary = "Creates several Lendings at once, reporting the outcome of each one")
+    @PostMapping(value = "/batch")
+    public ResponseEntity<ListResponse<LendingBatchItemView>> createBatch(
+            @Valid @RequestBody final CreateLendingsBatchRequest resource) {
+        final var results = lendingService.createAll(resource.getLendings());
+        return ResponseEntity.status(HttpStatus.MULTI_STATUS)
+                .body(new ListResponse<>(toBatchItemViews(results, HttpStatus.CREATED)));
+    }
+
+    @Operation(summary = "Sets several Lendings as returned at once, reporting the outcome of each one")
+    @PatchMapping(value = "/batch/return")
+    public ResponseEntity<ListResponse<LendingBatchItemView>> setBatchReturned(
+            @Valid @RequestBody final ReturnLendingsBatchRequest resource) {
+        final var results = lendingService.returnAll(resource.getLendings());
+        return ResponseEntity.status(HttpStatus.MULTI_STATUS)
+                .body(new ListResponse<>(toBatchItemViews(results, HttpStatus.OK)));
+    }
+
+    private List<LendingBatchItemView> toBatchItemViews(List<LendingBatchItemResult> results, HttpStatus succeeded) {
+        final List<LendingBatchItemView> views = new ArrayList<>(results.size());
+        for (LendingBatchItemResult result : results) {
+            if (result.isSucceeded()) {
+                views.add(new LendingBatchItemView(result.getIndex(), succeeded.value(), null,
+                        lendingViewMapper.toLendingView(result.getLending())));
+            } else {
+                views.add(new LendingBatchItemView(result.getIndex(), statusOf(result.getFailure()).value(),
+                        result.getFailure().getMessage(), null));
+            }
+        }
+        return views;
+    }
+
+    // same statuses GlobalExceptionHandler gives these exceptions on single requests
+    private static HttpStatus statusOf(RuntimeException failure) {
+        if (failure instanceof NotFoundException)
+            return HttpStatus.NOT_FOUND;
+        if (failure instanceof LendingForbiddenException)
+            return HttpStatus.FORBIDDEN;
+        if (failure instanceof StaleObjectStateException || failure instanceof ConflictException)
+            return HttpStatus.CONFLICT;
+        if (failure instanceof IllegalArgumentException)
+            return HttpStatus.BAD_REQUEST;
+        return HttpStatus.INTERNAL_SERVER_ERROR;
+    }
+
     @Operation(summary = "Gets a specific Lending")
     @GetMapping(value = "/{year}/{seq}")
     public ResponseEntity<LendingView> findByLendingNumber(
@@ -145,20 +204,78 @@ public class LendingController {
         return ResponseEntity.ok().body(lendingViewMapper.toLendingsAverageDurationView(lendingService.getAverageDuration()));
     }
 
+    @Operation(summary = "Recomputes the lending duration statistics from the returned lendings")
+    @PostMapping(value = "/avgDuration/rebuild")
+    @ResponseStatus(HttpStatus.NO_CONTENT)
+    public void rebuildAvgDuration() {
+        lendingService.rebuildDurationStats();
+    }
+
+    @Operation(summary = "Get the progress and metrics of the latest fine accrual run")
+    @GetMapping(value = "/fines/accrual")
+    public ResponseEntity<FineAccrualRunView> getFineAccrual() {
+        final var run = lendingService.findLatestFineAccrual()
+                .orElseThrow(() -> new NotFoundException("No fine accrual has run yet"));
+        return ResponseEntity.ok().body(lendingViewMapper.toFineAccrualRunView(run));
+    }
+
+    @Operation(summary = "Accrues the fines of the overdue lendings now, resuming today's run if it was interrupted")
+    @PostMapping(value = "/fines/accrual")
+    public ResponseEntity<FineAccrualRunView> accrueFines() {
+        return ResponseEntity.ok().body(lendingViewMapper.toFineAccrualRunView(lendingService.accrueFines()));
+    }
+
+    @Operation(summary = "Get the most lent books, authors, readers or genres of the last 30 days, the last year or all time")
+    @GetMapping(value = "/leaderboards/{board}")
+    public ListResponse<LeaderboardEntryView> getLeaderboard(
+            @PathVariable("board")
+                @Parameter(description = "books, authors, readers or genres")
+                final String board,
+            @RequestParam(value = "window", defaultValue = "all_time") final String window,
+            @RequestParam(value = "limit", defaultValue = "5") final int limit) {
+        final List<LeaderboardEntryDTO> entries = lendingService.getLeaderboard(board, window, limit);
+        if(entries.isEmpty())
+            throw new NotFoundException("No lendings to show");
+        return new ListResponse<>(lendingViewMapper.toLeaderboardEntryView(entries));
+    }
+
     @Operation(summary = "Get list of overdue lendings")
     @GetMapping(value = "/overdue")
     public ListResponse<LendingView> getOverdueLendings(@Valid @RequestBody Page page) {
-        final List<Lending> overdueLendings = lendingService.getOverdue(page);
+        final List<LendingSummaryDTO> overdueLendings = lendingService.getOverdue(page);
         if(overdueLendings.isEmpty())
             throw new NotFoundException("No lendings to show");
-        return new ListResponse<>(lendingViewMapper.toLendingView(overdueLendings));
+        return new ListResponse<>(lendingViewMapper.toLendingView(overdueLendings),
+                page.nextCursor(overdueLendings, LendingDueDateIndex::cursorOf));
+    }
+
+    @Operation(summary = "Get number of overdue lendings")
+    @GetMapping(value = "/overdue/count")
+    public ResponseEntity<OverdueLendingsCountView> countOverdueLendings() {
+        return ResponseEntity.ok().body(lendingViewMapper.toOverdueLendingsCountView(lendingService.countOverdue()));
+    }
+
+    @Operation(summary = "Get list of outstanding lendings due in the next days")
+    @GetMapping(value = "/dueSoon")
+    public ListResponse<LendingView> getLendingsDueSoon(
+            @RequestParam(value = "days", defaultValue = "3") final int days,
+            @Valid @RequestBody(required = false) Page page) {
+        if (page == null)
+            page = new Page();
+        final List<LendingSummaryDTO> dueLendings = lendingService.getDueWithin(days, page);
+        if(dueLendings.isEmpty())
+            throw new NotFoundException("No lendings to show");
+        return new ListResponse<>(lendingViewMapper.toLendingView(dueLendings),
+                page.nextCursor(dueLendings, LendingDueDateIndex::cursorOf));
     }
 
     @PostMapping("/search")
     public ListResponse<LendingView> searchReaders(
             @RequestBody final SearchRequest<SearchLendingQuery> request) {
-        final var readerList = lendingService.searchLendings(request.getPage(), request.getQuery());
-        return new ListResponse<>(lendingViewMapper.toLendingView(readerList));
+        final Page page = request.getPage() != null ? request.getPage() : new Page();
+        final var query = request.getQuery() != null ? request.getQuery() : new SearchLendingQuery();
+        final var readerList = lendingService.searchLendings(page, query);
+        return new ListResponse<>(lendingViewMapper.toLendingView(readerList), page.nextCursor(readerList, query::cursorOf));
     }
 
 /*    @Operation(summary = "Get list monthly average lendings per reader")
@@ -170,4 +287,11 @@ public class LendingController {
 
     }*/
 
+    @Operation(summary = "Exports all lendings as NDJSON or CSV, streamed as they are read")
+    @GetMapping(value = "/export")
+    public ResponseEntity<StreamingResponseBody> exportLendings(
+            @RequestParam(value = "format", defaultValue = "ndjson") final String format,
+            @RequestParam(value = "gzip", defaultValue = "false") final boolean gzip) {
+        return streamingExporter.export("lendings", LendingExportDTO.COLUMNS, lendingService::exportAll, format, gzip);
+    }
 }
@@ -0,0 +1,47 @@
+package pt.psoft.g1.psoftg1.lendingmanagement.api;
+
+import io.swagger.v3.oas.annotations.Operation;
+import io.swagger.v3.oas.annotations.Parameter;
+import io.swagger.v3.oas.annotations.tags.Tag;
+import lombok.RequiredArgsConstructor;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+import pt.psoft.g1.psoftg1.exceptions.NotFoundException;
+import pt.psoft.g1.psoftg1.lendingmanagement.services.LendingReportRowDTO;
+import pt.psoft.g1.psoftg1.lendingmanagement.services.LendingService;
+import pt.psoft.g1.psoftg1.shared.api.ListResponse;
+
+import java.util.List;
+
+@Tag(name = "Reports", description = "Endpoints for ad-hoc lending reports")
+@RestController
+@RequiredArgsConstructor
+@RequestMapping("/api/reports")
+public class LendingReportController {
+    private final LendingService lendingService;
+
+    private final LendingViewMapper lendingViewMapper;
+
+    @Operation(summary = "Counts lendings by genre, book, reader, reader age, month or year, " +
+            "with the average duration of the returned ones")
+    @GetMapping(value = "/lendings")
+    public ListResponse<LendingReportRowView> getLendingReport(
+            @RequestParam(value = "groupBy")
+                @Parameter(description = "genre, book, reader, reader_age, month or year")
+                final String groupBy,
+            @RequestParam(value = "from", required = false)
+                @Parameter(description = "first start date counted, as YYYY-MM-DD")
+                final String from,
+            @RequestParam(value = "to", required = false)
+                @Parameter(description = "last start date counted, as YYYY-MM-DD")
+                final String to,
+            @RequestParam(value = "genre", required = false) final String genre,
+            @RequestParam(value = "limit", defaultValue = "100") final int limit) {
+        final List<LendingReportRowDTO> rows = lendingService.getLendingReport(groupBy, from, to, genre, limit);
+        if(rows.isEmpty())
+            throw new NotFoundException("No lendings to show");
+        return new ListResponse<>(lendingViewMapper.toLendingReportRowView(rows));
+    }
+}
@@ -0,0 +1,15 @@
+package pt.psoft.g1.psoftg1.lendingmanagement.api;
+
+import io.swagger.v3.oas.annotations.media.Schema;
+import lombok.Data;
+
+@Data
+@Schema(description = "A group of lendings, with their number and the average duration of the returned ones")
+public class LendingReportRowView {
+    @Schema(description = "Genre name, ISBN, reader number, reader age, month (YYYY-MM) or year")
+    private String key;
+    private long lendingCount;
+    private long returnedCount;
+    @Schema(description = "Average duration of the returned lendings, in days, or null if none was returned")
+    private Double averageDurationInDays;
+}
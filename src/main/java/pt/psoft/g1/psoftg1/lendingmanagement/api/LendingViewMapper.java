@@ -4,7 +4,11 @@ import org.mapstruct.Mapper;
 import org.mapstruct.Mapping;
 import org.mapstruct.Named;
 import org.springframework.web.servlet.support.ServletUriComponentsBuilder;
+import pt.psoft.g1.psoftg1.lendingmanagement.model.FineAccrualRun;
 import pt.psoft.g1.psoftg1.lendingmanagement.model.Lending;
+import pt.psoft.g1.psoftg1.lendingmanagement.services.LeaderboardEntryDTO;
+import pt.psoft.g1.psoftg1.lendingmanagement.services.LendingReportRowDTO;
+import pt.psoft.g1.psoftg1.lendingmanagement.services.LendingSummaryDTO;
 import pt.psoft.g1.psoftg1.shared.api.MapperInterface;
 
 import java.util.*;
@@ -27,7 +31,31 @@ public abstract class LendingViewMapper extends MapperInterface {
     @Mapping(target = "_links.reader", source = "readerDetails", qualifiedByName = "readerLink")
     public abstract LendingView toLendingView(Lending lending);
 
-    public abstract List<LendingView> toLendingView(List<Lending> lendings);
+    @Mapping(target = "fineValueInCents", expression = "java(lending.getFineValueInCents().orElse(null))")
+    @Mapping(target = "_links.self", source = "lendingNumber", qualifiedByName = "lendingNumberLink")
+    @Mapping(target = "_links.book", source = "isbn", qualifiedByName = "isbnLink")
+    @Mapping(target = "_links.reader", source = "readerNumber", qualifiedByName = "readerNumberLink")
+    public abstract LendingView toLendingView(LendingSummaryDTO lending);
+
+    public abstract List<LendingView> toLendingView(List<LendingSummaryDTO> lendings);
 
     public abstract LendingsAverageDurationView toLendingsAverageDurationView(Double lendingsAverageDuration);
+
+    public abstract OverdueLendingsCountView toOverdueLendingsCountView(Long overdueLendings);
+
+    @Mapping(target = "processedCount", expression = "java(run.getProcessedCount())")
+    @Mapping(target = "elapsedMillis", expression = "java(run.getElapsedMillis())")
+    @Mapping(target = "rowsPerSecond", expression = "java(run.getRowsPerSecond())")
+    public abstract FineAccrualRunView toFineAccrualRunView(FineAccrualRun run);
+
+    @Mapping(target = "lendingCount", expression = "java(entry.getLendingCount())")
+    public abstract LeaderboardEntryView toLeaderboardEntryView(LeaderboardEntryDTO entry);
+
+    public abstract List<LeaderboardEntryView> toLeaderboardEntryView(List<LeaderboardEntryDTO> entries);
+
+    @Mapping(target = "lendingCount", expression = "java(row.getLendingCount())")
+    @Mapping(target = "returnedCount", expression = "java(row.getReturnedCount())")
+    public abstract LendingReportRowView toLendingReportRowView(LendingReportRowDTO row);
+
+    public abstract List<LendingReportRowView> toLendingReportRowView(List<LendingReportRowDTO> rows);
 }
@@ -0,0 +1,12 @@
+package pt.psoft.g1.psoftg1.lendingmanagement.api;
+
+import io.swagger.v3.oas.annotations.media.Schema;
+import jakarta.validation.constraints.NotNull;
+import lombok.Data;
+
+@Data
+@Schema(description = "The number of outstanding lendings past their due date.")
+public class OverdueLendingsCountView {
+    @NotNull
+    private Long overdueLendings;
+}
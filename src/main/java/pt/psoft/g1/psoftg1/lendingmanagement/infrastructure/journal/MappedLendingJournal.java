@@ -0,0 +1,278 @@
+package pt.psoft.g1.psoftg1.lendingmanagement.infrastructure.journal;
+
+import jakarta.annotation.PreDestroy;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import pt.psoft.g1.psoftg1.exceptions.FileStorageException;
+import pt.psoft.g1.psoftg1.lendingmanagement.model.LendingEvent;
+import pt.psoft.g1.psoftg1.lendingmanagement.repositories.LendingJournal;
+import pt.psoft.g1.psoftg1.shared.services.AfterCommit;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileLock;
+import java.nio.channels.OverlappingFileLockException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.time.LocalDate;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.function.Consumer;
+
+/**
+ * {@link LendingJournal} stored in memory-mapped segment files of {@code journal.segment-size} bytes.
+ * <p>Every event is a fixed-size record of {@value #RECORD_SIZE} bytes, so the segment and position of any offset
+ * are computed directly, and replaying is a sequential read of mapped memory. Segment files are named after the
+ * offset of their first event and are created full-size, zero-filled; the type byte of a record is written last,
+ * so a record whose type is still 0 was never completely written. On startup the end of the journal is found by
+ * binary search on that byte in the last segment.
+ * <p>Every instance appends to its own journal, in the {@code journal.instance-id} subdirectory of
+ * {@code journal.dir}, or in {@code journal.dir} itself if the id is blank. That directory is locked while the
+ * application runs: only one instance may append to a journal. A blank {@code journal.dir} uses a new temporary
+ * directory.
+ * <p>Events are encoded when they are appended, and an event the record layout cannot hold is logged and left out
+ * of the journal, so it never fails the transaction it belongs to after it has committed.
+ */
+@Component
+public class MappedLendingJournal implements LendingJournal {
+    private static final Logger logger = LogManager.getLogger();
+
+    static final int RECORD_SIZE = 64;
+
+    // record layout
+    private static final int TYPE = 0;
+    private static final int ISBN_LENGTH = 1;
+    private static final int LENDING_YEAR = 2;
+    private static final int LENDING_SEQ = 4;
+    private static final int TIMESTAMP = 8;
+    private static final int READER_YEAR = 16;
+    private static final int READER_SEQ = 20;
+    private static final int DATE = 24;
+    private static final int LIMIT_DATE = 28;
+    private static final int AMOUNT = 32;
+    private static final int ISBN = 36;
+    private static final int MAX_ISBN_LENGTH = 13;
+
+    private static final int NO_DATE = Integer.MIN_VALUE;
+    private static final String SEGMENT_PREFIX = "lendings-";
+    private static final String SEGMENT_SUFFIX = ".journal";
+
+    private final Path directory;
+    private final int eventsPerSegment;
+    private final List<MappedByteBuffer> segments = new CopyOnWriteArrayList<>();
+    private final FileChannel lockChannel;
+    private final FileLock lock;
+
+    private volatile long endOffset;
+
+    public MappedLendingJournal(@Value("${journal.dir}") final String dir,
+                                @Value("${journal.instance-id}") final String instanceId,
+                                @Value("${journal.segment-size}") final int segmentSize) {
+        if (segmentSize < RECORD_SIZE || segmentSize % RECORD_SIZE != 0)
+            throw new IllegalArgumentException("Journal segment size must be a multiple of " + RECORD_SIZE);
+        this.eventsPerSegment = segmentSize / RECORD_SIZE;
+
+        try {
+            final Path base = dir == null || dir.isBlank()
+                    ? Files.createTempDirectory("lending-journal")
+                    : Paths.get(dir).toAbsolutePath().normalize();
+            this.directory = Files.createDirectories(instanceId == null || instanceId.isBlank()
+                    ? base
+                    : base.resolve(instanceId));
+            this.lockChannel = FileChannel.open(directory.resolve("journal.lock"),
+                    StandardOpenOption.CREATE, StandardOpenOption.WRITE);
+            this.lock = tryLock(lockChannel);
+            if (lock == null) {
+                lockChannel.close();
+                throw new FileStorageException("Lending journal " + directory + " is in use by another instance");
+            }
+            open();
+        } catch (IOException ex) {
+            throw new FileStorageException("Could not open the lending journal in " + dir, ex);
+        }
+    }
+
+    private static FileLock tryLock(FileChannel channel) throws IOException {
+        try {
+            return channel.tryLock();
+        } catch (OverlappingFileLockException e) {
+            // held by another journal in this same JVM
+            return null;
+        }
+    }
+
+    private void open() throws IOException {
+        for (int segment = 0; Files.exists(segmentPath(segment)); segment++) {
+            segments.add(map(segment));
+        }
+        if (segments.isEmpty())
+            return;
+
+        // records are written in order, so the written ones are a prefix of the last segment
+        final ByteBuffer last = segments.get(segments.size() - 1);
+        int low = 0;
+        int high = eventsPerSegment;
+        while (low < high) {
+            final int mid = (low + high) >>> 1;
+            if (last.get(mid * RECORD_SIZE + TYPE) != 0)
+                low = mid + 1;
+            else
+                high = mid;
+        }
+        endOffset = (long) (segments.size() - 1) * eventsPerSegment + low;
+    }
+
+    @Override
+    public void append(final LendingEvent event) {
+        final ByteBuffer record;
+        try {
+            record = encode(event);
+        } catch (IllegalArgumentException e) {
+            logger.error("Lending event {} of {} left out of the journal: {}", event.getType(),
+                    event.getLendingNumber(), e.getMessage());
+            return;
+        }
+        AfterCommit.execute(() -> {
+            try {
+                write(record);
+            } catch (FileStorageException e) {
+                logger.error("Lending event {} of {} left out of the journal", event.getType(),
+                        event.getLendingNumber(), e);
+            }
+        });
+    }
+
+    /**
+     * Writes the event right away.
+     * @return its offset
+     */
+    long write(final LendingEvent event) {
+        return write(encode(event));
+    }
+
+    private synchronized long write(final ByteBuffer record) {
+        final long offset = endOffset;
+        final int segment = (int) (offset / eventsPerSegment);
+        if (segment == segments.size()) {
+            if (segment > 0)
+                segments.get(segment - 1).force();
+            segments.add(map(segment));
+        }
+        final ByteBuffer target = segments.get(segment);
+        final int at = (int) (offset % eventsPerSegment) * RECORD_SIZE;
+        // published last: a record is complete once its type is set
+        target.put(at + TYPE + 1, record, TYPE + 1, RECORD_SIZE - TYPE - 1);
+        target.put(at + TYPE, record.get(TYPE));
+        endOffset = offset + 1;
+        return offset;
+    }
+
+    @Override
+    public long endOffset() {
+        return endOffset;
+    }
+
+    @Override
+    public long replay(final long fromOffset, final Consumer<LendingEvent> consumer) {
+        final long end = endOffset;
+        if (fromOffset < 0 || fromOffset > end)
+            throw new IllegalArgumentException("Offset " + fromOffset + " is outside the journal (0.." + end + ")");
+        for (long offset = fromOffset; offset < end; offset++) {
+            final ByteBuffer segment = segments.get((int) (offset / eventsPerSegment));
+            consumer.accept(decode(segment, (int) (offset % eventsPerSegment) * RECORD_SIZE));
+        }
+        return end;
+    }
+
+    @PreDestroy
+    public synchronized void close() throws IOException {
+        for (MappedByteBuffer segment : segments) {
+            segment.force();
+        }
+        lock.release();
+        lockChannel.close();
+    }
+
+    private Path segmentPath(int segment) {
+        return directory.resolve(String.format("%s%020d%s", SEGMENT_PREFIX,
+                (long) segment * eventsPerSegment, SEGMENT_SUFFIX));
+    }
+
+    private MappedByteBuffer map(int segment) {
+        try (FileChannel channel = FileChannel.open(segmentPath(segment),
+                StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+            return channel.map(FileChannel.MapMode.READ_WRITE, 0, (long) eventsPerSegment * RECORD_SIZE);
+        } catch (IOException ex) {
+            throw new FileStorageException("Could not map lending journal segment " + segmentPath(segment), ex);
+        }
+    }
+
+    private static ByteBuffer encode(LendingEvent event) {
+        final ByteBuffer record = ByteBuffer.allocate(RECORD_SIZE);
+        encode(event, record, 0);
+        return record;
+    }
+
+    private static void encode(LendingEvent event, ByteBuffer buffer, int at) {
+        final int slash = event.getLendingNumber().indexOf('/');
+        if (slash < 0)
+            throw new IllegalArgumentException("Invalid lending number for the lending journal: " + event.getLendingNumber());
+        buffer.putShort(at + LENDING_YEAR, Short.parseShort(event.getLendingNumber().substring(0, slash)));
+        buffer.putInt(at + LENDING_SEQ, Integer.parseInt(event.getLendingNumber().substring(slash + 1)));
+        buffer.putLong(at + TIMESTAMP, event.getTimestamp());
+
+        if (event.getReaderNumber() != null) {
+            final int readerSlash = event.getReaderNumber().indexOf('/');
+            if (readerSlash < 0)
+                throw new IllegalArgumentException("Invalid reader number for the lending journal: " + event.getReaderNumber());
+            buffer.putShort(at + READER_YEAR, Short.parseShort(event.getReaderNumber().substring(0, readerSlash)));
+            buffer.putInt(at + READER_SEQ, Integer.parseInt(event.getReaderNumber().substring(readerSlash + 1)));
+        } else {
+            buffer.putShort(at + READER_YEAR, (short) 0);
+            buffer.putInt(at + READER_SEQ, 0);
+        }
+
+        buffer.putInt(at + DATE, (int) event.getDate().toEpochDay());
+        buffer.putInt(at + LIMIT_DATE, event.getLimitDate() != null ? (int) event.getLimitDate().toEpochDay() : NO_DATE);
+        buffer.putInt(at + AMOUNT, event.getAmountInCents());
+
+        final byte[] isbn = event.getIsbn() != null ? event.getIsbn().getBytes(StandardCharsets.US_ASCII) : new byte[0];
+        if (isbn.length > MAX_ISBN_LENGTH)
+            throw new IllegalArgumentException("ISBN too long for the lending journal: " + event.getIsbn());
+        buffer.put(at + ISBN_LENGTH, (byte) isbn.length);
+        buffer.put(at + ISBN, isbn);
+
+        // published last: a record is complete once its type is set
+        buffer.put(at + TYPE, (byte) (event.getType().ordinal() + 1));
+    }
+
+    private static LendingEvent decode(ByteBuffer buffer, int at) {
+        final LendingEvent.Type type = LendingEvent.Type.values()[buffer.get(at + TYPE) - 1];
+        final String lendingNumber = buffer.getShort(at + LENDING_YEAR) + "/" + buffer.getInt(at + LENDING_SEQ);
+
+        final short readerYear = buffer.getShort(at + READER_YEAR);
+        final String readerNumber = readerYear != 0 ? readerYear + "/" + buffer.getInt(at + READER_SEQ) : null;
+
+        final int limitDate = buffer.getInt(at + LIMIT_DATE);
+
+        final int isbnLength = buffer.get(at + ISBN_LENGTH);
+        String isbn = null;
+        if (isbnLength > 0) {
+            final byte[] bytes = new byte[isbnLength];
+            buffer.get(at + ISBN, bytes);
+            isbn = new String(bytes, StandardCharsets.US_ASCII);
+        }
+
+        return new LendingEvent(type, buffer.getLong(at + TIMESTAMP), lendingNumber, isbn, readerNumber,
+                LocalDate.ofEpochDay(buffer.getInt(at + DATE)),
+                limitDate != NO_DATE ? LocalDate.ofEpochDay(limitDate) : null,
+                buffer.getInt(at + AMOUNT));
+    }
+}
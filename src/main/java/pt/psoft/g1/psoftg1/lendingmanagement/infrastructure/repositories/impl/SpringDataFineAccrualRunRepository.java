@@ -0,0 +1,16 @@
+package pt.psoft.g1.psoftg1.lendingmanagement.infrastructure.repositories.impl;
+
+import org.springframework.data.repository.CrudRepository;
+import pt.psoft.g1.psoftg1.lendingmanagement.model.FineAccrualRun;
+import pt.psoft.g1.psoftg1.lendingmanagement.repositories.FineAccrualRunRepository;
+
+import java.time.LocalDate;
+import java.util.Optional;
+
+public interface SpringDataFineAccrualRunRepository extends FineAccrualRunRepository, CrudRepository<FineAccrualRun, LocalDate> {
+    @Override
+    Optional<FineAccrualRun> findByRunDate(LocalDate runDate);
+
+    @Override
+    Optional<FineAccrualRun> findFirstByOrderByRunDateDesc();
+}
@@ -0,0 +1,104 @@
+package pt.psoft.g1.psoftg1.lendingmanagement.infrastructure.repositories.impl;
+
+import jakarta.persistence.EntityManager;
+import lombok.RequiredArgsConstructor;
+import org.springframework.data.repository.CrudRepository;
+import org.springframework.transaction.annotation.Transactional;
+import pt.psoft.g1.psoftg1.lendingmanagement.model.LendingDurationStats;
+import pt.psoft.g1.psoftg1.lendingmanagement.repositories.LendingDurationStatsRepository;
+import pt.psoft.g1.psoftg1.shared.infrastructure.repositories.impl.InsertIfAbsent;
+
+import java.util.List;
+import java.util.LongSummaryStatistics;
+import java.util.Optional;
+
+public interface SpringDataLendingDurationStatsRepository extends LendingDurationStatsRepository, LendingDurationStatsRepoCustom, CrudRepository<LendingDurationStats, String> {
+    @Override
+    Optional<LendingDurationStats> findByStatsKey(String statsKey);
+}
+
+interface LendingDurationStatsRepoCustom {
+    void addDuration(String statsKey, long days);
+    void addDurations(String statsKey, LongSummaryStatistics durations);
+    void rebuild();
+}
+
+@RequiredArgsConstructor
+class LendingDurationStatsRepoCustomImpl implements LendingDurationStatsRepoCustom {
+    private final EntityManager em;
+
+    @Override
+    @Transactional
+    public void addDuration(String statsKey, long days) {
+        final LongSummaryStatistics duration = new LongSummaryStatistics();
+        duration.accept(days);
+        addDurations(statsKey, duration);
+    }
+
+    /**
+     * Increments the row in a single UPDATE statement, so concurrent returns never lose an update.
+     */
+    @Override
+    @Transactional
+    public void addDurations(String statsKey, LongSummaryStatistics durations) {
+        if (durations.getCount() == 0)
+            return;
+        // the first return of a book creates its row, unless another transaction created it meanwhile
+        if (increment(statsKey, durations) == 0
+                && !InsertIfAbsent.execute(em, "INSERT INTO LENDING_DURATION_STATS " +
+                                "(STATS_KEY, LENDING_COUNT, TOTAL_DAYS, MIN_DAYS, MAX_DAYS) VALUES (?, ?, ?, ?, ?)",
+                        statsKey, durations.getCount(), durations.getSum(), durations.getMin(), durations.getMax()))
+            increment(statsKey, durations);
+    }
+
+    private int increment(String statsKey, LongSummaryStatistics durations) {
+        return em.createQuery("UPDATE LendingDurationStats s " +
+                        "SET s.lendingCount = s.lendingCount + :count, " +
+                            "s.totalDays = s.totalDays + :totalDays, " +
+                            "s.minDays = CASE WHEN s.minDays > :minDays THEN :minDays ELSE s.minDays END, " +
+                            "s.maxDays = CASE WHEN s.maxDays < :maxDays THEN :maxDays ELSE s.maxDays END " +
+                        "WHERE s.statsKey = :statsKey")
+                .setParameter("count", durations.getCount())
+                .setParameter("totalDays", durations.getSum())
+                .setParameter("minDays", durations.getMin())
+                .setParameter("maxDays", durations.getMax())
+                .setParameter("statsKey", statsKey)
+                .executeUpdate();
+    }
+
+    @Override
+    @Transactional
+    public void rebuild() {
+        em.createQuery("DELETE FROM LendingDurationStats").executeUpdate();
+
+        final List<Object[]> rows = em.createQuery("SELECT b.isbn.isbn, " +
+                        "COUNT(l), " +
+                        "SUM((l.returnedDate - l.startDate) BY DAY), " +
+                        "MIN((l.returnedDate - l.startDate) BY DAY), " +
+                        "MAX((l.returnedDate - l.startDate) BY DAY) " +
+                        "FROM Lending l " +
+                        "JOIN l.book b " +
+                        "WHERE l.returnedDate IS NOT NULL " +
+                        "GROUP BY b.isbn.isbn", Object[].class)
+                .getResultList();
+
+        long count = 0, totalDays = 0, minDays = Long.MAX_VALUE, maxDays = 0;
+        for (Object[] row : rows) {
+            final LendingDurationStats bookStats = new LendingDurationStats((String) row[0],
+                    ((Number) row[1]).longValue(),
+                    ((Number) row[2]).longValue(),
+                    ((Number) row[3]).longValue(),
+                    ((Number) row[4]).longValue());
+            em.persist(bookStats);
+
+            count += bookStats.getLendingCount();
+            totalDays += bookStats.getTotalDays();
+            minDays = Math.min(minDays, bookStats.getMinDays());
+            maxDays = Math.max(maxDays, bookStats.getMaxDays());
+        }
+
+        if (count > 0) {
+            em.persist(new LendingDurationStats(LendingDurationStats.TOTAL_KEY, count, totalDays, minDays, maxDays));
+        }
+    }
+}
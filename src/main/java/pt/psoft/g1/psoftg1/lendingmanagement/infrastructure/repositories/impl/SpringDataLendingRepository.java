@@ -4,8 +4,12 @@ import jakarta.persistence.EntityManager;
 import jakarta.persistence.Tuple;
 import jakarta.persistence.TypedQuery;
 import jakarta.persistence.criteria.*;
+import jakarta.persistence.QueryHint;
 import lombok.RequiredArgsConstructor;
+import org.hibernate.jpa.HibernateHints;
+import org.springframework.data.jpa.repository.EntityGraph;
 import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
 import org.springframework.data.repository.CrudRepository;
 import org.springframework.data.repository.query.Param;
 import org.springframework.util.StringUtils;
@@ -14,23 +18,39 @@ import pt.psoft.g1.psoftg1.genremanagement.services.GenreLendingsDTO;
 import pt.psoft.g1.psoftg1.genremanagement.services.GenreLendingsPerMonthDTO;
 import pt.psoft.g1.psoftg1.lendingmanagement.model.Lending;
 import pt.psoft.g1.psoftg1.lendingmanagement.repositories.LendingRepository;
+import pt.psoft.g1.psoftg1.lendingmanagement.services.LendingDayCountDTO;
+import pt.psoft.g1.psoftg1.lendingmanagement.services.LendingDueDateDTO;
+import pt.psoft.g1.psoftg1.lendingmanagement.services.LendingExportDTO;
+import pt.psoft.g1.psoftg1.lendingmanagement.services.LendingFactDTO;
+import pt.psoft.g1.psoftg1.lendingmanagement.services.LendingSummaryDTO;
+import pt.psoft.g1.psoftg1.lendingmanagement.services.ReaderBookDTO;
 import pt.psoft.g1.psoftg1.readermanagement.model.ReaderDetails;
 import pt.psoft.g1.psoftg1.readermanagement.services.ReaderAverageDto;
 import pt.psoft.g1.psoftg1.readermanagement.services.ReaderLendingsAvgPerMonthDto;
+import pt.psoft.g1.psoftg1.shared.services.Cursor;
 import pt.psoft.g1.psoftg1.shared.services.Page;
 import pt.psoft.g1.psoftg1.usermanagement.model.User;
 
 import java.time.LocalDate;
 import java.time.LocalDateTime;
 import java.util.*;
+import java.util.stream.Stream;
 
 public interface SpringDataLendingRepository extends LendingRepository, LendingRepoCustom, CrudRepository<Lending, Long> {
     @Override
     @Query("SELECT l " +
             "FROM Lending l " +
             "WHERE l.lendingNumber.lendingNumber = :lendingNumber")
+    @EntityGraph(attributePaths = {"book", "book.genre", "book.photo", "readerDetails", "readerDetails.reader", "readerDetails.photo"})
     Optional<Lending> findByLendingNumber(String lendingNumber);
 
+    @Override
+    @Query("SELECT l " +
+            "FROM Lending l " +
+            "WHERE l.lendingNumber.lendingNumber IN :lendingNumbers")
+    @EntityGraph(attributePaths = {"book", "readerDetails"})
+    List<Lending> findByLendingNumbers(@Param("lendingNumbers") Collection<String> lendingNumbers);
+
     //http://www.h2database.com/html/commands.html
 
     @Override
@@ -42,6 +62,18 @@ public interface SpringDataLendingRepository extends LendingRepository, LendingR
             "AND r.readerNumber.readerNumber = :readerNumber ")
     List<Lending> listByReaderNumberAndIsbn(String readerNumber, String isbn);
 
+    @Override
+    @Query("SELECT new pt.psoft.g1.psoftg1.lendingmanagement.services.LendingSummaryDTO(" +
+                "l.lendingNumber.lendingNumber, b.isbn.isbn, b.title.title, r.readerNumber.readerNumber, " +
+                "l.startDate, l.limitDate, l.returnedDate, l.fineValuePerDayInCents) " +
+            "FROM Lending l " +
+                "JOIN l.book b " +
+                "JOIN l.readerDetails r " +
+            "WHERE b.isbn.isbn = :isbn " +
+                "AND r.readerNumber.readerNumber = :readerNumber " +
+            "ORDER BY l.lendingNumber.lendingNumber")
+    List<LendingSummaryDTO> listSummariesByReaderNumberAndIsbn(@Param("readerNumber") String readerNumber, @Param("isbn") String isbn);
+
     @Override
     @Query("SELECT COUNT (l) " +
             "FROM Lending l " +
@@ -57,27 +89,108 @@ public interface SpringDataLendingRepository extends LendingRepository, LendingR
     List<Lending> listOutstandingByReaderNumber(@Param("readerNumber") String readerNumber);
 
     @Override
-    @Query(value =
-            "SELECT AVG(DATEDIFF(day, l.start_date, l.returned_date)) " +
-            "FROM Lending l"
-            , nativeQuery = true)
-    Double getAverageDuration();
+    @Query("SELECT l.limitDate " +
+            "FROM Lending l " +
+            "WHERE l.readerDetails.readerNumber.readerNumber = :readerNumber " +
+                "AND l.returnedDate IS NULL")
+    List<LocalDate> listOutstandingLimitDatesByReaderNumber(@Param("readerNumber") String readerNumber);
 
     @Override
-    @Query(value =
-            "SELECT AVG(DATEDIFF(day, l.start_date, l.returned_date)) " +
-                    "FROM Lending l " +
-                    "JOIN BOOK b ON l.BOOK_PK = b.PK " +
-                    "WHERE b.ISBN = :isbn"
-            , nativeQuery = true)
-    Double getAvgLendingDurationByIsbn(@Param("isbn") String isbn);
+    @Query("SELECT new pt.psoft.g1.psoftg1.lendingmanagement.services.LendingDueDateDTO(l.lendingNumber.lendingNumber, l.limitDate) " +
+            "FROM Lending l " +
+            "WHERE l.returnedDate IS NULL")
+    List<LendingDueDateDTO> listOutstandingDueDates();
 
+    @Override
+    @Query("SELECT new pt.psoft.g1.psoftg1.lendingmanagement.services.LendingSummaryDTO(" +
+                "l.lendingNumber.lendingNumber, b.isbn.isbn, b.title.title, r.readerNumber.readerNumber, " +
+                "l.startDate, l.limitDate, l.returnedDate, l.fineValuePerDayInCents) " +
+            "FROM Lending l " +
+                "JOIN l.book b " +
+                "JOIN l.readerDetails r " +
+            "WHERE l.lendingNumber.lendingNumber IN :lendingNumbers")
+    List<LendingSummaryDTO> findSummariesByLendingNumbers(@Param("lendingNumbers") Collection<String> lendingNumbers);
+
+    @Override
+    @Query("SELECT new pt.psoft.g1.psoftg1.lendingmanagement.services.LendingExportDTO(" +
+                "l.lendingNumber.lendingNumber, l.book.isbn.isbn, l.readerDetails.readerNumber.readerNumber, " +
+                "l.startDate, l.limitDate, l.returnedDate, l.fineValuePerDayInCents) " +
+            "FROM Lending l " +
+            "ORDER BY l.pk")
+    @QueryHints(@QueryHint(name = HibernateHints.HINT_FETCH_SIZE, value = "500"))
+    Stream<LendingExportDTO> streamAllForExport();
+
+    @Override
+    @Query("SELECT new pt.psoft.g1.psoftg1.lendingmanagement.services.LendingDayCountDTO(" +
+                "b.isbn.isbn, l.startDate, COUNT(l)) " +
+            "FROM Lending l " +
+                "JOIN l.book b " +
+            "GROUP BY b.isbn.isbn, l.startDate")
+    @QueryHints(@QueryHint(name = HibernateHints.HINT_FETCH_SIZE, value = "500"))
+    Stream<LendingDayCountDTO> streamDailyCountsByBook();
+
+    @Override
+    @Query("SELECT new pt.psoft.g1.psoftg1.lendingmanagement.services.LendingFactDTO(" +
+                "l.lendingNumber.lendingNumber, b.isbn.isbn, g, r.readerNumber.readerNumber, r.birthDate.birthDate, " +
+                "l.startDate, l.returnedDate) " +
+            "FROM Lending l " +
+                "JOIN l.book b " +
+                "JOIN b.genre g " +
+                "JOIN l.readerDetails r " +
+            "ORDER BY l.pk")
+    @QueryHints(@QueryHint(name = HibernateHints.HINT_FETCH_SIZE, value = "500"))
+    Stream<LendingFactDTO> streamFacts();
+
+    @Override
+    @Query("SELECT new pt.psoft.g1.psoftg1.lendingmanagement.services.LendingDayCountDTO(" +
+                "a.authorNumber, l.startDate, COUNT(l)) " +
+            "FROM Lending l " +
+                "JOIN l.book b " +
+                "JOIN b.authors a " +
+            "GROUP BY a.authorNumber, l.startDate")
+    @QueryHints(@QueryHint(name = HibernateHints.HINT_FETCH_SIZE, value = "500"))
+    Stream<LendingDayCountDTO> streamDailyCountsByAuthor();
 
+    @Override
+    @Query("SELECT new pt.psoft.g1.psoftg1.lendingmanagement.services.LendingDayCountDTO(" +
+                "r.readerNumber.readerNumber, l.startDate, COUNT(l)) " +
+            "FROM Lending l " +
+                "JOIN l.readerDetails r " +
+            "GROUP BY r.readerNumber.readerNumber, l.startDate")
+    @QueryHints(@QueryHint(name = HibernateHints.HINT_FETCH_SIZE, value = "500"))
+    Stream<LendingDayCountDTO> streamDailyCountsByReader();
+
+    @Override
+    @Query("SELECT new pt.psoft.g1.psoftg1.lendingmanagement.services.LendingDayCountDTO(" +
+                "g.genre, l.startDate, COUNT(l)) " +
+            "FROM Lending l " +
+                "JOIN l.book b " +
+                "JOIN b.genre g " +
+            "GROUP BY g.genre, l.startDate")
+    @QueryHints(@QueryHint(name = HibernateHints.HINT_FETCH_SIZE, value = "500"))
+    Stream<LendingDayCountDTO> streamDailyCountsByGenre();
+
+    @Override
+    @Query("SELECT new pt.psoft.g1.psoftg1.lendingmanagement.services.ReaderBookDTO(" +
+                "r.readerNumber.readerNumber, b.isbn.isbn) " +
+            "FROM Lending l " +
+                "JOIN l.readerDetails r " +
+                "JOIN l.book b " +
+            "GROUP BY r.readerNumber.readerNumber, b.isbn.isbn")
+    @QueryHints(@QueryHint(name = HibernateHints.HINT_FETCH_SIZE, value = "500"))
+    Stream<ReaderBookDTO> streamReaderBooks();
+
+    @Override
+    @Query("SELECT DISTINCT b.isbn.isbn " +
+            "FROM Lending l " +
+                "JOIN l.book b " +
+            "WHERE l.readerDetails.readerNumber.readerNumber = :readerNumber")
+    List<String> listBorrowedIsbnsByReaderNumber(@Param("readerNumber") String readerNumber);
 }
 
 interface LendingRepoCustom {
-    List<Lending> getOverdue(Page page);
-    List<Lending> searchLendings(Page page, String readerNumber, String isbn, Boolean returned, LocalDate startDate, LocalDate endDate);
+    List<Lending> findOutstandingDueBefore(LocalDate date, String afterLendingNumber, int limit);
+    List<LendingSummaryDTO> searchLendings(Page page, String readerNumber, String isbn, Boolean returned, LocalDate startDate, LocalDate endDate);
 //    List<ReaderAverageDto> getAverageMonthlyPerReader(LocalDate startDate, LocalDate endDate);
 
 }
@@ -89,37 +202,35 @@ class LendingRepoCustomImpl implements LendingRepoCustom {
     private final EntityManager em;
 
     @Override
-    public List<Lending> getOverdue(Page page)
-    {
-
-        final CriteriaBuilder cb = em.getCriteriaBuilder();
-        final CriteriaQuery<Lending> cq = cb.createQuery(Lending.class);
-        final Root<Lending> root = cq.from(Lending.class);
-        cq.select(root);
-
-        final List<Predicate> where = new ArrayList<>();
-
-        // Select overdue lendings where returnedDate is null and limitDate is before the current date
-        where.add(cb.isNull(root.get("returnedDate")));
-        where.add(cb.lessThan(root.get("limitDate"), LocalDate.now()));
-
-        cq.where(where.toArray(new Predicate[0]));
-        cq.orderBy(cb.asc(root.get("limitDate"))); // Order by limitDate, oldest first
-
-        final TypedQuery<Lending> q = em.createQuery(cq);
-        q.setFirstResult((page.getNumber() - 1) * page.getLimit());
-        q.setMaxResults(page.getLimit());
-
-        return q.getResultList();
+    public List<Lending> findOutstandingDueBefore(LocalDate date, String afterLendingNumber, int limit) {
+        final TypedQuery<Lending> query = em.createQuery("SELECT l " +
+                        "FROM Lending l " +
+                        "WHERE l.returnedDate IS NULL " +
+                            "AND l.limitDate < :date " +
+                            (afterLendingNumber != null ? "AND l.lendingNumber.lendingNumber > :after " : "") +
+                        "ORDER BY l.lendingNumber.lendingNumber", Lending.class)
+                .setParameter("date", date)
+                .setMaxResults(limit);
+        if (afterLendingNumber != null)
+            query.setParameter("after", afterLendingNumber);
+        return query.getResultList();
     }
 
-    public List<Lending> searchLendings(Page page, String readerNumber, String isbn, Boolean returned, LocalDate startDate, LocalDate endDate){
+    public List<LendingSummaryDTO> searchLendings(Page page, String readerNumber, String isbn, Boolean returned, LocalDate startDate, LocalDate endDate){
         final CriteriaBuilder cb = em.getCriteriaBuilder();
-        final CriteriaQuery<Lending> cq = cb.createQuery(Lending.class);
+        final CriteriaQuery<LendingSummaryDTO> cq = cb.createQuery(LendingSummaryDTO.class);
         final Root<Lending> lendingRoot = cq.from(Lending.class);
         final Join<Lending, Book> bookJoin = lendingRoot.join("book");
         final Join<Lending, ReaderDetails> readerDetailsJoin = lendingRoot.join("readerDetails");
-        cq.select(lendingRoot);
+        cq.select(cb.construct(LendingSummaryDTO.class,
+                lendingRoot.get("lendingNumber").get("lendingNumber"),
+                bookJoin.get("isbn").get("isbn"),
+                bookJoin.get("title").get("title"),
+                readerDetailsJoin.get("readerNumber").get("readerNumber"),
+                lendingRoot.get("startDate"),
+                lendingRoot.get("limitDate"),
+                lendingRoot.get("returnedDate"),
+                lendingRoot.get("fineValuePerDayInCents")));
 
         final List<Predicate> where = new ArrayList<>();
 
@@ -139,11 +250,17 @@ class LendingRepoCustomImpl implements LendingRepoCustom {
         if(endDate!=null)
             where.add(cb.lessThanOrEqualTo(lendingRoot.get("startDate"), endDate));
 
+        // lending numbers are unique, so they are both the sort key and the tie-breaker
+        final Path<String> lendingNumber = lendingRoot.get("lendingNumber").get("lendingNumber");
+        if (page.getCursor() != null)
+            where.add(cb.greaterThan(lendingNumber, Cursor.decode(page.getCursor(), 1).get(0)));
+
         cq.where(where.toArray(new Predicate[0]));
-        cq.orderBy(cb.asc(lendingRoot.get("lendingNumber")));
+        cq.orderBy(cb.asc(lendingNumber));
 
-        final TypedQuery<Lending> q = em.createQuery(cq);
-        q.setFirstResult((page.getNumber() - 1) * page.getLimit());
+        final TypedQuery<LendingSummaryDTO> q = em.createQuery(cq);
+        if (page.getCursor() == null)
+            q.setFirstResult((page.getNumber() - 1) * page.getLimit());
         q.setMaxResults(page.getLimit());
 
         return q.getResultList();
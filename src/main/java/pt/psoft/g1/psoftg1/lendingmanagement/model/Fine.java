@@ -44,6 +44,14 @@ public class Fine {
         this.lending = Objects.requireNonNull(lending);
     }
 
+    /**
+     * Recomputes the value of the fine from the days its lending is delayed: up to today while it is outstanding,
+     * or up to its return date.
+     */
+    public void accrue() {
+        centsValue = fineValuePerDayInCents * lending.getDaysDelayed();
+    }
+
     /**Protected empty constructor for ORM only.*/
     protected Fine() {}
 }
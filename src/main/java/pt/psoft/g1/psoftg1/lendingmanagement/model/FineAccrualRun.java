@@ -0,0 +1,80 @@
+package pt.psoft.g1.psoftg1.lendingmanagement.model;
+
+import jakarta.persistence.Column;
+import jakarta.persistence.Entity;
+import jakarta.persistence.Id;
+import jakarta.persistence.Table;
+import jakarta.persistence.Version;
+import jakarta.validation.constraints.PositiveOrZero;
+import lombok.Getter;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+
+/**
+ * The {@code FineAccrualRun} class records the progress of the daily job that accrues the fines of overdue lendings.
+ * <p>There is one row per day. It is updated in the same transaction as each chunk of fines, so a job interrupted
+ * by a restart resumes right after the last lending it committed, and it keeps the metrics of the run.
+ */
+@Getter
+@Entity
+@Table(name = "FINE_ACCRUAL_RUN")
+public class FineAccrualRun {
+    /**Day the fines are accrued for.*/
+    @Id
+    private LocalDate runDate;
+
+    /**Lending number of the last lending processed; the next chunk starts right after it.*/
+    @Column(length = 32)
+    private String lastLendingNumber;
+
+    /**Number of fines created or updated so far.*/
+    @PositiveOrZero
+    private long processedCount;
+
+    /**Time spent processing chunks, in milliseconds, summed across restarts.*/
+    @PositiveOrZero
+    private long elapsedMillis;
+
+    private LocalDateTime startedAt;
+
+    private LocalDateTime finishedAt;
+
+    @Version
+    private long version;
+
+    public FineAccrualRun(LocalDate runDate) {
+        if(runDate == null)
+            throw new IllegalArgumentException("Run date cannot be null");
+        this.runDate = runDate;
+        this.startedAt = LocalDateTime.now();
+    }
+
+    /**
+     * Records a committed chunk.
+     * @param lastLendingNumber lending number of the last lending of the chunk
+     * @param processed         number of fines created or updated by the chunk
+     * @param elapsedMillis     time spent on the chunk
+     */
+    public void chunkDone(String lastLendingNumber, int processed, long elapsedMillis) {
+        this.lastLendingNumber = lastLendingNumber;
+        this.processedCount += processed;
+        this.elapsedMillis += elapsedMillis;
+    }
+
+    public void finish() {
+        this.finishedAt = LocalDateTime.now();
+    }
+
+    public boolean isFinished() {
+        return finishedAt != null;
+    }
+
+    /**@return fines processed per second of processing time, or 0 before the first chunk*/
+    public double getRowsPerSecond() {
+        return elapsedMillis == 0 ? 0 : processedCount * 1000.0 / elapsedMillis;
+    }
+
+    /**Protected empty constructor for ORM only.*/
+    protected FineAccrualRun() {}
+}
@@ -51,10 +51,12 @@ public class Lending {
 
     /**
      * {@code Book} associated with this {@code Lending}.
+     * <p>Loaded lazily: list endpoints read lending summaries instead, and single lendings are loaded with an
+     * entity graph.
      * */
     @NotNull
     @Getter
-    @ManyToOne(fetch=FetchType.EAGER, optional = false)
+    @ManyToOne(fetch=FetchType.LAZY, optional = false)
     private Book book;
 
     /**
@@ -62,7 +64,7 @@ public class Lending {
      **/
     @NotNull
     @Getter
-    @ManyToOne(fetch=FetchType.EAGER, optional = false)
+    @ManyToOne(fetch=FetchType.LAZY, optional = false)
     private ReaderDetails readerDetails;
 
     /**
@@ -177,10 +179,19 @@ public class Lending {
      * past its limit date.
      */
     public int getDaysDelayed(){
-        if(this.returnedDate != null) {
-            return Math.max((int) ChronoUnit.DAYS.between(this.limitDate, this.returnedDate), 0);
+        return daysDelayed(this.limitDate, this.returnedDate);
+    }
+
+    /**
+     * <p>Same as {@link #getDaysDelayed()}, for a lending that was not loaded as an entity.</p>
+     * @param       limitDate date the lending is to be returned.
+     * @param       returnedDate date the lending was returned, or {@code null} if it is outstanding.
+     */
+    public static int daysDelayed(LocalDate limitDate, LocalDate returnedDate){
+        if(returnedDate != null) {
+            return Math.max((int) ChronoUnit.DAYS.between(limitDate, returnedDate), 0);
         }else{
-            return Math.max((int) ChronoUnit.DAYS.between(this.limitDate, LocalDate.now()), 0);
+            return Math.max((int) ChronoUnit.DAYS.between(limitDate, LocalDate.now()), 0);
         }
     }
 
@@ -0,0 +1,73 @@
+package pt.psoft.g1.psoftg1.lendingmanagement.model;
+
+import jakarta.persistence.Column;
+import jakarta.persistence.Entity;
+import jakarta.persistence.Id;
+import jakarta.persistence.Table;
+import jakarta.validation.constraints.PositiveOrZero;
+import lombok.Getter;
+
+/**
+ * The {@code LendingDurationStats} class keeps running aggregates of the duration (in days) of returned lendings,
+ * so averages can be read without scanning the {@code Lending} table.
+ * <p>There is one row per book, keyed by its ISBN, and one row for all lendings, keyed by {@link #TOTAL_KEY}.
+ * Rows are updated in place with atomic increments whenever a lending is returned.
+ * @see pt.psoft.g1.psoftg1.lendingmanagement.repositories.LendingDurationStatsRepository
+ */
+@Getter
+@Entity
+@Table(name = "LENDING_DURATION_STATS")
+public class LendingDurationStats {
+    /**Key of the row aggregating every lending.*/
+    public static final String TOTAL_KEY = "*";
+
+    /**ISBN of the book, or {@link #TOTAL_KEY}.*/
+    @Id
+    @Column(name = "STATS_KEY", length = 16)
+    private String statsKey;
+
+    /**Number of returned lendings.*/
+    @PositiveOrZero
+    private long lendingCount;
+
+    /**Sum of the durations of the returned lendings, in days.*/
+    @PositiveOrZero
+    private long totalDays;
+
+    @PositiveOrZero
+    private long minDays;
+
+    @PositiveOrZero
+    private long maxDays;
+
+    /**
+     * Constructs the aggregates of a single returned lending.
+     * @param statsKey  ISBN of the book, or {@link #TOTAL_KEY}
+     * @param days      duration of the lending, in days
+     */
+    public LendingDurationStats(String statsKey, long days) {
+        this(statsKey, 1, days, days, days);
+    }
+
+    public LendingDurationStats(String statsKey, long lendingCount, long totalDays, long minDays, long maxDays) {
+        if(statsKey == null || statsKey.isBlank())
+            throw new IllegalArgumentException("Stats key cannot be blank");
+        if(lendingCount < 1 || totalDays < 0 || minDays < 0 || maxDays < minDays)
+            throw new IllegalArgumentException("Invalid lending duration aggregates");
+        this.statsKey = statsKey;
+        this.lendingCount = lendingCount;
+        this.totalDays = totalDays;
+        this.minDays = minDays;
+        this.maxDays = maxDays;
+    }
+
+    /**
+     * @return the average duration of the returned lendings, in days.
+     */
+    public double getAverageDays() {
+        return (double) totalDays / lendingCount;
+    }
+
+    /**Protected empty constructor for ORM only.*/
+    protected LendingDurationStats() {}
+}
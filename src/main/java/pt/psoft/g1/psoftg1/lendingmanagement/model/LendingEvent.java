@@ -0,0 +1,78 @@
+package pt.psoft.g1.psoftg1.lendingmanagement.model;
+
+import lombok.EqualsAndHashCode;
+import lombok.Getter;
+import lombok.ToString;
+
+import java.time.LocalDate;
+
+/**
+ * The {@code LendingEvent} class is an immutable fact about a lending, as recorded in the lending journal.
+ * <p>Every event names its lending by lending number. {@code CREATED} and {@code RETURNED} events also carry the
+ * book and the reader, so consumers replaying the journal can join {@code FINED} events to them without going to
+ * the database.
+ * @see pt.psoft.g1.psoftg1.lendingmanagement.repositories.LendingJournal
+ */
+@Getter
+@ToString
+@EqualsAndHashCode
+public final class LendingEvent {
+    public enum Type { CREATED, RETURNED, FINED }
+
+    private final Type type;
+
+    /**When the event was recorded, in milliseconds since the epoch.*/
+    private final long timestamp;
+
+    private final String lendingNumber;
+
+    /**ISBN of the book; {@code null} on {@code FINED} events.*/
+    private final String isbn;
+
+    /**Number of the reader; {@code null} on {@code FINED} events.*/
+    private final String readerNumber;
+
+    /**Start date for {@code CREATED}, returned date for {@code RETURNED}, day the fine was computed for {@code FINED}.*/
+    private final LocalDate date;
+
+    /**Date the lending is due; {@code null} on {@code FINED} events.*/
+    private final LocalDate limitDate;
+
+    /**Fine value per day for {@code CREATED}, value of the fine for {@code FINED}, 0 for {@code RETURNED}.*/
+    private final int amountInCents;
+
+    public LendingEvent(Type type, long timestamp, String lendingNumber, String isbn, String readerNumber,
+                        LocalDate date, LocalDate limitDate, int amountInCents) {
+        if(type == null || lendingNumber == null || date == null)
+            throw new IllegalArgumentException("Event type, lending number and date are mandatory");
+        this.type = type;
+        this.timestamp = timestamp;
+        this.lendingNumber = lendingNumber;
+        this.isbn = isbn;
+        this.readerNumber = readerNumber;
+        this.date = date;
+        this.limitDate = limitDate;
+        this.amountInCents = amountInCents;
+    }
+
+    public static LendingEvent created(Lending lending) {
+        return new LendingEvent(Type.CREATED, System.currentTimeMillis(), lending.getLendingNumber(),
+                lending.getBook().getIsbn(), lending.getReaderDetails().getReaderNumber(),
+                lending.getStartDate(), lending.getLimitDate(), lending.getFineValuePerDayInCents());
+    }
+
+    public static LendingEvent returned(Lending lending) {
+        return new LendingEvent(Type.RETURNED, System.currentTimeMillis(), lending.getLendingNumber(),
+                lending.getBook().getIsbn(), lending.getReaderDetails().getReaderNumber(),
+                lending.getReturnedDate(), lending.getLimitDate(), 0);
+    }
+
+    /**
+     * @param fine  fine just created or accrued
+     * @param date  day its value was computed for
+     */
+    public static LendingEvent fined(Fine fine, LocalDate date) {
+        return new LendingEvent(Type.FINED, System.currentTimeMillis(), fine.getLending().getLendingNumber(),
+                null, null, date, null, fine.getCentsValue());
+    }
+}
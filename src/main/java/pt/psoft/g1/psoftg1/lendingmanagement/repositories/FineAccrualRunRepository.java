@@ -0,0 +1,17 @@
+package pt.psoft.g1.psoftg1.lendingmanagement.repositories;
+
+import pt.psoft.g1.psoftg1.lendingmanagement.model.FineAccrualRun;
+
+import java.time.LocalDate;
+import java.util.Optional;
+
+public interface FineAccrualRunRepository {
+    Optional<FineAccrualRun> findByRunDate(LocalDate runDate);
+
+    /**
+     * @return the most recent run, finished or not
+     */
+    Optional<FineAccrualRun> findFirstByOrderByRunDateDesc();
+
+    FineAccrualRun save(FineAccrualRun run);
+}
@@ -1,14 +1,20 @@
 package pt.psoft.g1.psoftg1.lendingmanagement.repositories;
 
 import pt.psoft.g1.psoftg1.lendingmanagement.model.Fine;
+import pt.psoft.g1.psoftg1.lendingmanagement.model.Lending;
 
+import java.util.Collection;
+import java.util.List;
 import java.util.Optional;
 
 public interface FineRepository {
 
     Optional<Fine> findByLendingNumber(String lendingNumber);
+    List<Fine> findByLendings(Collection<Lending> lendings);
     Iterable<Fine> findAll();
 
     Fine save(Fine fine);
 
+    <S extends Fine> Iterable<S> saveAll(Iterable<S> fines);
+
 }
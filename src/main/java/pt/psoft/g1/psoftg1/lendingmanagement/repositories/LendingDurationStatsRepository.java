@@ -0,0 +1,29 @@
+package pt.psoft.g1.psoftg1.lendingmanagement.repositories;
+
+import pt.psoft.g1.psoftg1.lendingmanagement.model.LendingDurationStats;
+
+import java.util.LongSummaryStatistics;
+import java.util.Optional;
+
+public interface LendingDurationStatsRepository {
+    Optional<LendingDurationStats> findByStatsKey(String statsKey);
+
+    /**
+     * Adds the duration of one returned lending to the aggregates of {@code statsKey}, creating them if needed.
+     * @param statsKey  ISBN of the book, or {@link LendingDurationStats#TOTAL_KEY}
+     * @param days      duration of the lending, in days
+     */
+    void addDuration(String statsKey, long days);
+
+    /**
+     * Same as {@link #addDuration} for several returned lendings at once, in a single statement.
+     * @param statsKey  ISBN of the book, or {@link LendingDurationStats#TOTAL_KEY}
+     * @param durations durations of the lendings, in days
+     */
+    void addDurations(String statsKey, LongSummaryStatistics durations);
+
+    /**
+     * Discards all aggregates and recomputes them from the returned lendings.
+     */
+    void rebuild();
+}
@@ -0,0 +1,30 @@
+package pt.psoft.g1.psoftg1.lendingmanagement.repositories;
+
+import pt.psoft.g1.psoftg1.lendingmanagement.model.LendingEvent;
+
+import java.util.function.Consumer;
+
+/**
+ * Append-only log of {@link LendingEvent}s, kept outside the database so analytics can replay the history of
+ * lendings without querying the live tables.
+ * <p>Events are numbered from 0 in the order they were appended; that number is their offset.
+ */
+public interface LendingJournal {
+    /**
+     * Appends an event once the current transaction commits, or right away if there is no transaction, so rolled
+     * back changes are never journaled.
+     */
+    void append(LendingEvent event);
+
+    /**
+     * @return the offset the next appended event will get, i.e. the number of events in the journal
+     */
+    long endOffset();
+
+    /**
+     * Replays, in order, the events from {@code fromOffset} up to the current end of the journal.
+     * @return the offset right after the last event replayed, to resume from on the next call
+     * @throws IllegalArgumentException if {@code fromOffset} is negative or past the end of the journal
+     */
+    long replay(long fromOffset, Consumer<LendingEvent> consumer);
+}
@@ -1,26 +1,72 @@
 package pt.psoft.g1.psoftg1.lendingmanagement.repositories;
 
 import pt.psoft.g1.psoftg1.lendingmanagement.model.Lending;
+import pt.psoft.g1.psoftg1.lendingmanagement.services.LendingDayCountDTO;
+import pt.psoft.g1.psoftg1.lendingmanagement.services.LendingDueDateDTO;
+import pt.psoft.g1.psoftg1.lendingmanagement.services.LendingExportDTO;
+import pt.psoft.g1.psoftg1.lendingmanagement.services.LendingFactDTO;
+import pt.psoft.g1.psoftg1.lendingmanagement.services.LendingSummaryDTO;
+import pt.psoft.g1.psoftg1.lendingmanagement.services.ReaderBookDTO;
 import pt.psoft.g1.psoftg1.shared.services.Page;
 
 import java.time.LocalDate;
+import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
+import java.util.stream.Stream;
 
 public interface LendingRepository {
     Optional<Lending> findByLendingNumber(String lendingNumber);
+    List<Lending> findByLendingNumbers(Collection<String> lendingNumbers);
     List<Lending> listByReaderNumberAndIsbn(String readerNumber, String isbn);
+    List<LendingSummaryDTO> listSummariesByReaderNumberAndIsbn(String readerNumber, String isbn);
     int getCountFromCurrentYear();
     List<Lending> listOutstandingByReaderNumber(String readerNumber);
-    Double getAverageDuration();
-    Double getAvgLendingDurationByIsbn(String isbn);
+    List<LocalDate> listOutstandingLimitDatesByReaderNumber(String readerNumber);
+    List<LendingDueDateDTO> listOutstandingDueDates();
+    List<LendingSummaryDTO> findSummariesByLendingNumbers(Collection<String> lendingNumbers);
 
+    /**
+     * Keyset-paginated scan of the outstanding lendings due before {@code date}, ordered by lending number.
+     * @param afterLendingNumber    last lending number of the previous chunk, or {@code null} for the first one
+     * @param limit                 maximum number of lendings returned
+     */
+    List<Lending> findOutstandingDueBefore(LocalDate date, String afterLendingNumber, int limit);
 
-    List<Lending> getOverdue(Page page);
-    List<Lending> searchLendings(Page page, String readerNumber, String isbn, Boolean returned, LocalDate startDate, LocalDate endDate);
+
+    List<LendingSummaryDTO> searchLendings(Page page, String readerNumber, String isbn, Boolean returned, LocalDate startDate, LocalDate endDate);
 
     Lending save(Lending lending);
 
+    <S extends Lending> Iterable<S> saveAll(Iterable<S> lendings);
+
     void delete(Lending lending);
 
+    Stream<LendingExportDTO> streamAllForExport();
+
+    /**
+     * Number of lendings started per day, for each book, author, reader or genre. The streams must be consumed,
+     * and closed, within a transaction.
+     */
+    Stream<LendingDayCountDTO> streamDailyCountsByBook();
+    Stream<LendingDayCountDTO> streamDailyCountsByAuthor();
+    Stream<LendingDayCountDTO> streamDailyCountsByReader();
+    Stream<LendingDayCountDTO> streamDailyCountsByGenre();
+
+    /**
+     * Every lending, with its book, genre, reader and the birth date of the reader, in creation order. The stream
+     * must be consumed, and closed, within a transaction.
+     */
+    Stream<LendingFactDTO> streamFacts();
+
+    /**
+     * Every book each reader has borrowed, once per reader and book. The stream must be consumed, and closed,
+     * within a transaction.
+     */
+    Stream<ReaderBookDTO> streamReaderBooks();
+
+    /**
+     * @return the ISBNs of the books the reader has ever borrowed
+     */
+    List<String> listBorrowedIsbnsByReaderNumber(String readerNumber);
 }
@@ -0,0 +1,142 @@
+package pt.psoft.g1.psoftg1.lendingmanagement.services;
+
+import lombok.RequiredArgsConstructor;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.PropertySource;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.dao.OptimisticLockingFailureException;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionStatus;
+import org.springframework.transaction.support.TransactionTemplate;
+import pt.psoft.g1.psoftg1.exceptions.ConflictException;
+import pt.psoft.g1.psoftg1.lendingmanagement.model.Fine;
+import pt.psoft.g1.psoftg1.lendingmanagement.model.FineAccrualRun;
+import pt.psoft.g1.psoftg1.lendingmanagement.model.Lending;
+import pt.psoft.g1.psoftg1.lendingmanagement.model.LendingEvent;
+import pt.psoft.g1.psoftg1.lendingmanagement.repositories.FineAccrualRunRepository;
+import pt.psoft.g1.psoftg1.lendingmanagement.repositories.FineRepository;
+import pt.psoft.g1.psoftg1.lendingmanagement.repositories.LendingJournal;
+import pt.psoft.g1.psoftg1.lendingmanagement.repositories.LendingRepository;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Daily job that creates or updates the {@code Fine} of every outstanding overdue lending, so fines are in the
+ * database before the books come back.
+ * <p>Overdue lendings are walked in keyset chunks of {@code fineAccrualChunkSize}, ordered by lending number. Each
+ * chunk is one transaction: it loads the existing fines of the chunk with one query, writes the new and updated
+ * ones with JDBC batching, and moves the {@link FineAccrualRun} checkpoint of the day forward. Memory use is bounded
+ * by the chunk size, and a run interrupted by a restart resumes after the last committed chunk.
+ * <p>Every instance schedules the job. When two run at once, the one that commits the checkpoint or a fine last fails
+ * on the version of the checkpoint or on the unique key, and leaves the run to the other one.
+ */
+@Component
+@RequiredArgsConstructor
+@PropertySource({"classpath:config/library.properties"})
+public class FineAccrualJob {
+    private static final Logger logger = LogManager.getLogger();
+
+    private final LendingRepository lendingRepository;
+    private final FineRepository fineRepository;
+    private final FineAccrualRunRepository fineAccrualRunRepository;
+    private final PlatformTransactionManager transactionManager;
+    private final LendingJournal lendingJournal;
+
+    private final AtomicBoolean running = new AtomicBoolean();
+
+    @Value("${fineAccrualChunkSize}")
+    private int chunkSize;
+
+    @Scheduled(cron = "${fineAccrualCron}")
+    public void scheduledRun() {
+        try {
+            run();
+        } catch (ConflictException e) {
+            logger.warn("Skipping scheduled fine accrual: {}", e.getMessage());
+        }
+    }
+
+    /**
+     * Accrues the fines for today, resuming today's run if it was interrupted. Does nothing if it already finished.
+     * @return the run of the day, with its metrics
+     * @throws ConflictException if a run is already in progress on this instance, or another instance committed a
+     *                           chunk of it first
+     */
+    public FineAccrualRun run() {
+        if (!running.compareAndSet(false, true))
+            throw new ConflictException("Fine accrual is already running");
+        try {
+            final LocalDate today = LocalDate.now();
+            final TransactionTemplate tx = new TransactionTemplate(transactionManager);
+            FineAccrualRun run;
+            try {
+                run = tx.execute(status -> fineAccrualRunRepository.findByRunDate(today)
+                        .orElseGet(() -> fineAccrualRunRepository.save(new FineAccrualRun(today))));
+                while (!run.isFinished()) {
+                    run = tx.execute(status -> accrueChunk(today, status));
+                }
+            } catch (OptimisticLockingFailureException | DataIntegrityViolationException e) {
+                // another instance saved the run of the day, moved its checkpoint or created one of the fines first
+                throw new ConflictException("Fine accrual is already running on another instance");
+            }
+            logger.info("Fine accrual for {}: {} fines in {} ms ({} rows/s)", today, run.getProcessedCount(),
+                    run.getElapsedMillis(), String.format("%.1f", run.getRowsPerSecond()));
+            return run;
+        } finally {
+            running.set(false);
+        }
+    }
+
+    private FineAccrualRun accrueChunk(LocalDate today, TransactionStatus status) {
+        final long start = System.nanoTime();
+        final FineAccrualRun run = fineAccrualRunRepository.findByRunDate(today).orElseThrow();
+
+        final List<Lending> lendings = lendingRepository.findOutstandingDueBefore(today, run.getLastLendingNumber(), chunkSize);
+        if (lendings.isEmpty()) {
+            run.finish();
+            return run;
+        }
+
+        final Map<String, Fine> fines = new HashMap<>();
+        for (Fine fine : fineRepository.findByLendings(lendings)) {
+            fines.put(fine.getLending().getLendingNumber(), fine);
+        }
+        final List<Fine> created = new ArrayList<>();
+        for (Lending lending : lendings) {
+            Fine fine = fines.get(lending.getLendingNumber());
+            if (fine == null) {
+                fine = new Fine(lending);
+                created.add(fine);
+            } else {
+                fine.accrue();
+            }
+            lendingJournal.append(LendingEvent.fined(fine, today));
+        }
+        fineRepository.saveAll(created);
+        status.flush();
+
+        run.chunkDone(lendings.get(lendings.size() - 1).getLendingNumber(), lendings.size(),
+                TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start));
+        if (lendings.size() < chunkSize)
+            run.finish();
+        return run;
+    }
+
+    /**
+     * @return the most recent run, finished or not
+     */
+    public Optional<FineAccrualRun> findLatestRun() {
+        return fineAccrualRunRepository.findFirstByOrderByRunDateDesc();
+    }
+}
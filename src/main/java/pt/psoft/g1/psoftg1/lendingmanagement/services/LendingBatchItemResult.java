@@ -0,0 +1,34 @@
+package pt.psoft.g1.psoftg1.lendingmanagement.services;
+
+import lombok.Getter;
+import pt.psoft.g1.psoftg1.lendingmanagement.model.Lending;
+
+/**
+ * Outcome of one item of a batch operation on lendings: either the lending it created or updated, or the
+ * exception that made it fail. A failed item does not affect the other items of the batch.
+ */
+@Getter
+public class LendingBatchItemResult {
+    /**Position of the item in the batch request.*/
+    private final int index;
+    private final Lending lending;
+    private final RuntimeException failure;
+
+    private LendingBatchItemResult(int index, Lending lending, RuntimeException failure) {
+        this.index = index;
+        this.lending = lending;
+        this.failure = failure;
+    }
+
+    public static LendingBatchItemResult succeeded(int index, Lending lending) {
+        return new LendingBatchItemResult(index, lending, null);
+    }
+
+    public static LendingBatchItemResult failed(int index, RuntimeException failure) {
+        return new LendingBatchItemResult(index, null, failure);
+    }
+
+    public boolean isSucceeded() {
+        return failure == null;
+    }
+}
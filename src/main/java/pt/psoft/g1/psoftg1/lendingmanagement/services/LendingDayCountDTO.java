@@ -0,0 +1,19 @@
+package pt.psoft.g1.psoftg1.lendingmanagement.services;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDate;
+
+/**
+ * Number of lendings started on a day for one book, author, reader or genre.
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class LendingDayCountDTO {
+    private String key;
+    private LocalDate day;
+    private long lendingCount;
+}
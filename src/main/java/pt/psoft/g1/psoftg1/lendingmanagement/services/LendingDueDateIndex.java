@@ -0,0 +1,223 @@
+package pt.psoft.g1.psoftg1.lendingmanagement.services;
+
+import lombok.RequiredArgsConstructor;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.annotation.PropertySource;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import pt.psoft.g1.psoftg1.lendingmanagement.repositories.LendingRepository;
+import pt.psoft.g1.psoftg1.shared.services.AfterCommit;
+import pt.psoft.g1.psoftg1.shared.services.Cursor;
+import pt.psoft.g1.psoftg1.shared.services.Page;
+
+import java.time.LocalDate;
+import java.time.format.DateTimeParseException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.NavigableSet;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.ConcurrentSkipListSet;
+import java.util.function.Consumer;
+
+/**
+ * In-memory index of the outstanding lendings, ordered by their {@code limitDate}.
+ * <p>Lendings are kept in one bucket per due date, so overdue listings, overdue counts and "due in N days"
+ * queries only walk the buckets in range and never scan the {@code Lending} table.
+ * <p>The index is loaded once the application is ready and kept current by {@link LendingService} when lendings
+ * are created or returned. Changes made inside a transaction are only applied after it commits. It is rebuilt from
+ * the database by {@code dueDateIndexRebuildCron}, every ten minutes by default, so lendings created or returned
+ * by other instances are missing or stale for at most that long.
+ */
+@Component
+@RequiredArgsConstructor
+@PropertySource({"classpath:config/library.properties"})
+public class LendingDueDateIndex {
+    private static final Logger logger = LogManager.getLogger();
+
+    private final LendingRepository lendingRepository;
+
+    private volatile Entries entries = new Entries();
+    // changes applied while the index is rebuilt, or null if it is not
+    private List<Consumer<Entries>> pending;
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void load() {
+        rebuild();
+    }
+
+    @Scheduled(cron = "${dueDateIndexRebuildCron}")
+    public void reconcile() {
+        final long start = System.nanoTime();
+        rebuild();
+        logger.info("Due date index rebuilt in {} ms", (System.nanoTime() - start) / 1_000_000);
+    }
+
+    /**
+     * Adds an outstanding lending to the index.
+     */
+    public void add(String lendingNumber, LocalDate limitDate) {
+        AfterCommit.execute(() -> apply(indexed -> indexed.put(lendingNumber, limitDate)));
+    }
+
+    /**
+     * Removes a lending from the index, once it is returned.
+     */
+    public void remove(String lendingNumber) {
+        AfterCommit.execute(() -> apply(indexed -> indexed.delete(lendingNumber)));
+    }
+
+    /**
+     * @param date      exclusive upper bound of the {@code limitDate}
+     * @param page      page of the results, in {@code limitDate} order
+     * @return the lending numbers of the outstanding lendings due before {@code date}
+     */
+    public List<String> findDueBefore(LocalDate date, Page page) {
+        return collect(null, date, false, page);
+    }
+
+    /**
+     * @param from      inclusive lower bound of the {@code limitDate}
+     * @param to        inclusive upper bound of the {@code limitDate}
+     * @param page      page of the results, in {@code limitDate} order
+     * @return the lending numbers of the outstanding lendings due between {@code from} and {@code to}
+     */
+    public List<String> findDueBetween(LocalDate from, LocalDate to, Page page) {
+        return collect(from, to, true, page);
+    }
+
+    /**
+     * @param date      exclusive upper bound of the {@code limitDate}
+     * @return the number of outstanding lendings due before {@code date}
+     */
+    public long countDueBefore(LocalDate date) {
+        long count = 0;
+        for (Set<String> bucket : entries.byDueDate.headMap(date, false).values()) {
+            count += bucket.size();
+        }
+        return count;
+    }
+
+    public int size() {
+        return entries.dueDates.size();
+    }
+
+    /**
+     * @return the {@link Cursor} of the results of this index following {@code lending}
+     */
+    public static String cursorOf(LendingSummaryDTO lending) {
+        return Cursor.encode(lending.getLimitDate(), lending.getLendingNumber());
+    }
+
+    private List<String> collect(LocalDate from, LocalDate to, boolean toInclusive, Page page) {
+        LocalDate cursorDate = null;
+        String cursorLendingNumber = null;
+        long skip = 0;
+        if (page.getCursor() != null) {
+            final Cursor cursor = Cursor.decode(page.getCursor(), 2);
+            try {
+                cursorDate = LocalDate.parse(cursor.get(0));
+            } catch (DateTimeParseException e) {
+                throw new IllegalArgumentException("Invalid cursor");
+            }
+            cursorLendingNumber = cursor.get(1);
+            if (from == null || cursorDate.isAfter(from))
+                from = cursorDate;
+        } else {
+            skip = (long) (page.getNumber() - 1) * page.getLimit();
+        }
+
+        if (from != null && (from.isAfter(to) || (from.equals(to) && !toInclusive)))
+            return new ArrayList<>();
+        final NavigableMap<LocalDate, NavigableSet<String>> byDueDate = entries.byDueDate;
+        final NavigableMap<LocalDate, NavigableSet<String>> range = from == null
+                ? byDueDate.headMap(to, toInclusive)
+                : byDueDate.subMap(from, true, to, toInclusive);
+
+        final List<String> result = new ArrayList<>(page.getLimit());
+        for (Map.Entry<LocalDate, NavigableSet<String>> entry : range.entrySet()) {
+            final Set<String> bucket = entry.getKey().equals(cursorDate)
+                    ? entry.getValue().tailSet(cursorLendingNumber, false)
+                    : entry.getValue();
+            if (skip > 0 && skip >= bucket.size()) {
+                skip -= bucket.size();
+                continue;
+            }
+            for (String lendingNumber : bucket) {
+                if (skip > 0) {
+                    skip--;
+                } else {
+                    result.add(lendingNumber);
+                    if (result.size() == page.getLimit()) {
+                        return result;
+                    }
+                }
+            }
+        }
+        return result;
+    }
+
+    void rebuild() {
+        synchronized (this) {
+            pending = new ArrayList<>();
+        }
+
+        Entries loaded = null;
+        try {
+            final Entries reloaded = new Entries();
+            for (LendingDueDateDTO dueDate : lendingRepository.listOutstandingDueDates()) {
+                reloaded.put(dueDate.getLendingNumber(), dueDate.getLimitDate());
+            }
+            loaded = reloaded;
+        } finally {
+            synchronized (this) {
+                if (loaded != null) {
+                    // puts and deletes are idempotent, so replaying a change the database already had is harmless
+                    for (Consumer<Entries> change : pending) {
+                        change.accept(loaded);
+                    }
+                    entries = loaded;
+                }
+                pending = null;
+            }
+        }
+    }
+
+    private synchronized void apply(Consumer<Entries> change) {
+        if (pending != null)
+            pending.add(change);
+        change.accept(entries);
+    }
+
+    /**
+     * Outstanding lendings by due date and by lending number, replaced as a whole when the index is rebuilt.
+     */
+    private static final class Entries {
+        private final NavigableMap<LocalDate, NavigableSet<String>> byDueDate = new ConcurrentSkipListMap<>();
+        private final Map<String, LocalDate> dueDates = new ConcurrentHashMap<>();
+
+        void put(String lendingNumber, LocalDate limitDate) {
+            delete(lendingNumber);
+            dueDates.put(lendingNumber, limitDate);
+            byDueDate.computeIfAbsent(limitDate, k -> new ConcurrentSkipListSet<>()).add(lendingNumber);
+        }
+
+        void delete(String lendingNumber) {
+            final LocalDate limitDate = dueDates.remove(lendingNumber);
+            if (limitDate == null) {
+                return;
+            }
+            final NavigableSet<String> bucket = byDueDate.get(limitDate);
+            bucket.remove(lendingNumber);
+            if (bucket.isEmpty()) {
+                byDueDate.remove(limitDate);
+            }
+        }
+    }
+}
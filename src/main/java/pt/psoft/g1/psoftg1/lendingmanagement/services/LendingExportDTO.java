@@ -0,0 +1,31 @@
+package pt.psoft.g1.psoftg1.lendingmanagement.services;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import pt.psoft.g1.psoftg1.shared.services.ExportRow;
+
+import java.time.LocalDate;
+import java.util.Arrays;
+import java.util.List;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class LendingExportDTO implements ExportRow {
+    public static final List<String> COLUMNS = List.of("lendingNumber", "isbn", "readerNumber",
+            "startDate", "limitDate", "returnedDate", "fineValuePerDayInCents");
+
+    private String lendingNumber;
+    private String isbn;
+    private String readerNumber;
+    private LocalDate startDate;
+    private LocalDate limitDate;
+    private LocalDate returnedDate;
+    private int fineValuePerDayInCents;
+
+    @Override
+    public List<Object> values() {
+        return Arrays.asList(lendingNumber, isbn, readerNumber, startDate, limitDate, returnedDate, fineValuePerDayInCents);
+    }
+}
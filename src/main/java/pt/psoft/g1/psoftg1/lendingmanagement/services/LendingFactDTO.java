@@ -0,0 +1,21 @@
+package pt.psoft.g1.psoftg1.lendingmanagement.services;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import pt.psoft.g1.psoftg1.genremanagement.model.Genre;
+
+import java.time.LocalDate;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class LendingFactDTO {
+    private String lendingNumber;
+    private String isbn;
+    private Genre genre;
+    private String readerNumber;
+    private LocalDate readerBirthDate;
+    private LocalDate startDate;
+    private LocalDate returnedDate;
+}
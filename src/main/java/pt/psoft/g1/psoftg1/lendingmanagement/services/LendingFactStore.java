@@ -0,0 +1,476 @@
+package pt.psoft.g1.psoftg1.lendingmanagement.services;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+import pt.psoft.g1.psoftg1.exceptions.NotFoundException;
+import pt.psoft.g1.psoftg1.genremanagement.model.Genre;
+import pt.psoft.g1.psoftg1.genremanagement.services.GenreRegistry;
+import pt.psoft.g1.psoftg1.lendingmanagement.model.Lending;
+import pt.psoft.g1.psoftg1.lendingmanagement.repositories.LendingRepository;
+import pt.psoft.g1.psoftg1.shared.services.AfterCommit;
+
+import java.time.LocalDate;
+import java.time.YearMonth;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.function.Consumer;
+import java.util.stream.Stream;
+
+/**
+ * Every lending as a row of primitive columns, held in memory so that ad-hoc reports can group and count lendings
+ * without joining the {@code Lending}, {@code Book}, {@code Genre} and {@code ReaderDetails} tables.
+ * <p>Each column is an int array indexed by row: the start and return days as epoch days, the month the lending
+ * started, the ids of the book, genre and reader, and the age of the reader when it started. Books and readers are
+ * interned to compact ids here, while genres use the ids of the {@link GenreRegistry}. A report splits the rows into
+ * ranges scanned in parallel on the common fork/join pool, each task summing its range into arrays indexed by group,
+ * which are then added together. The scan runs without the lock: it reads the rows that existed when it started,
+ * which are only ever updated in place.
+ * <p>The rows are loaded once the application is ready and kept current by {@link LendingService} when lendings are
+ * created or returned, once their transaction commits. They are reloaded by {@code lending-analytics.reload-cron},
+ * every hour by default, so lendings created or returned by other instances are missing for at most that long. As it
+ * holds every lending, the store is only filled when {@code lending-analytics.enabled} is set, which it is not by
+ * default.
+ */
+@Component
+public class LendingFactStore {
+    private static final Logger logger = LogManager.getLogger();
+
+    /**Maximum number of groups of a report.*/
+    public static final int MAX_LIMIT = 1000;
+
+    // smallest range of rows scanned by one task, below which forking costs more than it saves
+    private static final int MIN_ROWS_PER_TASK = 1 << 14;
+    private static final int NOT_RETURNED = -1;
+
+    public enum Dimension {
+        GENRE, BOOK, READER, READER_AGE, MONTH, YEAR;
+
+        /**
+         * @return whether groups are reported in key order, rather than most lent first
+         */
+        boolean isOrdered() {
+            return this == READER_AGE || this == MONTH || this == YEAR;
+        }
+
+        /**
+         * @throws IllegalArgumentException if {@code name} is not a dimension, in any case
+         */
+        public static Dimension parse(String name) {
+            try {
+                return valueOf(name.toUpperCase(Locale.ROOT));
+            } catch (IllegalArgumentException e) {
+                throw new IllegalArgumentException("Group by must be one of " + Arrays.toString(values()));
+            }
+        }
+    }
+
+    private final LendingRepository lendingRepository;
+    private final GenreRegistry genreRegistry;
+    private final PlatformTransactionManager transactionManager;
+    private final boolean enabled;
+
+    private final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+    private Columns columns = new Columns();
+    // changes made while the rows are loaded, or null if they are not
+    private List<Consumer<Columns>> pending;
+
+    public LendingFactStore(final LendingRepository lendingRepository,
+                            final GenreRegistry genreRegistry,
+                            final PlatformTransactionManager transactionManager,
+                            @Value("${lending-analytics.enabled}") final boolean enabled) {
+        this.lendingRepository = lendingRepository;
+        this.genreRegistry = genreRegistry;
+        this.transactionManager = transactionManager;
+        this.enabled = enabled;
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void load() {
+        if (!enabled)
+            return;
+        final long start = System.nanoTime();
+        lock.writeLock().lock();
+        try {
+            pending = new ArrayList<>();
+        } finally {
+            lock.writeLock().unlock();
+        }
+
+        Columns loaded = null;
+        try {
+            final TransactionTemplate tx = new TransactionTemplate(transactionManager);
+            tx.setReadOnly(true);
+            loaded = tx.execute(status -> {
+                final Columns reloaded = new Columns();
+                try (Stream<LendingFactDTO> facts = lendingRepository.streamFacts()) {
+                    facts.forEach(fact -> {
+                        final Fact row = new Fact(fact.getLendingNumber(), fact.getIsbn(), fact.getGenre(),
+                                fact.getReaderNumber(), fact.getReaderBirthDate(), fact.getStartDate(),
+                                fact.getReturnedDate());
+                        reloaded.append(row, genreRegistry.intern(row.genre));
+                    });
+                }
+                return reloaded;
+            });
+        } finally {
+            lock.writeLock().lock();
+            try {
+                if (loaded != null) {
+                    // a lending committed while the database was read is found by its number and not added twice
+                    for (Consumer<Columns> change : pending) {
+                        change.accept(loaded);
+                    }
+                    columns = loaded;
+                }
+                pending = null;
+            } finally {
+                lock.writeLock().unlock();
+            }
+        }
+        logger.info("Lending fact store loaded with {} lendings in {} ms", columns.size,
+                (System.nanoTime() - start) / 1_000_000);
+    }
+
+    @Scheduled(cron = "${lending-analytics.reload-cron}")
+    public void reload() {
+        load();
+    }
+
+    /**
+     * Adds a new lending, once the current transaction commits.
+     */
+    public void lent(Lending lending) {
+        if (!enabled)
+            return;
+        final Fact fact = new Fact(lending.getLendingNumber(), lending.getBook().getIsbn(),
+                lending.getBook().getGenre(), lending.getReaderDetails().getReaderNumber(),
+                lending.getReaderDetails().getBirthDate().getBirthDate(), lending.getStartDate(),
+                lending.getReturnedDate());
+        AfterCommit.execute(() -> apply(rows -> rows.append(fact, genreRegistry.intern(fact.genre))));
+    }
+
+    /**
+     * Records the return of a lending, once the current transaction commits.
+     */
+    public void returned(Lending lending) {
+        if (!enabled)
+            return;
+        final String lendingNumber = lending.getLendingNumber();
+        final int day = (int) lending.getReturnedDate().toEpochDay();
+        AfterCommit.execute(() -> apply(rows -> rows.returned(lendingNumber, day)));
+    }
+
+    /**
+     * @param dimension what lendings are grouped by
+     * @param from      first start date counted, or {@code null} to count from the first lending
+     * @param to        last start date counted, or {@code null} to count up to the last lending
+     * @param genre     name of the only genre counted, or {@code null} to count every genre
+     * @param limit     maximum number of groups, up to {@value #MAX_LIMIT}
+     * @return the groups with lendings, earliest first for ages, months and years, or most lent first, and ties in
+     * key order, for genres, books and readers
+     * @throws NotFoundException if the store is not enabled
+     */
+    public List<LendingReportRowDTO> report(Dimension dimension, LocalDate from, LocalDate to, String genre, int limit) {
+        if (!enabled)
+            throw new NotFoundException("Lending analytics are not enabled");
+        if (limit < 1 || limit > MAX_LIMIT)
+            throw new IllegalArgumentException("Limit must be between 1 and " + MAX_LIMIT);
+        if (from != null && to != null && from.isAfter(to))
+            throw new IllegalArgumentException("From date cannot be after to date");
+        final int genreId = genre == null ? -1 : genreRegistry.idOf(genre);
+        if (genre != null && genreId == -1)
+            return List.of();
+
+        final List<LendingReportRowDTO> rows = new ArrayList<>();
+        final Scan scan;
+        lock.readLock().lock();
+        try {
+            if (columns.size == 0)
+                return rows;
+            scan = new Scan(columns, dimension, genreRegistry.size(),
+                    from == null ? Integer.MIN_VALUE : (int) from.toEpochDay(),
+                    to == null ? Integer.MAX_VALUE : (int) to.toEpochDay(),
+                    genreId);
+        } finally {
+            lock.readLock().unlock();
+        }
+
+        // outside the lock, so commits of new lendings and returns do not wait for the scan
+        final int parallelism = ForkJoinPool.getCommonPoolParallelism();
+        final int rowsPerTask = Math.max(MIN_ROWS_PER_TASK, (scan.size + parallelism - 1) / parallelism);
+        final Totals totals = ForkJoinPool.commonPool().invoke(new ScanTask(scan, 0, scan.size, rowsPerTask));
+
+        lock.readLock().lock();
+        try {
+            for (int group = 0; group < scan.groups; group++) {
+                final long count = totals.lendings[group];
+                if (count == 0)
+                    continue;
+                final long returned = totals.returned[group];
+                rows.add(new LendingReportRowDTO(scan.keyOf(group), count, returned,
+                        returned == 0 ? null : (double) totals.days[group] / returned));
+            }
+        } finally {
+            lock.readLock().unlock();
+        }
+
+        if (!dimension.isOrdered())
+            rows.sort(Comparator.comparingLong(LendingReportRowDTO::getLendingCount).reversed()
+                    .thenComparing(LendingReportRowDTO::getKey));
+        return rows.size() > limit ? new ArrayList<>(rows.subList(0, limit)) : rows;
+    }
+
+    private void apply(Consumer<Columns> change) {
+        lock.writeLock().lock();
+        try {
+            if (pending != null)
+                pending.add(change);
+            change.accept(columns);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    private static final class Fact {
+        final String lendingNumber;
+        final String isbn;
+        final Genre genre;
+        final String readerNumber;
+        final int startDay;
+        final int returnDay;
+        final int startMonth;
+        final int readerAge;
+
+        Fact(String lendingNumber, String isbn, Genre genre, String readerNumber, LocalDate readerBirthDate,
+             LocalDate startDate, LocalDate returnedDate) {
+            this.lendingNumber = lendingNumber;
+            this.isbn = isbn;
+            this.genre = genre;
+            this.readerNumber = readerNumber;
+            this.startDay = (int) startDate.toEpochDay();
+            this.returnDay = returnedDate == null ? NOT_RETURNED : (int) returnedDate.toEpochDay();
+            this.startMonth = monthOf(startDate);
+            this.readerAge = (int) Math.max(0, ChronoUnit.YEARS.between(readerBirthDate, startDate));
+        }
+    }
+
+    // months since year 0, so that a month divided by 12 is its year
+    private static int monthOf(LocalDate date) {
+        return date.getYear() * 12 + date.getMonthValue() - 1;
+    }
+
+    /**
+     * The rows, in parallel int arrays that grow as lendings are added, and the keys of the interned books and readers.
+     */
+    private static final class Columns {
+        int size;
+        int[] startDays = new int[16];
+        int[] returnDays = new int[16];
+        int[] startMonths = new int[16];
+        int[] books = new int[16];
+        int[] genres = new int[16];
+        int[] readers = new int[16];
+        int[] readerAges = new int[16];
+        int firstMonth = Integer.MAX_VALUE;
+        int lastMonth = Integer.MIN_VALUE;
+        int oldestAge;
+
+        final Map<String, Integer> rows = new HashMap<>();
+        final Map<String, Integer> bookIds = new HashMap<>();
+        final List<String> isbns = new ArrayList<>();
+        final Map<String, Integer> readerIds = new HashMap<>();
+        final List<String> readerNumbers = new ArrayList<>();
+
+        void append(Fact fact, int genre) {
+            final Integer row = rows.get(fact.lendingNumber);
+            if (row != null) {
+                if (fact.returnDay != NOT_RETURNED)
+                    returnDays[row] = fact.returnDay;
+                return;
+            }
+            if (size == startDays.length)
+                grow(size + (size >> 1));
+            startDays[size] = fact.startDay;
+            returnDays[size] = fact.returnDay;
+            startMonths[size] = fact.startMonth;
+            books[size] = intern(bookIds, isbns, fact.isbn);
+            genres[size] = genre;
+            readers[size] = intern(readerIds, readerNumbers, fact.readerNumber);
+            readerAges[size] = fact.readerAge;
+            firstMonth = Math.min(firstMonth, fact.startMonth);
+            lastMonth = Math.max(lastMonth, fact.startMonth);
+            oldestAge = Math.max(oldestAge, fact.readerAge);
+            rows.put(fact.lendingNumber, size++);
+        }
+
+        void returned(String lendingNumber, int day) {
+            final Integer row = rows.get(lendingNumber);
+            if (row != null)
+                returnDays[row] = day;
+        }
+
+        private void grow(int capacity) {
+            startDays = Arrays.copyOf(startDays, capacity);
+            returnDays = Arrays.copyOf(returnDays, capacity);
+            startMonths = Arrays.copyOf(startMonths, capacity);
+            books = Arrays.copyOf(books, capacity);
+            genres = Arrays.copyOf(genres, capacity);
+            readers = Arrays.copyOf(readers, capacity);
+            readerAges = Arrays.copyOf(readerAges, capacity);
+        }
+
+        private static int intern(Map<String, Integer> ids, List<String> keys, String key) {
+            return ids.computeIfAbsent(key, k -> {
+                keys.add(k);
+                return keys.size() - 1;
+            });
+        }
+    }
+
+    /**
+     * A filter and grouping over the rows that exist when it is created. The group of a row is its value in the key
+     * column, divided by {@code divisor}, minus {@code base}, so months can be grouped by month or by year.
+     * <p>Must be created under the lock; it keeps the columns as they are then, as rows are appended to new arrays
+     * once the current ones are full.
+     */
+    private final class Scan {
+        final Columns columns;
+        final Dimension dimension;
+        final int size;
+        final int[] startDays;
+        final int[] returnDays;
+        final int[] genres;
+        final int[] keys;
+        final int divisor;
+        final int base;
+        final int groups;
+        final int fromDay;
+        final int toDay;
+        final int genre;
+
+        Scan(Columns columns, Dimension dimension, int genreCount, int fromDay, int toDay, int genre) {
+            this.columns = columns;
+            this.dimension = dimension;
+            this.size = columns.size;
+            this.startDays = columns.startDays;
+            this.returnDays = columns.returnDays;
+            this.genres = columns.genres;
+            this.fromDay = fromDay;
+            this.toDay = toDay;
+            this.genre = genre;
+            switch (dimension) {
+                case GENRE -> { keys = columns.genres; divisor = 1; base = 0; groups = genreCount; }
+                case BOOK -> { keys = columns.books; divisor = 1; base = 0; groups = columns.isbns.size(); }
+                case READER -> { keys = columns.readers; divisor = 1; base = 0; groups = columns.readerNumbers.size(); }
+                case READER_AGE -> { keys = columns.readerAges; divisor = 1; base = 0; groups = columns.oldestAge + 1; }
+                case MONTH -> {
+                    keys = columns.startMonths;
+                    divisor = 1;
+                    base = columns.firstMonth;
+                    groups = columns.lastMonth - columns.firstMonth + 1;
+                }
+                case YEAR -> {
+                    keys = columns.startMonths;
+                    divisor = 12;
+                    base = columns.firstMonth / 12;
+                    groups = columns.lastMonth / 12 - base + 1;
+                }
+                default -> throw new IllegalArgumentException("Unknown dimension " + dimension);
+            }
+        }
+
+        Totals scan(int start, int end) {
+            final Totals totals = new Totals(groups);
+            for (int row = start; row < end; row++) {
+                final int startDay = startDays[row];
+                if (startDay < fromDay || startDay > toDay || (genre != -1 && genres[row] != genre))
+                    continue;
+                final int group = keys[row] / divisor - base;
+                totals.lendings[group]++;
+                final int returnDay = returnDays[row];
+                if (returnDay != NOT_RETURNED) {
+                    totals.returned[group]++;
+                    totals.days[group] += returnDay - startDay;
+                }
+            }
+            return totals;
+        }
+
+        // must be called under the lock, as books and readers are interned concurrently
+        String keyOf(int group) {
+            return switch (dimension) {
+                case GENRE -> genreRegistry.get(group).getGenre();
+                case BOOK -> columns.isbns.get(group);
+                case READER -> columns.readerNumbers.get(group);
+                case READER_AGE -> Integer.toString(group);
+                case MONTH -> YearMonth.of((base + group) / 12, (base + group) % 12 + 1).toString();
+                case YEAR -> Integer.toString(base + group);
+            };
+        }
+    }
+
+    private static final class ScanTask extends RecursiveTask<Totals> {
+        private final Scan scan;
+        private final int start;
+        private final int end;
+        private final int rowsPerTask;
+
+        ScanTask(Scan scan, int start, int end, int rowsPerTask) {
+            this.scan = scan;
+            this.start = start;
+            this.end = end;
+            this.rowsPerTask = rowsPerTask;
+        }
+
+        @Override
+        protected Totals compute() {
+            if (end - start <= rowsPerTask)
+                return scan.scan(start, end);
+            final int middle = (start + end) >>> 1;
+            final ScanTask left = new ScanTask(scan, start, middle, rowsPerTask);
+            left.fork();
+            final Totals right = new ScanTask(scan, middle, end, rowsPerTask).compute();
+            return left.join().add(right);
+        }
+    }
+
+    /**
+     * Number of lendings, of returned lendings and the sum of their durations in days, by group.
+     */
+    private static final class Totals {
+        final long[] lendings;
+        final long[] returned;
+        final long[] days;
+
+        Totals(int groups) {
+            lendings = new long[groups];
+            returned = new long[groups];
+            days = new long[groups];
+        }
+
+        Totals add(Totals other) {
+            for (int group = 0; group < lendings.length; group++) {
+                lendings[group] += other.lendings[group];
+                returned[group] += other.returned[group];
+                days[group] += other.days[group];
+            }
+            return this;
+        }
+    }
+}
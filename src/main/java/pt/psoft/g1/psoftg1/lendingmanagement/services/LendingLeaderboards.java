@@ -0,0 +1,306 @@
+package pt.psoft.g1.psoftg1.lendingmanagement.services;
+
+import lombok.RequiredArgsConstructor;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.annotation.PropertySource;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+import pt.psoft.g1.psoftg1.authormanagement.model.Author;
+import pt.psoft.g1.psoftg1.lendingmanagement.model.Lending;
+import pt.psoft.g1.psoftg1.lendingmanagement.repositories.LendingRepository;
+import pt.psoft.g1.psoftg1.shared.services.AfterCommit;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.stream.Stream;
+
+/**
+ * Most lent books, authors, readers and genres, over the last 30 days, the last year or all time.
+ * <p>Every book, author, reader and genre has a counter with the number of lendings started on each day of the last
+ * year, and the total since the first lending. A ranking sums the days in the window of each counter and keeps the
+ * best ones in a bounded heap, so it never groups the {@code Lending} table.
+ * <p>The counters are loaded once the application is ready and kept current by {@link LendingService} when lendings
+ * are created. Changes made inside a transaction are only applied after it commits. They are reloaded from the
+ * database every night by {@code leaderboardReconciliationCron}, which also drops the days that left every window.
+ */
+@Component
+@RequiredArgsConstructor
+@PropertySource({"classpath:config/library.properties"})
+public class LendingLeaderboards {
+    private static final Logger logger = LogManager.getLogger();
+
+    /**Maximum number of entries of a ranking.*/
+    public static final int MAX_LIMIT = 100;
+
+    public enum Board {
+        BOOKS, AUTHORS, READERS, GENRES;
+
+        /**
+         * @throws IllegalArgumentException if {@code name} is not a board, in any case
+         */
+        public static Board parse(String name) {
+            try {
+                return valueOf(name.toUpperCase(Locale.ROOT));
+            } catch (IllegalArgumentException e) {
+                throw new IllegalArgumentException("Leaderboard must be one of " + Arrays.toString(values()));
+            }
+        }
+    }
+
+    public enum Window {
+        LAST_30_DAYS, LAST_YEAR, ALL_TIME;
+
+        /**
+         * @return the first day counted by this window, or {@code null} if it counts every day
+         */
+        public LocalDate firstDay(LocalDate today) {
+            return switch (this) {
+                case LAST_30_DAYS -> today.minusDays(29);
+                case LAST_YEAR -> today.minusYears(1).plusDays(1);
+                case ALL_TIME -> null;
+            };
+        }
+
+        /**
+         * @throws IllegalArgumentException if {@code name} is not a window, in any case
+         */
+        public static Window parse(String name) {
+            try {
+                return valueOf(name.toUpperCase(Locale.ROOT));
+            } catch (IllegalArgumentException e) {
+                throw new IllegalArgumentException("Window must be one of " + Arrays.toString(values()));
+            }
+        }
+    }
+
+    private final LendingRepository lendingRepository;
+    private final PlatformTransactionManager transactionManager;
+
+    private final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+    private Counters counters = new Counters(LocalDate.now());
+    // lendings counted while the counters are reloaded, or null if they are not
+    private List<Lent> pending;
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void load() {
+        reload(LocalDate.now());
+    }
+
+    @Scheduled(cron = "${leaderboardReconciliationCron}")
+    public void reconcile() {
+        final long start = System.nanoTime();
+        reload(LocalDate.now());
+        logger.info("Leaderboards reloaded in {} ms", (System.nanoTime() - start) / 1_000_000);
+    }
+
+    /**
+     * Counts a new lending of a book, for the book, its authors, its genre and the reader.
+     */
+    public void lent(Lending lending) {
+        final Lent lent = new Lent(lending.getBook().getIsbn(),
+                lending.getBook().getAuthors().stream().map(Author::getAuthorNumber).toArray(String[]::new),
+                lending.getBook().getGenre().toString(),
+                lending.getReaderDetails().getReaderNumber(),
+                lending.getStartDate());
+        AfterCommit.execute(() -> count(lent));
+    }
+
+    /**
+     * @param board     what is ranked
+     * @param window    days whose lendings are counted, up to today
+     * @param limit     maximum number of entries, up to {@value #MAX_LIMIT}
+     * @return the keys with the most lendings in the window, most lent first, and ties in key order. Keys are
+     * ISBNs, author numbers, reader numbers or genre names
+     */
+    public List<LeaderboardEntryDTO> top(Board board, Window window, int limit) {
+        if (limit < 1 || limit > MAX_LIMIT)
+            throw new IllegalArgumentException("Limit must be between 1 and " + MAX_LIMIT);
+        final LocalDate firstDay = window.firstDay(LocalDate.now());
+        final Comparator<LeaderboardEntryDTO> worstFirst = Comparator.comparingLong(LeaderboardEntryDTO::getLendingCount)
+                .thenComparing(LeaderboardEntryDTO::getKey, Comparator.reverseOrder());
+
+        final PriorityQueue<LeaderboardEntryDTO> best = new PriorityQueue<>(limit + 1, worstFirst);
+        lock.readLock().lock();
+        try {
+            final int from = firstDay == null ? Integer.MIN_VALUE : (int) firstDay.toEpochDay();
+            for (Map.Entry<String, Counter> entry : counters.get(board).entrySet()) {
+                final long count = entry.getValue().since(from);
+                if (count == 0)
+                    continue;
+                if (best.size() == limit) {
+                    final LeaderboardEntryDTO worst = best.peek();
+                    if (count < worst.getLendingCount()
+                            || (count == worst.getLendingCount() && entry.getKey().compareTo(worst.getKey()) > 0))
+                        continue;
+                    best.poll();
+                }
+                best.add(new LeaderboardEntryDTO(entry.getKey(), count));
+            }
+        } finally {
+            lock.readLock().unlock();
+        }
+
+        final List<LeaderboardEntryDTO> result = new ArrayList<>(best);
+        result.sort(worstFirst.reversed());
+        return result;
+    }
+
+    void reload(LocalDate today) {
+        lock.writeLock().lock();
+        try {
+            pending = new ArrayList<>();
+        } finally {
+            lock.writeLock().unlock();
+        }
+
+        Counters loaded = null;
+        try {
+            final TransactionTemplate tx = new TransactionTemplate(transactionManager);
+            tx.setReadOnly(true);
+            loaded = tx.execute(status -> {
+                final Counters reloaded = new Counters(today);
+                load(reloaded, Board.BOOKS, lendingRepository.streamDailyCountsByBook());
+                load(reloaded, Board.AUTHORS, lendingRepository.streamDailyCountsByAuthor());
+                load(reloaded, Board.READERS, lendingRepository.streamDailyCountsByReader());
+                load(reloaded, Board.GENRES, lendingRepository.streamDailyCountsByGenre());
+                return reloaded;
+            });
+        } finally {
+            lock.writeLock().lock();
+            try {
+                if (loaded != null) {
+                    // a lending committed while the database was read may be counted twice, until the next reload
+                    for (Lent lent : pending) {
+                        loaded.add(lent);
+                    }
+                    counters = loaded;
+                }
+                pending = null;
+            } finally {
+                lock.writeLock().unlock();
+            }
+        }
+    }
+
+    void count(Lent lent) {
+        lock.writeLock().lock();
+        try {
+            if (pending != null)
+                pending.add(lent);
+            counters.add(lent);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    private static void load(Counters counters, Board board, Stream<LendingDayCountDTO> dayCounts) {
+        try (dayCounts) {
+            dayCounts.forEach(dayCount -> counters.add(board, dayCount.getKey(),
+                    (int) dayCount.getDay().toEpochDay(), dayCount.getLendingCount()));
+        }
+    }
+
+    static final class Lent {
+        final String isbn;
+        final String[] authorNumbers;
+        final String genre;
+        final String readerNumber;
+        final int day;
+
+        Lent(String isbn, String[] authorNumbers, String genre, String readerNumber, LocalDate startDate) {
+            this.isbn = isbn;
+            this.authorNumbers = authorNumbers;
+            this.genre = genre;
+            this.readerNumber = readerNumber;
+            this.day = (int) startDate.toEpochDay();
+        }
+    }
+
+    /**
+     * The counters of every board, keeping daily counts only from a horizon that covers every window.
+     */
+    private static final class Counters {
+        private final Map<Board, Map<String, Counter>> boards = new EnumMap<>(Board.class);
+        private final int horizon;
+
+        Counters(LocalDate today) {
+            for (Board board : Board.values()) {
+                boards.put(board, new HashMap<>());
+            }
+            this.horizon = (int) Window.LAST_YEAR.firstDay(today).toEpochDay();
+        }
+
+        Map<String, Counter> get(Board board) {
+            return boards.get(board);
+        }
+
+        void add(Lent lent) {
+            add(Board.BOOKS, lent.isbn, lent.day, 1);
+            for (String authorNumber : lent.authorNumbers) {
+                add(Board.AUTHORS, authorNumber, lent.day, 1);
+            }
+            add(Board.GENRES, lent.genre, lent.day, 1);
+            add(Board.READERS, lent.readerNumber, lent.day, 1);
+        }
+
+        void add(Board board, String key, int day, long count) {
+            boards.get(board).computeIfAbsent(key, k -> new Counter()).add(day, count, horizon);
+        }
+    }
+
+    /**
+     * Lendings of one book, author, reader or genre: the total, and the count of each day since the horizon, in
+     * ascending day order.
+     */
+    private static final class Counter {
+        private int[] days = new int[1];
+        private long[] counts = new long[1];
+        private int size;
+        private long total;
+
+        void add(int day, long count, int horizon) {
+            total += count;
+            if (day < horizon)
+                return;
+            // lendings mostly start today, so the last day is checked first
+            int i = size > 0 && days[size - 1] == day ? size - 1 : Arrays.binarySearch(days, 0, size, day);
+            if (i < 0) {
+                i = -i - 1;
+                if (size == days.length) {
+                    days = Arrays.copyOf(days, size + (size >> 1) + 1);
+                    counts = Arrays.copyOf(counts, days.length);
+                }
+                System.arraycopy(days, i, days, i + 1, size - i);
+                System.arraycopy(counts, i, counts, i + 1, size - i);
+                days[i] = day;
+                counts[i] = 0;
+                size++;
+            }
+            counts[i] += count;
+        }
+
+        long since(int firstDay) {
+            if (firstDay == Integer.MIN_VALUE)
+                return total;
+            long count = 0;
+            for (int i = size - 1; i >= 0 && days[i] >= firstDay; i--) {
+                count += counts[i];
+            }
+            return count;
+        }
+    }
+}
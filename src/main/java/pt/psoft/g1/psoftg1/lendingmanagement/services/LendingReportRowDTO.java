@@ -0,0 +1,15 @@
+package pt.psoft.g1.psoftg1.lendingmanagement.services;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class LendingReportRowDTO {
+    private String key;
+    private long lendingCount;
+    private long returnedCount;
+    private Double averageDurationInDays;
+}
@@ -1,12 +1,17 @@
 package pt.psoft.g1.psoftg1.lendingmanagement.services;
 
+import pt.psoft.g1.psoftg1.lendingmanagement.model.FineAccrualRun;
 import pt.psoft.g1.psoftg1.lendingmanagement.model.Lending;
 import pt.psoft.g1.psoftg1.shared.services.Page;
 
 import java.util.List;
 import java.util.Optional;
+import java.util.stream.Stream;
 
 public interface LendingService {
+    /**Maximum number of items of a batch request.*/
+    int MAX_BATCH_SIZE = 100;
+
     /**
      * @param lendingNumber
      * @return {@code Optional<Lending>}
@@ -16,15 +21,66 @@ public interface LendingService {
      * @param readerNumber - Reader Number of the Reader associated with the lending
      * @param isbn         - ISBN of the book associated with the lending
      * @param returned     - Wether it's intended to filter by the return status of a lending
-     * @return {@code Iterable<Lending>}
+     * @return {@code List<LendingSummaryDTO>}
      */
-    List<Lending> listByReaderNumberAndIsbn(String readerNumber, String isbn, Optional<Boolean> returned);
+    List<LendingSummaryDTO> listByReaderNumberAndIsbn(String readerNumber, String isbn, Optional<Boolean> returned);
     Lending create(CreateLendingRequest resource); //No ID passed, as it is auto generated
     Lending setReturned(String id, SetLendingReturnedRequest resource, long desiredVersion);
+    /**
+     * Creates several lendings at once. The rules are checked for the whole batch in one pass, the lending numbers
+     * are reserved as one range and the lendings are inserted in a single transaction.
+     * @return one result per request, in the same order; failed items do not prevent the others from being created
+     */
+    List<LendingBatchItemResult> createAll(List<CreateLendingRequest> resources);
+    /**
+     * Sets several lendings as returned at once, writing the updates and fines in a single transaction.
+     * @return one result per request, in the same order; failed items do not prevent the others from being returned
+     */
+    List<LendingBatchItemResult> returnAll(List<ReturnLendingRequest> resources);
     Double getAverageDuration();
-    List<Lending> getOverdue(Page page);
+    List<LendingSummaryDTO> getOverdue(Page page);
+    long countOverdue();
+    /**
+     * @param days  number of days from today, inclusive
+     * @param page  page of the results, ordered by due date
+     * @return the outstanding lendings due between today and {@code days} days from now
+     */
+    List<LendingSummaryDTO> getDueWithin(int days, Page page);
     Double getAvgLendingDurationByIsbn(String isbn);
-    List<Lending> searchLendings(Page page, SearchLendingQuery request);
+    /**
+     * Recomputes the lending duration statistics from the returned lendings.
+     */
+    void rebuildDurationStats();
+    /**
+     * Accrues the fines of the outstanding overdue lendings now, resuming today's run if it was interrupted.
+     * @return the run of the day, with its metrics
+     */
+    FineAccrualRun accrueFines();
+    /**
+     * @return the most recent fine accrual run, finished or not
+     */
+    Optional<FineAccrualRun> findLatestFineAccrual();
+    /**
+     * @param board     books, authors, readers or genres
+     * @param window    last_30_days, last_year or all_time
+     * @param limit     maximum number of entries
+     * @return the most lent books, authors, readers or genres in the window, most lent first
+     */
+    List<LeaderboardEntryDTO> getLeaderboard(String board, String window, int limit);
 
+    /**
+     * @param groupBy   genre, book, reader, reader_age, month or year, in any case
+     * @param from      first start date counted, as YYYY-MM-DD, or {@code null}
+     * @param to        last start date counted, as YYYY-MM-DD, or {@code null}
+     * @param genre     name of the only genre counted, or {@code null} for every genre
+     * @param limit     maximum number of groups
+     * @return the number of lendings of each group, and the average duration of the returned ones
+     */
+    List<LendingReportRowDTO> getLendingReport(String groupBy, String from, String to, String genre, int limit);
+    List<LendingSummaryDTO> searchLendings(Page page, SearchLendingQuery request);
 
+    /**
+     * Streams all the lendings for export. The stream must be consumed, and closed, within a transaction.
+     */
+    Stream<LendingExportDTO> exportAll();
 }
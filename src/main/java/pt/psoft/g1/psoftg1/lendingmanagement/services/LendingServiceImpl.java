@@ -3,22 +3,49 @@ package pt.psoft.g1.psoftg1.lendingmanagement.services;
 import lombok.RequiredArgsConstructor;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.context.annotation.PropertySource;
+import org.hibernate.StaleObjectStateException;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
+import pt.psoft.g1.psoftg1.bookmanagement.model.Book;
+import pt.psoft.g1.psoftg1.bookmanagement.model.Isbn;
 import pt.psoft.g1.psoftg1.bookmanagement.repositories.BookRepository;
+import pt.psoft.g1.psoftg1.bookmanagement.services.BookAutocompleteIndex;
+import pt.psoft.g1.psoftg1.bookmanagement.services.BookRecommender;
 import pt.psoft.g1.psoftg1.exceptions.LendingForbiddenException;
 import pt.psoft.g1.psoftg1.exceptions.NotFoundException;
+import pt.psoft.g1.psoftg1.genremanagement.model.GenreLendingStats;
+import pt.psoft.g1.psoftg1.genremanagement.repositories.GenreLendingStatsRepository;
 import pt.psoft.g1.psoftg1.lendingmanagement.model.Fine;
+import pt.psoft.g1.psoftg1.lendingmanagement.model.FineAccrualRun;
 import pt.psoft.g1.psoftg1.lendingmanagement.model.Lending;
+import pt.psoft.g1.psoftg1.lendingmanagement.model.LendingDurationStats;
+import pt.psoft.g1.psoftg1.lendingmanagement.model.LendingEvent;
 import pt.psoft.g1.psoftg1.lendingmanagement.repositories.FineRepository;
+import pt.psoft.g1.psoftg1.lendingmanagement.repositories.LendingDurationStatsRepository;
+import pt.psoft.g1.psoftg1.lendingmanagement.repositories.LendingJournal;
 import pt.psoft.g1.psoftg1.lendingmanagement.repositories.LendingRepository;
+import pt.psoft.g1.psoftg1.readermanagement.model.ReaderDetails;
 import pt.psoft.g1.psoftg1.readermanagement.repositories.ReaderRepository;
 import pt.psoft.g1.psoftg1.shared.services.Page;
+import pt.psoft.g1.psoftg1.shared.services.SequenceService;
 
 import java.time.LocalDate;
 import java.time.format.DateTimeParseException;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.HashSet;
 import java.util.List;
 import java.util.Locale;
+import java.util.LongSummaryStatistics;
+import java.util.Map;
 import java.util.Optional;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.stream.Stream;
 
 @Service
 @RequiredArgsConstructor
@@ -26,8 +53,20 @@ import java.util.Optional;
 public class LendingServiceImpl implements LendingService{
     private final LendingRepository lendingRepository;
     private final FineRepository fineRepository;
+    private final LendingDurationStatsRepository lendingDurationStatsRepository;
+    private final GenreLendingStatsRepository genreLendingStatsRepository;
     private final BookRepository bookRepository;
     private final ReaderRepository readerRepository;
+    private final SequenceService sequenceService;
+    private final LendingDueDateIndex lendingDueDateIndex;
+    private final OutstandingLendingsRegistry outstandingLendingsRegistry;
+    private final PlatformTransactionManager transactionManager;
+    private final FineAccrualJob fineAccrualJob;
+    private final LendingJournal lendingJournal;
+    private final BookAutocompleteIndex bookAutocompleteIndex;
+    private final LendingLeaderboards lendingLeaderboards;
+    private final BookRecommender bookRecommender;
+    private final LendingFactStore lendingFactStore;
 
     @Value("${lendingDurationInDays}")
     private int lendingDurationInDays;
@@ -40,8 +79,9 @@ public class LendingServiceImpl implements LendingService{
     }
 
     @Override
-    public List<Lending> listByReaderNumberAndIsbn(String readerNumber, String isbn, Optional<Boolean> returned){
-        List<Lending> lendings = lendingRepository.listByReaderNumberAndIsbn(readerNumber, isbn);
+    public List<LendingSummaryDTO> listByReaderNumberAndIsbn(String readerNumber, String isbn, Optional<Boolean> returned){
+        List<LendingSummaryDTO> lendings = lendingRepository.listSummariesByReaderNumberAndIsbn(readerNumber,
+                Isbn.canonicalOrSelf(isbn));
         if(returned.isEmpty()){
             return lendings;
         }else{
@@ -57,32 +97,32 @@ public class LendingServiceImpl implements LendingService{
 
     @Override
     public Lending create(final CreateLendingRequest resource) {
-        int count = 0;
-
-        Iterable<Lending> lendingList = lendingRepository.listOutstandingByReaderNumber(resource.getReaderNumber());
-        for (Lending lending : lendingList) {
-            //Business rule: cannot create a lending if user has late outstanding books to return.
-            if (lending.getDaysDelayed() > 0) {
-                throw new LendingForbiddenException("Reader has book(s) past their due date");
-            }
-            count++;
-            //Business rule: cannot create a lending if user already has 3 outstanding books to return.
-            if (count >= 3) {
-                throw new LendingForbiddenException("Reader has three books outstanding already");
-            }
-        }
-
-        final var b = bookRepository.findByIsbn(resource.getIsbn())
+        final var b = bookRepository.findByIsbn(Isbn.canonicalOrSelf(resource.getIsbn()))
                 .orElseThrow(() -> new NotFoundException("Book not found"));
         final var r = readerRepository.findByReaderNumber(resource.getReaderNumber())
                 .orElseThrow(() -> new NotFoundException("Reader not found"));
-        int seq = lendingRepository.getCountFromCurrentYear()+1;
-        final Lending l = new Lending(b,r,seq, lendingDurationInDays, fineValuePerDayInCents );
 
-        return lendingRepository.save(l);
+        final Lending saved = outstandingLendingsRegistry.checkout(r.getReaderNumber(), () -> {
+            int seq = sequenceService.nextValue(SequenceService.LENDING, LocalDate.now().getYear(),
+                    lendingRepository::getCountFromCurrentYear);
+            final Lending l = new Lending(b,r,seq, lendingDurationInDays, fineValuePerDayInCents );
+            return new TransactionTemplate(transactionManager).execute(status -> {
+                final Lending created = lendingRepository.save(l);
+                genreLendingStatsRepository.addLendings(genreMonth(created), 1);
+                return created;
+            });
+        });
+        lendingDueDateIndex.add(saved.getLendingNumber(), saved.getLimitDate());
+        lendingJournal.append(LendingEvent.created(saved));
+        bookAutocompleteIndex.lent(b.getIsbn());
+        lendingLeaderboards.lent(saved);
+        lendingFactStore.lent(saved);
+        bookRecommender.invalidate(r.getReaderNumber());
+        return saved;
     }
 
     @Override
+    @Transactional
     public Lending setReturned(final String lendingNumber, final SetLendingReturnedRequest resource, final long desiredVersion) {
 
         var lending = lendingRepository.findByLendingNumber(lendingNumber)
@@ -91,35 +131,272 @@ public class LendingServiceImpl implements LendingService{
         lending.setReturned(desiredVersion, resource.getCommentary());
 
         if(lending.getDaysDelayed() > 0){
-            final var fine = new Fine(lending);
+            // the fine accrual job may have created it already
+            final var fine = fineRepository.findByLendingNumber(lendingNumber)
+                    .orElseGet(() -> new Fine(lending));
+            fine.accrue();
             fineRepository.save(fine);
+            lendingJournal.append(LendingEvent.fined(fine, lending.getReturnedDate()));
         }
 
+        final long days = ChronoUnit.DAYS.between(lending.getStartDate(), lending.getReturnedDate());
+        lendingDurationStatsRepository.addDuration(LendingDurationStats.TOTAL_KEY, days);
+        lendingDurationStatsRepository.addDuration(lending.getBook().getIsbn(), days);
+        final LongSummaryStatistics duration = new LongSummaryStatistics();
+        duration.accept(days);
+        genreLendingStatsRepository.addReturns(genreMonth(lending), duration);
+        lendingDueDateIndex.remove(lending.getLendingNumber());
+        outstandingLendingsRegistry.returned(lending.getReaderDetails().getReaderNumber(), lending.getLimitDate());
+        lendingJournal.append(LendingEvent.returned(lending));
+        lendingFactStore.returned(lending);
+
         return lendingRepository.save(lending);
     }
 
+    @Override
+    public List<LendingBatchItemResult> createAll(final List<CreateLendingRequest> resources) {
+        final Set<String> isbns = new HashSet<>();
+        final Set<String> readerNumbers = new HashSet<>();
+        for (CreateLendingRequest resource : resources) {
+            isbns.add(Isbn.canonicalOrSelf(resource.getIsbn()));
+            readerNumbers.add(resource.getReaderNumber());
+        }
+        final Map<String, Book> books = new HashMap<>();
+        for (Book book : bookRepository.findByIsbns(isbns)) {
+            books.put(book.getIsbn(), book);
+        }
+        final Map<String, ReaderDetails> readers = new HashMap<>();
+        for (ReaderDetails reader : readerRepository.findByReaderNumbers(readerNumbers)) {
+            readers.put(reader.getReaderNumber(), reader);
+        }
+
+        final LendingBatchItemResult[] results = new LendingBatchItemResult[resources.size()];
+        final List<Integer> found = new ArrayList<>();
+        for (int i = 0; i < resources.size(); i++) {
+            final CreateLendingRequest resource = resources.get(i);
+            final String isbn = Isbn.canonicalOrSelf(resource.getIsbn());
+            if (!books.containsKey(isbn))
+                results[i] = LendingBatchItemResult.failed(i, new NotFoundException("Book not found"));
+            else if (!readers.containsKey(resource.getReaderNumber()))
+                results[i] = LendingBatchItemResult.failed(i, new NotFoundException("Reader not found"));
+            else
+                found.add(i);
+        }
+
+        final List<String> foundReaderNumbers = new ArrayList<>(found.size());
+        for (int i : found) {
+            foundReaderNumbers.add(resources.get(i).getReaderNumber());
+        }
+        outstandingLendingsRegistry.checkoutAll(foundReaderNumbers, rejections -> {
+            final List<Integer> allowed = new ArrayList<>();
+            for (int j = 0; j < found.size(); j++) {
+                final LendingForbiddenException forbidden = rejections.get(j);
+                if (forbidden != null)
+                    results[found.get(j)] = LendingBatchItemResult.failed(found.get(j), forbidden);
+                else
+                    allowed.add(found.get(j));
+            }
+            if (allowed.isEmpty())
+                return List.of();
+
+            final int firstSeq = sequenceService.nextValues(SequenceService.LENDING, LocalDate.now().getYear(),
+                    allowed.size(), lendingRepository::getCountFromCurrentYear);
+            final List<Lending> lendings = new ArrayList<>(allowed.size());
+            for (int k = 0; k < allowed.size(); k++) {
+                final CreateLendingRequest resource = resources.get(allowed.get(k));
+                lendings.add(new Lending(books.get(Isbn.canonicalOrSelf(resource.getIsbn())), readers.get(resource.getReaderNumber()),
+                        firstSeq + k, lendingDurationInDays, fineValuePerDayInCents));
+            }
+
+            new TransactionTemplate(transactionManager).executeWithoutResult(status -> {
+                lendingRepository.saveAll(lendings);
+                // sorted, so concurrent batches update the statistics rows in the same order
+                final Map<GenreLendingStats.Key, Long> lent = new TreeMap<>();
+                for (Lending lending : lendings) {
+                    lent.merge(genreMonth(lending), 1L, Long::sum);
+                    lendingDueDateIndex.add(lending.getLendingNumber(), lending.getLimitDate());
+                    lendingJournal.append(LendingEvent.created(lending));
+                    bookAutocompleteIndex.lent(lending.getBook().getIsbn());
+                    lendingLeaderboards.lent(lending);
+                    lendingFactStore.lent(lending);
+                    bookRecommender.invalidate(lending.getReaderDetails().getReaderNumber());
+                }
+                lent.forEach(genreLendingStatsRepository::addLendings);
+            });
+            for (int k = 0; k < allowed.size(); k++) {
+                results[allowed.get(k)] = LendingBatchItemResult.succeeded(allowed.get(k), lendings.get(k));
+            }
+            return lendings;
+        });
+        return Arrays.asList(results);
+    }
+
+    @Override
+    @Transactional
+    public List<LendingBatchItemResult> returnAll(final List<ReturnLendingRequest> resources) {
+        final Set<String> lendingNumbers = new HashSet<>();
+        for (ReturnLendingRequest resource : resources) {
+            lendingNumbers.add(resource.getLendingNumber());
+        }
+        final Map<String, Lending> lendings = new HashMap<>();
+        for (Lending lending : lendingRepository.findByLendingNumbers(lendingNumbers)) {
+            lendings.put(lending.getLendingNumber(), lending);
+        }
+
+        final List<LendingBatchItemResult> results = new ArrayList<>(resources.size());
+        final List<Lending> delayed = new ArrayList<>();
+        // sorted, so concurrent batches update the statistics rows in the same order
+        final Map<String, LongSummaryStatistics> durations = new TreeMap<>();
+        final Map<GenreLendingStats.Key, LongSummaryStatistics> genreDurations = new TreeMap<>();
+        for (int i = 0; i < resources.size(); i++) {
+            final ReturnLendingRequest resource = resources.get(i);
+            final Lending lending = lendings.get(resource.getLendingNumber());
+            if (lending == null) {
+                results.add(LendingBatchItemResult.failed(i,
+                        new NotFoundException("Cannot update lending with this lending number")));
+                continue;
+            }
+            try {
+                lending.setReturned(resource.getVersion(), resource.getCommentary());
+            } catch (IllegalArgumentException | StaleObjectStateException e) {
+                results.add(LendingBatchItemResult.failed(i, e));
+                continue;
+            }
+
+            if (lending.getDaysDelayed() > 0)
+                delayed.add(lending);
+
+            final long days = ChronoUnit.DAYS.between(lending.getStartDate(), lending.getReturnedDate());
+            durations.computeIfAbsent(LendingDurationStats.TOTAL_KEY, k -> new LongSummaryStatistics()).accept(days);
+            durations.computeIfAbsent(lending.getBook().getIsbn(), k -> new LongSummaryStatistics()).accept(days);
+            genreDurations.computeIfAbsent(genreMonth(lending), k -> new LongSummaryStatistics()).accept(days);
+            lendingDueDateIndex.remove(lending.getLendingNumber());
+            outstandingLendingsRegistry.returned(lending.getReaderDetails().getReaderNumber(), lending.getLimitDate());
+            lendingJournal.append(LendingEvent.returned(lending));
+            lendingFactStore.returned(lending);
+            results.add(LendingBatchItemResult.succeeded(i, lending));
+        }
+
+        if (!delayed.isEmpty()) {
+            // the fine accrual job may have created some of them already
+            final Map<String, Fine> fines = new HashMap<>();
+            for (Fine fine : fineRepository.findByLendings(delayed)) {
+                fines.put(fine.getLending().getLendingNumber(), fine);
+            }
+            final List<Fine> created = new ArrayList<>();
+            for (Lending lending : delayed) {
+                Fine fine = fines.get(lending.getLendingNumber());
+                if (fine == null) {
+                    fine = new Fine(lending);
+                    created.add(fine);
+                } else {
+                    fine.accrue();
+                }
+                lendingJournal.append(LendingEvent.fined(fine, lending.getReturnedDate()));
+            }
+            fineRepository.saveAll(created);
+        }
+        durations.forEach(lendingDurationStatsRepository::addDurations);
+        genreDurations.forEach(genreLendingStatsRepository::addReturns);
+        return results;
+    }
+
+    private static GenreLendingStats.Key genreMonth(Lending lending) {
+        return GenreLendingStats.Key.of(lending.getBook().getGenre().getGenre(), lending.getStartDate());
+    }
+
     @Override
     public Double getAverageDuration(){
-        Double avg = lendingRepository.getAverageDuration();
-        return Double.valueOf(String.format(Locale.US,"%.1f", avg));
+        return getAverageDays(LendingDurationStats.TOTAL_KEY, "No returned lendings yet");
+    }
+
+    @Override
+    public List<LendingSummaryDTO> getOverdue(Page page) {
+        if (page == null) {
+            page = new Page(1, 10);
+        }
+        return findInIndexOrder(lendingDueDateIndex.findDueBefore(LocalDate.now(), page));
+    }
+
+    @Override
+    public long countOverdue() {
+        return lendingDueDateIndex.countDueBefore(LocalDate.now());
     }
 
     @Override
-    public List<Lending> getOverdue(Page page) {
+    public List<LendingSummaryDTO> getDueWithin(int days, Page page) {
+        if (days < 0)
+            throw new IllegalArgumentException("Number of days cannot be negative");
         if (page == null) {
             page = new Page(1, 10);
         }
-        return lendingRepository.getOverdue(page);
+        final LocalDate today = LocalDate.now();
+        return findInIndexOrder(lendingDueDateIndex.findDueBetween(today, today.plusDays(days), page));
+    }
+
+    private List<LendingSummaryDTO> findInIndexOrder(List<String> lendingNumbers) {
+        if (lendingNumbers.isEmpty())
+            return new ArrayList<>();
+        final Map<String, LendingSummaryDTO> byNumber = new HashMap<>();
+        for (LendingSummaryDTO lending : lendingRepository.findSummariesByLendingNumbers(lendingNumbers)) {
+            byNumber.put(lending.getLendingNumber(), lending);
+        }
+        final List<LendingSummaryDTO> lendings = new ArrayList<>(lendingNumbers.size());
+        for (String lendingNumber : lendingNumbers) {
+            final LendingSummaryDTO lending = byNumber.get(lendingNumber);
+            if (lending != null)
+                lendings.add(lending);
+        }
+        return lendings;
     }
 
     @Override
     public Double getAvgLendingDurationByIsbn(String isbn){
-        Double avg = lendingRepository.getAvgLendingDurationByIsbn(isbn);
-        return Double.valueOf(String.format(Locale.US,"%.1f", avg));
+        return getAverageDays(Isbn.canonicalOrSelf(isbn), "No returned lendings for book with ISBN " + isbn);
+    }
+
+    @Override
+    public void rebuildDurationStats(){
+        lendingDurationStatsRepository.rebuild();
+    }
+
+    @Override
+    public FineAccrualRun accrueFines(){
+        return fineAccrualJob.run();
+    }
+
+    @Override
+    public Optional<FineAccrualRun> findLatestFineAccrual(){
+        return fineAccrualJob.findLatestRun();
+    }
+
+    @Override
+    public List<LeaderboardEntryDTO> getLeaderboard(String board, String window, int limit){
+        return lendingLeaderboards.top(LendingLeaderboards.Board.parse(board),
+                LendingLeaderboards.Window.parse(window), limit);
+    }
+
+    @Override
+    public List<LendingReportRowDTO> getLendingReport(String groupBy, String from, String to, String genre, int limit){
+        final LendingFactStore.Dimension dimension = LendingFactStore.Dimension.parse(groupBy);
+        try {
+            return lendingFactStore.report(dimension,
+                    from == null ? null : LocalDate.parse(from),
+                    to == null ? null : LocalDate.parse(to),
+                    genre, limit);
+        } catch (DateTimeParseException e) {
+            throw new IllegalArgumentException("Expected format is YYYY-MM-DD");
+        }
+    }
+
+    private Double getAverageDays(String statsKey, String notFoundMessage){
+        final var stats = lendingDurationStatsRepository.findByStatsKey(statsKey)
+                .orElseThrow(() -> new NotFoundException(notFoundMessage));
+        return Double.valueOf(String.format(Locale.US,"%.1f", stats.getAverageDays()));
     }
 
     @Override
-    public List<Lending> searchLendings(Page page, SearchLendingQuery query){
+    public List<LendingSummaryDTO> searchLendings(Page page, SearchLendingQuery query){
         LocalDate startDate = null;
         LocalDate endDate = null;
 
@@ -151,6 +428,8 @@ public class LendingServiceImpl implements LendingService{
 
     }
 
-
-
+    @Override
+    public Stream<LendingExportDTO> exportAll() {
+        return lendingRepository.streamAllForExport();
+    }
 }
@@ -0,0 +1,48 @@
+package pt.psoft.g1.psoftg1.lendingmanagement.services;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import pt.psoft.g1.psoftg1.lendingmanagement.model.Lending;
+
+import java.time.LocalDate;
+import java.time.temporal.ChronoUnit;
+import java.util.Optional;
+
+/**
+ * Columns of a {@code Lending} needed to list it, read with a single projection query instead of loading the
+ * lending together with its book and reader.
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class LendingSummaryDTO {
+    private String lendingNumber;
+    private String isbn;
+    private String bookTitle;
+    private String readerNumber;
+    private LocalDate startDate;
+    private LocalDate limitDate;
+    private LocalDate returnedDate;
+    private int fineValuePerDayInCents;
+
+    /**@see Lending#getDaysUntilReturn()*/
+    public Optional<Integer> getDaysUntilReturn() {
+        final int days = (int) ChronoUnit.DAYS.between(LocalDate.now(), limitDate);
+        if (returnedDate != null || days < 0)
+            return Optional.empty();
+        return Optional.of(days);
+    }
+
+    /**@see Lending#getDaysOverdue()*/
+    public Optional<Integer> getDaysOverdue() {
+        final int days = Lending.daysDelayed(limitDate, returnedDate);
+        return days > 0 ? Optional.of(days) : Optional.empty();
+    }
+
+    /**@see Lending#getFineValueInCents()*/
+    public Optional<Integer> getFineValueInCents() {
+        final int days = Lending.daysDelayed(limitDate, returnedDate);
+        return days > 0 ? Optional.of(fineValuePerDayInCents * days) : Optional.empty();
+    }
+}
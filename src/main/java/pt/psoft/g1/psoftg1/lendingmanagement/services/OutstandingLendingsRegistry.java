@@ -0,0 +1,293 @@
+package pt.psoft.g1.psoftg1.lendingmanagement.services;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import pt.psoft.g1.psoftg1.exceptions.LendingForbiddenException;
+import pt.psoft.g1.psoftg1.lendingmanagement.model.Lending;
+import pt.psoft.g1.psoftg1.lendingmanagement.repositories.LendingRepository;
+import pt.psoft.g1.psoftg1.shared.services.AfterCommit;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.TreeSet;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Consumer;
+import java.util.function.Function;
+import java.util.function.Supplier;
+
+/**
+ * Keeps, per reader, the number of outstanding lendings and their due dates, so the checkout rules are checked
+ * without loading {@code Lending} entities.
+ * <p>Summaries are loaded lazily from a projection the first time a reader checks out a book, and then maintained
+ * on checkout and return. Readers are guarded by striped locks, held from the rule check until the new lending is
+ * saved, so parallel checkouts of the same reader cannot both pass the limit. A checkout reserves its slot until
+ * its transaction completes, and only then confirms or releases it.
+ * <p>Summaries are reloaded once they are older than the configured time to live, so checkouts and returns made by
+ * other instances are eventually taken into account, and summaries no reader checked out with since are dropped.
+ */
+@Component
+public class OutstandingLendingsRegistry {
+    /**Maximum number of outstanding lendings per reader.*/
+    public static final int MAX_OUTSTANDING = 3;
+
+    private static final int STRIPES = 64;
+
+    private final LendingRepository lendingRepository;
+    private final long timeToLiveNanos;
+
+    private final Map<String, ReaderSummary> summaries = new ConcurrentHashMap<>();
+    private final ReentrantLock[] stripes = createStripes();
+
+    public OutstandingLendingsRegistry(LendingRepository lendingRepository,
+                                       @Value("${outstanding-lendings.summary-ttl-seconds}") long timeToLiveSeconds) {
+        this.lendingRepository = lendingRepository;
+        this.timeToLiveNanos = TimeUnit.SECONDS.toNanos(timeToLiveSeconds);
+    }
+
+    /**
+     * Checks the checkout rules of the reader and, if they pass, creates the lending while holding the reader's
+     * lock.
+     * @param readerNumber  number of the reader checking out a book
+     * @param checkout      creates and saves the new lending
+     * @throws LendingForbiddenException if the reader has overdue lendings, or {@value #MAX_OUTSTANDING} outstanding
+     */
+    public Lending checkout(String readerNumber, Supplier<Lending> checkout) {
+        final ReentrantLock lock = lockOf(readerNumber);
+        lock.lock();
+        try {
+            final ReaderSummary summary = summaryOf(readerNumber);
+            final LendingForbiddenException forbidden = checkRules(summary, 0);
+            if (forbidden != null)
+                throw forbidden;
+
+            summary.reserve(1);
+            final Lending lending;
+            try {
+                lending = checkout.get();
+            } catch (RuntimeException | Error e) {
+                summary.release(1);
+                throw e;
+            }
+            settle(readerNumber, lending.getLimitDate());
+            return lending;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Checks the checkout rules of a whole batch in one pass, counting the earlier checkouts of the batch against
+     * the limit of their reader, and creates the allowed lendings while holding the locks of all the readers.
+     * @param readerNumbers reader of each checkout, in batch order
+     * @param checkout      receives, for each checkout, {@code null} if it is allowed or the reason it is forbidden;
+     *                      creates and saves the allowed lendings and returns them
+     * @return the lendings returned by {@code checkout}
+     */
+    public List<Lending> checkoutAll(List<String> readerNumbers,
+                                     Function<List<LendingForbiddenException>, List<Lending>> checkout) {
+        // stripes are always locked in ascending order, so concurrent batches cannot deadlock
+        final TreeSet<Integer> stripeIndexes = new TreeSet<>();
+        for (String readerNumber : readerNumbers) {
+            stripeIndexes.add(stripeOf(readerNumber));
+        }
+        final List<ReentrantLock> locked = new ArrayList<>(stripeIndexes.size());
+        try {
+            for (int stripe : stripeIndexes) {
+                stripes[stripe].lock();
+                locked.add(stripes[stripe]);
+            }
+
+            final Map<String, Integer> accepted = new HashMap<>();
+            final List<LendingForbiddenException> rejections = new ArrayList<>(readerNumbers.size());
+            for (String readerNumber : readerNumbers) {
+                final LendingForbiddenException forbidden =
+                        checkRules(summaryOf(readerNumber), accepted.getOrDefault(readerNumber, 0));
+                if (forbidden == null)
+                    accepted.merge(readerNumber, 1, Integer::sum);
+                rejections.add(forbidden);
+            }
+
+            accepted.forEach((readerNumber, n) -> summaries.get(readerNumber).reserve(n));
+            final List<Lending> lendings;
+            try {
+                lendings = checkout.apply(rejections);
+            } catch (RuntimeException | Error e) {
+                accepted.forEach((readerNumber, n) -> summaries.get(readerNumber).release(n));
+                throw e;
+            }
+            for (Lending lending : lendings) {
+                final String readerNumber = lending.getReaderDetails().getReaderNumber();
+                accepted.merge(readerNumber, -1, Integer::sum);
+                settle(readerNumber, lending.getLimitDate());
+            }
+            // accepted checkouts that did not create a lending
+            accepted.forEach((readerNumber, n) -> summaries.get(readerNumber).release(n));
+            return lendings;
+        } finally {
+            for (int i = locked.size() - 1; i >= 0; i--) {
+                locked.get(i).unlock();
+            }
+        }
+    }
+
+    /**
+     * Removes a returned lending from the summary of its reader, once the current transaction commits.
+     */
+    public void returned(String readerNumber, LocalDate limitDate) {
+        final long returnedAt = System.nanoTime();
+        AfterCommit.execute(() -> {
+            final ReentrantLock lock = lockOf(readerNumber);
+            lock.lock();
+            try {
+                final ReaderSummary summary = summaries.get(readerNumber);
+                if (summary == null)
+                    return;
+                // a summary loaded since may already exclude the returned lending, so it is reloaded instead
+                if (summary.loadedAt > returnedAt)
+                    summary.stale = true;
+                else
+                    summary.remove(limitDate);
+            } finally {
+                lock.unlock();
+            }
+        });
+    }
+
+    /**
+     * Drops the expired summaries without reservations, so only the readers checking out books stay in memory.
+     */
+    @Scheduled(fixedDelayString = "${outstanding-lendings.summary-ttl-seconds}", timeUnit = TimeUnit.SECONDS)
+    public void evictExpired() {
+        for (String readerNumber : summaries.keySet()) {
+            final ReentrantLock lock = lockOf(readerNumber);
+            lock.lock();
+            try {
+                summaries.computeIfPresent(readerNumber, (k, summary) -> isReloadable(summary) ? null : summary);
+            } finally {
+                lock.unlock();
+            }
+        }
+    }
+
+    // confirms the reserved slot of a new lending once its transaction commits, or releases it on rollback
+    private void settle(String readerNumber, LocalDate limitDate) {
+        AfterCommit.execute(() -> withSummary(readerNumber, summary -> summary.confirm(limitDate)),
+                () -> withSummary(readerNumber, summary -> summary.release(1)));
+    }
+
+    private void withSummary(String readerNumber, Consumer<ReaderSummary> change) {
+        final ReentrantLock lock = lockOf(readerNumber);
+        lock.lock();
+        try {
+            // summaries with reservations are never reloaded, so this is the summary that holds the slot
+            change.accept(summaries.get(readerNumber));
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    // pending: checkouts of the same reader already accepted, but not yet in the summary
+    private static LendingForbiddenException checkRules(ReaderSummary summary, int pending) {
+        //Business rule: cannot create a lending if user has late outstanding books to return.
+        if (summary.hasDueBefore(LocalDate.now()))
+            return new LendingForbiddenException("Reader has book(s) past their due date");
+        //Business rule: cannot create a lending if user already has 3 outstanding books to return.
+        if (summary.count() + pending >= MAX_OUTSTANDING)
+            return new LendingForbiddenException("Reader has three books outstanding already");
+        return null;
+    }
+
+    // callers must hold the reader's lock
+    private ReaderSummary summaryOf(String readerNumber) {
+        ReaderSummary summary = summaries.get(readerNumber);
+        if (summary == null || isReloadable(summary)) {
+            summary = new ReaderSummary();
+            for (LocalDate limitDate : lendingRepository.listOutstandingLimitDatesByReaderNumber(readerNumber)) {
+                summary.add(limitDate);
+            }
+            // taken after the read, so the returns registered before it are known not to be in the summary
+            summary.loadedAt = System.nanoTime();
+            summaries.put(readerNumber, summary);
+        }
+        return summary;
+    }
+
+    // reserved slots are only known here, so a summary is not reloaded until they are settled
+    private boolean isReloadable(ReaderSummary summary) {
+        return summary.reserved == 0 && (summary.stale || System.nanoTime() - summary.loadedAt > timeToLiveNanos);
+    }
+
+    private ReentrantLock lockOf(String readerNumber) {
+        return stripes[stripeOf(readerNumber)];
+    }
+
+    private static int stripeOf(String readerNumber) {
+        return Math.floorMod(readerNumber.hashCode(), STRIPES);
+    }
+
+    private static ReentrantLock[] createStripes() {
+        final ReentrantLock[] locks = new ReentrantLock[STRIPES];
+        for (int i = 0; i < STRIPES; i++) {
+            locks[i] = new ReentrantLock();
+        }
+        return locks;
+    }
+
+    /**
+     * Due dates of the outstanding lendings of one reader, with their multiplicity, and the slots reserved by
+     * checkouts whose transaction has not completed yet.
+     */
+    private static final class ReaderSummary {
+        private final TreeMap<LocalDate, Integer> dueDates = new TreeMap<>();
+        private long loadedAt;
+        private boolean stale;
+        private int count;
+        private int reserved;
+
+        int count() {
+            return count;
+        }
+
+        boolean hasDueBefore(LocalDate date) {
+            return !dueDates.isEmpty() && dueDates.firstKey().isBefore(date);
+        }
+
+        void add(LocalDate limitDate) {
+            dueDates.merge(limitDate, 1, Integer::sum);
+            count++;
+        }
+
+        void reserve(int n) {
+            reserved += n;
+            count += n;
+        }
+
+        void confirm(LocalDate limitDate) {
+            reserved--;
+            dueDates.merge(limitDate, 1, Integer::sum);
+        }
+
+        void release(int n) {
+            reserved -= n;
+            count -= n;
+        }
+
+        void remove(LocalDate limitDate) {
+            final Integer n = dueDates.get(limitDate);
+            if (n == null)
+                return;
+            if (n == 1)
+                dueDates.remove(limitDate);
+            else
+                dueDates.put(limitDate, n - 1);
+            count--;
+        }
+    }
+}
@@ -0,0 +1,16 @@
+package pt.psoft.g1.psoftg1.lendingmanagement.services;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * A book that a reader has borrowed at least once.
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class ReaderBookDTO {
+    private String readerNumber;
+    private String isbn;
+}
@@ -5,6 +5,7 @@ import lombok.Data;
 import lombok.NoArgsConstructor;
 import lombok.Setter;
 import org.springframework.format.annotation.DateTimeFormat;
+import pt.psoft.g1.psoftg1.shared.services.Cursor;
 
 @Data
 @NoArgsConstructor
@@ -18,4 +19,11 @@ public class SearchLendingQuery {
     String startDate;
     @DateTimeFormat(pattern = "yyyy-MM-dd")
     String endDate;
+
+    /**
+     * @return the {@link Cursor} of the search results following {@code lending}
+     */
+    public String cursorOf(LendingSummaryDTO lending) {
+        return Cursor.encode(lending.getLendingNumber());
+    }
 }
@@ -22,6 +22,7 @@ import org.springframework.web.context.request.WebRequest;
 import org.springframework.web.multipart.MultipartFile;
 import org.springframework.web.server.ResponseStatusException;
 import org.springframework.web.servlet.support.ServletUriComponentsBuilder;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 import pt.psoft.g1.psoftg1.exceptions.NotFoundException;
 import pt.psoft.g1.psoftg1.external.service.ApiNinjasService;
 import pt.psoft.g1.psoftg1.lendingmanagement.api.LendingView;
@@ -33,9 +34,12 @@ import pt.psoft.g1.psoftg1.readermanagement.services.CreateReaderRequest;
 import pt.psoft.g1.psoftg1.readermanagement.services.ReaderService;
 import pt.psoft.g1.psoftg1.readermanagement.services.SearchReadersQuery;
 import pt.psoft.g1.psoftg1.readermanagement.services.UpdateReaderRequest;
+import pt.psoft.g1.psoftg1.readermanagement.services.ReaderExportDTO;
 import pt.psoft.g1.psoftg1.shared.api.ListResponse;
+import pt.psoft.g1.psoftg1.shared.api.StreamingExporter;
 import pt.psoft.g1.psoftg1.shared.services.ConcurrencyService;
 import pt.psoft.g1.psoftg1.shared.services.FileStorageService;
+import pt.psoft.g1.psoftg1.shared.services.Page;
 import pt.psoft.g1.psoftg1.shared.services.SearchRequest;
 import pt.psoft.g1.psoftg1.usermanagement.model.Librarian;
 import pt.psoft.g1.psoftg1.usermanagement.model.Role;
@@ -54,6 +58,7 @@ import java.util.Optional;
 @RequestMapping("/api/readers")
 class ReaderController {
     private final ReaderService readerService;
+    private final StreamingExporter streamingExporter;
     private final UserService userService;
     private final ReaderViewMapper readerViewMapper;
     private final LendingService lendingService;
@@ -151,6 +156,9 @@ class ReaderController {
                                                  @PathVariable("seq")
                                                      @Parameter(description = "The sequencial of the Reader to find")
                                                      final Integer seq,
+                                                         @RequestParam(value = "size", required = false)
+                                                         @Parameter(description = "A photo size such as small or medium, or none for the original")
+                                                         final String size,
                                                          Authentication authentication) {
         User loggedUser = userService.getAuthenticatedUser(authentication);
 
@@ -174,7 +182,7 @@ class ReaderController {
         }
 
         String photoFile = readerDetails.getPhoto().getPhotoFile();
-        byte[] image = this.fileStorageService.getFile(photoFile);
+        byte[] image = this.fileStorageService.getFile(photoFile, size);
         String fileFormat = this.fileStorageService.getExtension(readerDetails.getPhoto().getPhotoFile()).orElseThrow(() -> new ValidationException("Unable to get file extension"));
 
         if(image == null) {
@@ -187,7 +195,10 @@ class ReaderController {
     @Operation(summary= "Gets a reader photo")
     @GetMapping("/photo")
     @ResponseStatus(HttpStatus.OK)
-    public ResponseEntity<byte[]> getReaderOwnPhoto(Authentication authentication) {
+    public ResponseEntity<byte[]> getReaderOwnPhoto(@RequestParam(value = "size", required = false)
+                                                    @Parameter(description = "A photo size such as small or medium, or none for the original")
+                                                    final String size,
+                                                    Authentication authentication) {
 
         User loggedUser = userService.getAuthenticatedUser(authentication);
 
@@ -203,7 +214,7 @@ class ReaderController {
             return ResponseEntity.status(HttpStatus.NOT_FOUND).build();
         }
 
-        byte[] image = this.fileStorageService.getFile(readerDetails.getPhoto().getPhotoFile());
+        byte[] image = this.fileStorageService.getFile(readerDetails.getPhoto().getPhotoFile(), size);
 
         if(image == null) {
             return ResponseEntity.ok().build();
@@ -346,7 +357,17 @@ class ReaderController {
     @PostMapping("/search")
     public ListResponse<ReaderView> searchReaders(
             @RequestBody final SearchRequest<SearchReadersQuery> request) {
-        final var readerList = readerService.searchReaders(request.getPage(), request.getQuery());
-        return new ListResponse<>(readerViewMapper.toReaderView(readerList));
+        final var page = request.getPage() != null ? request.getPage() : new Page();
+        final var query = request.getQuery() != null ? request.getQuery() : new SearchReadersQuery();
+        final var readerList = readerService.searchReaders(page, query);
+        return new ListResponse<>(readerViewMapper.toReaderView(readerList), page.nextCursor(readerList, query::cursorOf));
+    }
+
+    @Operation(summary = "Exports all readers as NDJSON or CSV, streamed as they are read")
+    @GetMapping(value = "/export")
+    public ResponseEntity<StreamingResponseBody> exportReaders(
+            @RequestParam(value = "format", defaultValue = "ndjson") final String format,
+            @RequestParam(value = "gzip", defaultValue = "false") final boolean gzip) {
+        return streamingExporter.export("readers", ReaderExportDTO.COLUMNS, readerService::exportAll, format, gzip);
     }
 }
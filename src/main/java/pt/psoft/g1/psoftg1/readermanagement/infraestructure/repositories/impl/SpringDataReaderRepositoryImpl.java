@@ -3,10 +3,13 @@ package pt.psoft.g1.psoftg1.readermanagement.infraestructure.repositories.impl;
 import jakarta.persistence.EntityManager;
 import jakarta.persistence.TypedQuery;
 import jakarta.persistence.criteria.*;
+import jakarta.persistence.QueryHint;
 import jakarta.validation.constraints.NotNull;
 import lombok.RequiredArgsConstructor;
+import org.hibernate.jpa.HibernateHints;
 import org.springframework.data.domain.Page;
 import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
 import org.springframework.data.repository.CrudRepository;
 import org.springframework.data.repository.query.Param;
 import org.springframework.util.StringUtils;
@@ -16,12 +19,18 @@ import pt.psoft.g1.psoftg1.readermanagement.repositories.ReaderRepository;
 
 import org.springframework.data.domain.Pageable;
 import pt.psoft.g1.psoftg1.readermanagement.services.ReaderBookCountDTO;
+import pt.psoft.g1.psoftg1.readermanagement.services.ReaderExportDTO;
+import pt.psoft.g1.psoftg1.shared.infrastructure.repositories.impl.Keyset;
+import pt.psoft.g1.psoftg1.shared.services.Cursor;
+import pt.psoft.g1.psoftg1.shared.model.StringUtilsCustom;
 import pt.psoft.g1.psoftg1.usermanagement.model.User;
 
 import java.time.LocalDate;
 import java.util.ArrayList;
+import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
+import java.util.stream.Stream;
 
 
 public interface SpringDataReaderRepositoryImpl extends ReaderRepository, ReaderDetailsRepoCustom, CrudRepository<ReaderDetails, Long> {
@@ -31,6 +40,12 @@ public interface SpringDataReaderRepositoryImpl extends ReaderRepository, Reader
             "WHERE r.readerNumber.readerNumber = :readerNumber")
     Optional<ReaderDetails> findByReaderNumber(@Param("readerNumber") @NotNull String readerNumber);
 
+    @Override
+    @Query("SELECT r " +
+            "FROM ReaderDetails r " +
+            "WHERE r.readerNumber.readerNumber IN :readerNumbers")
+    List<ReaderDetails> findByReaderNumbers(@Param("readerNumbers") @NotNull Collection<String> readerNumbers);
+
     @Override
     @Query("SELECT r " +
             "FROM ReaderDetails r " +
@@ -59,13 +74,6 @@ public interface SpringDataReaderRepositoryImpl extends ReaderRepository, Reader
             "WHERE YEAR(u.createdAt) = YEAR(CURRENT_DATE)")
     int getCountFromCurrentYear();
 
-    @Query("SELECT rd " +
-            "FROM ReaderDetails rd " +
-            "JOIN Lending l ON l.readerDetails.pk = rd.pk " +
-            "GROUP BY rd " +
-            "ORDER BY COUNT(l) DESC")
-    Page<ReaderDetails> findTopReaders(Pageable pageable);
-
     @Override
     @Query("SELECT NEW pt.psoft.g1.psoftg1.readermanagement.services.ReaderBookCountDTO(rd, count(l)) " +
             "FROM ReaderDetails rd " +
@@ -78,6 +86,16 @@ public interface SpringDataReaderRepositoryImpl extends ReaderRepository, Reader
             "GROUP BY rd.pk " +
             "ORDER BY COUNT(l.pk) DESC")
     Page<ReaderBookCountDTO> findTopByGenre(Pageable pageable, String genre, LocalDate startDate, LocalDate endDate);
+
+    @Override
+    @Query("SELECT new pt.psoft.g1.psoftg1.readermanagement.services.ReaderExportDTO(" +
+                "rd.readerNumber.readerNumber, u.username, u.name.name, rd.birthDate.birthDate, " +
+                "rd.phoneNumber.phoneNumber, rd.gdprConsent, rd.marketingConsent, rd.thirdPartySharingConsent) " +
+            "FROM ReaderDetails rd " +
+            "JOIN rd.reader u " +
+            "ORDER BY rd.pk")
+    @QueryHints(@QueryHint(name = HibernateHints.HINT_FETCH_SIZE, value = "500"))
+    Stream<ReaderExportDTO> streamAllForExport();
 }
 
 interface ReaderDetailsRepoCustom {
@@ -102,27 +120,38 @@ class ReaderDetailsRepoCustomImpl implements ReaderDetailsRepoCustom {
 
         final List<Predicate> where = new ArrayList<>();
         if (StringUtils.hasText(query.getName())) { //'contains' type search
-            where.add(cb.like(userJoin.get("name").get("name"), "%" + query.getName() + "%"));
-            cq.orderBy(cb.asc(userJoin.get("name")));
+            where.add(cb.like(userJoin.get("name").get("searchKey"), "%" + StringUtilsCustom.toSearchKey(query.getName()) + "%"));
         }
         if (StringUtils.hasText(query.getEmail())) { //'exatct' type search
             where.add(cb.equal(userJoin.get("username"), query.getEmail()));
-            cq.orderBy(cb.asc(userJoin.get("username")));
-
         }
         if (StringUtils.hasText(query.getPhoneNumber())) { //'exatct' type search
             where.add(cb.equal(readerDetailsRoot.get("phoneNumber").get("phoneNumber"), query.getPhoneNumber()));
-            cq.orderBy(cb.asc(readerDetailsRoot.get("phoneNumber").get("phoneNumber")));
         }
 
+        final Path<String> readerNumberKey = readerDetailsRoot.get("readerNumber").get("readerNumber");
+        final Path<String> sortKey = switch (query.sortedBy()) {
+            case PHONE_NUMBER -> readerDetailsRoot.get("phoneNumber").get("phoneNumber");
+            case EMAIL -> userJoin.get("username");
+            case NAME -> userJoin.get("name").get("name");
+            case READER_NUMBER -> readerNumberKey;
+        };
+
+        final List<Predicate> restrictions = new ArrayList<>();
         // search using OR
         if (!where.isEmpty()) {
-            cq.where(cb.or(where.toArray(new Predicate[0])));
+            restrictions.add(cb.or(where.toArray(new Predicate[0])));
         }
-
+        if (page.getCursor() != null) {
+            final Cursor cursor = Cursor.decode(page.getCursor(), 2);
+            restrictions.add(Keyset.after(cb, sortKey, cursor.get(0), readerNumberKey, cursor.get(1), false));
+        }
+        cq.where(restrictions.toArray(new Predicate[0]));
+        cq.orderBy(cb.asc(sortKey), cb.asc(readerNumberKey));
 
         final TypedQuery<ReaderDetails> q = em.createQuery(cq);
-        q.setFirstResult((page.getNumber() - 1) * page.getLimit());
+        if (page.getCursor() == null)
+            q.setFirstResult((page.getNumber() - 1) * page.getLimit());
         q.setMaxResults(page.getLimit());
 
         return q.getResultList();
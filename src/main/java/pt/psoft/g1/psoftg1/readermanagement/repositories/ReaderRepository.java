@@ -7,24 +7,28 @@ import org.springframework.data.repository.query.Param;
 import pt.psoft.g1.psoftg1.readermanagement.services.SearchReadersQuery;
 import pt.psoft.g1.psoftg1.readermanagement.model.ReaderDetails;
 import pt.psoft.g1.psoftg1.readermanagement.services.ReaderBookCountDTO;
+import pt.psoft.g1.psoftg1.readermanagement.services.ReaderExportDTO;
 
 import java.time.LocalDate;
+import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
+import java.util.stream.Stream;
 
 /**
  *
  */
 public interface ReaderRepository {
     Optional<ReaderDetails> findByReaderNumber(@Param("readerNumber") @NotNull String readerNumber);
+    List<ReaderDetails> findByReaderNumbers(@Param("readerNumbers") @NotNull Collection<String> readerNumbers);
     List<ReaderDetails> findByPhoneNumber(@Param("phoneNumber") @NotNull String phoneNumber);
     Optional<ReaderDetails> findByUsername(@Param("username") @NotNull String username);
     Optional<ReaderDetails> findByUserId(@Param("userId") @NotNull Long userId);
     int getCountFromCurrentYear();
     ReaderDetails save(ReaderDetails readerDetails);
     Iterable<ReaderDetails> findAll();
-    Page<ReaderDetails> findTopReaders(Pageable pageable);
     Page<ReaderBookCountDTO> findTopByGenre(Pageable pageable, String genre, LocalDate startDate, LocalDate endDate);
     void delete(ReaderDetails readerDetails);
     List<ReaderDetails> searchReaderDetails(pt.psoft.g1.psoftg1.shared.services.Page page, SearchReadersQuery query);
+    Stream<ReaderExportDTO> streamAllForExport();
 }
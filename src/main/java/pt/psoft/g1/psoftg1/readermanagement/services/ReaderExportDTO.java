@@ -0,0 +1,33 @@
+package pt.psoft.g1.psoftg1.readermanagement.services;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import pt.psoft.g1.psoftg1.shared.services.ExportRow;
+
+import java.time.LocalDate;
+import java.util.Arrays;
+import java.util.List;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class ReaderExportDTO implements ExportRow {
+    public static final List<String> COLUMNS = List.of("readerNumber", "email", "fullName", "birthDate",
+            "phoneNumber", "gdprConsent", "marketingConsent", "thirdPartySharingConsent");
+
+    private String readerNumber;
+    private String email;
+    private String fullName;
+    private LocalDate birthDate;
+    private String phoneNumber;
+    private boolean gdprConsent;
+    private boolean marketingConsent;
+    private boolean thirdPartySharingConsent;
+
+    @Override
+    public List<Object> values() {
+        return Arrays.asList(readerNumber, email, fullName, birthDate, phoneNumber,
+                gdprConsent, marketingConsent, thirdPartySharingConsent);
+    }
+}
@@ -3,6 +3,7 @@ package pt.psoft.g1.psoftg1.readermanagement.services;
 import java.time.LocalDate;
 import java.util.List;
 import java.util.Optional;
+import java.util.stream.Stream;
 
 import pt.psoft.g1.psoftg1.readermanagement.model.ReaderDetails;
 import pt.psoft.g1.psoftg1.shared.services.Page;
@@ -22,4 +23,9 @@ public interface ReaderService {
     //Optional<Reader> update(UpdateReaderRequest request) throws Exception;
     Optional<ReaderDetails> removeReaderPhoto(String readerNumber, long desiredVersion);
     List<ReaderDetails> searchReaders(Page page, SearchReadersQuery query);
+
+    /**
+     * Streams all the readers for export. The stream must be consumed, and closed, within a transaction.
+     */
+    Stream<ReaderExportDTO> exportAll();
 }
@@ -1,25 +1,33 @@
 package pt.psoft.g1.psoftg1.readermanagement.services;
 
 import lombok.RequiredArgsConstructor;
-import org.springframework.data.domain.Page;
 import org.springframework.data.domain.PageRequest;
 import org.springframework.stereotype.Service;
+import org.springframework.util.StringUtils;
 import org.springframework.web.multipart.MultipartFile;
+import pt.psoft.g1.psoftg1.bookmanagement.services.BookRecommender;
 import pt.psoft.g1.psoftg1.genremanagement.model.Genre;
-import pt.psoft.g1.psoftg1.genremanagement.repositories.GenreRepository;
+import pt.psoft.g1.psoftg1.genremanagement.services.GenreRegistry;
 import pt.psoft.g1.psoftg1.exceptions.ConflictException;
 import pt.psoft.g1.psoftg1.exceptions.NotFoundException;
+import pt.psoft.g1.psoftg1.lendingmanagement.services.LeaderboardEntryDTO;
+import pt.psoft.g1.psoftg1.lendingmanagement.services.LendingLeaderboards;
 import pt.psoft.g1.psoftg1.readermanagement.model.ReaderDetails;
 import pt.psoft.g1.psoftg1.readermanagement.repositories.ReaderRepository;
+import pt.psoft.g1.psoftg1.shared.model.StringUtilsCustom;
 import pt.psoft.g1.psoftg1.shared.repositories.ForbiddenNameRepository;
 import pt.psoft.g1.psoftg1.shared.repositories.PhotoRepository;
+import pt.psoft.g1.psoftg1.shared.services.SequenceService;
 import pt.psoft.g1.psoftg1.usermanagement.model.Reader;
 import pt.psoft.g1.psoftg1.usermanagement.repositories.UserRepository;
 
 import java.time.LocalDate;
 import java.util.ArrayList;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
+import java.util.stream.Stream;
 import org.springframework.data.domain.Pageable;
 
 @Service
@@ -28,9 +36,12 @@ public class ReaderServiceImpl implements ReaderService {
     private final ReaderRepository readerRepo;
     private final UserRepository userRepo;
     private final ReaderMapper readerMapper;
-    private final GenreRepository genreRepo;
+    private final GenreRegistry genreRegistry;
     private final ForbiddenNameRepository forbiddenNameRepository;
     private final PhotoRepository photoRepository;
+    private final SequenceService sequenceService;
+    private final LendingLeaderboards lendingLeaderboards;
+    private final BookRecommender bookRecommender;
 
 
     @Override
@@ -69,9 +80,10 @@ public class ReaderServiceImpl implements ReaderService {
             request.setPhoto(null);
         }
 
-        int count = readerRepo.getCountFromCurrentYear();
+        int readerNumber = sequenceService.nextValue(SequenceService.READER, LocalDate.now().getYear(),
+                readerRepo::getCountFromCurrentYear);
         Reader reader = readerMapper.createReader(request);
-        ReaderDetails rd = readerMapper.createReaderDetails(count+1, reader, request, photoURI, interestList);
+        ReaderDetails rd = readerMapper.createReaderDetails(readerNumber, reader, request, photoURI, interestList);
 
         userRepo.save(reader);
         return readerRepo.save(rd);
@@ -114,6 +126,8 @@ public class ReaderServiceImpl implements ReaderService {
         readerDetails.applyPatch(desiredVersion, request, photoURI, interestList);
 
         userRepo.save(readerDetails.getReader());
+        if (stringInterestList != null)
+            bookRecommender.invalidate(readerDetails.getReaderNumber());
         return readerRepo.save(readerDetails);
     }
 
@@ -145,9 +159,21 @@ public class ReaderServiceImpl implements ReaderService {
             throw new IllegalArgumentException("Minimum top reader must be greater than 0");
         }
 
-        Pageable pageableRules = PageRequest.of(0,minTop);
-        Page<ReaderDetails> page = readerRepo.findTopReaders(pageableRules);
-        return page.getContent();
+        final List<LeaderboardEntryDTO> top = lendingLeaderboards.top(LendingLeaderboards.Board.READERS,
+                LendingLeaderboards.Window.ALL_TIME, Math.min(minTop, LendingLeaderboards.MAX_LIMIT));
+        if (top.isEmpty())
+            return new ArrayList<>();
+        final Map<String, ReaderDetails> readers = new HashMap<>();
+        for (ReaderDetails reader : readerRepo.findByReaderNumbers(top.stream().map(LeaderboardEntryDTO::getKey).toList())) {
+            readers.put(reader.getReaderNumber(), reader);
+        }
+        final List<ReaderDetails> topReaders = new ArrayList<>(top.size());
+        for (LeaderboardEntryDTO entry : top) {
+            final ReaderDetails reader = readers.get(entry.getKey());
+            if (reader != null)
+                topReaders.add(reader);
+        }
+        return topReaders;
     }
 
     private List<Genre> getGenreListFromStringList(List<String> interestList) {
@@ -161,7 +187,7 @@ public class ReaderServiceImpl implements ReaderService {
 
         List<Genre> genreList = new ArrayList<>();
         for(String interest : interestList) {
-            Optional<Genre> optGenre = genreRepo.findByString(interest);
+            Optional<Genre> optGenre = genreRegistry.find(interest);
             if(optGenre.isEmpty()) {
                 throw new NotFoundException("Could not find genre with name " + interest);
             }
@@ -192,6 +218,10 @@ public class ReaderServiceImpl implements ReaderService {
         if (query == null)
             query = new SearchReadersQuery("", "","");
 
+        // checked here, as the repository would report it as a data access error
+        if (StringUtils.hasText(query.getName()) && !StringUtilsCustom.hasSearchKey(query.getName()))
+            throw new IllegalArgumentException("Name must contain at least one letter or digit");
+
         final var list = readerRepo.searchReaderDetails(page, query);
 
         if(list.isEmpty())
@@ -199,4 +229,9 @@ public class ReaderServiceImpl implements ReaderService {
 
         return list;
     }
+
+    @Override
+    public Stream<ReaderExportDTO> exportAll() {
+        return readerRepo.streamAllForExport();
+    }
 }
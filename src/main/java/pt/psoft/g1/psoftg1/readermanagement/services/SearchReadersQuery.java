@@ -3,6 +3,9 @@ package pt.psoft.g1.psoftg1.readermanagement.services;
 import lombok.AllArgsConstructor;
 import lombok.Data;
 import lombok.NoArgsConstructor;
+import org.springframework.util.StringUtils;
+import pt.psoft.g1.psoftg1.readermanagement.model.ReaderDetails;
+import pt.psoft.g1.psoftg1.shared.services.Cursor;
 
 @Data
 @NoArgsConstructor
@@ -11,4 +14,35 @@ public class SearchReadersQuery {
     private String name;
     private String phoneNumber;
     private String email;
+
+    /**
+     * Key the search results are ordered by, before the reader number that breaks ties.
+     */
+    public enum SortKey { NAME, EMAIL, PHONE_NUMBER, READER_NUMBER }
+
+    /**
+     * @return the key of the last criterion that is set, in the order name, email, phone number
+     */
+    public SortKey sortedBy() {
+        if (StringUtils.hasText(phoneNumber))
+            return SortKey.PHONE_NUMBER;
+        if (StringUtils.hasText(email))
+            return SortKey.EMAIL;
+        if (StringUtils.hasText(name))
+            return SortKey.NAME;
+        return SortKey.READER_NUMBER;
+    }
+
+    /**
+     * @return the {@link Cursor} of the search results following {@code readerDetails}
+     */
+    public String cursorOf(ReaderDetails readerDetails) {
+        final String sortKey = switch (sortedBy()) {
+            case PHONE_NUMBER -> readerDetails.getPhoneNumber();
+            case EMAIL -> readerDetails.getReader().getUsername();
+            case NAME -> readerDetails.getReader().getName().toString();
+            case READER_NUMBER -> readerDetails.getReaderNumber();
+        };
+        return Cursor.encode(sortKey, readerDetails.getReaderNumber());
+    }
 }
@@ -32,10 +32,15 @@ public abstract class MapperInterface {
 
     @Named(value = "lendingLink")
     protected Map<String, String> mapLendingLink(Lending lending){
+        return mapLendingNumberLink(lending.getLendingNumber());
+    }
+
+    @Named(value = "lendingNumberLink")
+    protected Map<String, String> mapLendingNumberLink(String lendingNumber){
         Map<String, String> lendingLink = new HashMap<>();
         String lendingUri = ServletUriComponentsBuilder.fromCurrentContextPath()
                 .path("/api/lendings/")
-                .path(lending.getLendingNumber())
+                .path(lendingNumber)
                 .toUriString();
         lendingLink.put("href", lendingUri);
         return lendingLink;
@@ -43,10 +48,15 @@ public abstract class MapperInterface {
 
     @Named(value = "bookLink")
     protected Map<String, String> mapBookLink(Book book){
+        return mapIsbnLink(book.getIsbn());
+    }
+
+    @Named(value = "isbnLink")
+    protected Map<String, String> mapIsbnLink(String isbn){
         Map<String, String> bookLink = new HashMap<>();
         String bookUri = ServletUriComponentsBuilder.fromCurrentContextPath()
                 .path("/api/books/")
-                .path(book.getIsbn())
+                .path(isbn)
                 .toUriString();
         bookLink.put("href", bookUri);
         return bookLink;
@@ -54,10 +64,15 @@ public abstract class MapperInterface {
 
     @Named(value = "readerLink")
     protected Map<String, String> mapReaderLink(ReaderDetails readerDetails){
+        return mapReaderNumberLink(readerDetails.getReaderNumber());
+    }
+
+    @Named(value = "readerNumberLink")
+    protected Map<String, String> mapReaderNumberLink(String readerNumber){
         Map<String, String> readerLink = new HashMap<>();
         String readerUri = ServletUriComponentsBuilder.fromCurrentContextPath()
                 .path("/api/readers/")
-                .path(readerDetails.getReaderNumber())
+                .path(readerNumber)
                 .toUriString();
         readerLink.put("href", readerUri);
         return readerLink;
@@ -0,0 +1,119 @@
+package pt.psoft.g1.psoftg1.shared.api;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import jakarta.persistence.EntityManager;
+import lombok.RequiredArgsConstructor;
+import org.springframework.http.ContentDisposition;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+import pt.psoft.g1.psoftg1.shared.services.ExportFormat;
+import pt.psoft.g1.psoftg1.shared.services.ExportRow;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.util.Iterator;
+import java.util.List;
+import java.util.function.Supplier;
+import java.util.stream.Stream;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Streams the rows of a repository {@link Stream} straight to the response, as NDJSON or CSV, optionally gzipped.
+ * <p>Rows are written as they are read from the database cursor, inside a read-only transaction, and the
+ * persistence context is cleared every {@value #CLEAR_EVERY} rows, so memory use does not depend on the table size.
+ */
+@Component
+@RequiredArgsConstructor
+public class StreamingExporter {
+    private static final int CLEAR_EVERY = 500;
+
+    private final PlatformTransactionManager transactionManager;
+    private final EntityManager entityManager;
+    private final ObjectMapper objectMapper;
+
+    /**
+     * @param name      base name of the exported file
+     * @param columns   CSV header, matching {@link ExportRow#values()}
+     * @param rows      opens the stream of rows; it is called, and closed, on the thread writing the response
+     * @param format    {@code ndjson} or {@code csv}
+     * @param gzip      whether to compress the response ({@code Content-Encoding: gzip})
+     */
+    public <T extends ExportRow> ResponseEntity<StreamingResponseBody> export(final String name,
+                                                                              final List<String> columns,
+                                                                              final Supplier<Stream<T>> rows,
+                                                                              final String format,
+                                                                              final boolean gzip) {
+        final ExportFormat exportFormat = ExportFormat.of(format);
+
+        final StreamingResponseBody body = out -> {
+            final GZIPOutputStream gzipOut = gzip ? new GZIPOutputStream(out, 8192) : null;
+            final OutputStream target = gzip ? gzipOut : out;
+            final Writer writer = new BufferedWriter(new OutputStreamWriter(target, StandardCharsets.UTF_8));
+
+            final TransactionTemplate tx = new TransactionTemplate(transactionManager);
+            tx.setReadOnly(true);
+            tx.executeWithoutResult(status -> {
+                try (Stream<T> stream = rows.get()) {
+                    if (exportFormat == ExportFormat.CSV)
+                        writeCsvLine(writer, columns);
+
+                    int count = 0;
+                    for (Iterator<T> it = stream.iterator(); it.hasNext(); ) {
+                        final T row = it.next();
+                        if (exportFormat == ExportFormat.CSV) {
+                            writeCsvLine(writer, row.values());
+                        } else {
+                            writer.write(objectMapper.writeValueAsString(row));
+                            writer.write('\n');
+                        }
+                        if (++count % CLEAR_EVERY == 0)
+                            entityManager.clear();
+                    }
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+            });
+
+            writer.flush();
+            if (gzipOut != null)
+                gzipOut.finish();
+        };
+
+        final HttpHeaders headers = new HttpHeaders();
+        headers.setContentType(new MediaType(MediaType.parseMediaType(exportFormat.getContentType()), StandardCharsets.UTF_8));
+        headers.setContentDisposition(ContentDisposition.attachment()
+                .filename(name + "." + exportFormat.getExtension())
+                .build());
+        if (gzip)
+            headers.set(HttpHeaders.CONTENT_ENCODING, "gzip");
+
+        return ResponseEntity.ok().headers(headers).body(body);
+    }
+
+    private static void writeCsvLine(Writer writer, List<?> values) throws IOException {
+        for (int i = 0; i < values.size(); i++) {
+            if (i > 0)
+                writer.write(',');
+            final Object value = values.get(i);
+            if (value != null)
+                writer.write(escapeCsv(value.toString()));
+        }
+        writer.write("\r\n");
+    }
+
+    static String escapeCsv(String value) {
+        if (value.indexOf(',') < 0 && value.indexOf('"') < 0 && value.indexOf('\n') < 0 && value.indexOf('\r') < 0)
+            return value;
+        return '"' + value.replace("\"", "\"\"") + '"';
+    }
+}
@@ -0,0 +1,45 @@
+package pt.psoft.g1.psoftg1.shared.infrastructure.repositories.impl;
+
+import jakarta.persistence.EntityManager;
+import org.hibernate.Session;
+
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.Savepoint;
+
+/**
+ * Inserts rows that concurrent transactions may both try to create, such as the first row of a running aggregate
+ * that is otherwise updated in place.
+ * <p>The insert runs in a savepoint of the current transaction and outside the persistence context, so a duplicate
+ * key only undoes the insert, and the caller can update the row created by the other transaction instead.
+ */
+public final class InsertIfAbsent {
+    // SQLSTATE of a unique constraint violation, in PostgreSQL and H2
+    private static final String UNIQUE_VIOLATION = "23505";
+
+    private InsertIfAbsent() {}
+
+    /**
+     * @param sql           an INSERT statement with {@code ?} placeholders
+     * @param parameters    values of the placeholders, in order
+     * @return whether the row was inserted, or {@code false} if a row with the same key already exists
+     */
+    public static boolean execute(EntityManager em, String sql, Object... parameters) {
+        return em.unwrap(Session.class).doReturningWork(connection -> {
+            final Savepoint savepoint = connection.setSavepoint();
+            try (PreparedStatement insert = connection.prepareStatement(sql)) {
+                for (int i = 0; i < parameters.length; i++) {
+                    insert.setObject(i + 1, parameters[i]);
+                }
+                insert.executeUpdate();
+            } catch (SQLException e) {
+                connection.rollback(savepoint);
+                if (UNIQUE_VIOLATION.equals(e.getSQLState()))
+                    return false;
+                throw e;
+            }
+            connection.releaseSavepoint(savepoint);
+            return true;
+        });
+    }
+}
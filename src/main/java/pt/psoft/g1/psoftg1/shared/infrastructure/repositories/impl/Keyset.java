@@ -0,0 +1,30 @@
+package pt.psoft.g1.psoftg1.shared.infrastructure.repositories.impl;
+
+import jakarta.persistence.criteria.CriteriaBuilder;
+import jakarta.persistence.criteria.Expression;
+import jakarta.persistence.criteria.Predicate;
+
+/**
+ * Seek predicates for keyset pagination with the JPA Criteria API.
+ * @see pt.psoft.g1.psoftg1.shared.services.Cursor
+ */
+public final class Keyset {
+    private Keyset() {}
+
+    /**
+     * Selects the rows that come after {@code (keyValue, tieBreakerValue)} when ordering by {@code key}, then by
+     * {@code tieBreaker}, both in the same direction.
+     */
+    public static <K extends Comparable<? super K>, T extends Comparable<? super T>> Predicate after(
+            CriteriaBuilder cb,
+            Expression<K> key, K keyValue,
+            Expression<T> tieBreaker, T tieBreakerValue,
+            boolean descending) {
+        if (descending) {
+            return cb.or(cb.lessThan(key, keyValue),
+                    cb.and(cb.equal(key, keyValue), cb.lessThan(tieBreaker, tieBreakerValue)));
+        }
+        return cb.or(cb.greaterThan(key, keyValue),
+                cb.and(cb.equal(key, keyValue), cb.greaterThan(tieBreaker, tieBreakerValue)));
+    }
+}
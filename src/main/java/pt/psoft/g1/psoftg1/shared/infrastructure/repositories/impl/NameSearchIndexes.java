@@ -0,0 +1,50 @@
+package pt.psoft.g1.psoftg1.shared.infrastructure.repositories.impl;
+
+import lombok.RequiredArgsConstructor;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.dao.DataAccessException;
+import org.springframework.jdbc.core.ConnectionCallback;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+
+import java.util.List;
+
+/**
+ * Indexes the name search keys of authors and users for {@code LIKE} searches when the database is PostgreSQL.
+ * <p>There, the plain indexes declared on the entities only serve a prefix search if the database collation is
+ * {@code C}. So author searches, by the start of the name, get an index with {@code varchar_pattern_ops}, and user
+ * and reader searches, by any part of the name with {@code LIKE '%part%'}, get a trigram index. JPA cannot declare
+ * these indexes, so they are created once the application is ready, if missing. On H2, the plain indexes serve prefix
+ * searches.
+ */
+@Component
+@RequiredArgsConstructor
+public class NameSearchIndexes {
+    private static final Logger logger = LogManager.getLogger();
+
+    private static final List<String> STATEMENTS = List.of(
+            "CREATE INDEX IF NOT EXISTS ix_author_search_key_pattern ON author (search_key varchar_pattern_ops)",
+            "CREATE EXTENSION IF NOT EXISTS pg_trgm",
+            "CREATE INDEX IF NOT EXISTS ix_user_search_key_trgm ON t_user USING gin (search_key gin_trgm_ops)");
+
+    private final JdbcTemplate jdbcTemplate;
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void create() {
+        final String database = jdbcTemplate.execute(
+                (ConnectionCallback<String>) connection -> connection.getMetaData().getDatabaseProductName());
+        if (!"PostgreSQL".equals(database))
+            return;
+        try {
+            for (String statement : STATEMENTS) {
+                jdbcTemplate.execute(statement);
+            }
+        } catch (DataAccessException e) {
+            // searches still work, by scanning
+            logger.warn("Could not create the indexes of the name search keys", e);
+        }
+    }
+}
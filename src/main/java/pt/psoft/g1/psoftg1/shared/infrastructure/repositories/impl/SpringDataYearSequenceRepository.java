@@ -0,0 +1,56 @@
+package pt.psoft.g1.psoftg1.shared.infrastructure.repositories.impl;
+
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.LockModeType;
+import lombok.RequiredArgsConstructor;
+import org.springframework.data.repository.CrudRepository;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+import pt.psoft.g1.psoftg1.shared.model.YearSequence;
+import pt.psoft.g1.psoftg1.shared.repositories.YearSequenceRepository;
+
+import java.util.List;
+import java.util.function.LongSupplier;
+
+public interface SpringDataYearSequenceRepository extends YearSequenceRepository, YearSequenceRepoCustom, CrudRepository<YearSequence, Long> {
+}
+
+interface YearSequenceRepoCustom {
+    long reserveBlock(String sequenceName, int year, int blockSize, LongSupplier seed);
+}
+
+@RequiredArgsConstructor
+class YearSequenceRepoCustomImpl implements YearSequenceRepoCustom {
+    private final EntityManager em;
+
+    /**
+     * The counter row is locked for the rest of the transaction, so instances sharing the database
+     * always get disjoint blocks. A new transaction is required: a reservation rolled back with the
+     * caller would let another instance hand out values that were already used from memory.
+     */
+    @Override
+    @Transactional(propagation = Propagation.REQUIRES_NEW)
+    public long reserveBlock(String sequenceName, int year, int blockSize, LongSupplier seed) {
+        final List<YearSequence> found = em.createQuery("SELECT s " +
+                        "FROM YearSequence s " +
+                        "WHERE s.sequenceName = :sequenceName " +
+                        "AND s.year = :year", YearSequence.class)
+                .setParameter("sequenceName", sequenceName)
+                .setParameter("year", year)
+                .setLockMode(LockModeType.PESSIMISTIC_WRITE)
+                .getResultList();
+
+        final YearSequence sequence;
+        if (found.isEmpty()) {
+            sequence = new YearSequence(sequenceName, year, seed.getAsLong());
+            em.persist(sequence);
+        } else {
+            sequence = found.get(0);
+        }
+
+        final long first = sequence.reserve(blockSize);
+        // surface a concurrent insert of the same counter here, so the caller can retry
+        em.flush();
+        return first;
+    }
+}
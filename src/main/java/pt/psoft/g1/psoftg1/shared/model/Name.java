@@ -15,6 +15,11 @@ public class Name {
     @NotBlank
     @Column(name="NAME", length = 150)
     String name;
+
+    /**The name without diacritics and in lower case, which name searches match against.*/
+    @Column(name="SEARCH_KEY", length = 150)
+    String searchKey;
+
     public Name(String name){
         setName(name);
     }
@@ -26,6 +31,8 @@ public class Name {
             throw new IllegalArgumentException("Name cannot be blank, nor only white spaces");
         if(!StringUtilsCustom.isAlphanumeric(name))
             throw new IllegalArgumentException("Name can only contain alphanumeric characters");
+        if(!StringUtilsCustom.hasSearchKey(name))
+            throw new IllegalArgumentException("Name must contain at least one letter or digit");
 
 /*
         //  Logic moved to UserService.java, ReaderService.java
@@ -35,6 +42,7 @@ public class Name {
         }
 */
         this.name = name;
+        this.searchKey = StringUtilsCustom.toSearchKey(name);
     }
     public String toString() {
         return this.name;
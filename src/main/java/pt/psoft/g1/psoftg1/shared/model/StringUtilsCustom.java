@@ -3,6 +3,7 @@ import org.owasp.html.PolicyFactory;
 import org.owasp.html.Sanitizers;
 import org.springframework.util.StringUtils;
 
+import java.text.Normalizer;
 import java.util.regex.Pattern;
 
 public class StringUtilsCustom {
@@ -46,4 +47,45 @@ public class StringUtilsCustom {
         return sanitizer.sanitize(str);
     }
 
+    /**
+     * Returns the key a name is searched by, so that "António" and "antonio" match: diacritics are stripped, letters
+     * are lower-cased, and anything but letters and digits becomes a single space between words.
+     * <p>As only letters, digits and spaces remain, the key can be used in a {@code LIKE} pattern as is.
+     * @param str the name, or part of it, to be searched
+     * @throws IllegalArgumentException if the text has no letters nor digits, as its key would match every name
+     */
+    public static String toSearchKey(String str){
+        final String key = searchKeyOf(str);
+        if (key.isEmpty())
+            throw new IllegalArgumentException("Search text must contain at least one letter or digit");
+        return key;
+    }
+
+    /**
+     * @return whether the text has letters or digits to search by, so {@link #toSearchKey(String)} accepts it
+     */
+    public static boolean hasSearchKey(String str){
+        return !searchKeyOf(str).isEmpty();
+    }
+
+    private static String searchKeyOf(String str){
+        final String decomposed = Normalizer.normalize(str, Normalizer.Form.NFD);
+        final StringBuilder key = new StringBuilder(decomposed.length());
+        boolean space = false;
+        for (int i = 0; i < decomposed.length(); i++) {
+            final char c = decomposed.charAt(i);
+            if (Character.getType(c) == Character.NON_SPACING_MARK)
+                continue;
+            if (Character.isLetterOrDigit(c)) {
+                if (space && !key.isEmpty())
+                    key.append(' ');
+                key.append(Character.toLowerCase(c));
+                space = false;
+            } else {
+                space = true;
+            }
+        }
+        return key.toString();
+    }
+
 }
@@ -0,0 +1,72 @@
+package pt.psoft.g1.psoftg1.shared.model;
+
+import jakarta.persistence.*;
+import jakarta.validation.constraints.NotBlank;
+import lombok.Getter;
+
+/**
+ * The {@code YearSequence} class stores the persistent counter behind a yearly sequential number
+ * (e.g. the {@code 23} in lending number {@code 2024/23}).
+ * <p>There is one row per sequence name and year. Application instances never take single values from it:
+ * they reserve whole blocks by moving {@code lastReserved} forward, and hand out the values in the block
+ * from memory. Unused values of a block are lost when an instance stops, so sequences may have gaps.
+ */
+@Entity
+@Table(name = "YEAR_SEQUENCE", uniqueConstraints = {
+        @UniqueConstraint(columnNames = {"SEQUENCE_NAME", "SEQUENCE_YEAR"})})
+public class YearSequence {
+    @Id
+    @GeneratedValue(strategy = GenerationType.AUTO)
+    private Long pk;
+
+    @Getter
+    @NotBlank
+    @Column(name = "SEQUENCE_NAME", nullable = false, length = 32)
+    private String sequenceName;
+
+    @Getter
+    @Column(name = "SEQUENCE_YEAR", nullable = false)
+    private int year;
+
+    /**
+     * Highest value already reserved by some application instance.
+     */
+    @Getter
+    @Column(nullable = false)
+    private long lastReserved;
+
+    @Version
+    private long version;
+
+    /**
+     * Constructs a new {@code YearSequence}.
+     * @param sequenceName name of the sequence (e.g. {@code LENDING})
+     * @param year         year the counter belongs to
+     * @param lastReserved highest value already in use, the first reserved block starts right after it
+     */
+    public YearSequence(String sequenceName, int year, long lastReserved) {
+        if(sequenceName == null || sequenceName.isBlank())
+            throw new IllegalArgumentException("Sequence name cannot be blank");
+        if(lastReserved < 0)
+            throw new IllegalArgumentException("Last reserved value cannot be negative");
+        this.sequenceName = sequenceName;
+        this.year = year;
+        this.lastReserved = lastReserved;
+    }
+
+    /**
+     * Reserves the next {@code blockSize} values of this sequence.
+     * @param blockSize number of values to reserve
+     * @return the first value of the reserved block
+     */
+    public long reserve(int blockSize) {
+        if(blockSize < 1)
+            throw new IllegalArgumentException("Block size must be at least 1");
+        final long first = this.lastReserved + 1;
+        this.lastReserved += blockSize;
+        return first;
+    }
+
+    /**Protected empty constructor for ORM only.*/
+    protected YearSequence() {}
+}
@@ -0,0 +1,15 @@
+package pt.psoft.g1.psoftg1.shared.repositories;
+
+import java.util.function.LongSupplier;
+
+public interface YearSequenceRepository {
+    /**
+     * Atomically reserves a block of values of a yearly sequence, in its own transaction.
+     * @param sequenceName name of the sequence
+     * @param year         year of the counter
+     * @param blockSize    number of values to reserve
+     * @param seed         highest value already in use, only called when the counter does not exist yet
+     * @return the first value of the reserved block
+     */
+    long reserveBlock(String sequenceName, int year, int blockSize, LongSupplier seed);
+}
@@ -0,0 +1,48 @@
+package pt.psoft.g1.psoftg1.shared.services;
+
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+/**
+ * Defers updates of in-memory state until the surrounding transaction commits, so a rollback never leaves them
+ * ahead of the database.
+ */
+public final class AfterCommit {
+    private AfterCommit() {}
+
+    /**
+     * Runs {@code change} once the current transaction commits, or right away if there is no transaction.
+     */
+    public static void execute(Runnable change) {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    change.run();
+                }
+            });
+        } else {
+            change.run();
+        }
+    }
+
+    /**
+     * Runs {@code change} once the current transaction commits, or right away if there is no transaction, and
+     * {@code undo} instead if the transaction does not commit.
+     */
+    public static void execute(Runnable change, Runnable undo) {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCompletion(int status) {
+                    if (status == STATUS_COMMITTED)
+                        change.run();
+                    else
+                        undo.run();
+                }
+            });
+        } else {
+            change.run();
+        }
+    }
+}
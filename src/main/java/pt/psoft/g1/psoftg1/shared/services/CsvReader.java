@@ -0,0 +1,102 @@
+package pt.psoft.g1.psoftg1.shared.services;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.io.UncheckedIOException;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Reads comma-separated values as in RFC 4180, one record at a time, so a file is never held in memory.
+ * <p>Fields may be quoted, with {@code ""} standing for a quote, and quoted fields may span lines. Lines may end with
+ * CRLF or LF. The caller owns the underlying reader, which should be buffered.
+ */
+public class CsvReader {
+    private final Reader in;
+    private int line = 1;
+    private int recordLine;
+    private int next = -2;
+
+    public CsvReader(Reader in) {
+        this.in = in;
+    }
+
+    /**
+     * @return the fields of the next record, or {@code null} at the end of the input
+     * @throws IllegalArgumentException if a quoted field is not closed
+     */
+    public List<String> next() {
+        int c = read();
+        if (c == -1)
+            return null;
+        recordLine = line;
+        final List<String> fields = new ArrayList<>();
+        final StringBuilder field = new StringBuilder();
+        while (true) {
+            if (c == '"' && field.isEmpty()) {
+                c = readQuoted(field);
+            }
+            if (c == ',') {
+                fields.add(field.toString());
+                field.setLength(0);
+            } else if (c == '\r' || c == '\n' || c == -1) {
+                if (c == '\r' && peek() == '\n')
+                    read();
+                if (c != -1)
+                    line++;
+                fields.add(field.toString());
+                return fields;
+            } else {
+                field.append((char) c);
+            }
+            c = read();
+        }
+    }
+
+    /**
+     * @return the line the last record returned by {@link #next()} starts on, counting from 1
+     */
+    public int getLine() {
+        return recordLine;
+    }
+
+    // reads a quoted field up to its closing quote, and returns the character after it
+    private int readQuoted(StringBuilder field) {
+        while (true) {
+            final int c = read();
+            if (c == -1)
+                throw new IllegalArgumentException("Unclosed quoted field starting on line " + recordLine);
+            if (c == '"') {
+                if (peek() != '"')
+                    return read();
+                read();
+            } else if (c == '\n') {
+                line++;
+            }
+            field.append((char) c);
+        }
+    }
+
+    private int peek() {
+        if (next == -2)
+            next = readChar();
+        return next;
+    }
+
+    private int read() {
+        if (next != -2) {
+            final int c = next;
+            next = -2;
+            return c;
+        }
+        return readChar();
+    }
+
+    private int readChar() {
+        try {
+            return in.read();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+}
@@ -0,0 +1,67 @@
+package pt.psoft.g1.psoftg1.shared.services;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Base64;
+import java.util.List;
+
+/**
+ * Position in a keyset-paginated search: the sort key of the last result returned, followed by a unique
+ * tie-breaker, so the next page can seek directly past it instead of skipping rows with an offset.
+ * <p>Clients only see it as an opaque URL-safe token (see {@link Page#getCursor()}).
+ */
+public final class Cursor {
+    private static final char SEPARATOR = '\u001F';
+
+    private final List<String> keys;
+
+    private Cursor(List<String> keys) {
+        this.keys = keys;
+    }
+
+    /**
+     * @param keys  sort key values of the last result, ending with its tie-breaker
+     * @return the opaque token of the position right after that result
+     */
+    public static String encode(Object... keys) {
+        final StringBuilder sb = new StringBuilder();
+        for (int i = 0; i < keys.length; i++) {
+            if (keys[i] == null)
+                throw new IllegalArgumentException("Cursor keys cannot be null");
+            if (i > 0)
+                sb.append(SEPARATOR);
+            sb.append(keys[i]);
+        }
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(sb.toString().getBytes(StandardCharsets.UTF_8));
+    }
+
+    /**
+     * @param token     token returned by {@link #encode(Object...)}
+     * @param size      number of keys expected by the search that is being resumed
+     * @throws IllegalArgumentException if the token is malformed or was issued by another kind of search
+     */
+    public static Cursor decode(String token, int size) {
+        final String decoded;
+        try {
+            decoded = new String(Base64.getUrlDecoder().decode(token), StandardCharsets.UTF_8);
+        } catch (IllegalArgumentException e) {
+            throw new IllegalArgumentException("Invalid cursor");
+        }
+
+        final List<String> keys = new ArrayList<>(size);
+        int start = 0;
+        for (int i = decoded.indexOf(SEPARATOR); i >= 0; i = decoded.indexOf(SEPARATOR, start)) {
+            keys.add(decoded.substring(start, i));
+            start = i + 1;
+        }
+        keys.add(decoded.substring(start));
+
+        if (keys.size() != size)
+            throw new IllegalArgumentException("Invalid cursor");
+        return new Cursor(keys);
+    }
+
+    public String get(int index) {
+        return keys.get(index);
+    }
+}
@@ -0,0 +1,35 @@
+package pt.psoft.g1.psoftg1.shared.services;
+
+/**
+ * Formats of the bulk export endpoints.
+ */
+public enum ExportFormat {
+    /**One JSON object per line.*/
+    NDJSON("application/x-ndjson", "ndjson"),
+    /**Comma-separated values with a header line, as in RFC 4180.*/
+    CSV("text/csv", "csv");
+
+    private final String contentType;
+    private final String extension;
+
+    ExportFormat(String contentType, String extension) {
+        this.contentType = contentType;
+        this.extension = extension;
+    }
+
+    public String getContentType() {
+        return contentType;
+    }
+
+    public String getExtension() {
+        return extension;
+    }
+
+    public static ExportFormat of(String format) {
+        for (ExportFormat f : values()) {
+            if (f.extension.equalsIgnoreCase(format))
+                return f;
+        }
+        throw new IllegalArgumentException("Unsupported export format: " + format + ". Expected ndjson or csv");
+    }
+}
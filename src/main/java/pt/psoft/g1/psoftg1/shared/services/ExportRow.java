@@ -0,0 +1,13 @@
+package pt.psoft.g1.psoftg1.shared.services;
+
+import java.util.List;
+
+/**
+ * A row of a bulk export. NDJSON serializes the row itself, CSV writes {@link #values()}.
+ */
+public interface ExportRow {
+    /**
+     * @return the values of the row, in the order of the export's CSV header
+     */
+    List<Object> values();
+}
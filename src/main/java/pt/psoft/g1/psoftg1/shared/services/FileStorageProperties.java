@@ -4,6 +4,9 @@ import org.springframework.boot.context.properties.ConfigurationProperties;
 
 import lombok.Data;
 
+import java.util.LinkedHashMap;
+import java.util.Map;
+
 /**
  * <p>
  * code based on
@@ -16,4 +19,8 @@ import lombok.Data;
 public class FileStorageProperties {
     private String uploadDir;
     private long photoMaxSize;
+    /**Named photo sizes, each the longest side in pixels of the variant generated for it.*/
+    private Map<String, Integer> photoVariants = new LinkedHashMap<>();
+    /**Threads generating photo variants in the background.*/
+    private int photoVariantThreads = 1;
 }
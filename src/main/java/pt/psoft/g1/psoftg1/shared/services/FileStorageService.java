@@ -20,16 +20,31 @@
  */
 package pt.psoft.g1.psoftg1.shared.services;
 
+import java.awt.Graphics2D;
+import java.awt.RenderingHints;
+import java.awt.image.BufferedImage;
 import java.io.IOException;
 import java.net.MalformedURLException;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.Paths;
 import java.nio.file.StandardCopyOption;
+import java.util.LinkedHashMap;
+import java.util.Locale;
+import java.util.Map;
 import java.util.Optional;
 import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
 
+import javax.imageio.ImageIO;
+
+import jakarta.annotation.PreDestroy;
 import jakarta.validation.ValidationException;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
 import lombok.RequiredArgsConstructor;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.core.io.Resource;
@@ -46,20 +61,37 @@ import pt.psoft.g1.psoftg1.shared.model.FileUtils;
  * code based on
  * https://github.com/callicoder/spring-boot-file-upload-download-rest-api-example
  *
+ * <p>
+ * Every stored png or jpeg is also downscaled, in the background, to each size in {@code file.photo-variants}, so
+ * photos can be served at the size they are shown at. A variant is stored next to the original as
+ * {@code name-size.ext}, and until it is ready the original is served in its place.
  *
  */
 @RequiredArgsConstructor
 @Service
 public class FileStorageService {
+    private static final Logger logger = LogManager.getLogger();
 
     private final Path fileStorageLocation;
     private long photoMaxSize;
     private final String[] validImageFormats = {"image/png", "image/jpeg"};
+    private final Map<String, Integer> photoVariants;
+    private final ExecutorService variantExecutor;
 
     @Autowired
     public FileStorageService(final FileStorageProperties fileStorageProperties) {
         this.fileStorageLocation = Paths.get(fileStorageProperties.getUploadDir()).toAbsolutePath().normalize();
         this.photoMaxSize = fileStorageProperties.getPhotoMaxSize();
+        this.photoVariants = new LinkedHashMap<>();
+        fileStorageProperties.getPhotoVariants()
+                .forEach((size, pixels) -> photoVariants.put(size.toLowerCase(Locale.ROOT), pixels));
+        final AtomicInteger threadCount = new AtomicInteger();
+        this.variantExecutor = Executors.newFixedThreadPool(Math.max(fileStorageProperties.getPhotoVariantThreads(), 1),
+                runnable -> {
+                    final Thread thread = new Thread(runnable, "photo-variants-" + threadCount.incrementAndGet());
+                    thread.setDaemon(true);
+                    return thread;
+                });
 
         try {
             Files.createDirectories(fileStorageLocation);
@@ -78,6 +110,7 @@ public class FileStorageService {
         try {
             final Path targetLocation = fileStorageLocation.resolve(fileName);
             Files.copy(file.getInputStream(), targetLocation, StandardCopyOption.REPLACE_EXISTING);
+            generateVariants(fileName);
 
             return fileName;
         } catch (final IOException ex) {
@@ -96,6 +129,13 @@ public class FileStorageService {
         } catch (IOException e) {
             throw new NotFoundException("Reader photo could not be deleted as his photo file doesn't exist.");
         }
+        for (String size : photoVariants.keySet()) {
+            try {
+                Files.deleteIfExists(fileStorageLocation.resolve(variantFileName(file, size)));
+            } catch (IOException e) {
+                logger.warn("Could not delete the {} variant of {}", size, file, e);
+            }
+        }
     }
 
     public byte[] getFile(final String fileName) {
@@ -111,6 +151,118 @@ public class FileStorageService {
         return image;
     }
 
+    /**
+     * @param size one of the sizes in {@code file.photo-variants}, or {@code null} for the original
+     * @return the variant of the file at that size, or the original if the variant is not ready or the original is
+     * already smaller | null if the file cannot be read
+     * @throws IllegalArgumentException if the size is unknown
+     */
+    public byte[] getFile(final String fileName, final String size) {
+        if (size == null) {
+            return getFile(fileName);
+        }
+        final String variant = size.toLowerCase(Locale.ROOT);
+        if (!photoVariants.containsKey(variant)) {
+            throw new IllegalArgumentException("Unknown photo size " + size + ", expected one of "
+                    + photoVariants.keySet());
+        }
+        final byte[] image = getFile(variantFileName(fileName, variant));
+        return image != null ? image : getFile(fileName);
+    }
+
+    /**
+     * Downscales a stored file to every size it is larger than, on a background thread. Files that are not png or
+     * jpeg images are skipped.
+     *
+     * @return completes when every variant is written
+     */
+    CompletableFuture<Void> generateVariants(final String fileName) {
+        final String format = imageFormat(fileName);
+        if (format == null || photoVariants.isEmpty()) {
+            return CompletableFuture.completedFuture(null);
+        }
+        return CompletableFuture.runAsync(() -> {
+            try {
+                final BufferedImage original = ImageIO.read(fileStorageLocation.resolve(fileName).toFile());
+                if (original == null) {
+                    return;
+                }
+                for (Map.Entry<String, Integer> variant : photoVariants.entrySet()) {
+                    final int longestSide = Math.max(original.getWidth(), original.getHeight());
+                    if (longestSide <= variant.getValue()) {
+                        continue;
+                    }
+                    final double scale = variant.getValue() / (double) longestSide;
+                    final BufferedImage scaled = scale(original, Math.max((int) Math.round(original.getWidth() * scale), 1),
+                            Math.max((int) Math.round(original.getHeight() * scale), 1), format.equals("png"));
+                    writeVariant(fileName, variant.getKey(), scaled, format);
+                }
+            } catch (IOException | RuntimeException e) {
+                logger.warn("Could not generate the photo variants of {}", fileName, e);
+            }
+        }, variantExecutor);
+    }
+
+    // writes to a temporary file first, so a variant is never served half written
+    private void writeVariant(final String fileName, final String size, final BufferedImage image, final String format)
+            throws IOException {
+        final Path target = fileStorageLocation.resolve(variantFileName(fileName, size));
+        final Path temporary = Files.createTempFile(fileStorageLocation, ".variant-", ".tmp");
+        try {
+            if (!ImageIO.write(image, format, temporary.toFile())) {
+                throw new IOException("No image writer for " + format);
+            }
+            // the original may have been deleted while the variant was generated
+            if (Files.exists(fileStorageLocation.resolve(fileName))) {
+                Files.move(temporary, target, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            }
+        } finally {
+            Files.deleteIfExists(temporary);
+        }
+    }
+
+    // halves the image until it is less than twice the target, then scales to the target, which keeps bilinear
+    // scaling from skipping pixels when shrinking a lot
+    private static BufferedImage scale(BufferedImage image, final int width, final int height, final boolean alpha) {
+        int currentWidth = image.getWidth();
+        int currentHeight = image.getHeight();
+        do {
+            currentWidth = currentWidth / 2 >= width ? currentWidth / 2 : width;
+            currentHeight = currentHeight / 2 >= height ? currentHeight / 2 : height;
+            final BufferedImage step = new BufferedImage(currentWidth, currentHeight,
+                    alpha ? BufferedImage.TYPE_INT_ARGB : BufferedImage.TYPE_INT_RGB);
+            final Graphics2D graphics = step.createGraphics();
+            try {
+                graphics.setRenderingHint(RenderingHints.KEY_INTERPOLATION, RenderingHints.VALUE_INTERPOLATION_BILINEAR);
+                graphics.setRenderingHint(RenderingHints.KEY_RENDERING, RenderingHints.VALUE_RENDER_QUALITY);
+                graphics.drawImage(image, 0, 0, currentWidth, currentHeight, null);
+            } finally {
+                graphics.dispose();
+            }
+            image = step;
+        } while (currentWidth != width || currentHeight != height);
+        return image;
+    }
+
+    // the ImageIO format name of a png or jpeg file, or null for any other file
+    private String imageFormat(final String fileName) {
+        return getExtension(fileName).map(extension -> switch (extension.toLowerCase(Locale.ROOT)) {
+            case "png" -> "png";
+            case "jpg", "jpeg" -> "jpeg";
+            default -> null;
+        }).orElse(null);
+    }
+
+    static String variantFileName(final String fileName, final String size) {
+        final int dot = fileName.lastIndexOf('.');
+        return dot < 0 ? fileName + "-" + size : fileName.substring(0, dot) + "-" + size + fileName.substring(dot);
+    }
+
+    @PreDestroy
+    void shutdown() {
+        variantExecutor.shutdownNow();
+    }
+
     //Returns the string of the fileName of the file (UUID.FILE_FORMAT) stored in the uploads folder | null for error or no photo
     public String getRequestPhoto(MultipartFile file) {
         UploadFileResponse up = null;
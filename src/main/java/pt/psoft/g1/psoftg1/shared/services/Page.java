@@ -5,6 +5,9 @@ import jakarta.validation.constraints.Min;
 import lombok.AllArgsConstructor;
 import lombok.Data;
 
+import java.util.List;
+import java.util.function.Function;
+
 /**
  * Based on <a href="https://github.com/Yoh0xFF/java-spring-security-example">https://github.com/Yoh0xFF/java-spring-security-example</a>
  *
@@ -19,7 +22,28 @@ public class Page {
     @Max(value = 100, message = "You can request maximum 100 records")
     int limit;
 
+    /**
+     * Opaque {@link Cursor} returned as {@code nextCursor} by a previous search. When present, results start right
+     * after it and {@code number} is ignored, so deep pages cost the same as the first one.
+     */
+    String cursor;
+
     public Page() {
         this(1, 10);
     }
+
+    public Page(int number, int limit) {
+        this(number, limit, null);
+    }
+
+    /**
+     * @param items     the results of this page
+     * @param cursorOf  encodes the {@link Cursor} of a result
+     * @return the cursor of the next page, or {@code null} if this page is the last one
+     */
+    public <T> String nextCursor(List<T> items, Function<T, String> cursorOf) {
+        if (items.isEmpty() || items.size() < limit)
+            return null;
+        return cursorOf.apply(items.get(items.size() - 1));
+    }
 }
@@ -0,0 +1,72 @@
+package pt.psoft.g1.psoftg1.shared.services;
+
+import java.text.Normalizer;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.Set;
+
+/**
+ * Normalization of free text for the in-memory search indexes: accents are folded ("António" matches "antonio"),
+ * case is ignored and text is split into words on anything that is not a letter or a digit.
+ */
+public final class SearchText {
+    /**Portuguese and English words too common to tell books apart.*/
+    private static final Set<String> STOP_WORDS = Set.of(
+            "a", "o", "as", "os", "de", "da", "do", "das", "dos", "e", "em", "no", "na", "nos", "nas",
+            "um", "uma", "por", "para", "com", "que", "se", "ao", "aos",
+            "the", "of", "and", "an", "in", "on", "to", "for", "with");
+
+    private SearchText() {}
+
+    /**
+     * @return {@code text} without diacritics and in lower case, or an empty string if it is {@code null}
+     */
+    public static String fold(String text) {
+        if (text == null)
+            return "";
+        final String decomposed = Normalizer.normalize(text, Normalizer.Form.NFD);
+        final StringBuilder sb = new StringBuilder(decomposed.length());
+        for (int i = 0; i < decomposed.length(); i++) {
+            final char c = decomposed.charAt(i);
+            if (Character.getType(c) != Character.NON_SPACING_MARK)
+                sb.append(c);
+        }
+        return sb.toString().toLowerCase(Locale.ROOT);
+    }
+
+    /**
+     * @return the folded words of {@code text}, in order and with repetitions, leaving out stop words
+     */
+    public static List<String> tokens(String text) {
+        final List<String> tokens = words(text);
+        tokens.removeIf(STOP_WORDS::contains);
+        return tokens;
+    }
+
+    /**
+     * @return all the folded words of {@code text}, in order and with repetitions
+     */
+    public static List<String> words(String text) {
+        final String folded = fold(text);
+        final List<String> words = new ArrayList<>();
+        int start = -1;
+        for (int i = 0; i <= folded.length(); i++) {
+            final boolean wordChar = i < folded.length() && Character.isLetterOrDigit(folded.charAt(i));
+            if (wordChar && start < 0) {
+                start = i;
+            } else if (!wordChar && start >= 0) {
+                words.add(folded.substring(start, i));
+                start = -1;
+            }
+        }
+        return words;
+    }
+
+    /**
+     * @param word  a folded word
+     */
+    public static boolean isStopWord(String word) {
+        return STOP_WORDS.contains(word);
+    }
+}
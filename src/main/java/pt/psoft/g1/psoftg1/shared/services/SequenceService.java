@@ -0,0 +1,25 @@
+package pt.psoft.g1.psoftg1.shared.services;
+
+import java.util.function.LongSupplier;
+
+public interface SequenceService {
+    String LENDING = "LENDING";
+    String READER = "READER";
+
+    /**
+     * Returns the next value of a yearly sequence. Each {@code year} has its own counter, starting
+     * right after the value given by {@code seed}.
+     * @param sequenceName name of the sequence (e.g. {@link #LENDING})
+     * @param year         year of the counter
+     * @param seed         highest value already in use for that year, only called when the counter is created
+     * @return a value never returned before for this sequence and year, by any application instance
+     */
+    int nextValue(String sequenceName, int year, LongSupplier seed);
+
+    /**
+     * Returns {@code count} consecutive values of a yearly sequence at once, as {@link #nextValue} would for
+     * {@code count} separate calls, but without interleaving with other callers.
+     * @return the first value of the range; the others follow it
+     */
+    int nextValues(String sequenceName, int year, int count, LongSupplier seed);
+}
@@ -0,0 +1,92 @@
+package pt.psoft.g1.psoftg1.shared.services;
+
+import lombok.RequiredArgsConstructor;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.PropertySource;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.stereotype.Service;
+import pt.psoft.g1.psoftg1.shared.repositories.YearSequenceRepository;
+
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.function.LongSupplier;
+
+/**
+ * Hi/lo allocator for yearly sequential numbers.
+ * <p>Blocks of {@code sequenceBlockSize} values are reserved on the database and then handed out from memory,
+ * so only one allocation per block touches the database.
+ */
+@Service
+@RequiredArgsConstructor
+@PropertySource({"classpath:config/library.properties"})
+public class SequenceServiceImpl implements SequenceService {
+    private static final int MAX_RESERVE_ATTEMPTS = 3;
+
+    private final YearSequenceRepository yearSequenceRepository;
+    private final ConcurrentMap<String, Block> blocks = new ConcurrentHashMap<>();
+
+    @Value("${sequenceBlockSize}")
+    private int sequenceBlockSize;
+
+    @Override
+    public int nextValue(String sequenceName, int year, LongSupplier seed) {
+        final Block block = blocks.computeIfAbsent(sequenceName, k -> new Block());
+        synchronized (block) {
+            if (block.year != year || block.next > block.last) {
+                block.next = reserveBlock(sequenceName, year, sequenceBlockSize, seed);
+                block.last = block.next + sequenceBlockSize - 1;
+                block.year = year;
+            }
+            return Math.toIntExact(block.next++);
+        }
+    }
+
+    /**
+     * Ranges that fit in what is left of the current block are handed out from memory; larger ones get a block
+     * of their own, reserved with a single allocation, and the current block is kept for later calls.
+     */
+    @Override
+    public int nextValues(String sequenceName, int year, int count, LongSupplier seed) {
+        if (count < 1)
+            throw new IllegalArgumentException("Count must be positive");
+        final Block block = blocks.computeIfAbsent(sequenceName, k -> new Block());
+        synchronized (block) {
+            if (block.year == year && block.last - block.next + 1 >= count) {
+                final long first = block.next;
+                block.next += count;
+                return Math.toIntExact(first);
+            }
+            if (count <= sequenceBlockSize) {
+                block.next = reserveBlock(sequenceName, year, sequenceBlockSize, seed);
+                block.last = block.next + sequenceBlockSize - 1;
+                block.year = year;
+                final long first = block.next;
+                block.next += count;
+                return Math.toIntExact(first);
+            }
+            return Math.toIntExact(reserveBlock(sequenceName, year, count, seed));
+        }
+    }
+
+    private long reserveBlock(String sequenceName, int year, int blockSize, LongSupplier seed) {
+        DataIntegrityViolationException lastFailure = null;
+        for (int i = 0; i < MAX_RESERVE_ATTEMPTS; i++) {
+            try {
+                return yearSequenceRepository.reserveBlock(sequenceName, year, blockSize, seed);
+            } catch (DataIntegrityViolationException e) {
+                // another instance created the same counter concurrently, it exists now
+                lastFailure = e;
+            }
+        }
+        throw lastFailure;
+    }
+
+    /**
+     * Values still available to this instance: from {@code next} up to {@code last}, inclusive.
+     */
+    private static final class Block {
+        private int year;
+        private long next = 1;
+        private long last = 0;
+    }
+}
@@ -26,6 +26,7 @@ import jakarta.validation.Valid;
 import lombok.RequiredArgsConstructor;
 import org.springframework.web.bind.annotation.*;
 import pt.psoft.g1.psoftg1.shared.api.ListResponse;
+import pt.psoft.g1.psoftg1.shared.services.Page;
 import pt.psoft.g1.psoftg1.shared.services.SearchRequest;
 import pt.psoft.g1.psoftg1.usermanagement.model.Role;
 import pt.psoft.g1.psoftg1.usermanagement.model.User;
@@ -76,7 +77,9 @@ public class UserAdminApi {
 
 	@PostMapping("search")
 	public ListResponse<UserView> search(@RequestBody final SearchRequest<SearchUsersQuery> request) {
-		final List<User> searchUsers = userService.searchUsers(request.getPage(), request.getQuery());
-		return new ListResponse<>(userViewMapper.toUserView(searchUsers));
+		final var page = request.getPage() != null ? request.getPage() : new Page();
+		final var query = request.getQuery() != null ? request.getQuery() : new SearchUsersQuery();
+		final List<User> searchUsers = userService.searchUsers(page, query);
+		return new ListResponse<>(userViewMapper.toUserView(searchUsers), page.nextCursor(searchUsers, query::cursorOf));
 	}
 }
@@ -20,6 +20,8 @@
  */
 package pt.psoft.g1.psoftg1.usermanagement.infrastructure.repositories.impl;
 
+import java.time.LocalDateTime;
+import java.time.format.DateTimeParseException;
 import java.util.ArrayList;
 import java.util.List;
 import java.util.Optional;
@@ -37,6 +39,9 @@ import org.springframework.stereotype.Repository;
 import org.springframework.util.StringUtils;
 
 import pt.psoft.g1.psoftg1.exceptions.NotFoundException;
+import pt.psoft.g1.psoftg1.shared.infrastructure.repositories.impl.Keyset;
+import pt.psoft.g1.psoftg1.shared.services.Cursor;
+import pt.psoft.g1.psoftg1.shared.model.StringUtilsCustom;
 import pt.psoft.g1.psoftg1.usermanagement.model.User;
 import pt.psoft.g1.psoftg1.usermanagement.repositories.UserRepository;
 import pt.psoft.g1.psoftg1.shared.services.Page;
@@ -86,7 +91,7 @@ public interface SpringDataUserRepository extends UserRepository, UserRepoCustom
 	Optional<User> findByUsername(String username);
 
 	@Cacheable
-	List<User> findByNameName(String name);
+	List<User> findByNameSearchKey(String searchKey);
 }
 
 /**
@@ -127,18 +132,34 @@ class UserRepoCustomImpl implements UserRepoCustom {
 			where.add(cb.equal(root.get("username"), query.getUsername()));
 		}
 		if (StringUtils.hasText(query.getFullName())) {
-			where.add(cb.like(root.get("fullName"), "%" + query.getFullName() + "%"));
+			where.add(cb.like(root.get("name").get("searchKey"),
+					"%" + StringUtilsCustom.toSearchKey(query.getFullName()) + "%"));
 		}
 
+		final List<Predicate> restrictions = new ArrayList<>();
 		// search using OR
 		if (!where.isEmpty()) {
-			cq.where(cb.or(where.toArray(new Predicate[0])));
+			restrictions.add(cb.or(where.toArray(new Predicate[0])));
 		}
 
-		cq.orderBy(cb.desc(root.get("createdAt")));
+		// newest first, with the id as tie-breaker
+		final Path<LocalDateTime> createdAt = root.get("createdAt");
+		final Path<Long> id = root.get("id");
+		if (page.getCursor() != null) {
+			final Cursor cursor = Cursor.decode(page.getCursor(), 2);
+			try {
+				restrictions.add(Keyset.after(cb, createdAt, LocalDateTime.parse(cursor.get(0)),
+						id, Long.valueOf(cursor.get(1)), true));
+			} catch (DateTimeParseException | NumberFormatException e) {
+				throw new IllegalArgumentException("Invalid cursor");
+			}
+		}
+		cq.where(restrictions.toArray(new Predicate[0]));
+		cq.orderBy(cb.desc(createdAt), cb.desc(id));
 
 		final TypedQuery<User> q = em.createQuery(cq);
-		q.setFirstResult((page.getNumber() - 1) * page.getLimit());
+		if (page.getCursor() == null)
+			q.setFirstResult((page.getNumber() - 1) * page.getLimit());
 		q.setMaxResults(page.getLimit());
 
 		return q.getResultList();
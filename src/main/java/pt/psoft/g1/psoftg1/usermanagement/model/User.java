@@ -47,7 +47,7 @@ import lombok.Setter;
  *
  */
 @Entity
-@Table(name = "T_USER")
+@Table(name = "T_USER", indexes = @Index(name = "ix_user_search_key", columnList = "SEARCH_KEY"))
 @EntityListeners(AuditingEntityListener.class)
 public class User implements UserDetails {
 
@@ -49,7 +49,7 @@ public interface UserRepository {
 
 	List<User> searchUsers(Page page, SearchUsersQuery query);
 
-	List<User> findByNameName(String name);
-	List<User> findByNameNameContains(String name);
+	List<User> findByNameSearchKey(String searchKey);
+	List<User> findByNameSearchKeyContaining(String searchKey);
 	void delete(User user);
 }
@@ -23,6 +23,8 @@ package pt.psoft.g1.psoftg1.usermanagement.services;
 import lombok.AllArgsConstructor;
 import lombok.Data;
 import lombok.NoArgsConstructor;
+import pt.psoft.g1.psoftg1.shared.services.Cursor;
+import pt.psoft.g1.psoftg1.usermanagement.model.User;
 
 /**
  * Based on https://github.com/Yoh0xFF/java-spring-security-example
@@ -34,4 +36,11 @@ import lombok.NoArgsConstructor;
 public class SearchUsersQuery {
 	private String username;
 	private String fullName;
+
+	/**
+	 * @return the {@link Cursor} of the search results following {@code user}
+	 */
+	public String cursorOf(final User user) {
+		return Cursor.encode(user.getCreatedAt(), user.getId());
+	}
 }
@@ -30,7 +30,9 @@ import org.springframework.security.crypto.password.PasswordEncoder;
 import org.springframework.security.oauth2.jwt.Jwt;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
+import org.springframework.util.StringUtils;
 import pt.psoft.g1.psoftg1.exceptions.ConflictException;
+import pt.psoft.g1.psoftg1.shared.model.StringUtilsCustom;
 import pt.psoft.g1.psoftg1.shared.repositories.ForbiddenNameRepository;
 import pt.psoft.g1.psoftg1.shared.services.Page;
 import pt.psoft.g1.psoftg1.usermanagement.model.Librarian;
@@ -58,9 +60,9 @@ public class UserService implements UserDetailsService {
 	private final PasswordEncoder passwordEncoder;
 
 	public List<User> findByName(String name){
-		return this.userRepo.findByNameName(name);
+		return this.userRepo.findByNameSearchKey(StringUtilsCustom.toSearchKey(name));
 	}
-	public List<User> findByNameLike(String name) { return this.userRepo.findByNameNameContains(name); }
+	public List<User> findByNameLike(String name) { return this.userRepo.findByNameSearchKeyContaining(StringUtilsCustom.toSearchKey(name)); }
 
 	@Transactional
 	public User create(final CreateUserRequest request) {
@@ -138,6 +140,10 @@ public class UserService implements UserDetailsService {
 		if (query == null) {
 			query = new SearchUsersQuery("", "");
 		}
+		// checked here, as the repository would report it as a data access error
+		if (StringUtils.hasText(query.getFullName()) && !StringUtilsCustom.hasSearchKey(query.getFullName())) {
+			throw new IllegalArgumentException("Name must contain at least one letter or digit");
+		}
 		return userRepo.searchUsers(page, query);
 	}
 
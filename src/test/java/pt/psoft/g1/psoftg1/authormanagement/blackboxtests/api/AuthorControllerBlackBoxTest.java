@@ -8,6 +8,7 @@ import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMock
 import org.springframework.boot.test.mock.mockito.MockBean;
 import org.springframework.http.MediaType;
 import org.springframework.test.web.servlet.MockMvc;
+import pt.psoft.g1.psoftg1.shared.api.StreamingExporter;
 import pt.psoft.g1.psoftg1.authormanagement.api.AuthorController;
 import pt.psoft.g1.psoftg1.authormanagement.api.AuthorView;
 import pt.psoft.g1.psoftg1.authormanagement.model.Author;
@@ -54,6 +55,9 @@ public class AuthorControllerBlackBoxTest {
     @MockBean
     private BookViewMapper bookViewMapper;
 
+    @MockBean
+    private StreamingExporter streamingExporter;
+
     @Test
     public void testCreateAuthor_WithValidData_ReturnsCreated() throws Exception {
         var request = new CreateAuthorRequest();
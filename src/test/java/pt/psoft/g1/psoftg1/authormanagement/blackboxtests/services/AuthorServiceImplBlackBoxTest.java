@@ -14,6 +14,11 @@ import pt.psoft.g1.psoftg1.authormanagement.services.CreateAuthorRequest;
 import pt.psoft.g1.psoftg1.authormanagement.services.FactoryAuthor;
 import pt.psoft.g1.psoftg1.bookmanagement.model.Book;
 import pt.psoft.g1.psoftg1.bookmanagement.repositories.BookRepository;
+import pt.psoft.g1.psoftg1.bookmanagement.services.BookAutocompleteIndex;
+import pt.psoft.g1.psoftg1.bookmanagement.services.BookCache;
+import pt.psoft.g1.psoftg1.bookmanagement.services.BookSearchIndex;
+import pt.psoft.g1.psoftg1.lendingmanagement.services.LeaderboardEntryDTO;
+import pt.psoft.g1.psoftg1.lendingmanagement.services.LendingLeaderboards;
 import pt.psoft.g1.psoftg1.shared.repositories.PhotoRepository;
 import pt.psoft.g1.psoftg1.authormanagement.services.AuthorMapper;
 
@@ -23,8 +28,6 @@ import java.util.Optional;
 import static org.junit.jupiter.api.Assertions.*;
 import static org.mockito.ArgumentMatchers.any;
 import static org.mockito.Mockito.*;
-import org.springframework.data.domain.PageImpl;
-import org.springframework.data.domain.Pageable;
 
 @ExtendWith(MockitoExtension.class)
 public class AuthorServiceImplBlackBoxTest {
@@ -44,6 +47,18 @@ public class AuthorServiceImplBlackBoxTest {
     @Mock
     private FactoryAuthor factoryAuthor;
 
+    @Mock
+    private BookAutocompleteIndex bookAutocompleteIndex;
+
+    @Mock
+    private LendingLeaderboards lendingLeaderboards;
+
+    @Mock
+    private BookCache bookCache;
+
+    @Mock
+    private BookSearchIndex bookSearchIndex;
+
     @InjectMocks
     private AuthorServiceImpl authorService;
 
@@ -82,13 +97,19 @@ public class AuthorServiceImplBlackBoxTest {
     @Test
     void testFindByName_delegatesToRepository() {
         Author a1 = new Author("A11","Alpha","Bio", null);
-        when(authorRepository.searchByNameNameStartsWith("Alp")).thenReturn(List.of(a1));
+        when(authorRepository.searchByNameSearchKeyStartsWith("alp")).thenReturn(List.of(a1));
 
         List<Author> res = authorService.findByName("Alp");
         assertEquals(1, res.size());
         assertEquals("A11", res.get(0).getAuthorNumber());
     }
 
+    @Test
+    void testFindByName_withoutLettersOrDigits_isRejected() {
+        assertThrows(IllegalArgumentException.class, () -> authorService.findByName("%_"));
+        verify(authorRepository, never()).searchByNameSearchKeyStartsWith(any());
+    }
+
     @Test
     void testPartialUpdate_appliesPatchAndSaves() {
         Author existing = new Author("A20","Old","OldBio", null);
@@ -107,14 +128,16 @@ public class AuthorServiceImplBlackBoxTest {
 
     @Test
     void testFindTopAuthorByLendings_returnsList() {
-        AuthorLendingView v1 = new AuthorLendingView();
-        // AuthorLendingView has fields; we only need to return it in the page
-        PageImpl<AuthorLendingView> page = new PageImpl<>(List.of(v1));
-        when(authorRepository.findTopAuthorByLendings(any(Pageable.class))).thenReturn(page);
+        Author author = new Author("A40", "Top Author", "bio", null);
+        when(lendingLeaderboards.top(LendingLeaderboards.Board.AUTHORS, LendingLeaderboards.Window.ALL_TIME, 5))
+                .thenReturn(List.of(new LeaderboardEntryDTO("A40", 7)));
+        when(authorRepository.findByAuthorNumber("A40")).thenReturn(Optional.of(author));
 
         List<AuthorLendingView> result = authorService.findTopAuthorByLendings();
         assertNotNull(result);
         assertEquals(1, result.size());
+        assertEquals("Top Author", result.get(0).getAuthorName());
+        assertEquals(7L, result.get(0).getLendingCount());
     }
 
     @Test
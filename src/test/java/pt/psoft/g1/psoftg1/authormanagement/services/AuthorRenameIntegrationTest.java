@@ -0,0 +1,70 @@
+package pt.psoft.g1.psoftg1.authormanagement.services;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import pt.psoft.g1.psoftg1.authormanagement.model.Author;
+import pt.psoft.g1.psoftg1.authormanagement.repositories.AuthorRepository;
+import pt.psoft.g1.psoftg1.bookmanagement.model.Book;
+import pt.psoft.g1.psoftg1.bookmanagement.repositories.BookRepository;
+import pt.psoft.g1.psoftg1.bookmanagement.services.BookSearchIndex;
+import pt.psoft.g1.psoftg1.genremanagement.model.Genre;
+import pt.psoft.g1.psoftg1.genremanagement.repositories.GenreRepository;
+
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+// not transactional, so the search index is updated when the rename commits
+@SpringBootTest
+class AuthorRenameIntegrationTest {
+    private static final String ISBN = "9789725680032";
+
+    @Autowired
+    private AuthorService authorService;
+    @Autowired
+    private AuthorRepository authorRepository;
+    @Autowired
+    private BookRepository bookRepository;
+    @Autowired
+    private GenreRepository genreRepository;
+    @Autowired
+    private BookSearchIndex bookSearchIndex;
+
+    private Genre genre;
+    private Author renamed;
+    private Author coauthor;
+    private Book book;
+
+    @BeforeEach
+    void setUp() {
+        genre = genreRepository.save(new Genre("Rename Genre"));
+        renamed = authorRepository.save(new Author("RN1", "Ulrika Quist", "Bio", null));
+        coauthor = authorRepository.save(new Author("RN2", "Bertil Zander", "Bio", null));
+        book = bookRepository.save(new Book("pk-" + ISBN, ISBN, "Shared Pages", null, genre,
+                List.of(renamed, coauthor), null));
+        bookSearchIndex.index(book);
+    }
+
+    @AfterEach
+    void tearDown() {
+        bookRepository.delete(book);
+        authorRepository.delete(authorRepository.findByAuthorNumber("RN1").orElseThrow());
+        authorRepository.delete(coauthor);
+        genreRepository.delete(genre);
+    }
+
+    @Test
+    void partialUpdate_renamingKeepsTheOtherAuthorsOfItsBooksSearchable() {
+        final UpdateAuthorRequest update = new UpdateAuthorRequest();
+        update.setName("Ulrika Marlow");
+
+        authorService.partialUpdate("RN1", update, renamed.getVersion());
+
+        assertThat(bookSearchIndex.search("Marlow", 10)).contains(ISBN);
+        assertThat(bookSearchIndex.search("Zander", 10)).contains(ISBN);
+        assertThat(bookSearchIndex.search("Quist", 10)).doesNotContain(ISBN);
+    }
+}
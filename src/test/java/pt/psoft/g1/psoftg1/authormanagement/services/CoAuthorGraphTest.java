@@ -0,0 +1,82 @@
+package pt.psoft.g1.psoftg1.authormanagement.services;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.transaction.PlatformTransactionManager;
+import pt.psoft.g1.psoftg1.authormanagement.model.Author;
+import pt.psoft.g1.psoftg1.bookmanagement.model.Book;
+import pt.psoft.g1.psoftg1.bookmanagement.repositories.BookRepository;
+import pt.psoft.g1.psoftg1.bookmanagement.services.BookAuthorDTO;
+import pt.psoft.g1.psoftg1.genremanagement.model.Genre;
+
+import java.util.List;
+import java.util.Optional;
+import java.util.stream.Stream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.when;
+
+@ExtendWith(MockitoExtension.class)
+class CoAuthorGraphTest {
+    @Mock
+    private BookRepository bookRepository;
+    @Mock
+    private PlatformTransactionManager transactionManager;
+
+    private CoAuthorGraph graph;
+
+    @BeforeEach
+    void setUp() {
+        graph = new CoAuthorGraph(bookRepository, transactionManager);
+        // A1-A2 and A2-A3 wrote a book together, A1, A4 and A5 another, A3-A5 a fourth, and A6 wrote alone
+        when(bookRepository.streamAllBookAuthors()).thenAnswer(invocation -> Stream.of(
+                new BookAuthorDTO("1", "A1"), new BookAuthorDTO("1", "A2"),
+                new BookAuthorDTO("2", "A2"), new BookAuthorDTO("2", "A3"),
+                new BookAuthorDTO("3", "A1"), new BookAuthorDTO("3", "A4"), new BookAuthorDTO("3", "A5"),
+                new BookAuthorDTO("9789722328296", "A3"), new BookAuthorDTO("9789722328296", "A5"),
+                new BookAuthorDTO("5", "A2"), new BookAuthorDTO("5", "A1"),
+                new BookAuthorDTO("6", "A6")));
+        graph.load();
+    }
+
+    private Book book(String isbn, String... authorNumbers) {
+        final List<Author> authors = Stream.of(authorNumbers)
+                .map(number -> new Author(number, "Author " + number, "Bio", null))
+                .toList();
+        return new Book("pk-" + isbn, isbn, "Title", null, new Genre("Drama"), authors, null);
+    }
+
+    @Test
+    void coAuthors_listsEveryCoAuthorOnce() {
+        assertThat(graph.coAuthors("A1")).containsExactly("A2", "A4", "A5");
+        assertThat(graph.coAuthors("A6")).isEmpty();
+        assertThat(graph.coAuthors("A9")).isEmpty();
+    }
+
+    @Test
+    void shortestPath_findsAShortestChainOfCoAuthors() {
+        assertThat(graph.shortestPath("A1", "A3")).hasValueSatisfying(path -> assertThat(path).hasSize(3)
+                .startsWith("A1").endsWith("A3"));
+        assertThat(graph.shortestPath("A4", "A3")).contains(List.of("A4", "A5", "A3"));
+        assertThat(graph.shortestPath("A2", "A2")).contains(List.of("A2"));
+    }
+
+    @Test
+    void shortestPath_isEmptyWhenNoChainJoinsTheAuthors() {
+        assertThat(graph.shortestPath("A1", "A6")).isEqualTo(Optional.empty());
+        assertThat(graph.shortestPath("A1", "A9")).isEqualTo(Optional.empty());
+    }
+
+    @Test
+    void index_replacesTheAuthorsOfAChangedBook() {
+        graph.index(book("9782826012092", "A6", "A7"));
+        graph.index(book("9789722328296", "A3", "A4"));
+
+        assertThat(graph.coAuthors("A6")).containsExactly("A7");
+        assertThat(graph.coAuthors("A5")).containsExactly("A1", "A4");
+        assertThat(graph.shortestPath("A4", "A3")).contains(List.of("A4", "A3"));
+    }
+}
@@ -9,6 +9,7 @@ import org.springframework.boot.test.mock.mockito.MockBean;
 import org.springframework.http.MediaType;
 import org.springframework.security.test.context.support.WithMockUser;
 import org.springframework.test.web.servlet.MockMvc;
+import pt.psoft.g1.psoftg1.shared.api.StreamingExporter;
 import pt.psoft.g1.psoftg1.authormanagement.api.AuthorController;
 import pt.psoft.g1.psoftg1.authormanagement.api.AuthorView;
 import pt.psoft.g1.psoftg1.authormanagement.api.AuthorViewMapper;
@@ -42,6 +43,7 @@ class AuthorControllerCreateWhiteBoxTest {
     @MockBean private ConcurrencyService concurrencyService;
     @MockBean private FileStorageService fileStorageService;
     @MockBean private BookViewMapper bookViewMapper;
+    @MockBean private StreamingExporter streamingExporter;
 
     @Test
     void create_shouldOverrideClientPhotoUri_callStorage_andService_andReturn201() throws Exception {
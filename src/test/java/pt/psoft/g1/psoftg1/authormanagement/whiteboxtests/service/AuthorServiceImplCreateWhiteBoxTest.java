@@ -14,6 +14,7 @@ import pt.psoft.g1.psoftg1.authormanagement.services.AuthorServiceImpl;
 import pt.psoft.g1.psoftg1.authormanagement.services.CreateAuthorRequest;
 import pt.psoft.g1.psoftg1.authormanagement.services.FactoryAuthor;
 import pt.psoft.g1.psoftg1.bookmanagement.repositories.BookRepository;
+import pt.psoft.g1.psoftg1.bookmanagement.services.BookAutocompleteIndex;
 import pt.psoft.g1.psoftg1.shared.repositories.PhotoRepository;
 
 import static org.assertj.core.api.Assertions.assertThat;
@@ -33,6 +34,9 @@ class AuthorServiceImplCreateWhiteBoxTest {
     @Mock
     private FactoryAuthor factoryAuthor;
 
+    @Mock
+    private BookAutocompleteIndex bookAutocompleteIndex;
+
     @Mock
     private PhotoRepository photoRepository;
 
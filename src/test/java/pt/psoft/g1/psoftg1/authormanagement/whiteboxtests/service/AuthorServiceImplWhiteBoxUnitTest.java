@@ -14,7 +14,14 @@ import pt.psoft.g1.psoftg1.authormanagement.services.UpdateAuthorRequest;
 import pt.psoft.g1.psoftg1.authormanagement.services.FactoryAuthor;
 import pt.psoft.g1.psoftg1.authormanagement.services.AuthorMapper;
 import pt.psoft.g1.psoftg1.authormanagement.repositories.AuthorRepository;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.transaction.PlatformTransactionManager;
+import pt.psoft.g1.psoftg1.bookmanagement.model.Book;
 import pt.psoft.g1.psoftg1.bookmanagement.repositories.BookRepository;
+import pt.psoft.g1.psoftg1.bookmanagement.services.BookAutocompleteIndex;
+import pt.psoft.g1.psoftg1.bookmanagement.services.BookCache;
+import pt.psoft.g1.psoftg1.bookmanagement.services.BookSearchIndex;
+import pt.psoft.g1.psoftg1.genremanagement.model.Genre;
 import pt.psoft.g1.psoftg1.shared.repositories.PhotoRepository;
 
 import java.util.List;
@@ -42,6 +49,12 @@ class AuthorServiceImplWhiteBoxUnitTest {
     @Mock
     private FactoryAuthor factoryAuthor;
 
+    @Mock
+    private BookAutocompleteIndex bookAutocompleteIndex;
+
+    @Mock
+    private BookSearchIndex bookSearchIndex;
+
     @InjectMocks
     private AuthorServiceImpl authorService;
 
@@ -77,7 +90,7 @@ class AuthorServiceImplWhiteBoxUnitTest {
     @Test
     void findByName_delegatesToRepository() {
         Author a = new Author("2", "Carol", "c", null);
-        when(authorRepository.searchByNameNameStartsWith("Ca")).thenReturn(List.of(a));
+        when(authorRepository.searchByNameSearchKeyStartsWith("ca")).thenReturn(List.of(a));
 
         List<Author> res = authorService.findByName("Ca");
 
@@ -106,6 +119,28 @@ class AuthorServiceImplWhiteBoxUnitTest {
         assertThrows(StaleObjectStateException.class, () -> authorService.partialUpdate(id, update, 999L));
     }
 
+    @Test
+    void partialUpdate_renamingEvictsAndReindexesTheBooksOfTheAuthor() {
+        String id = "6";
+        String isbn = "9782826012092";
+        Author existing = new Author(id, "Old Name", "bio", null);
+        Book book = new Book("pk-1", isbn, "Title", "desc", new Genre("Drama"), List.of(existing), null);
+        BookCache bookCache = new BookCache(bookRepository, mock(PlatformTransactionManager.class), 100, 1 << 20, 300);
+        ReflectionTestUtils.setField(authorService, "bookCache", bookCache);
+        when(bookRepository.findByIsbn(isbn)).thenReturn(Optional.of(book));
+        when(bookRepository.findBooksByAuthorNumber(id)).thenReturn(List.of(book));
+        when(authorRepository.findByAuthorNumber(id)).thenReturn(Optional.of(existing));
+        when(authorRepository.save(any(Author.class))).thenAnswer(inv -> inv.getArgument(0));
+        assertEquals(List.of("Old Name"), bookCache.get(isbn).orElseThrow().getAuthorNames());
+
+        UpdateAuthorRequest update = new UpdateAuthorRequest();
+        update.setName("New Name");
+        authorService.partialUpdate(id, update, 0L);
+
+        assertEquals(List.of("New Name"), bookCache.get(isbn).orElseThrow().getAuthorNames());
+        verify(bookSearchIndex).index(book);
+    }
+
     @Test
     void removeAuthorPhoto_deletesPhotoFileAndSaves() {
         String id = "5";
@@ -53,13 +53,45 @@ class IsbnTest {
     }
 
     @Test
-    void ensureIsbn10IsSet() {
+    void ensureIsbn10IsSetAsItsIsbn13() {
         final var isbn = new Isbn("8175257660");
-        assertEquals("8175257660", isbn.toString());
+        assertEquals("9788175257665", isbn.toString());
+        assertEquals(new Isbn("9788175257665"), isbn);
+    }
+
+    @Test
+    void ensureHyphensAndSpacesAreStripped() {
+        assertEquals("9782826012092", new Isbn("978-2-8260-1209-2").toString());
+        assertEquals("9782826012092", new Isbn(" 978 2826012092").toString());
+        assertEquals("9780306406157", new Isbn("0-306-40615-2").toString());
+    }
+
+    @Test
+    void ensureIsbn10CheckDigitMayBeX() {
+        assertEquals("9780804429573", new Isbn("080442957X").toString());
+        assertEquals("9780804429573", new Isbn("0-8044-2957-x").toString());
+        assertThrows(IllegalArgumentException.class, () -> new Isbn("08044295X7"));
+        assertThrows(IllegalArgumentException.class, () -> new Isbn("080442957X123"));
+    }
+
+    @Test
+    void ensureOnlyTenOrThirteenDigitsAreAccepted() {
+        assertEquals(-1, Isbn.toIsbn13("97828260120921"));
+        assertEquals(-1, Isbn.toIsbn13("978282601209"));
+        assertEquals(-1, Isbn.toIsbn13("978282601209A"));
+        assertEquals(9782826012092L, Isbn.toIsbn13("9782826012092"));
+        assertNull(Isbn.canonical("123"));
+        assertEquals("123", Isbn.canonicalOrSelf("123"));
+    }
+
+    @Test
+    void ensureCanonicalIsbn13IsNotCopied() {
+        final String isbn = "9782826012092";
+        assertSame(isbn, Isbn.canonical(isbn));
     }
 
     @Test
     void ensureChecksum10IsCorrect() {
         assertThrows(IllegalArgumentException.class, () -> new Isbn("8175257667"));
     }
-}
\ No newline at end of file
+}
\ No newline at end of file
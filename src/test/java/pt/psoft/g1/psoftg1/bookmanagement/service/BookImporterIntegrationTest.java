@@ -0,0 +1,121 @@
+package pt.psoft.g1.psoftg1.bookmanagement.service;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.TestPropertySource;
+import org.springframework.transaction.annotation.Transactional;
+import pt.psoft.g1.psoftg1.authormanagement.model.Author;
+import pt.psoft.g1.psoftg1.authormanagement.repositories.AuthorRepository;
+import pt.psoft.g1.psoftg1.bookmanagement.model.Book;
+import pt.psoft.g1.psoftg1.bookmanagement.repositories.BookRepository;
+import pt.psoft.g1.psoftg1.bookmanagement.services.BookImportErrorDTO;
+import pt.psoft.g1.psoftg1.bookmanagement.services.BookImportReportDTO;
+import pt.psoft.g1.psoftg1.bookmanagement.services.BookImporter;
+import pt.psoft.g1.psoftg1.genremanagement.model.Genre;
+import pt.psoft.g1.psoftg1.genremanagement.repositories.GenreRepository;
+
+import java.io.StringReader;
+
+import static org.assertj.core.api.Assertions.*;
+
+@SpringBootTest
+@Transactional
+@TestPropertySource(properties = {"bookImportChunkSize=2"})
+class BookImporterIntegrationTest {
+
+    private static final String HEADER = "title,authors,genre,description,isbn\n";
+
+    @Autowired
+    private BookImporter bookImporter;
+
+    @Autowired
+    private BookRepository bookRepository;
+
+    @Autowired
+    private GenreRepository genreRepository;
+
+    @Autowired
+    private AuthorRepository authorRepository;
+
+    @Test
+    void testImportCsv_CreatesBooksGenresAndAuthorsAcrossChunks() {
+        // Arrange
+        genreRepository.save(new Genre("Fantasia"));
+        authorRepository.save(new Author("A001", "J R R Tolkien", "Acclaimed author", null));
+        String csv = HEADER +
+                "\"Histórias de Aventureiros e Patifes\",\"J R R Tolkien; Gardner Dozois\",\"Fantasia\",\"Contos, e \"\"patifes\"\"\",\"9789896378905\"\n" +
+                "\"Histórias de Vigaristas e Canalhas\",\"J R R Tolkien; Gardner Dozois\",\"Fantasia\",\"\",\"9789896379636\"\n" +
+                "\"Como se Desenha Uma Casa\",\"Manuel Antonio Pina\",\"Infantil\",\"Como quem,\nvindo de países distantes\",\"9789723716160\"\n";
+
+        // Act
+        BookImportReportDTO report = bookImporter.importCsv(new StringReader(csv));
+
+        // Assert
+        assertThat(report.getRowCount()).isEqualTo(3);
+        assertThat(report.getImportedCount()).isEqualTo(3);
+        assertThat(report.getErrors()).isEmpty();
+
+        Book book = bookRepository.findByIsbn("9789896379636").orElseThrow();
+        assertThat(book.getGenre().toString()).isEqualTo("Fantasia");
+        assertThat(book.getAuthors()).extracting(Author::getName).containsExactly("J R R Tolkien", "Gardner Dozois");
+        assertThat(book.getAuthors().get(0).getAuthorNumber()).isEqualTo("A001");
+        assertThat(authorRepository.searchByNameName("Gardner Dozois")).hasSize(1);
+        assertThat(authorRepository.searchByNameName("gardner  DOZOIS")).hasSize(1);
+        assertThat(genreRepository.findByString("Infantil")).isPresent();
+        assertThat(bookRepository.findByIsbn("9789723716160").orElseThrow().getDescription())
+                .contains("vindo de países distantes");
+    }
+
+    @Test
+    void testImportCsv_ReportsInvalidAndDuplicateRowsAndImportsTheRest() {
+        // Arrange
+        String csv = HEADER +
+                "\"Livro Um\",\"Maria Silva\",\"Romance\",\"\",\"9789725680001\"\n" +
+                "\"Livro Dois\",\"Maria Silva\",\"Romance\",\"\",\"9789725680002\"\n" +
+                "\"Livro Três\",\"\",\"Romance\",\"\",\"9780306406157\"\n" +
+                "\"Livro Quatro\",\"Maria Silva\",\"Romance\",\"\",\"9789725680001\"\n" +
+                "\"Livro Cinco\",\"Ana Costa\",\"Poesia\",\"\"\n";
+
+        // Act
+        BookImportReportDTO report = bookImporter.importCsv(new StringReader(csv));
+
+        // Assert
+        assertThat(report.getRowCount()).isEqualTo(5);
+        assertThat(report.getImportedCount()).isEqualTo(1);
+        assertThat(report.getFailedCount()).isEqualTo(4);
+        assertThat(report.getErrors()).extracting(BookImportErrorDTO::getLine).containsExactly(3, 4, 5, 6);
+        assertThat(report.getErrors().get(0).getMessage()).contains("ISBN");
+        assertThat(report.getErrors().get(1).getMessage()).isEqualTo("Author list is empty");
+        assertThat(report.getErrors().get(2).getMessage()).contains("Duplicate ISBN");
+        assertThat(report.getErrors().get(3).getMessage()).contains("Expected 5 fields");
+        assertThat(bookRepository.findByIsbn("9789725680001")).isPresent();
+        // authors and genres of rows that failed are not created
+        assertThat(authorRepository.searchByNameName("Ana Costa")).isEmpty();
+        assertThat(genreRepository.findByString("Poesia")).isEmpty();
+    }
+
+    @Test
+    void testImportCsv_SkipsBooksAlreadyInTheCatalogue() {
+        // Arrange
+        String csv = HEADER + "\"Livro Um\",\"Maria Silva\",\"Romance\",\"\",\"9789725680001\"\n";
+        bookImporter.importCsv(new StringReader(csv));
+
+        // Act
+        BookImportReportDTO report = bookImporter.importCsv(new StringReader(csv));
+
+        // Assert
+        assertThat(report.getImportedCount()).isZero();
+        assertThat(report.getErrors()).singleElement()
+                .extracting(BookImportErrorDTO::getMessage)
+                .isEqualTo("Book with ISBN 9789725680001 already exists");
+        assertThat(authorRepository.searchByNameName("Maria Silva")).hasSize(1);
+    }
+
+    @Test
+    void testImportCsv_MissingColumn_ThrowsIllegalArgumentException() {
+        assertThatThrownBy(() -> bookImporter.importCsv(new StringReader("title,genre,isbn\n")))
+                .isInstanceOf(IllegalArgumentException.class)
+                .hasMessageContaining("authors");
+    }
+}
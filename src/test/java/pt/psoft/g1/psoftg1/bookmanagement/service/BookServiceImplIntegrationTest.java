@@ -1,5 +1,8 @@
 package pt.psoft.g1.psoftg1.bookmanagement.service;
 
+import jakarta.persistence.EntityManager;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.springframework.beans.factory.annotation.Autowired;
@@ -54,6 +57,9 @@ class BookServiceImplIntegrationTest {
     @Autowired
     private PhotoRepository photoRepository;
 
+    @Autowired
+    private EntityManager entityManager;
+
     private Genre fictionGenre;
     private Genre scienceFictionGenre;
     private Author author1;
@@ -393,6 +399,55 @@ class BookServiceImplIntegrationTest {
     }
     /* */
 
+    @Test
+    void testFindBooks_MatchesAnyCriterionOncePerBook() {
+        // Arrange
+        authorRepository.save(new Author("A003", "Maria Silva", "Poet", null));
+        bookService.create(buildCreateBookRequest("Zebra Crossing", "Description", "Fiction",
+                Arrays.asList("A003"), null), "9789725680001");
+        bookService.create(buildCreateBookRequest("Alpha", "Description", "Science Fiction",
+                Arrays.asList("A003"), null), "9780306406157");
+        bookService.create(buildCreateBookRequest("Beta", "Description", "Fiction",
+                Arrays.asList("A001", "A002"), null), "9781861972712");
+        bookService.create(buildCreateBookRequest("Gamma", "Description", "Fiction",
+                Arrays.asList("A003"), null), "9782826012092");
+
+        // Act
+        SearchBooksQuery query = new SearchBooksQuery("Zebra", "Science", "J");
+        List<Book> books = bookService.findBooks(new Page(1, 10), query);
+
+        // Assert
+        assertThat(books).extracting(Book::getIsbn)
+                .containsExactly("9780306406157", "9781861972712", "9789725680001");
+    }
+
+    @Test
+    void testFindBooks_PagesByNumberAndCursor() {
+        // Arrange
+        bookService.create(buildCreateBookRequest("Book C", "Description", "Fiction",
+                Arrays.asList("A001"), null), "9789725680001");
+        bookService.create(buildCreateBookRequest("Book A", "Description", "Fiction",
+                Arrays.asList("A001"), null), "9780306406157");
+        bookService.create(buildCreateBookRequest("Book B", "Description", "Fiction",
+                Arrays.asList("A001"), null), "9781861972712");
+        SearchBooksQuery query = new SearchBooksQuery("Book", null, null);
+
+        // Act
+        Page firstPage = new Page(1, 2);
+        List<Book> first = bookService.findBooks(firstPage, query);
+        List<Book> second = bookService.findBooks(new Page(2, 2), query);
+        List<Book> afterCursor = bookService.findBooks(
+                new Page(1, 2, firstPage.nextCursor(first, query::cursorOf)), query);
+
+        // Assert
+        assertThat(first).extracting(book -> book.getTitle().getTitle()).containsExactly("Book A", "Book B");
+        assertThat(second).extracting(book -> book.getTitle().getTitle()).containsExactly("Book C");
+        assertThat(afterCursor).extracting(Book::getIsbn).containsExactly("9789725680001");
+        assertThat(bookService.findBooks(new Page(), new SearchBooksQuery())).isEmpty();
+        assertThatThrownBy(() -> bookService.findBooks(new Page(1, 101), query))
+                .isInstanceOf(IllegalArgumentException.class);
+    }
+
 
     @Test
     void testRemoveBookPhoto_NoPhoto_ThrowsNotFoundException() {
@@ -526,4 +581,97 @@ class BookServiceImplIntegrationTest {
         assertThat(topBooks).isNotNull();
         assertThat(topBooks).hasSizeLessThanOrEqualTo(5);
     }
+
+    // saves books titled "Batch nnn", each with a photo, one of ten genres and one of twenty authors with photos
+    private void saveBatchBooks(int count) {
+        final List<Genre> genres = new ArrayList<>();
+        for (int i = 0; i < 10; i++) {
+            genres.add(genreRepository.save(new Genre("Batch Genre " + i)));
+        }
+        final List<Author> authors = new ArrayList<>();
+        for (int i = 0; i < 20; i++) {
+            authors.add(authorRepository.save(new Author("B" + i, "Batch Author " + i, "Bio", "author-" + i + ".png")));
+        }
+        for (int i = 0; i < count; i++) {
+            final String isbn = isbn13("978972569" + String.format("%03d", i));
+            bookRepository.save(new Book("pk-" + isbn, isbn, String.format("Batch %03d", i), null,
+                    genres.get(i % genres.size()), List.of(authors.get(i % authors.size())), "book-" + i + ".png"));
+        }
+        entityManager.flush();
+        entityManager.clear();
+    }
+
+    private static String isbn13(String digits) {
+        int sum = 0;
+        for (int i = 0; i < 12; i++) {
+            sum += (digits.charAt(i) - '0') * (i % 2 == 0 ? 1 : 3);
+        }
+        return digits + (10 - sum % 10) % 10;
+    }
+
+    // the statements run to load the books and everything a book view shows
+    private long countStatements(java.util.function.Supplier<List<Book>> query) {
+        final Statistics statistics = entityManager.getEntityManagerFactory().unwrap(SessionFactory.class)
+                .getStatistics();
+        entityManager.clear();
+        statistics.setStatisticsEnabled(true);
+        statistics.clear();
+        try {
+            for (Book book : query.get()) {
+                assertThat(book.getGenre().getGenre()).startsWith("Batch Genre");
+                assertThat(book.getPhoto().getPhotoFile()).startsWith("book-");
+                for (Author author : book.getAuthors()) {
+                    assertThat(author.getPhoto().getPhotoFile()).startsWith("author-");
+                }
+            }
+            return statistics.getPrepareStatementCount();
+        } finally {
+            statistics.setStatisticsEnabled(false);
+        }
+    }
+
+    @Test
+    void testBookPagesLoadInAFixedNumberOfStatements() {
+        saveBatchBooks(100);
+        final SearchBooksQuery query = new SearchBooksQuery("Batch", null, null);
+
+        final long small = countStatements(() -> bookService.searchBooks(new Page(1, 10), query));
+        final long large = countStatements(() -> bookService.searchBooks(new Page(1, 100), query));
+
+        assertThat(large).isEqualTo(small).isLessThanOrEqualTo(5);
+    }
+
+    @Test
+    void testBookListsFetchGenreAuthorsAndPhotoWithTheBooks() {
+        saveBatchBooks(100);
+
+        assertThat(countStatements(() -> bookService.findByGenre("Batch Genre"))).isLessThanOrEqualTo(2);
+        assertThat(countStatements(() -> bookRepository.findBooksByAuthorNumber("B1"))).isLessThanOrEqualTo(2);
+        assertThat(bookRepository.findBooksByAuthorNumber("B1")).hasSize(5);
+    }
+
+    @Test
+    void testFindIsbnsByGenreMatchesTheExactGenre() {
+        saveBatchBooks(30);
+
+        assertThat(bookRepository.findIsbnsByGenre("Batch Genre 1", List.of(), 10)).hasSize(3);
+        assertThat(bookRepository.findIsbnsByGenre("Batch Genre", List.of(), 10)).isEmpty();
+        final List<String> first = bookRepository.findIsbnsByGenre("Batch Genre 1", List.of(), 1);
+        assertThat(first).hasSize(1);
+        assertThat(bookRepository.findIsbnsByGenre("Batch Genre 1", first, 10)).hasSize(2).doesNotContainAnyElementsOf(first);
+    }
+
+    @Test
+    void testFindBooksByAuthorNumberFetchesAllTheAuthorsOfTheBook() {
+        bookRepository.save(new Book("pk-9789725680025", "9789725680025", "Co-authored", null,
+                fictionGenre, List.of(author1, author2), null));
+        entityManager.flush();
+        entityManager.clear();
+
+        final List<Book> books = bookRepository.findBooksByAuthorNumber("A001");
+
+        assertThat(books).hasSize(1);
+        assertThat(books.get(0).getAuthors()).extracting(Author::getAuthorNumber)
+                .containsExactlyInAnyOrder("A001", "A002");
+    }
 }
\ No newline at end of file
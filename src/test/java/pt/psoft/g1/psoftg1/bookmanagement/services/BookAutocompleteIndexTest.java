@@ -0,0 +1,126 @@
+package pt.psoft.g1.psoftg1.bookmanagement.services;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import pt.psoft.g1.psoftg1.authormanagement.repositories.AuthorRepository;
+import pt.psoft.g1.psoftg1.authormanagement.services.AuthorNameDTO;
+import pt.psoft.g1.psoftg1.bookmanagement.repositories.BookRepository;
+
+import java.util.List;
+import java.util.stream.Stream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.when;
+
+@ExtendWith(MockitoExtension.class)
+class BookAutocompleteIndexTest {
+    @Mock
+    private BookRepository bookRepository;
+    @Mock
+    private AuthorRepository authorRepository;
+
+    @InjectMocks
+    private BookAutocompleteIndex index;
+
+    private List<String> complete(String prefix) {
+        return index.complete(prefix, BookAutocompleteIndex.MAX_COMPLETIONS).stream()
+                .map(CompletionDTO::getText)
+                .toList();
+    }
+
+    @Test
+    void load_countsLendingsOfBooksAndTheirAuthors() {
+        when(bookRepository.streamAllTitles()).thenReturn(Stream.of(
+                new BookTitleDTO("1", "Memorial do Convento", "A1", 3),
+                new BookTitleDTO("2", "Memória de Elefante", "A2", 5),
+                new BookTitleDTO("3", "Mensagem", null, 0)));
+        when(authorRepository.streamAllNames()).thenReturn(Stream.of(
+                new AuthorNameDTO("A1", "José Saramago"),
+                new AuthorNameDTO("A2", "António Lobo Antunes")));
+
+        index.load();
+
+        final List<CompletionDTO> completions = index.complete("me", 10);
+        assertThat(completions).extracting(CompletionDTO::getKey).containsExactly("2", "1", "3");
+        assertThat(index.complete("antonio", 10)).singleElement()
+                .extracting(CompletionDTO::getType, CompletionDTO::getLendingCount)
+                .containsExactly(CompletionDTO.Type.AUTHOR, 5L);
+    }
+
+    @Test
+    void complete_ignoresAccentsCaseAndPunctuation() {
+        index.putTitle("1", "Memória de Elefante", new String[0], 0);
+
+        assertThat(complete("MEMORIA")).containsExactly("Memória de Elefante");
+        assertThat(complete("memoria  de el")).containsExactly("Memória de Elefante");
+        assertThat(complete("memoria-de")).containsExactly("Memória de Elefante");
+        assertThat(complete("memorial")).isEmpty();
+        assertThat(complete("  ")).isEmpty();
+    }
+
+    @Test
+    void complete_findsAuthorsByAnyNameAndTitlesAfterTheArticle() {
+        index.putAuthor("A1", "Eça de Queirós", 0);
+        index.putTitle("1", "Os Maias", new String[]{"A1"}, 0);
+
+        assertThat(complete("queiros")).containsExactly("Eça de Queirós");
+        assertThat(complete("de q")).isEmpty();
+        assertThat(complete("maias")).containsExactly("Os Maias");
+        assertThat(complete("os ma")).containsExactly("Os Maias");
+    }
+
+    @Test
+    void complete_ranksByLendingsThenAlphabetically() {
+        index.putTitle("1", "Contos Exemplares", new String[0], 1);
+        index.putTitle("2", "Contos da Montanha", new String[0], 7);
+        index.putTitle("3", "Contos Africanos", new String[0], 1);
+
+        assertThat(complete("contos")).containsExactly("Contos da Montanha", "Contos Africanos", "Contos Exemplares");
+        assertThat(index.complete("contos", 2)).hasSize(2);
+    }
+
+    @Test
+    void countLending_reranksTheBookAndItsAuthors() {
+        index.putAuthor("A1", "Sophia de Mello Breyner", 0);
+        index.putAuthor("A2", "Sophie Kinsella", 1);
+        index.putTitle("1", "A Menina do Mar", new String[]{"A1"}, 0);
+        index.putTitle("2", "A Menina Que Roubava Livros", new String[0], 1);
+        assertThat(complete("soph")).containsExactly("Sophie Kinsella", "Sophia de Mello Breyner");
+        assertThat(complete("menina")).containsExactly("A Menina Que Roubava Livros", "A Menina do Mar");
+
+        index.countLending("1");
+        index.countLending("1");
+
+        assertThat(complete("soph")).containsExactly("Sophia de Mello Breyner", "Sophie Kinsella");
+        assertThat(complete("menina")).containsExactly("A Menina do Mar", "A Menina Que Roubava Livros");
+        assertThat(index.complete("a menina do", 1).get(0).getLendingCount()).isEqualTo(2);
+    }
+
+    @Test
+    void putTitle_replacesThePreviousTitle() {
+        index.putTitle("1", "Título Provisório", new String[0], 4);
+        index.putTitle("2", "Títulos", new String[0], 0);
+        index.putTitle("1", "A Cidade e as Serras", new String[0], 0);
+
+        assertThat(complete("titulo")).containsExactly("Títulos");
+        assertThat(index.complete("cidade", 10)).singleElement()
+                .extracting(CompletionDTO::getKey, CompletionDTO::getLendingCount)
+                .containsExactly("1", 4L);
+    }
+
+    @Test
+    void complete_keepsTheBestAmongManyCompletions() {
+        for (int i = 0; i < 200; i++) {
+            index.putTitle(String.valueOf(i), "Livro " + i, new String[0], i % 50);
+        }
+
+        final List<CompletionDTO> completions = index.complete("livro", BookAutocompleteIndex.MAX_COMPLETIONS);
+        assertThat(completions).hasSize(BookAutocompleteIndex.MAX_COMPLETIONS);
+        assertThat(completions).allMatch(completion -> completion.getLendingCount() >= 45);
+        assertThat(complete("livro 19")).containsExactly("Livro 199", "Livro 198", "Livro 197", "Livro 196",
+                "Livro 195", "Livro 194", "Livro 193", "Livro 192", "Livro 191", "Livro 190", "Livro 19");
+    }
+}
@@ -0,0 +1,143 @@
+package pt.psoft.g1.psoftg1.bookmanagement.services;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.transaction.PlatformTransactionManager;
+import pt.psoft.g1.psoftg1.authormanagement.model.Author;
+import pt.psoft.g1.psoftg1.bookmanagement.model.Book;
+import pt.psoft.g1.psoftg1.bookmanagement.repositories.BookRepository;
+import pt.psoft.g1.psoftg1.genremanagement.model.Genre;
+
+import java.util.List;
+import java.util.Optional;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class BookCacheTest {
+    private static final String ISBN = "9782826012092";
+
+    @Mock
+    private BookRepository bookRepository;
+    @Mock
+    private PlatformTransactionManager transactionManager;
+
+    private BookCache cache;
+
+    @BeforeEach
+    void setUp() {
+        cache = new BookCache(bookRepository, transactionManager, 100, 1 << 20, 300);
+    }
+
+    private static Book book(String isbn, long version) {
+        final Book book = new Book("pk-" + isbn, isbn, "Os Maias", "Episódios da vida romântica",
+                new Genre("Romance"), List.of(new Author("A1", "Eça de Queirós", "Romancista", null)), null);
+        ReflectionTestUtils.setField(book, "version", version);
+        return book;
+    }
+
+    private static String isbn(int n) {
+        // ISBN-13 checksum of 978000000000n
+        final String digits = String.format("978%09d", n);
+        int sum = 0;
+        for (int i = 0; i < 12; i++) {
+            sum += (digits.charAt(i) - '0') * (i % 2 == 0 ? 1 : 3);
+        }
+        return digits + (10 - sum % 10) % 10;
+    }
+
+    @Test
+    void get_reloadsExpiredBooks() {
+        cache = new BookCache(bookRepository, transactionManager, 100, 1 << 20, 0);
+        when(bookRepository.findByIsbn(ISBN)).thenReturn(Optional.of(book(ISBN, 0)), Optional.of(book(ISBN, 1)));
+
+        cache.get(ISBN);
+
+        assertThat(cache.get(ISBN).orElseThrow().getVersion()).isEqualTo(1);
+        verify(bookRepository, times(2)).findByIsbn(ISBN);
+    }
+
+    @Test
+    void get_loadsOnceThenHits() {
+        when(bookRepository.findByIsbn(ISBN)).thenReturn(Optional.of(book(ISBN, 0)));
+
+        final BookSnapshot first = cache.get(ISBN).orElseThrow();
+        final BookSnapshot second = cache.get(ISBN).orElseThrow();
+
+        assertThat(second).isSameAs(first);
+        assertThat(first.getTitle()).isEqualTo("Os Maias");
+        assertThat(first.getAuthorNames()).containsExactly("Eça de Queirós");
+        verify(bookRepository, times(1)).findByIsbn(ISBN);
+        assertThat(cache.stats().getHitCount()).isEqualTo(1);
+        assertThat(cache.stats().getMissCount()).isEqualTo(1);
+    }
+
+    @Test
+    void get_doesNotCacheMissingBooks() {
+        when(bookRepository.findByIsbn(ISBN)).thenReturn(Optional.empty());
+
+        assertThat(cache.get(ISBN)).isEmpty();
+        assertThat(cache.get(ISBN)).isEmpty();
+
+        verify(bookRepository, times(2)).findByIsbn(ISBN);
+        assertThat(cache.stats().getSize()).isZero();
+    }
+
+    @Test
+    void evict_reloadsAfterANewerVersionIsSaved() {
+        when(bookRepository.findByIsbn(ISBN)).thenReturn(Optional.of(book(ISBN, 0)), Optional.of(book(ISBN, 1)));
+        cache.get(ISBN);
+
+        cache.evict(book(ISBN, 1));
+
+        assertThat(cache.get(ISBN).orElseThrow().getVersion()).isEqualTo(1);
+        verify(bookRepository, times(2)).findByIsbn(ISBN);
+    }
+
+    @Test
+    void evict_keepsTheCachedBookWhenItIsNotOlder() {
+        when(bookRepository.findByIsbn(ISBN)).thenReturn(Optional.of(book(ISBN, 2)));
+        cache.get(ISBN);
+
+        cache.evict(book(ISBN, 1));
+        cache.evict(book(ISBN, 2));
+
+        assertThat(cache.get(ISBN).orElseThrow().getVersion()).isEqualTo(2);
+        verify(bookRepository, times(1)).findByIsbn(ISBN);
+    }
+
+    @Test
+    void get_isBoundedByNumberOfBooks() {
+        when(bookRepository.findByIsbn(anyString())).thenAnswer(call -> Optional.of(book(call.getArgument(0), 0)));
+        cache = new BookCache(bookRepository, transactionManager, 10, 1 << 20, 300);
+
+        for (int i = 0; i < 50; i++) {
+            cache.get(isbn(i));
+        }
+        cache.cleanUp();
+
+        assertThat(cache.stats().getSize()).isLessThanOrEqualTo(10);
+        assertThat(cache.stats().getEvictionCount()).isGreaterThanOrEqualTo(40);
+    }
+
+    @Test
+    void get_isBoundedByEstimatedHeap() {
+        when(bookRepository.findByIsbn(anyString())).thenAnswer(call -> Optional.of(book(call.getArgument(0), 0)));
+        final int weight = BookSnapshot.of(book(ISBN, 0)).weight();
+        cache = new BookCache(bookRepository, transactionManager, 1000, 5L * weight, 300);
+
+        for (int i = 0; i < 50; i++) {
+            cache.get(isbn(i));
+        }
+        cache.cleanUp();
+
+        assertThat(cache.stats().getSize()).isLessThanOrEqualTo(5);
+        assertThat(cache.stats().getWeight()).isLessThanOrEqualTo(5L * weight);
+    }
+}
@@ -0,0 +1,113 @@
+package pt.psoft.g1.psoftg1.bookmanagement.services;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.transaction.PlatformTransactionManager;
+import pt.psoft.g1.psoftg1.bookmanagement.repositories.BookRepository;
+import pt.psoft.g1.psoftg1.lendingmanagement.repositories.LendingRepository;
+import pt.psoft.g1.psoftg1.lendingmanagement.services.ReaderBookDTO;
+
+import java.util.List;
+import java.util.Set;
+import java.util.stream.Stream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.anyCollection;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class BookRecommenderTest {
+    private static final String ISBN = "9782826012092";
+
+    @Mock
+    private BookRepository bookRepository;
+    @Mock
+    private LendingRepository lendingRepository;
+    @Mock
+    private PlatformTransactionManager transactionManager;
+
+    private BookRecommender recommender;
+
+    @BeforeEach
+    void setUp() {
+        recommender = recommender(20);
+        lenient().when(bookRepository.findIsbnsByGenre(anyString(), anyCollection(), anyInt())).thenReturn(List.of());
+    }
+
+    private BookRecommender recommender(int neighbourCount) {
+        final BookRecommender recommender = new BookRecommender(bookRepository, lendingRepository, transactionManager,
+                10, 2, neighbourCount, 100);
+        // books 1 to 3 are Romance and 4 and 5 Fantasy; readers of book 1 also borrowed 2, 3 and 4
+        when(bookRepository.streamAllGenres()).thenAnswer(invocation -> Stream.of(
+                new BookGenreDTO("1", "Romance"), new BookGenreDTO("2", "Romance"), new BookGenreDTO("3", "Romance"),
+                new BookGenreDTO("4", "Fantasy"), new BookGenreDTO("5", "Fantasy")));
+        when(lendingRepository.streamReaderBooks()).thenAnswer(invocation -> Stream.of(
+                new ReaderBookDTO("2024/1", "1"), new ReaderBookDTO("2024/1", "2"),
+                new ReaderBookDTO("2024/2", "1"), new ReaderBookDTO("2024/2", "2"), new ReaderBookDTO("2024/2", "3"),
+                new ReaderBookDTO("2024/3", "1"), new ReaderBookDTO("2024/3", "4"),
+                new ReaderBookDTO("2024/4", "5"), new ReaderBookDTO("2024/5", "5")));
+        recommender.load();
+        return recommender;
+    }
+
+    @Test
+    void suggest_ranksBooksBorrowedWithTheReadersBooksThenFallsBackToInterests() {
+        when(lendingRepository.listBorrowedIsbnsByReaderNumber("2024/1")).thenReturn(List.of("1", "2"));
+
+        // 3 is similar to both borrowed books, 4 only to book 1, and 5 is the most borrowed Fantasy book
+        assertThat(recommender.suggest("2024/1", List.of("Fantasy"))).containsExactly("3", "4", "5");
+    }
+
+    @Test
+    void suggest_breaksTiesByIsbn() {
+        when(lendingRepository.listBorrowedIsbnsByReaderNumber("2024/9")).thenReturn(List.of("1"));
+
+        assertThat(recommender.suggest("2024/9", List.of())).containsExactly("2", "3", "4");
+    }
+
+    @Test
+    void suggest_keepsOnlyTheMostSimilarNeighbours() {
+        final BookRecommender nearest = recommender(1);
+        when(lendingRepository.listBorrowedIsbnsByReaderNumber("2024/9")).thenReturn(List.of("1"));
+
+        assertThat(nearest.suggest("2024/9", List.of())).containsExactly("2");
+    }
+
+    @Test
+    void suggest_withoutHistory_suggestsTheMostBorrowedBooksOfEachInterest() {
+        when(lendingRepository.listBorrowedIsbnsByReaderNumber("2024/9")).thenReturn(List.of());
+
+        assertThat(recommender.suggest("2024/9", List.of("Romance", "Fantasy"))).containsExactly("1", "2", "5", "4");
+        verify(bookRepository, never()).findIsbnsByGenre(anyString(), anyCollection(), anyInt());
+    }
+
+    @Test
+    void suggest_fillsInterestsWithBooksCreatedSinceTheModelWasBuilt() {
+        when(lendingRepository.listBorrowedIsbnsByReaderNumber("2024/9")).thenReturn(List.of("1"));
+        when(bookRepository.findIsbnsByGenre("Drama", Set.of("1", "2", "3", "4"), 2)).thenReturn(List.of(ISBN));
+
+        assertThat(recommender.suggest("2024/9", List.of("Drama"))).containsExactly("2", "3", "4", ISBN);
+    }
+
+    @Test
+    void suggest_isCachedUntilInvalidatedOrRebuilt() {
+        when(lendingRepository.listBorrowedIsbnsByReaderNumber("2024/1")).thenReturn(List.of("1", "2"));
+
+        recommender.suggest("2024/1", List.of());
+        recommender.suggest("2024/1", List.of());
+        verify(lendingRepository, times(1)).listBorrowedIsbnsByReaderNumber("2024/1");
+
+        recommender.invalidate("2024/1");
+        recommender.suggest("2024/1", List.of());
+        verify(lendingRepository, times(2)).listBorrowedIsbnsByReaderNumber("2024/1");
+
+        recommender.rebuild();
+        recommender.suggest("2024/1", List.of());
+        verify(lendingRepository, times(3)).listBorrowedIsbnsByReaderNumber("2024/1");
+    }
+}
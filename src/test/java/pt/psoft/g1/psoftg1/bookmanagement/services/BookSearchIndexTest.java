@@ -0,0 +1,109 @@
+package pt.psoft.g1.psoftg1.bookmanagement.services;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import pt.psoft.g1.psoftg1.bookmanagement.repositories.BookRepository;
+
+import java.util.stream.Stream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.when;
+
+@ExtendWith(MockitoExtension.class)
+class BookSearchIndexTest {
+    @Mock
+    private BookRepository bookRepository;
+
+    @InjectMocks
+    private BookSearchIndex index;
+
+    private static BookSearchDocumentDTO book(String isbn, String title, String genre, String authors, String description) {
+        return new BookSearchDocumentDTO(isbn, title, genre, authors, description);
+    }
+
+    @Test
+    void load_indexesAllBooks() {
+        when(bookRepository.streamAllForSearchIndex()).thenReturn(Stream.of(
+                book("1", "Os Maias", "Romance", "Eça de Queirós", null),
+                book("2", "Memorial do Convento", "Romance", "José Saramago", null)));
+
+        index.load();
+
+        assertThat(index.size()).isEqualTo(2);
+        assertThat(index.search("saramago", 10)).containsExactly("2");
+    }
+
+    @Test
+    void search_ignoresAccentsAndCase() {
+        index.put(book("1", "Memória de Elefante", "Romance", "António Lobo Antunes", "Lisboa, depois da guerra."));
+
+        assertThat(index.search("ANTONIO memoria", 10)).containsExactly("1");
+        assertThat(index.search("elefânte", 10)).containsExactly("1");
+    }
+
+    @Test
+    void search_ranksTitleMatchesFirst() {
+        index.put(book("1", "A Viagem do Elefante", "Romance", "José Saramago", "Um elefante atravessa a Europa."));
+        index.put(book("2", "Ensaio sobre a Cegueira", "Romance", "José Saramago", "Sem viagem nem elefante."));
+        index.put(book("3", "Os Lusíadas", "Poesia", "Luís de Camões", "A viagem de Vasco da Gama."));
+
+        assertThat(index.search("elefante", 10)).containsExactly("1", "2");
+        assertThat(index.search("viagem", 10)).startsWith("1");
+    }
+
+    @Test
+    void search_booksMatchingMoreWordsRankFirst() {
+        index.put(book("1", "Cozinha Portuguesa", "Culinária", "Maria de Lourdes Modesto", null));
+        index.put(book("2", "Cozinha Tradicional Portuguesa", "Culinária", "Maria de Lourdes Modesto", null));
+        index.put(book("3", "Doçaria Tradicional", "Culinária", "Alfredo Saramago", null));
+
+        assertThat(index.search("cozinha tradicional", 10)).containsExactly("2", "1", "3");
+    }
+
+    @Test
+    void search_keepsOnlyTheBestResults() {
+        for (int i = 0; i < 50; i++) {
+            index.put(book(String.format("%02d", i), "Contos " + i, "Contos", "Autor " + i, null));
+        }
+        index.put(book("99", "Contos Contos", "Contos", "Vários", "Contos e mais contos."));
+
+        assertThat(index.search("contos", 5)).hasSize(5).startsWith("99");
+        assertThat(index.search("contos", 5)).containsExactly("99", "00", "01", "02", "03");
+    }
+
+    @Test
+    void search_ignoresStopWordsAndUnknownWords() {
+        index.put(book("1", "O Primo Basílio", "Romance", "Eça de Queirós", null));
+
+        assertThat(index.search("de o a", 10)).isEmpty();
+        assertThat(index.search("", 10)).isEmpty();
+        assertThat(index.search("inexistente", 10)).isEmpty();
+    }
+
+    @Test
+    void put_replacesTheTextOfAnIndexedBook() {
+        index.put(book("1", "Título Provisório", "Romance", "Autor", null));
+        index.put(book("1", "A Cidade e as Serras", "Romance", "Eça de Queirós", null));
+
+        assertThat(index.size()).isEqualTo(1);
+        assertThat(index.search("provisorio", 10)).isEmpty();
+        assertThat(index.search("serras", 10)).containsExactly("1");
+    }
+
+    @Test
+    void put_manyUpdatesKeepTheIndexCompact() {
+        index.put(book("2", "Mensagem", "Poesia", "Fernando Pessoa", null));
+        for (int i = 0; i < 100; i++) {
+            index.put(book("1", "Livro do Desassossego " + i, "Prosa", "Fernando Pessoa", null));
+        }
+
+        assertThat(index.size()).isEqualTo(2);
+        assertThat(index.search("desassossego", 10)).containsExactly("1");
+        assertThat(index.search("99", 10)).containsExactly("1");
+        assertThat(index.search("98", 10)).isEmpty();
+        assertThat(index.search("pessoa", 10)).containsExactlyInAnyOrder("1", "2");
+    }
+}
@@ -2,23 +2,21 @@ package pt.psoft.g1.psoftg1.genremanagement.infrastructure.repositories.impl;
 
 import jakarta.persistence.EntityManager;
 import jakarta.persistence.TypedQuery;
-import jakarta.persistence.criteria.*;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
 import org.mockito.Mock;
 import org.mockito.junit.jupiter.MockitoExtension;
+import pt.psoft.g1.psoftg1.genremanagement.model.GenreLendingStats;
 import pt.psoft.g1.psoftg1.genremanagement.services.GenreLendingsDTO;
 import pt.psoft.g1.psoftg1.genremanagement.services.GenreLendingsPerMonthDTO;
-import pt.psoft.g1.psoftg1.lendingmanagement.model.Lending;
 import pt.psoft.g1.psoftg1.shared.services.Page;
 
-import jakarta.persistence.Tuple;
 import java.time.LocalDate;
-import java.util.Arrays;
 import java.util.List;
 
 import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
 import static org.mockito.Mockito.*;
 
 @ExtendWith(MockitoExtension.class)
@@ -28,28 +26,7 @@ class SpringDataGenreRepositoryTest {
     private EntityManager entityManager;
 
     @Mock
-    private CriteriaBuilder criteriaBuilder;
-
-    @Mock
-    private CriteriaQuery<Tuple> tupleQuery;
-
-    @Mock
-    private CriteriaQuery<GenreLendingsDTO> dtoQuery;
-
-    @Mock
-    private Root<Lending> lendingRoot;
-
-    @Mock
-    private Join<Object, Object> bookJoin;
-
-    @Mock
-    private Join<Object, Object> genreJoin;
-
-    @Mock
-    private TypedQuery<Tuple> typedTupleQuery;
-
-    @Mock
-    private TypedQuery<GenreLendingsDTO> typedDtoQuery;
+    private TypedQuery<GenreLendingStats> statsQuery;
 
     private GenreRepoCustomImpl genreRepoCustom;
 
@@ -58,24 +35,22 @@ class SpringDataGenreRepositoryTest {
         genreRepoCustom = new GenreRepoCustomImpl(entityManager);
     }
 
+    private void givenStats(GenreLendingStats... stats) {
+        when(entityManager.createQuery(anyString(), eq(GenreLendingStats.class))).thenReturn(statsQuery);
+        when(statsQuery.setParameter(anyString(), any())).thenReturn(statsQuery);
+        when(statsQuery.getResultList()).thenReturn(List.of(stats));
+    }
+
+    private static GenreLendingStats stats(String genre, int year, int month, long lendings, long returned, long days) {
+        return new GenreLendingStats(new GenreLendingStats.Key(genre, year, month), lendings, returned, days);
+    }
+
     @Test
     void getAverageLendingsInMonth() {
         // Given
         LocalDate month = LocalDate.of(2025, 10, 1);
         Page page = new Page(1, 10);
-
-        when(entityManager.getCriteriaBuilder()).thenReturn(criteriaBuilder);
-        when(criteriaBuilder.createQuery(GenreLendingsDTO.class)).thenReturn(dtoQuery);
-        when(dtoQuery.from(Lending.class)).thenReturn(lendingRoot);
-        when(lendingRoot.join("book", JoinType.LEFT)).thenReturn(bookJoin);
-        when(bookJoin.join("genre", JoinType.LEFT)).thenReturn(genreJoin);
-        when(entityManager.createQuery(dtoQuery)).thenReturn(typedDtoQuery);
-
-        List<GenreLendingsDTO> expectedResults = Arrays.asList(
-            new GenreLendingsDTO("Drama", 0.2),
-            new GenreLendingsDTO("Fiction", 0.1)
-        );
-        when(typedDtoQuery.getResultList()).thenReturn(expectedResults);
+        givenStats(stats("Drama", 2025, 10, 6, 0, 0), stats("Fiction", 2025, 10, 3, 0, 0));
 
         // When
         List<GenreLendingsDTO> result = genreRepoCustom.getAverageLendingsInMonth(month, page);
@@ -85,63 +60,40 @@ class SpringDataGenreRepositoryTest {
         assertEquals(2, result.size());
         assertEquals("Drama", result.get(0).getGenre());
         assertEquals(0.2, result.get(0).getValue().doubleValue());
-        verify(entityManager).createQuery(dtoQuery);
-        verify(typedDtoQuery).setFirstResult(0);
-        verify(typedDtoQuery).setMaxResults(10);
+        assertEquals(0.1, result.get(1).getValue().doubleValue());
+        verify(statsQuery).setParameter("year", 2025);
+        verify(statsQuery).setParameter("month", 10);
+        verify(statsQuery).setFirstResult(0);
+        verify(statsQuery).setMaxResults(10);
     }
 
     @Test
     void getLendingsPerMonthLastYearByGenre() {
         // Given
-        when(entityManager.getCriteriaBuilder()).thenReturn(criteriaBuilder);
-        when(criteriaBuilder.createTupleQuery()).thenReturn(tupleQuery);
-        when(tupleQuery.from(Lending.class)).thenReturn(lendingRoot);
-        when(lendingRoot.join("book")).thenReturn(bookJoin);
-        when(bookJoin.join("genre")).thenReturn(genreJoin);
-        when(entityManager.createQuery(tupleQuery)).thenReturn(typedTupleQuery);
-
-        Tuple mockTuple = mock(Tuple.class);
-        when(mockTuple.get(0, String.class)).thenReturn("Drama");
-        when(mockTuple.get(1, Integer.class)).thenReturn(2025);
-        when(mockTuple.get(2, Integer.class)).thenReturn(10);
-        when(mockTuple.get(3, Long.class)).thenReturn(5L);
-
-        when(typedTupleQuery.getResultList()).thenReturn(List.of(mockTuple));
+        givenStats(stats("Drama", 2025, 10, 5, 2, 14), stats("Fiction", 2025, 10, 1, 0, 0),
+                stats("Drama", 2025, 11, 2, 0, 0));
 
         // When
         List<GenreLendingsPerMonthDTO> result = genreRepoCustom.getLendingsPerMonthLastYearByGenre();
 
         // Then
         assertNotNull(result);
-        assertEquals(1, result.size());
+        assertEquals(2, result.size());
         GenreLendingsPerMonthDTO dto = result.get(0);
         assertEquals(2025, dto.getYear());
         assertEquals(10, dto.getMonth());
-        assertEquals(1, dto.getValues().size());
+        assertEquals(2, dto.getValues().size());
         assertEquals("Drama", dto.getValues().get(0).getGenre());
         assertEquals(5.0, dto.getValues().get(0).getValue().doubleValue());
+        assertEquals(11, result.get(1).getMonth());
     }
 
     @Test
     void getLendingsAverageDurationPerMonth() {
         // Given
-        LocalDate startDate = LocalDate.of(2025, 1, 1);
+        LocalDate startDate = LocalDate.of(2025, 1, 15);
         LocalDate endDate = LocalDate.of(2025, 12, 31);
-
-        when(entityManager.getCriteriaBuilder()).thenReturn(criteriaBuilder);
-        when(criteriaBuilder.createTupleQuery()).thenReturn(tupleQuery);
-        when(tupleQuery.from(Lending.class)).thenReturn(lendingRoot);
-        when(lendingRoot.join("book")).thenReturn(bookJoin);
-        when(bookJoin.join("genre")).thenReturn(genreJoin);
-        when(entityManager.createQuery(tupleQuery)).thenReturn(typedTupleQuery);
-
-        Tuple mockTuple = mock(Tuple.class);
-        when(mockTuple.get(0, String.class)).thenReturn("Drama");
-        when(mockTuple.get(1, Integer.class)).thenReturn(2025);
-        when(mockTuple.get(2, Integer.class)).thenReturn(10);
-        when(mockTuple.get(3, Double.class)).thenReturn(7.5);
-
-        when(typedTupleQuery.getResultList()).thenReturn(List.of(mockTuple));
+        givenStats(stats("Drama", 2025, 10, 5, 2, 15));
 
         // When
         List<GenreLendingsPerMonthDTO> result = genreRepoCustom.getLendingsAverageDurationPerMonth(startDate, endDate);
@@ -155,5 +107,7 @@ class SpringDataGenreRepositoryTest {
         assertEquals(1, dto.getValues().size());
         assertEquals("Drama", dto.getValues().get(0).getGenre());
         assertEquals(7.5, dto.getValues().get(0).getValue().doubleValue());
+        verify(statsQuery).setParameter("firstMonth", 1);
+        verify(statsQuery).setParameter("lastMonth", 12);
     }
-}
\ No newline at end of file
+}
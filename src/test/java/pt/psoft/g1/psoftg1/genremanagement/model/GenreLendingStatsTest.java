@@ -0,0 +1,43 @@
+package pt.psoft.g1.psoftg1.genremanagement.model;
+
+import org.junit.jupiter.api.Test;
+
+import java.time.LocalDate;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class GenreLendingStatsTest {
+    @Test
+    void ensureGenreNotBlank(){
+        assertThrows(IllegalArgumentException.class, () -> new GenreLendingStats(new GenreLendingStats.Key(null, 2025, 1), 1, 0, 0));
+        assertThrows(IllegalArgumentException.class, () -> new GenreLendingStats(new GenreLendingStats.Key("", 2025, 1), 1, 0, 0));
+    }
+
+    @Test
+    void ensureAggregatesAreConsistent(){
+        final var key = new GenreLendingStats.Key("Drama", 2025, 1);
+        assertThrows(IllegalArgumentException.class, () -> new GenreLendingStats(key, 1, 2, 10));
+        assertThrows(IllegalArgumentException.class, () -> new GenreLendingStats(key, 1, -1, 0));
+        assertThrows(IllegalArgumentException.class, () -> new GenreLendingStats(key, 1, 1, -5));
+    }
+
+    @Test
+    void ensureAveragesAreOverDaysOfMonthAndReturnedLendings(){
+        final var stats = new GenreLendingStats(GenreLendingStats.Key.of("Drama", LocalDate.of(2024, 2, 10)), 58, 4, 30);
+        assertEquals(2024, stats.getYear());
+        assertEquals(2, stats.getMonth());
+        assertEquals(2.0, stats.getDailyAverageLendings());
+        assertEquals(7.5, stats.getAverageDays());
+        assertNull(new GenreLendingStats(new GenreLendingStats.Key("Drama", 2024, 2), 3, 0, 0).getAverageDays());
+    }
+
+    @Test
+    void ensureKeysSortByGenreThenMonth(){
+        final var a = new GenreLendingStats.Key("Drama", 2025, 12);
+        final var b = new GenreLendingStats.Key("Drama", 2026, 1);
+        final var c = new GenreLendingStats.Key("Fantasy", 2024, 1);
+        assertTrue(a.compareTo(b) < 0);
+        assertTrue(b.compareTo(c) < 0);
+        assertEquals(a, new GenreLendingStats.Key("Drama", 2025, 12));
+    }
+}
@@ -10,6 +10,7 @@ import java.util.Optional;
 import java.time.LocalDate;
 import java.time.LocalDateTime;
 import java.lang.reflect.Field;
+import java.util.stream.LongStream;
 
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
@@ -19,6 +20,7 @@ import org.springframework.boot.test.autoconfigure.orm.jpa.TestEntityManager;
 import org.springframework.test.context.junit.jupiter.SpringExtension;
 
 import pt.psoft.g1.psoftg1.genremanagement.model.Genre;
+import pt.psoft.g1.psoftg1.genremanagement.model.GenreLendingStats;
 import pt.psoft.g1.psoftg1.genremanagement.services.GenreLendingsPerMonthDTO;
 
 @ExtendWith(SpringExtension.class)
@@ -106,6 +108,7 @@ class GenreRepositoryIT {
             em.persist(l);
         }
         em.flush();
+        genreLendingStatsRepository.rebuild();
         pt.psoft.g1.psoftg1.shared.services.Page page = new pt.psoft.g1.psoftg1.shared.services.Page(1, 10);
         var res = genreRepository.getAverageLendingsInMonth(month, page);
         double expected = Double.valueOf(String.format(Locale.US, "%.1f", 5.0 / 31.0)); // 0.2
@@ -158,6 +161,7 @@ class GenreRepositoryIT {
         em.persist(l1);
         em.persist(l2);
         em.flush();
+        genreLendingStatsRepository.rebuild();
         var res = genreRepository.getLendingsAverageDurationPerMonth(startDate, endDate);
         // Average duration for Drama in September: (5 + 10) / 2 = 7.5
         boolean found = res.stream()
@@ -172,6 +176,9 @@ class GenreRepositoryIT {
     @Autowired
     private GenreRepository genreRepository;
 
+    @Autowired
+    private GenreLendingStatsRepository genreLendingStatsRepository;
+
     @Test
     void findByString_returnsMatch_whenExists() {
         em.persist(new Genre("Drama"));
@@ -218,6 +225,29 @@ class GenreRepositoryIT {
         assertEquals(0, res.size());
     }
 
+    @Test
+    void lendingStats_areIncrementedByLendingsAndReturns() {
+        LocalDate today = LocalDate.now();
+        GenreLendingStats.Key drama = GenreLendingStats.Key.of("Drama", today);
+        genreLendingStatsRepository.addLendings(drama, 2);
+        genreLendingStatsRepository.addLendings(drama, 1);
+        genreLendingStatsRepository.addLendings(GenreLendingStats.Key.of("Sci-Fi", today), 1);
+        genreLendingStatsRepository.addReturns(drama, LongStream.of(4, 8).summaryStatistics());
+        // the increments are bulk updates, which the persisted rows do not see
+        em.clear();
+
+        List<GenreLendingsPerMonthDTO> lent = genreRepository.getLendingsPerMonthLastYearByGenre();
+        assertEquals(1, lent.size());
+        assertEquals(today.getMonthValue(), lent.get(0).getMonth());
+        assertEquals("Drama", lent.get(0).getValues().get(0).getGenre());
+        assertEquals(3L, lent.get(0).getValues().get(0).getValue());
+        assertEquals("Sci-Fi", lent.get(0).getValues().get(1).getGenre());
+
+        List<GenreLendingsPerMonthDTO> durations = genreRepository.getLendingsAverageDurationPerMonth(today, today);
+        assertEquals(1, durations.get(0).getValues().size());
+        assertEquals(6.0, durations.get(0).getValues().get(0).getValue().doubleValue());
+    }
+
     @Test
     void getLendingsPerMonthLastYearByGenre_returnsEmptyList_whenNoData() {
         List<GenreLendingsPerMonthDTO> res = genreRepository.getLendingsPerMonthLastYearByGenre();
@@ -0,0 +1,74 @@
+package pt.psoft.g1.psoftg1.genremanagement.services;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import pt.psoft.g1.psoftg1.genremanagement.model.Genre;
+import pt.psoft.g1.psoftg1.genremanagement.repositories.GenreRepository;
+
+import java.util.List;
+import java.util.Optional;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class GenreRegistryTest {
+    @Mock
+    private GenreRepository genreRepository;
+
+    private GenreRegistry registry;
+
+    private final Genre drama = new Genre("Drama");
+    private final Genre fantasy = new Genre("Fantasy");
+
+    @BeforeEach
+    void setUp() {
+        registry = new GenreRegistry(genreRepository);
+        when(genreRepository.findAll()).thenReturn(List.of(drama, fantasy));
+        registry.load();
+    }
+
+    @Test
+    void find_resolvesLoadedGenresWithoutQuerying() {
+        assertThat(registry.find("Drama")).containsSame(drama);
+        assertThat(registry.find("Fantasy")).containsSame(fantasy);
+        verify(genreRepository, never()).findByString(anyString());
+    }
+
+    @Test
+    void find_looksUpAndKeepsUnknownGenres() {
+        final Genre thriller = new Genre("Thriller");
+        when(genreRepository.findByString("Thriller")).thenReturn(Optional.of(thriller));
+        when(genreRepository.findByString("Poetry")).thenReturn(Optional.empty());
+
+        assertThat(registry.find("Thriller")).containsSame(thriller);
+        assertThat(registry.find("Thriller")).containsSame(thriller);
+        assertThat(registry.find("Poetry")).isEmpty();
+        assertThat(registry.find(null)).isEmpty();
+
+        verify(genreRepository, times(1)).findByString("Thriller");
+        assertThat(registry.idOf("Thriller")).isEqualTo(2);
+    }
+
+    @Test
+    void ids_areCompactAndStable() {
+        assertThat(registry.size()).isEqualTo(2);
+        assertThat(registry.get(registry.idOf("Drama"))).isSameAs(drama);
+        assertThat(registry.idOf("Poetry")).isEqualTo(-1);
+
+        registry.register(new Genre("Poetry"));
+        final Genre reloadedDrama = new Genre("Drama");
+        when(genreRepository.findAll()).thenReturn(List.of(fantasy, reloadedDrama));
+        registry.load();
+
+        assertThat(registry.size()).isEqualTo(3);
+        assertThat(registry.idOf("Drama")).isZero();
+        assertThat(registry.get(0)).isSameAs(reloadedDrama);
+        assertThat(registry.idOf("Fantasy")).isEqualTo(1);
+        assertThat(registry.idOf("Poetry")).isEqualTo(2);
+        assertThat(registry.findAll()).extracting(Genre::getGenre).containsExactly("Drama", "Fantasy", "Poetry");
+    }
+}
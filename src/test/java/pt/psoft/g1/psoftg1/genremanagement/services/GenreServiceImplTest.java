@@ -31,6 +31,9 @@ class GenreServiceImplTest {
     @Mock
     private GenreRepository genreRepository;
 
+    @Mock
+    private GenreRegistry genreRegistry;
+
     @Mock
     private Page page;
 
@@ -38,7 +41,7 @@ class GenreServiceImplTest {
     void findByString_returnsGenreWhenFound() {
         Genre genre = new Genre("Fantasy");
 
-        when(genreRepository.findByString("Fantasy")).thenReturn(Optional.of(genre));
+        when(genreRegistry.find("Fantasy")).thenReturn(Optional.of(genre));
 
         Optional<Genre> result = genreService.findByString("Fantasy");
 
@@ -48,7 +51,7 @@ class GenreServiceImplTest {
 
     @Test
     void findByString_returnsEmptyWhenNotFound() {
-        when(genreRepository.findByString("NonExistentGenre")).thenReturn(Optional.empty());
+        when(genreRegistry.find("NonExistentGenre")).thenReturn(Optional.empty());
 
         Optional<Genre> result = genreService.findByString("NonExistentGenre");
 
@@ -57,7 +60,7 @@ class GenreServiceImplTest {
 
     @Test
     void findByString_handlesNullInput() {
-        when(genreRepository.findByString(null)).thenReturn(Optional.empty());
+        when(genreRegistry.find(null)).thenReturn(Optional.empty());
 
         Optional<Genre> result = genreService.findByString(null);
 
@@ -138,6 +141,7 @@ class GenreServiceImplTest {
 
         Genre result = genreService.save(genre);
         assert (result.getGenre().equals("Fantasy"));
+        verify(genreRegistry).register(genre);
     }
 
     @Test
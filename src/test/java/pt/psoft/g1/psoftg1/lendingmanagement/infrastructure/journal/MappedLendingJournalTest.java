@@ -0,0 +1,127 @@
+package pt.psoft.g1.psoftg1.lendingmanagement.infrastructure.journal;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import pt.psoft.g1.psoftg1.exceptions.FileStorageException;
+import pt.psoft.g1.psoftg1.lendingmanagement.model.LendingEvent;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+class MappedLendingJournalTest {
+    // two events per segment, so rolling over segments is exercised
+    private static final int SEGMENT_SIZE = 2 * MappedLendingJournal.RECORD_SIZE;
+
+    @TempDir
+    private Path dir;
+
+    private MappedLendingJournal journal;
+
+    @AfterEach
+    void tearDown() throws IOException {
+        if (journal != null)
+            journal.close();
+    }
+
+    private MappedLendingJournal open() {
+        journal = new MappedLendingJournal(dir.toString(), "", SEGMENT_SIZE);
+        return journal;
+    }
+
+    private static LendingEvent created(int seq) {
+        return new LendingEvent(LendingEvent.Type.CREATED, 1_700_000_000_000L + seq, "2024/" + seq,
+                "9782826012092", "2024/7", LocalDate.of(2024, 3, 1), LocalDate.of(2024, 3, 16), 200);
+    }
+
+    private static List<LendingEvent> replay(MappedLendingJournal journal, long from) {
+        final List<LendingEvent> events = new ArrayList<>();
+        journal.replay(from, events::add);
+        return events;
+    }
+
+    @Test
+    void replay_returnsEventsAsAppended() {
+        final MappedLendingJournal journal = open();
+        final LendingEvent returned = new LendingEvent(LendingEvent.Type.RETURNED, 42L, "2024/1", "0306406152",
+                "2023/12", LocalDate.of(2024, 3, 20), LocalDate.of(2024, 3, 16), 0);
+        final LendingEvent fined = new LendingEvent(LendingEvent.Type.FINED, 43L, "2024/1", null, null,
+                LocalDate.of(2024, 3, 20), null, 800);
+
+        journal.append(created(1));
+        journal.append(returned);
+        journal.append(fined);
+
+        assertThat(journal.endOffset()).isEqualTo(3);
+        assertThat(replay(journal, 0)).containsExactly(created(1), returned, fined);
+    }
+
+    @Test
+    void replay_startsAtAnyOffset() {
+        final MappedLendingJournal journal = open();
+        for (int i = 0; i < 7; i++) {
+            journal.append(created(i));
+        }
+
+        assertThat(replay(journal, 5)).containsExactly(created(5), created(6));
+        assertThat(journal.replay(7, event -> {})).isEqualTo(7);
+        assertThrows(IllegalArgumentException.class, () -> journal.replay(8, event -> {}));
+    }
+
+    @Test
+    void open_resumesAfterLastEvent() throws IOException {
+        open();
+        for (int i = 0; i < 5; i++) {
+            journal.append(created(i));
+        }
+        journal.close();
+
+        final MappedLendingJournal reopened = open();
+        assertThat(reopened.endOffset()).isEqualTo(5);
+        reopened.append(created(5));
+        assertThat(replay(reopened, 0)).hasSize(6).endsWith(created(5));
+        assertThat(Files.list(dir).filter(p -> p.toString().endsWith(".journal")).count()).isEqualTo(3);
+    }
+
+    @Test
+    void open_failsWhileAnotherInstanceHoldsTheDirectory() {
+        open();
+        assertThrows(FileStorageException.class, () -> new MappedLendingJournal(dir.toString(), "", SEGMENT_SIZE));
+    }
+
+    @Test
+    void open_givesEveryInstanceItsOwnJournal() throws IOException {
+        final MappedLendingJournal first = new MappedLendingJournal(dir.toString(), "node-1", SEGMENT_SIZE);
+        final MappedLendingJournal second = new MappedLendingJournal(dir.toString(), "node-2", SEGMENT_SIZE);
+        try {
+            first.append(created(1));
+            second.append(created(2));
+
+            assertThat(replay(first, 0)).containsExactly(created(1));
+            assertThat(replay(second, 0)).containsExactly(created(2));
+        } finally {
+            first.close();
+            second.close();
+        }
+    }
+
+    @Test
+    void append_leavesOutEventsTheRecordCannotHold() {
+        final MappedLendingJournal journal = open();
+
+        journal.append(new LendingEvent(LendingEvent.Type.CREATED, 1L, "2024/1", "97828260120921234",
+                "2024/7", LocalDate.of(2024, 3, 1), LocalDate.of(2024, 3, 16), 0));
+        journal.append(new LendingEvent(LendingEvent.Type.CREATED, 2L, "L-2024/2", "9782826012092",
+                "2024/7", LocalDate.of(2024, 3, 1), LocalDate.of(2024, 3, 16), 0));
+        journal.append(created(3));
+
+        assertThat(replay(journal, 0)).containsExactly(created(3));
+    }
+}
@@ -0,0 +1,35 @@
+package pt.psoft.g1.psoftg1.lendingmanagement.model;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class LendingDurationStatsTest {
+    @Test
+    void ensureStatsKeyNotBlank(){
+        assertThrows(IllegalArgumentException.class, () -> new LendingDurationStats(null, 1));
+        assertThrows(IllegalArgumentException.class, () -> new LendingDurationStats("", 1));
+    }
+
+    @Test
+    void ensureAggregatesAreConsistent(){
+        assertThrows(IllegalArgumentException.class, () -> new LendingDurationStats("9782826012092", 0, 0, 0, 0));
+        assertThrows(IllegalArgumentException.class, () -> new LendingDurationStats("9782826012092", -1));
+        assertThrows(IllegalArgumentException.class, () -> new LendingDurationStats("9782826012092", 2, 10, 8, 2));
+    }
+
+    @Test
+    void ensureSingleLendingIsMinMaxAndAverage(){
+        final var stats = new LendingDurationStats(LendingDurationStats.TOTAL_KEY, 7);
+        assertEquals(1, stats.getLendingCount());
+        assertEquals(7, stats.getMinDays());
+        assertEquals(7, stats.getMaxDays());
+        assertEquals(7.0, stats.getAverageDays());
+    }
+
+    @Test
+    void ensureAverageIsTotalOverCount(){
+        final var stats = new LendingDurationStats("9782826012092", 3, 10, 1, 6);
+        assertEquals(10.0 / 3, stats.getAverageDays(), 0.0001);
+    }
+}
@@ -0,0 +1,87 @@
+package pt.psoft.g1.psoftg1.lendingmanagement.repositories;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.data.repository.CrudRepository;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+import pt.psoft.g1.psoftg1.lendingmanagement.model.LendingDurationStats;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+@SpringBootTest
+class LendingDurationStatsRepositoryIntegrationTest {
+    private static final String ISBN = "9780000000002";
+
+    @Autowired
+    private LendingDurationStatsRepository lendingDurationStatsRepository;
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    @AfterEach
+    @SuppressWarnings("unchecked")
+    void tearDown() {
+        ((CrudRepository<LendingDurationStats, String>) lendingDurationStatsRepository).deleteById(ISBN);
+    }
+
+    @Test
+    void addDuration_concurrentFirstReturnsOfABook_areBothCounted() throws Exception {
+        final CountDownLatch firstInserted = new CountDownLatch(1);
+        final CountDownLatch secondStarted = new CountDownLatch(1);
+        final ExecutorService executor = Executors.newFixedThreadPool(2);
+        try {
+            // the first transaction creates the row and only commits once the second one is trying to create it too
+            final Future<?> first = executor.submit(() -> new TransactionTemplate(transactionManager)
+                    .executeWithoutResult(status -> {
+                        lendingDurationStatsRepository.addDuration(ISBN, 3);
+                        firstInserted.countDown();
+                        await(secondStarted);
+                        sleep();
+                    }));
+            final Future<?> second = executor.submit(() -> {
+                await(firstInserted);
+                new TransactionTemplate(transactionManager).executeWithoutResult(status -> {
+                    secondStarted.countDown();
+                    lendingDurationStatsRepository.addDuration(ISBN, 5);
+                });
+            });
+            first.get(10, TimeUnit.SECONDS);
+            second.get(10, TimeUnit.SECONDS);
+        } finally {
+            executor.shutdownNow();
+        }
+
+        assertThat(lendingDurationStatsRepository.findByStatsKey(ISBN)).hasValueSatisfying(stats -> {
+            assertThat(stats.getLendingCount()).isEqualTo(2);
+            assertThat(stats.getTotalDays()).isEqualTo(8);
+            assertThat(stats.getMinDays()).isEqualTo(3);
+            assertThat(stats.getMaxDays()).isEqualTo(5);
+        });
+    }
+
+    private static void await(CountDownLatch latch) {
+        try {
+            assertThat(latch.await(10, TimeUnit.SECONDS)).isTrue();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private static void sleep() {
+        try {
+            Thread.sleep(300);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException(e);
+        }
+    }
+}
@@ -0,0 +1,235 @@
+package pt.psoft.g1.psoftg1.lendingmanagement.services;
+
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.PersistenceContext;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.boot.test.mock.mockito.SpyBean;
+import org.springframework.test.context.TestPropertySource;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.support.TransactionTemplate;
+import pt.psoft.g1.psoftg1.authormanagement.model.Author;
+import pt.psoft.g1.psoftg1.bookmanagement.model.Book;
+import pt.psoft.g1.psoftg1.genremanagement.model.Genre;
+import pt.psoft.g1.psoftg1.lendingmanagement.model.Fine;
+import pt.psoft.g1.psoftg1.lendingmanagement.model.FineAccrualRun;
+import pt.psoft.g1.psoftg1.lendingmanagement.model.Lending;
+import pt.psoft.g1.psoftg1.lendingmanagement.repositories.FineAccrualRunRepository;
+import pt.psoft.g1.psoftg1.lendingmanagement.repositories.FineRepository;
+import pt.psoft.g1.psoftg1.lendingmanagement.repositories.LendingJournal;
+import pt.psoft.g1.psoftg1.readermanagement.model.ReaderDetails;
+import pt.psoft.g1.psoftg1.usermanagement.model.Reader;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatCode;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.doAnswer;
+
+/**
+ * Fines are accrued in chunks smaller than the number of overdue lendings, so the keyset walk, the upsert of
+ * existing fines and the checkpoint are all exercised.
+ * <p>Not transactional, so every chunk commits on its own; the data is removed after each test.
+ */
+@SpringBootTest
+@TestPropertySource(properties = "fineAccrualChunkSize=" + FineAccrualJobTest.CHUNK_SIZE)
+class FineAccrualJobTest {
+    static final int CHUNK_SIZE = 7;
+    private static final int OVERDUE = 20;
+    private static final int FINE_PER_DAY = 50;
+
+    @Autowired
+    private FineAccrualJob fineAccrualJob;
+    @Autowired
+    private FineRepository fineRepository;
+    @Autowired
+    private FineAccrualRunRepository fineAccrualRunRepository;
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+    @SpyBean
+    private LendingJournal lendingJournal;
+    @MockBean
+    private LendingDueDateIndex lendingDueDateIndex;
+    @PersistenceContext
+    private EntityManager em;
+
+    private TransactionTemplate tx;
+    private final List<Object> created = new ArrayList<>();
+    private final List<Lending> overdue = new ArrayList<>();
+    private List<Long> finesBefore;
+    private Lending dueLater;
+    private Lending returned;
+    private long overdueInDatabase;
+
+    @BeforeEach
+    void setUp() {
+        tx = new TransactionTemplate(transactionManager);
+        tx.executeWithoutResult(status -> {
+            finesBefore = em.createQuery("SELECT f.pk FROM Fine f", Long.class).getResultList();
+
+            final Genre genre = persist(new Genre("Fine Accrual"));
+            final Author author = persist(new Author("accrual-author", "Accrual Author", "Bio", null));
+            final Book book = persist(new Book("accrual-book", "9789720706386", "Title", "Description", genre,
+                    List.of(author), null));
+            final Reader reader = persist(Reader.newReader("accrual@gmail.com", "Password123!", "Accrual Reader"));
+            final ReaderDetails readerDetails = persist(new ReaderDetails(9100, reader, "2000-01-01", "912345678",
+                    true, false, false, null, null));
+
+            for (int i = 0; i < OVERDUE; i++) {
+                // due i + 1 days ago
+                overdue.add(persist(Lending.newBootstrappingLending(book, readerDetails, 1998, 1 + i,
+                        LocalDate.now().minusDays(16 + i), null, 15, FINE_PER_DAY)));
+            }
+            dueLater = persist(Lending.newBootstrappingLending(book, readerDetails, 1998, 101,
+                    LocalDate.now().minusDays(5), null, 15, FINE_PER_DAY));
+            returned = persist(Lending.newBootstrappingLending(book, readerDetails, 1998, 102,
+                    LocalDate.now().minusDays(30), LocalDate.now().minusDays(1), 15, FINE_PER_DAY));
+
+            // a fine accrued on an earlier day
+            em.persist(new Fine(overdue.get(0)));
+            em.flush();
+            em.createQuery("UPDATE Fine f SET f.centsValue = 1 WHERE f.lending = :lending")
+                    .setParameter("lending", overdue.get(0))
+                    .executeUpdate();
+
+            overdueInDatabase = em.createQuery("SELECT COUNT(l) FROM Lending l " +
+                            "WHERE l.returnedDate IS NULL AND l.limitDate < CURRENT_DATE", Long.class)
+                    .getSingleResult();
+        });
+    }
+
+    private <T> T persist(T entity) {
+        em.persist(entity);
+        created.add(entity);
+        return entity;
+    }
+
+    @AfterEach
+    void tearDown() {
+        tx.executeWithoutResult(status -> {
+            em.createQuery("DELETE FROM Fine f WHERE f.pk NOT IN :before")
+                    .setParameter("before", finesBefore.isEmpty() ? List.of(-1L) : finesBefore)
+                    .executeUpdate();
+            em.createQuery("DELETE FROM FineAccrualRun").executeUpdate();
+            for (int i = created.size() - 1; i >= 0; i--) {
+                em.remove(em.merge(created.get(i)));
+            }
+        });
+    }
+
+    private int fineOf(Lending lending) {
+        return fineRepository.findByLendingNumber(lending.getLendingNumber())
+                .map(Fine::getCentsValue)
+                .orElse(-1);
+    }
+
+    private List<String> sortedOverdueNumbers() {
+        return overdue.stream().map(Lending::getLendingNumber).sorted(Comparator.naturalOrder()).toList();
+    }
+
+    @Test
+    void run_accruesEveryOverdueLending() {
+        final FineAccrualRun run = fineAccrualJob.run();
+
+        assertThat(run.isFinished()).isTrue();
+        assertThat(run.getProcessedCount()).isEqualTo(overdueInDatabase);
+        for (int i = 0; i < OVERDUE; i++) {
+            assertThat(fineOf(overdue.get(i))).isEqualTo(FINE_PER_DAY * (i + 1));
+        }
+        assertThat(fineOf(dueLater)).isEqualTo(-1);
+        assertThat(fineOf(returned)).isEqualTo(-1);
+    }
+
+    @Test
+    void run_resumesAfterCheckpoint() {
+        final List<String> numbers = sortedOverdueNumbers();
+        tx.executeWithoutResult(status -> {
+            final FineAccrualRun interrupted = new FineAccrualRun(LocalDate.now());
+            interrupted.chunkDone(numbers.get(9), 10, 5);
+            em.persist(interrupted);
+        });
+
+        final FineAccrualRun run = fineAccrualJob.run();
+
+        assertThat(run.isFinished()).isTrue();
+        for (int i = 0; i < OVERDUE; i++) {
+            final boolean afterCheckpoint = overdue.get(i).getLendingNumber().compareTo(numbers.get(9)) > 0;
+            assertThat(fineOf(overdue.get(i)) == FINE_PER_DAY * (i + 1)).isEqualTo(afterCheckpoint);
+        }
+    }
+
+    @Test
+    void run_afterAFailedChunk_keepsTheCommittedChunksAndResumesFromTheCheckpoint() {
+        final List<String> numbers = sortedOverdueNumbers();
+        // the first lending of the second chunk fails
+        final AtomicInteger appended = new AtomicInteger();
+        doAnswer(invocation -> {
+            if (appended.incrementAndGet() == CHUNK_SIZE + 1)
+                throw new IllegalStateException("Chunk failed");
+            return invocation.callRealMethod();
+        }).when(lendingJournal).append(any());
+
+        assertThatThrownBy(fineAccrualJob::run).isInstanceOf(IllegalStateException.class);
+
+        final FineAccrualRun interrupted = fineAccrualRunRepository.findByRunDate(LocalDate.now()).orElseThrow();
+        assertThat(interrupted.isFinished()).isFalse();
+        assertThat(interrupted.getProcessedCount()).isEqualTo(CHUNK_SIZE);
+        assertThat(interrupted.getLastLendingNumber()).isEqualTo(numbers.get(CHUNK_SIZE - 1));
+        for (int i = 0; i < OVERDUE; i++) {
+            final boolean inFirstChunk = overdue.get(i).getLendingNumber().compareTo(numbers.get(CHUNK_SIZE - 1)) <= 0;
+            assertThat(fineOf(overdue.get(i)) == FINE_PER_DAY * (i + 1)).isEqualTo(inFirstChunk);
+        }
+
+        final FineAccrualRun resumed = fineAccrualJob.run();
+
+        assertThat(resumed.isFinished()).isTrue();
+        assertThat(resumed.getProcessedCount()).isEqualTo(overdueInDatabase);
+        for (int i = 0; i < OVERDUE; i++) {
+            assertThat(fineOf(overdue.get(i))).isEqualTo(FINE_PER_DAY * (i + 1));
+        }
+    }
+
+    @Test
+    void scheduledRun_whenAnotherInstanceCommitsAChunkFirst_skipsTheRun() {
+        final TransactionTemplate otherInstance = new TransactionTemplate(transactionManager);
+        otherInstance.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
+        // while this instance accrues its first chunk
+        doAnswer(invocation -> {
+            otherInstance.executeWithoutResult(status -> {
+                final FineAccrualRun run = fineAccrualRunRepository.findByRunDate(LocalDate.now()).orElseThrow();
+                run.chunkDone(run.getLastLendingNumber(), 0, 1);
+            });
+            return invocation.callRealMethod();
+        }).doCallRealMethod().when(lendingJournal).append(any());
+
+        assertThatCode(fineAccrualJob::scheduledRun).doesNotThrowAnyException();
+
+        final FineAccrualRun run = fineAccrualRunRepository.findByRunDate(LocalDate.now()).orElseThrow();
+        assertThat(run.getProcessedCount()).isZero();
+        assertThat(fineOf(overdue.get(1))).isEqualTo(-1);
+    }
+
+    @Test
+    void run_doesNotRepeatFinishedRun() {
+        final FineAccrualRun first = fineAccrualJob.run();
+        tx.executeWithoutResult(status -> em.createQuery("DELETE FROM Fine f WHERE f.pk NOT IN :before")
+                .setParameter("before", finesBefore.isEmpty() ? List.of(-1L) : finesBefore)
+                .executeUpdate());
+
+        final FineAccrualRun second = fineAccrualJob.run();
+
+        assertThat(second.getProcessedCount()).isEqualTo(first.getProcessedCount());
+        assertThat(fineOf(overdue.get(0))).isEqualTo(-1);
+    }
+}
@@ -0,0 +1,181 @@
+package pt.psoft.g1.psoftg1.lendingmanagement.services;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.SimpleTransactionStatus;
+import pt.psoft.g1.psoftg1.bookmanagement.model.Book;
+import pt.psoft.g1.psoftg1.bookmanagement.repositories.BookRepository;
+import pt.psoft.g1.psoftg1.bookmanagement.services.BookAutocompleteIndex;
+import pt.psoft.g1.psoftg1.bookmanagement.services.BookRecommender;
+import pt.psoft.g1.psoftg1.exceptions.LendingForbiddenException;
+import pt.psoft.g1.psoftg1.exceptions.NotFoundException;
+import pt.psoft.g1.psoftg1.genremanagement.model.Genre;
+import pt.psoft.g1.psoftg1.genremanagement.model.GenreLendingStats;
+import pt.psoft.g1.psoftg1.genremanagement.repositories.GenreLendingStatsRepository;
+import pt.psoft.g1.psoftg1.lendingmanagement.model.Fine;
+import pt.psoft.g1.psoftg1.lendingmanagement.model.Lending;
+import pt.psoft.g1.psoftg1.lendingmanagement.model.LendingDurationStats;
+import pt.psoft.g1.psoftg1.lendingmanagement.repositories.FineRepository;
+import pt.psoft.g1.psoftg1.lendingmanagement.repositories.LendingDurationStatsRepository;
+import pt.psoft.g1.psoftg1.lendingmanagement.repositories.LendingJournal;
+import pt.psoft.g1.psoftg1.lendingmanagement.repositories.LendingRepository;
+import pt.psoft.g1.psoftg1.readermanagement.model.ReaderDetails;
+import pt.psoft.g1.psoftg1.readermanagement.repositories.ReaderRepository;
+import pt.psoft.g1.psoftg1.shared.services.SequenceService;
+
+import java.time.LocalDate;
+import java.util.List;
+import java.util.LongSummaryStatistics;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class LendingBatchServiceTest {
+    private static final String ISBN = "9782826012092";
+    private static final String READER = "2024/1";
+    private static final String OVERDUE_READER = "2024/2";
+
+    @Mock
+    private LendingRepository lendingRepository;
+    @Mock
+    private FineRepository fineRepository;
+    @Mock
+    private LendingDurationStatsRepository lendingDurationStatsRepository;
+    @Mock
+    private GenreLendingStatsRepository genreLendingStatsRepository;
+    @Mock
+    private BookRepository bookRepository;
+    @Mock
+    private ReaderRepository readerRepository;
+    @Mock
+    private SequenceService sequenceService;
+    @Mock
+    private LendingDueDateIndex lendingDueDateIndex;
+    @Mock
+    private PlatformTransactionManager transactionManager;
+    @Mock
+    private FineAccrualJob fineAccrualJob;
+    @Mock
+    private LendingJournal lendingJournal;
+    @Mock
+    private BookAutocompleteIndex bookAutocompleteIndex;
+    @Mock
+    private LendingLeaderboards lendingLeaderboards;
+    @Mock
+    private BookRecommender bookRecommender;
+    @Mock
+    private LendingFactStore lendingFactStore;
+
+    private LendingServiceImpl lendingService;
+
+    @BeforeEach
+    void setUp() {
+        lendingService = new LendingServiceImpl(lendingRepository, fineRepository, lendingDurationStatsRepository,
+                genreLendingStatsRepository, bookRepository, readerRepository, sequenceService, lendingDueDateIndex,
+                new OutstandingLendingsRegistry(lendingRepository, 60), transactionManager, fineAccrualJob, lendingJournal,
+                bookAutocompleteIndex, lendingLeaderboards, bookRecommender, lendingFactStore);
+        ReflectionTestUtils.setField(lendingService, "lendingDurationInDays", 15);
+        ReflectionTestUtils.setField(lendingService, "fineValuePerDayInCents", 200);
+    }
+
+    private static Book book() {
+        final Book book = mock(Book.class);
+        when(book.getIsbn()).thenReturn(ISBN);
+        when(book.getGenre()).thenReturn(new Genre("Drama"));
+        return book;
+    }
+
+    private static ReaderDetails reader(String readerNumber) {
+        final ReaderDetails reader = mock(ReaderDetails.class);
+        when(reader.getReaderNumber()).thenReturn(readerNumber);
+        return reader;
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void createAll_savesAllowedItemsAndReportsTheOthers() {
+        final List<Book> books = List.of(book());
+        final List<ReaderDetails> readers = List.of(reader(READER), reader(OVERDUE_READER));
+        when(bookRepository.findByIsbns(anyCollection())).thenReturn(books);
+        when(readerRepository.findByReaderNumbers(anyCollection())).thenReturn(readers);
+        final LocalDate due = LocalDate.now().plusDays(5);
+        when(lendingRepository.listOutstandingLimitDatesByReaderNumber(READER)).thenReturn(List.of(due));
+        when(lendingRepository.listOutstandingLimitDatesByReaderNumber(OVERDUE_READER))
+                .thenReturn(List.of(LocalDate.now().minusDays(1)));
+        when(sequenceService.nextValues(eq(SequenceService.LENDING), anyInt(), eq(2), any())).thenReturn(41);
+        when(transactionManager.getTransaction(any())).thenReturn(new SimpleTransactionStatus());
+
+        final List<LendingBatchItemResult> results = lendingService.createAll(List.of(
+                new CreateLendingRequest(ISBN, READER),
+                new CreateLendingRequest("9780000000002", READER),
+                new CreateLendingRequest(ISBN, OVERDUE_READER),
+                new CreateLendingRequest(ISBN, "2024/99"),
+                new CreateLendingRequest(ISBN, READER),
+                new CreateLendingRequest(ISBN, READER)));
+
+        assertThat(results).extracting(LendingBatchItemResult::getIndex).containsExactly(0, 1, 2, 3, 4, 5);
+        assertThat(results.get(0).getLending().getLendingNumber()).endsWith("/41");
+        assertThat(results.get(1).getFailure()).isInstanceOf(NotFoundException.class);
+        assertThat(results.get(2).getFailure()).isInstanceOf(LendingForbiddenException.class);
+        assertThat(results.get(3).getFailure()).isInstanceOf(NotFoundException.class);
+        assertThat(results.get(4).getLending().getLendingNumber()).endsWith("/42");
+        assertThat(results.get(5).getFailure()).isInstanceOf(LendingForbiddenException.class);
+
+        final ArgumentCaptor<Iterable<Lending>> saved = ArgumentCaptor.forClass(Iterable.class);
+        verify(lendingRepository, times(1)).saveAll(saved.capture());
+        assertThat(saved.getValue()).hasSize(2);
+        verify(sequenceService, times(1)).nextValues(anyString(), anyInt(), anyInt(), any());
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void returnAll_writesFinesAndStatsOnceForTheBatch() {
+        final Book book = book();
+        final ReaderDetails reader = reader(READER);
+        final Lending overdue = Lending.newBootstrappingLending(book, reader, 2024, 1,
+                LocalDate.now().minusDays(20), null, 15, 200);
+        final Lending onTime = Lending.newBootstrappingLending(book, reader, 2024, 2,
+                LocalDate.now().minusDays(3), null, 15, 200);
+        final Lending stale = Lending.newBootstrappingLending(book, reader, 2024, 3,
+                LocalDate.now().minusDays(3), null, 15, 200);
+        when(lendingRepository.findByLendingNumbers(anyCollection())).thenReturn(List.of(overdue, onTime, stale));
+
+        final List<LendingBatchItemResult> results = lendingService.returnAll(List.of(
+                new ReturnLendingRequest("2024/1", 0L, null),
+                new ReturnLendingRequest("2024/2", 0L, "fine"),
+                new ReturnLendingRequest("2024/3", 7L, null),
+                new ReturnLendingRequest("2024/1", 0L, null),
+                new ReturnLendingRequest("2024/99", 0L, null)));
+
+        assertThat(results).extracting(LendingBatchItemResult::isSucceeded)
+                .containsExactly(true, true, false, false, false);
+        assertThat(results.get(2).getFailure()).isInstanceOf(org.hibernate.StaleObjectStateException.class);
+        assertThat(results.get(3).getFailure()).isInstanceOf(IllegalArgumentException.class);
+        assertThat(results.get(4).getFailure()).isInstanceOf(NotFoundException.class);
+
+        final ArgumentCaptor<Iterable<Fine>> fines = ArgumentCaptor.forClass(Iterable.class);
+        verify(fineRepository).saveAll(fines.capture());
+        assertThat(fines.getValue()).singleElement().extracting(Fine::getLending).isSameAs(overdue);
+
+        final ArgumentCaptor<LongSummaryStatistics> total = ArgumentCaptor.forClass(LongSummaryStatistics.class);
+        verify(lendingDurationStatsRepository).addDurations(eq(LendingDurationStats.TOTAL_KEY), total.capture());
+        assertThat(total.getValue().getCount()).isEqualTo(2);
+        assertThat(total.getValue().getSum()).isEqualTo(23);
+        verify(lendingDurationStatsRepository).addDurations(eq(ISBN), any());
+        verify(lendingDurationStatsRepository, never()).addDuration(anyString(), anyLong());
+        // one call per starting month of the returned lendings
+        final ArgumentCaptor<LongSummaryStatistics> genre = ArgumentCaptor.forClass(LongSummaryStatistics.class);
+        verify(genreLendingStatsRepository, atLeastOnce()).addReturns(any(GenreLendingStats.Key.class), genre.capture());
+        assertThat(genre.getAllValues().stream().mapToLong(LongSummaryStatistics::getSum).sum()).isEqualTo(23);
+        assertThat(genre.getAllValues().stream().mapToLong(LongSummaryStatistics::getCount).sum()).isEqualTo(2);
+        verify(lendingJournal, times(3)).append(any());
+    }
+}
@@ -0,0 +1,140 @@
+package pt.psoft.g1.psoftg1.lendingmanagement.services;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import pt.psoft.g1.psoftg1.lendingmanagement.repositories.LendingRepository;
+import pt.psoft.g1.psoftg1.shared.services.Cursor;
+import pt.psoft.g1.psoftg1.shared.services.Page;
+
+import java.time.LocalDate;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.when;
+
+@ExtendWith(MockitoExtension.class)
+class LendingDueDateIndexTest {
+    private static final LocalDate TODAY = LocalDate.of(2024, 6, 15);
+
+    @Mock
+    private LendingRepository lendingRepository;
+
+    @InjectMocks
+    private LendingDueDateIndex index;
+
+    @Test
+    void load_indexesOutstandingLendings() {
+        when(lendingRepository.listOutstandingDueDates()).thenReturn(List.of(
+                new LendingDueDateDTO("2024/1", TODAY.minusDays(3)),
+                new LendingDueDateDTO("2024/2", TODAY.plusDays(3))));
+
+        index.load();
+
+        assertThat(index.size()).isEqualTo(2);
+        assertThat(index.countDueBefore(TODAY)).isEqualTo(1);
+    }
+
+    @Test
+    void rebuild_replacesTheIndexAndKeepsChangesAppliedMeanwhile() {
+        index.add("2024/1", TODAY.minusDays(3));
+        index.add("2024/2", TODAY.minusDays(2));
+        // 2024/2 was returned and 2024/3 created on another instance; 2024/4 is created and 2024/5 returned here
+        index.add("2024/5", TODAY.minusDays(1));
+        when(lendingRepository.listOutstandingDueDates()).thenAnswer(invocation -> {
+            index.add("2024/4", TODAY.minusDays(4));
+            index.remove("2024/5");
+            return List.of(new LendingDueDateDTO("2024/1", TODAY.minusDays(3)),
+                    new LendingDueDateDTO("2024/3", TODAY.plusDays(3)),
+                    new LendingDueDateDTO("2024/5", TODAY.minusDays(1)));
+        });
+
+        index.reconcile();
+
+        assertThat(index.size()).isEqualTo(3);
+        assertThat(index.findDueBefore(TODAY, new Page(1, 10))).containsExactly("2024/4", "2024/1");
+        assertThat(index.findDueBetween(TODAY, TODAY.plusDays(3), new Page(1, 10))).containsExactly("2024/3");
+    }
+
+    @Test
+    void findDueBefore_ordersByDueDate() {
+        index.add("2024/3", TODAY.minusDays(1));
+        index.add("2024/1", TODAY.minusDays(10));
+        index.add("2024/2", TODAY.minusDays(5));
+        index.add("2024/4", TODAY);
+
+        assertThat(index.findDueBefore(TODAY, new Page(1, 10))).containsExactly("2024/1", "2024/2", "2024/3");
+    }
+
+    @Test
+    void findDueBefore_pagesAcrossBuckets() {
+        index.add("2024/1", TODAY.minusDays(3));
+        index.add("2024/2", TODAY.minusDays(3));
+        index.add("2024/3", TODAY.minusDays(2));
+        index.add("2024/4", TODAY.minusDays(1));
+        index.add("2024/5", TODAY.minusDays(1));
+
+        assertThat(index.findDueBefore(TODAY, new Page(1, 2))).containsExactly("2024/1", "2024/2");
+        assertThat(index.findDueBefore(TODAY, new Page(2, 2))).containsExactly("2024/3", "2024/4");
+        assertThat(index.findDueBefore(TODAY, new Page(3, 2))).containsExactly("2024/5");
+        assertThat(index.findDueBefore(TODAY, new Page(4, 2))).isEmpty();
+    }
+
+    @Test
+    void findDueBefore_resumesAfterCursor() {
+        index.add("2024/1", TODAY.minusDays(3));
+        index.add("2024/2", TODAY.minusDays(3));
+        index.add("2024/3", TODAY.minusDays(2));
+        index.add("2024/4", TODAY.minusDays(1));
+
+        final String cursor = Cursor.encode(TODAY.minusDays(3), "2024/1");
+        assertThat(index.findDueBefore(TODAY, new Page(1, 2, cursor))).containsExactly("2024/2", "2024/3");
+
+        // lendings created after the cursor was issued do not shift the following pages
+        index.add("2024/0", TODAY.minusDays(4));
+        assertThat(index.findDueBefore(TODAY, new Page(1, 2, Cursor.encode(TODAY.minusDays(2), "2024/3"))))
+                .containsExactly("2024/4");
+    }
+
+    @Test
+    void findDueBetween_cursorPastRangeIsEmpty() {
+        index.add("2024/1", TODAY.plusDays(1));
+
+        assertThat(index.findDueBetween(TODAY, TODAY.plusDays(3),
+                new Page(1, 10, Cursor.encode(TODAY.plusDays(5), "2024/9")))).isEmpty();
+    }
+
+    @Test
+    void findDueBetween_includesBothEnds() {
+        index.add("2024/1", TODAY.minusDays(1));
+        index.add("2024/2", TODAY);
+        index.add("2024/3", TODAY.plusDays(3));
+        index.add("2024/4", TODAY.plusDays(4));
+
+        assertThat(index.findDueBetween(TODAY, TODAY.plusDays(3), new Page(1, 10))).containsExactly("2024/2", "2024/3");
+    }
+
+    @Test
+    void remove_dropsReturnedLending() {
+        index.add("2024/1", TODAY.minusDays(1));
+        index.add("2024/2", TODAY.minusDays(1));
+
+        index.remove("2024/1");
+        index.remove("2024/99");
+
+        assertThat(index.size()).isEqualTo(1);
+        assertThat(index.countDueBefore(TODAY)).isEqualTo(1);
+        assertThat(index.findDueBefore(TODAY, new Page(1, 10))).containsExactly("2024/2");
+    }
+
+    @Test
+    void add_movesLendingWhenDueDateChanges() {
+        index.add("2024/1", TODAY.minusDays(1));
+        index.add("2024/1", TODAY.plusDays(1));
+
+        assertThat(index.size()).isEqualTo(1);
+        assertThat(index.countDueBefore(TODAY)).isZero();
+    }
+}
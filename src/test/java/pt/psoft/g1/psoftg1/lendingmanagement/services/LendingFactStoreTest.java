@@ -0,0 +1,180 @@
+package pt.psoft.g1.psoftg1.lendingmanagement.services;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.transaction.PlatformTransactionManager;
+import pt.psoft.g1.psoftg1.exceptions.NotFoundException;
+import pt.psoft.g1.psoftg1.genremanagement.model.Genre;
+import pt.psoft.g1.psoftg1.genremanagement.repositories.GenreRepository;
+import pt.psoft.g1.psoftg1.genremanagement.services.GenreRegistry;
+import pt.psoft.g1.psoftg1.lendingmanagement.model.Lending;
+import pt.psoft.g1.psoftg1.lendingmanagement.repositories.LendingRepository;
+import pt.psoft.g1.psoftg1.lendingmanagement.services.LendingFactStore.Dimension;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.stream.Stream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.assertj.core.api.Assertions.tuple;
+import static org.mockito.Mockito.RETURNS_DEEP_STUBS;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+@ExtendWith(MockitoExtension.class)
+class LendingFactStoreTest {
+    @Mock
+    private LendingRepository lendingRepository;
+    @Mock
+    private GenreRepository genreRepository;
+    @Mock
+    private PlatformTransactionManager transactionManager;
+
+    private LendingFactStore store;
+
+    private final Genre drama = new Genre("Drama");
+    private final Genre fantasy = new Genre("Fantasy");
+    private final LocalDate bornIn1990 = LocalDate.of(1990, 6, 15);
+
+    @BeforeEach
+    void setUp() {
+        store = new LendingFactStore(lendingRepository, new GenreRegistry(genreRepository), transactionManager, true);
+    }
+
+    private LendingFactDTO fact(String lendingNumber, String isbn, Genre genre, String reader,
+                                LocalDate start, LocalDate returned) {
+        return new LendingFactDTO(lendingNumber, isbn, genre, reader, bornIn1990, start, returned);
+    }
+
+    private void givenLoaded(LendingFactDTO... facts) {
+        when(lendingRepository.streamFacts()).thenReturn(Stream.of(facts));
+        store.load();
+    }
+
+    @Test
+    void report_groupsTheLoadedLendings() {
+        givenLoaded(
+                fact("2024/1", "1", drama, "2024/1", LocalDate.of(2024, 6, 1), LocalDate.of(2024, 6, 11)),
+                fact("2024/2", "1", drama, "2024/2", LocalDate.of(2024, 6, 20), LocalDate.of(2024, 6, 24)),
+                fact("2024/3", "2", fantasy, "2024/1", LocalDate.of(2024, 8, 2), null),
+                fact("2025/1", "2", drama, "2024/1", LocalDate.of(2025, 1, 5), null));
+
+        assertThat(store.report(Dimension.GENRE, null, null, null, 10)).containsExactly(
+                new LendingReportRowDTO("Drama", 3, 2, 7.0),
+                new LendingReportRowDTO("Fantasy", 1, 0, null));
+        assertThat(store.report(Dimension.MONTH, null, null, null, 10))
+                .extracting(LendingReportRowDTO::getKey, LendingReportRowDTO::getLendingCount)
+                .containsExactly(tuple("2024-06", 2L), tuple("2024-08", 1L), tuple("2025-01", 1L));
+        assertThat(store.report(Dimension.YEAR, null, null, null, 10))
+                .extracting(LendingReportRowDTO::getKey).containsExactly("2024", "2025");
+        assertThat(store.report(Dimension.READER_AGE, null, null, null, 10))
+                .extracting(LendingReportRowDTO::getKey).containsExactly("33", "34");
+        assertThat(store.report(Dimension.READER, null, null, null, 1))
+                .containsExactly(new LendingReportRowDTO("2024/1", 3, 1, 10.0));
+    }
+
+    @Test
+    void report_countsOnlyTheFilteredLendings() {
+        givenLoaded(
+                fact("2024/1", "1", drama, "2024/1", LocalDate.of(2024, 6, 1), null),
+                fact("2024/2", "2", fantasy, "2024/1", LocalDate.of(2024, 6, 2), null),
+                fact("2024/3", "2", drama, "2024/2", LocalDate.of(2024, 6, 3), null));
+
+        assertThat(store.report(Dimension.BOOK, LocalDate.of(2024, 6, 2), LocalDate.of(2024, 6, 3), null, 10))
+                .containsExactly(new LendingReportRowDTO("2", 2, 0, null));
+        assertThat(store.report(Dimension.BOOK, null, null, "Drama", 10))
+                .extracting(LendingReportRowDTO::getKey).containsExactly("1", "2");
+        assertThat(store.report(Dimension.BOOK, null, null, "Poetry", 10)).isEmpty();
+    }
+
+    @Test
+    void lentAndReturned_updateTheRows_withoutCountingALendingTwice() {
+        final LendingFactDTO loaded = fact("2024/1", "1", drama, "2024/1", LocalDate.of(2024, 6, 1), null);
+        givenLoaded(loaded);
+
+        final Lending lending = mock(Lending.class, RETURNS_DEEP_STUBS);
+        when(lending.getLendingNumber()).thenReturn("2024/2");
+        when(lending.getBook().getIsbn()).thenReturn("2");
+        when(lending.getBook().getGenre()).thenReturn(fantasy);
+        when(lending.getReaderDetails().getReaderNumber()).thenReturn("2024/1");
+        when(lending.getReaderDetails().getBirthDate().getBirthDate()).thenReturn(bornIn1990);
+        when(lending.getStartDate()).thenReturn(LocalDate.of(2024, 6, 2));
+        when(lending.getReturnedDate()).thenReturn(null);
+        store.lent(lending);
+        when(lending.getReturnedDate()).thenReturn(LocalDate.of(2024, 6, 5));
+        store.returned(lending);
+
+        assertThat(store.report(Dimension.GENRE, null, null, null, 10)).containsExactly(
+                new LendingReportRowDTO("Drama", 1, 0, null),
+                new LendingReportRowDTO("Fantasy", 1, 1, 3.0));
+
+        when(lendingRepository.streamFacts()).thenReturn(Stream.of(loaded,
+                fact("2024/2", "2", fantasy, "2024/1", LocalDate.of(2024, 6, 2), LocalDate.of(2024, 6, 5))));
+        store.load();
+        store.lent(lending);
+
+        assertThat(store.report(Dimension.BOOK, null, null, null, 10)).hasSize(2)
+                .allSatisfy(row -> assertThat(row.getLendingCount()).isOne());
+    }
+
+    @Test
+    void reload_picksUpTheLendingsCreatedAndReturnedElsewhere() {
+        givenLoaded(fact("2024/1", "1", drama, "2024/1", LocalDate.of(2024, 6, 1), null));
+
+        when(lendingRepository.streamFacts()).thenReturn(Stream.of(
+                fact("2024/1", "1", drama, "2024/1", LocalDate.of(2024, 6, 1), LocalDate.of(2024, 6, 4)),
+                fact("2024/2", "2", fantasy, "2024/2", LocalDate.of(2024, 6, 2), null)));
+        store.reload();
+
+        assertThat(store.report(Dimension.GENRE, null, null, null, 10)).containsExactly(
+                new LendingReportRowDTO("Drama", 1, 1, 3.0),
+                new LendingReportRowDTO("Fantasy", 1, 0, null));
+    }
+
+    @Test
+    void report_addsUpTheTasksOfALargeScan() {
+        final List<LendingFactDTO> facts = new ArrayList<>();
+        final LocalDate first = LocalDate.of(2020, 1, 1);
+        for (int i = 0; i < 100_000; i++) {
+            final LocalDate start = first.plusDays(i % 365);
+            facts.add(fact("2020/" + i, Integer.toString(i % 7), i % 2 == 0 ? drama : fantasy, "2020/" + (i % 100),
+                    start, i % 4 == 0 ? start.plusDays(2) : null));
+        }
+        givenLoaded(facts.toArray(new LendingFactDTO[0]));
+
+        assertThat(store.report(Dimension.GENRE, null, null, null, 10)).containsExactly(
+                new LendingReportRowDTO("Drama", 50_000, 25_000, 2.0),
+                new LendingReportRowDTO("Fantasy", 50_000, 0, null));
+        final List<LendingReportRowDTO> months = store.report(Dimension.MONTH, null, null, null, 20);
+        assertThat(months).hasSize(12);
+        assertThat(months.stream().mapToLong(LendingReportRowDTO::getLendingCount).sum()).isEqualTo(100_000);
+    }
+
+    @Test
+    void report_rejectsInvalidQueries() {
+        givenLoaded();
+
+        assertThat(store.report(Dimension.GENRE, null, null, null, 10)).isEmpty();
+        assertThatThrownBy(() -> store.report(Dimension.GENRE, null, null, null, 0))
+                .isInstanceOf(IllegalArgumentException.class);
+        assertThatThrownBy(() -> store.report(Dimension.GENRE, LocalDate.of(2024, 2, 1), LocalDate.of(2024, 1, 1), null, 10))
+                .isInstanceOf(IllegalArgumentException.class);
+        assertThatThrownBy(() -> Dimension.parse("title")).isInstanceOf(IllegalArgumentException.class);
+        assertThat(Dimension.parse("reader_age")).isEqualTo(Dimension.READER_AGE);
+    }
+
+    @Test
+    void report_whenDisabled_isNotFound() {
+        final LendingFactStore disabled = new LendingFactStore(lendingRepository, new GenreRegistry(genreRepository),
+                transactionManager, false);
+        disabled.load();
+
+        assertThatThrownBy(() -> disabled.report(Dimension.GENRE, null, null, null, 10))
+                .isInstanceOf(NotFoundException.class);
+    }
+}
@@ -0,0 +1,139 @@
+package pt.psoft.g1.psoftg1.lendingmanagement.services;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.transaction.PlatformTransactionManager;
+import pt.psoft.g1.psoftg1.lendingmanagement.repositories.LendingRepository;
+import pt.psoft.g1.psoftg1.lendingmanagement.services.LendingLeaderboards.Board;
+import pt.psoft.g1.psoftg1.lendingmanagement.services.LendingLeaderboards.Window;
+
+import java.time.LocalDate;
+import java.util.List;
+import java.util.stream.Stream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.Mockito.lenient;
+import static org.mockito.Mockito.when;
+
+@ExtendWith(MockitoExtension.class)
+class LendingLeaderboardsTest {
+    @Mock
+    private LendingRepository lendingRepository;
+    @Mock
+    private PlatformTransactionManager transactionManager;
+
+    @InjectMocks
+    private LendingLeaderboards leaderboards;
+
+    private final LocalDate today = LocalDate.now();
+
+    @BeforeEach
+    void setUp() {
+        lenient().when(lendingRepository.streamDailyCountsByBook()).thenAnswer(invocation -> Stream.empty());
+        lenient().when(lendingRepository.streamDailyCountsByAuthor()).thenAnswer(invocation -> Stream.empty());
+        lenient().when(lendingRepository.streamDailyCountsByReader()).thenAnswer(invocation -> Stream.empty());
+        lenient().when(lendingRepository.streamDailyCountsByGenre()).thenAnswer(invocation -> Stream.empty());
+    }
+
+    private List<String> keys(Board board, Window window, int limit) {
+        return leaderboards.top(board, window, limit).stream().map(LeaderboardEntryDTO::getKey).toList();
+    }
+
+    private LendingLeaderboards.Lent lent(String isbn, String reader, LocalDate day, String... authors) {
+        return new LendingLeaderboards.Lent(isbn, authors, "Romance", reader, day);
+    }
+
+    @Test
+    void load_countsEachWindowFromItsFirstDay() {
+        when(lendingRepository.streamDailyCountsByBook()).thenReturn(Stream.of(
+                new LendingDayCountDTO("1", today, 2),
+                new LendingDayCountDTO("1", today.minusDays(29), 1),
+                new LendingDayCountDTO("2", today.minusDays(30), 4),
+                new LendingDayCountDTO("2", today.minusYears(1).plusDays(1), 1),
+                new LendingDayCountDTO("3", today.minusYears(1), 9)));
+
+        leaderboards.load();
+
+        assertThat(leaderboards.top(Board.BOOKS, Window.LAST_30_DAYS, 5))
+                .containsExactly(new LeaderboardEntryDTO("1", 3));
+        assertThat(leaderboards.top(Board.BOOKS, Window.LAST_YEAR, 5))
+                .containsExactly(new LeaderboardEntryDTO("2", 5), new LeaderboardEntryDTO("1", 3));
+        assertThat(leaderboards.top(Board.BOOKS, Window.ALL_TIME, 5))
+                .containsExactly(new LeaderboardEntryDTO("3", 9), new LeaderboardEntryDTO("2", 5),
+                        new LeaderboardEntryDTO("1", 3));
+    }
+
+    @Test
+    void count_addsTheLendingToTheBookItsAuthorsGenreAndReader() {
+        leaderboards.load();
+
+        leaderboards.count(lent("1", "2024/1", today, "A1", "A2"));
+        leaderboards.count(lent("2", "2024/2", today, "A2"));
+
+        assertThat(leaderboards.top(Board.BOOKS, Window.LAST_30_DAYS, 5)).extracting(LeaderboardEntryDTO::getLendingCount)
+                .containsExactly(1L, 1L);
+        assertThat(leaderboards.top(Board.AUTHORS, Window.ALL_TIME, 5))
+                .containsExactly(new LeaderboardEntryDTO("A2", 2), new LeaderboardEntryDTO("A1", 1));
+        assertThat(leaderboards.top(Board.GENRES, Window.LAST_YEAR, 5))
+                .containsExactly(new LeaderboardEntryDTO("Romance", 2));
+        assertThat(keys(Board.READERS, Window.ALL_TIME, 5)).containsExactly("2024/1", "2024/2");
+    }
+
+    @Test
+    void top_keepsTheMostLentAndBreaksTiesByKey() {
+        leaderboards.load();
+        for (int i = 0; i < 50; i++) {
+            for (int n = 0; n < i % 10; n++) {
+                leaderboards.count(lent(String.format("%02d", i), "2024/1", today.minusDays(n)));
+            }
+        }
+
+        assertThat(keys(Board.BOOKS, Window.LAST_30_DAYS, 7)).containsExactly("09", "19", "29", "39", "49", "08", "18");
+        assertThat(keys(Board.BOOKS, Window.ALL_TIME, LendingLeaderboards.MAX_LIMIT)).hasSize(45);
+    }
+
+    @Test
+    void reload_replacesTheCountersAndKeepsLendingsCountedMeanwhile() {
+        leaderboards.load();
+        leaderboards.count(lent("1", "2024/1", today));
+        when(lendingRepository.streamDailyCountsByBook()).thenAnswer(invocation -> {
+            leaderboards.count(lent("2", "2024/1", today));
+            return Stream.of(new LendingDayCountDTO("1", today, 3));
+        });
+
+        leaderboards.reconcile();
+
+        assertThat(leaderboards.top(Board.BOOKS, Window.ALL_TIME, 5))
+                .containsExactly(new LeaderboardEntryDTO("1", 3), new LeaderboardEntryDTO("2", 1));
+    }
+
+    @Test
+    void reload_dropsDailyCountsOutsideEveryWindowButKeepsTheTotal() {
+        when(lendingRepository.streamDailyCountsByReader()).thenReturn(Stream.of(
+                new LendingDayCountDTO("2020/1", LocalDate.of(2020, 3, 1), 7)));
+
+        leaderboards.load();
+        leaderboards.count(lent("1", "2020/1", LocalDate.of(2020, 3, 2)));
+
+        assertThat(leaderboards.top(Board.READERS, Window.ALL_TIME, 5))
+                .containsExactly(new LeaderboardEntryDTO("2020/1", 8));
+        assertThat(leaderboards.top(Board.READERS, Window.LAST_YEAR, 5)).isEmpty();
+    }
+
+    @Test
+    void parse_rejectsUnknownBoardsWindowsAndLimits() {
+        assertThat(Board.parse("authors")).isEqualTo(Board.AUTHORS);
+        assertThat(Window.parse("last_30_days")).isEqualTo(Window.LAST_30_DAYS);
+        assertThatThrownBy(() -> Board.parse("publishers")).isInstanceOf(IllegalArgumentException.class);
+        assertThatThrownBy(() -> Window.parse("last_week")).isInstanceOf(IllegalArgumentException.class);
+        assertThatThrownBy(() -> leaderboards.top(Board.BOOKS, Window.ALL_TIME, 0))
+                .isInstanceOf(IllegalArgumentException.class);
+        assertThatThrownBy(() -> leaderboards.top(Board.BOOKS, Window.ALL_TIME, LendingLeaderboards.MAX_LIMIT + 1))
+                .isInstanceOf(IllegalArgumentException.class);
+    }
+}
@@ -0,0 +1,140 @@
+package pt.psoft.g1.psoftg1.lendingmanagement.services;
+
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.PersistenceContext;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.test.context.TestPropertySource;
+import org.springframework.transaction.annotation.Transactional;
+import pt.psoft.g1.psoftg1.authormanagement.model.Author;
+import pt.psoft.g1.psoftg1.bookmanagement.model.Book;
+import pt.psoft.g1.psoftg1.genremanagement.model.Genre;
+import pt.psoft.g1.psoftg1.lendingmanagement.model.Lending;
+import pt.psoft.g1.psoftg1.readermanagement.model.ReaderDetails;
+import pt.psoft.g1.psoftg1.shared.services.Page;
+import pt.psoft.g1.psoftg1.usermanagement.model.Reader;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.when;
+
+/**
+ * Lending lists are read with projection queries, so a page costs the same number of statements no matter how many
+ * distinct books and readers it references.
+ */
+@Transactional
+@SpringBootTest
+@TestPropertySource(properties = "spring.jpa.properties.hibernate.generate_statistics=true")
+class LendingListStatementCountTest {
+    private static final int LENDINGS = 100;
+    private static final int BOOKS = 20;
+    private static final int READERS = 10;
+
+    @Autowired
+    private LendingService lendingService;
+    @MockBean
+    private LendingDueDateIndex lendingDueDateIndex;
+    @PersistenceContext
+    private EntityManager em;
+
+    private Statistics statistics;
+    private final List<Lending> lendings = new ArrayList<>();
+
+    @BeforeEach
+    void setUp() {
+        final Genre genre = new Genre("Statement Count");
+        em.persist(genre);
+        final Author author = new Author("count-author", "Count Author", "Bio", null);
+        em.persist(author);
+
+        final List<Book> books = new ArrayList<>();
+        for (int i = 0; i < BOOKS; i++) {
+            final Book book = new Book("count-book-" + i, isbn13(i), "Title " + i, "Description", genre, List.of(author), null);
+            em.persist(book);
+            books.add(book);
+        }
+        final List<ReaderDetails> readers = new ArrayList<>();
+        for (int i = 0; i < READERS; i++) {
+            final Reader reader = Reader.newReader("count" + i + "@gmail.com", "Password123!", "Reader " + i);
+            em.persist(reader);
+            final ReaderDetails readerDetails = new ReaderDetails(9000 + i, reader, "2000-01-01", "912345678",
+                    true, false, false, null, null);
+            em.persist(readerDetails);
+            readers.add(readerDetails);
+        }
+        for (int i = 0; i < LENDINGS; i++) {
+            final Lending lending = Lending.newBootstrappingLending(books.get(i % BOOKS), readers.get(i % READERS),
+                    1999, 1 + i, LocalDate.now().minusDays(30), null, 15, 50);
+            em.persist(lending);
+            lendings.add(lending);
+        }
+        em.flush();
+        em.clear();
+
+        statistics = em.getEntityManagerFactory().unwrap(SessionFactory.class).getStatistics();
+        statistics.clear();
+    }
+
+    /**@return a valid ISBN-13 for {@code n}*/
+    private static String isbn13(int n) {
+        final String digits = String.format("978%09d", n);
+        int sum = 0;
+        for (int i = 0; i < digits.length(); i++) {
+            sum += (digits.charAt(i) - '0') * (i % 2 == 0 ? 1 : 3);
+        }
+        return digits + (10 - sum % 10) % 10;
+    }
+
+    @Test
+    void searchLendings_pageIsOneStatement() {
+        final List<LendingSummaryDTO> page = lendingService.searchLendings(new Page(1, LENDINGS),
+                new SearchLendingQuery(null, null, null, null, null));
+
+        assertThat(page).hasSize(LENDINGS);
+        assertThat(page.get(0).getBookTitle()).isNotBlank();
+        assertThat(page.get(0).getFineValueInCents()).isPresent();
+        assertThat(statistics.getPrepareStatementCount()).isEqualTo(1);
+    }
+
+    @Test
+    void getOverdue_pageIsOneStatement() {
+        when(lendingDueDateIndex.findDueBefore(any(), any()))
+                .thenReturn(lendings.stream().map(Lending::getLendingNumber).toList());
+
+        final List<LendingSummaryDTO> page = lendingService.getOverdue(new Page(1, LENDINGS));
+
+        assertThat(page).extracting(LendingSummaryDTO::getLendingNumber)
+                .containsExactlyElementsOf(lendings.stream().map(Lending::getLendingNumber).toList());
+        assertThat(statistics.getPrepareStatementCount()).isEqualTo(1);
+    }
+
+    @Test
+    void listByReaderNumberAndIsbn_isOneStatement() {
+        final Lending first = lendings.get(0);
+        final List<LendingSummaryDTO> history = lendingService.listByReaderNumberAndIsbn(
+                first.getReaderDetails().getReaderNumber(), first.getBook().getIsbn(), Optional.empty());
+
+        assertThat(history).hasSize(LENDINGS / Math.max(BOOKS, READERS));
+        assertThat(statistics.getPrepareStatementCount()).isEqualTo(1);
+    }
+
+    @Test
+    void findByLendingNumber_loadsBookAndReaderInOneStatement() {
+        final Lending lending = lendingService.findByLendingNumber(lendings.get(0).getLendingNumber()).orElseThrow();
+
+        assertThat(lending.getTitle()).isEqualTo("Title 0");
+        assertThat(lending.getBook().getGenre().getGenre()).isEqualTo("Statement Count");
+        assertThat(lending.getReaderDetails().getReader().getName().getName()).isEqualTo("Reader 0");
+        assertThat(statistics.getPrepareStatementCount()).isEqualTo(1);
+    }
+}
@@ -0,0 +1,283 @@
+package pt.psoft.g1.psoftg1.lendingmanagement.services;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import pt.psoft.g1.psoftg1.exceptions.LendingForbiddenException;
+import pt.psoft.g1.psoftg1.lendingmanagement.model.Lending;
+import pt.psoft.g1.psoftg1.lendingmanagement.repositories.LendingRepository;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import pt.psoft.g1.psoftg1.readermanagement.model.ReaderDetails;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.InstanceOfAssertFactories.MAP;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class OutstandingLendingsRegistryTest {
+    private static final String READER = "2024/1";
+
+    @Mock
+    private LendingRepository lendingRepository;
+
+    private OutstandingLendingsRegistry registry;
+
+    @BeforeEach
+    void setUp() {
+        registry = new OutstandingLendingsRegistry(lendingRepository, 60);
+    }
+
+    // runs the checkouts of {@code work} in a transaction that completes with {@code status}
+    private static void inTransaction(int status, Runnable work) {
+        TransactionSynchronizationManager.initSynchronization();
+        try {
+            work.run();
+            for (TransactionSynchronization synchronization : TransactionSynchronizationManager.getSynchronizations()) {
+                synchronization.afterCompletion(status);
+            }
+        } finally {
+            TransactionSynchronizationManager.clearSynchronization();
+        }
+    }
+
+    private static Lending lendingDue(LocalDate limitDate) {
+        final Lending lending = mock(Lending.class);
+        when(lending.getLimitDate()).thenReturn(limitDate);
+        return lending;
+    }
+
+    private static Lending lendingOf(String readerNumber, LocalDate limitDate) {
+        final ReaderDetails readerDetails = mock(ReaderDetails.class);
+        when(readerDetails.getReaderNumber()).thenReturn(readerNumber);
+        final Lending lending = lendingDue(limitDate);
+        when(lending.getReaderDetails()).thenReturn(readerDetails);
+        return lending;
+    }
+
+    @Test
+    void checkout_loadsSummaryOnlyOnce() {
+        when(lendingRepository.listOutstandingLimitDatesByReaderNumber(READER)).thenReturn(List.of());
+
+        registry.checkout(READER, () -> lendingDue(LocalDate.now().plusDays(15)));
+        registry.checkout(READER, () -> lendingDue(LocalDate.now().plusDays(15)));
+
+        verify(lendingRepository, times(1)).listOutstandingLimitDatesByReaderNumber(READER);
+    }
+
+    @Test
+    void checkout_forbiddenWithThreeOutstanding() {
+        final LocalDate due = LocalDate.now().plusDays(5);
+        when(lendingRepository.listOutstandingLimitDatesByReaderNumber(READER)).thenReturn(List.of(due, due, due));
+
+        assertThrows(LendingForbiddenException.class, () -> registry.checkout(READER, () -> lendingDue(due)));
+    }
+
+    @Test
+    void checkout_forbiddenWithOverdueLending() {
+        when(lendingRepository.listOutstandingLimitDatesByReaderNumber(READER))
+                .thenReturn(List.of(LocalDate.now().minusDays(1)));
+
+        assertThrows(LendingForbiddenException.class,
+                () -> registry.checkout(READER, () -> lendingDue(LocalDate.now().plusDays(15))));
+    }
+
+    @Test
+    void checkout_allowedWhenDueToday() {
+        when(lendingRepository.listOutstandingLimitDatesByReaderNumber(READER)).thenReturn(List.of(LocalDate.now()));
+
+        final Lending lending = lendingDue(LocalDate.now().plusDays(15));
+        assertThat(registry.checkout(READER, () -> lending)).isSameAs(lending);
+    }
+
+    @Test
+    void checkout_failedSaveDoesNotCount() {
+        final LocalDate due = LocalDate.now().plusDays(5);
+        when(lendingRepository.listOutstandingLimitDatesByReaderNumber(READER)).thenReturn(List.of(due, due));
+
+        assertThrows(IllegalStateException.class, () -> registry.checkout(READER, () -> {
+            throw new IllegalStateException("save failed");
+        }));
+
+        registry.checkout(READER, () -> lendingDue(due));
+    }
+
+    @Test
+    void checkout_rolledBackTransactionReleasesTheSlot() {
+        final LocalDate due = LocalDate.now().plusDays(5);
+        when(lendingRepository.listOutstandingLimitDatesByReaderNumber(READER)).thenReturn(List.of(due, due));
+
+        inTransaction(TransactionSynchronization.STATUS_ROLLED_BACK, () -> {
+            registry.checkout(READER, () -> lendingDue(due));
+            // the slot stays taken until the transaction completes
+            assertThrows(LendingForbiddenException.class, () -> registry.checkout(READER, () -> lendingDue(due)));
+        });
+
+        inTransaction(TransactionSynchronization.STATUS_COMMITTED, () -> registry.checkout(READER, () -> lendingDue(due)));
+        assertThrows(LendingForbiddenException.class, () -> registry.checkout(READER, () -> lendingDue(due)));
+    }
+
+    @Test
+    void checkout_reloadsExpiredSummary_onceItsSlotsAreSettled() {
+        final LocalDate due = LocalDate.now().plusDays(5);
+        final OutstandingLendingsRegistry expiring = new OutstandingLendingsRegistry(lendingRepository, 0);
+        when(lendingRepository.listOutstandingLimitDatesByReaderNumber(READER))
+                .thenReturn(List.of(due, due), List.of(due));
+
+        inTransaction(TransactionSynchronization.STATUS_COMMITTED, () -> {
+            expiring.checkout(READER, () -> lendingDue(due));
+            assertThrows(LendingForbiddenException.class, () -> expiring.checkout(READER, () -> lendingDue(due)));
+        });
+        // another instance returned two lendings meanwhile
+        expiring.checkout(READER, () -> lendingDue(due));
+
+        verify(lendingRepository, times(2)).listOutstandingLimitDatesByReaderNumber(READER);
+    }
+
+    @Test
+    void checkoutAll_rolledBackTransactionReleasesTheSlots() {
+        final LocalDate due = LocalDate.now().plusDays(5);
+        when(lendingRepository.listOutstandingLimitDatesByReaderNumber(READER)).thenReturn(List.of(due));
+
+        inTransaction(TransactionSynchronization.STATUS_ROLLED_BACK, () -> registry.checkoutAll(List.of(READER, READER),
+                rejections -> List.of(lendingOf(READER, due), lendingOf(READER, due))));
+
+        final List<LendingForbiddenException> seen = new ArrayList<>();
+        registry.checkoutAll(List.of(READER, READER), rejections -> {
+            seen.addAll(rejections);
+            return List.of();
+        });
+        assertThat(seen).containsOnlyNulls();
+    }
+
+    @Test
+    void returned_freesSlotAndClearsOverdue() {
+        final LocalDate overdue = LocalDate.now().minusDays(2);
+        final LocalDate due = LocalDate.now().plusDays(5);
+        when(lendingRepository.listOutstandingLimitDatesByReaderNumber(READER)).thenReturn(List.of(overdue, due, due));
+
+        assertThrows(LendingForbiddenException.class, () -> registry.checkout(READER, () -> lendingDue(due)));
+
+        registry.returned(READER, overdue);
+
+        registry.checkout(READER, () -> lendingDue(due));
+    }
+
+    @Test
+    void returned_reloadsSummaryLoadedAfterTheReturnCommitted() throws InterruptedException {
+        final LocalDate due = LocalDate.now().plusDays(5);
+        final OutstandingLendingsRegistry expiring = new OutstandingLendingsRegistry(lendingRepository, 1);
+        when(lendingRepository.listOutstandingLimitDatesByReaderNumber(READER))
+                .thenReturn(List.of(due, due, due), List.of(due, due), List.of(due, due, due));
+        assertThrows(LendingForbiddenException.class, () -> expiring.checkout(READER, () -> lendingDue(due)));
+
+        TransactionSynchronizationManager.initSynchronization();
+        final List<TransactionSynchronization> returnCommitted;
+        try {
+            expiring.returned(READER, due);
+            returnCommitted = TransactionSynchronizationManager.getSynchronizations();
+        } finally {
+            TransactionSynchronizationManager.clearSynchronization();
+        }
+        // the return commits, and the expired summary is reloaded before the callback of the return runs
+        Thread.sleep(1100);
+        expiring.checkout(READER, () -> lendingDue(due));
+        returnCommitted.forEach(TransactionSynchronization::afterCommit);
+
+        assertThrows(LendingForbiddenException.class, () -> expiring.checkout(READER, () -> lendingDue(due)));
+        verify(lendingRepository, times(3)).listOutstandingLimitDatesByReaderNumber(READER);
+    }
+
+    @Test
+    void evictExpired_dropsOnlySettledSummaries() {
+        final LocalDate due = LocalDate.now().plusDays(5);
+        final OutstandingLendingsRegistry expiring = new OutstandingLendingsRegistry(lendingRepository, 0);
+        when(lendingRepository.listOutstandingLimitDatesByReaderNumber(anyString())).thenReturn(List.of());
+
+        expiring.checkout(READER, () -> lendingDue(due));
+        TransactionSynchronizationManager.initSynchronization();
+        try {
+            expiring.checkout("2024/2", () -> lendingDue(due));
+            expiring.evictExpired();
+        } finally {
+            TransactionSynchronizationManager.clearSynchronization();
+        }
+
+        assertThat(ReflectionTestUtils.getField(expiring, "summaries")).asInstanceOf(MAP).containsOnlyKeys("2024/2");
+    }
+
+    @Test
+    void checkoutAll_countsEarlierItemsOfTheBatch() {
+        final String other = "2024/2";
+        final LocalDate due = LocalDate.now().plusDays(5);
+        when(lendingRepository.listOutstandingLimitDatesByReaderNumber(READER)).thenReturn(List.of(due));
+        when(lendingRepository.listOutstandingLimitDatesByReaderNumber(other))
+                .thenReturn(List.of(LocalDate.now().minusDays(1)));
+
+        final List<LendingForbiddenException> seen = new ArrayList<>();
+        registry.checkoutAll(List.of(READER, other, READER, READER), rejections -> {
+            seen.addAll(rejections);
+            return List.of(lendingOf(READER, due), lendingOf(READER, due));
+        });
+
+        assertThat(seen.get(0)).isNull();
+        assertThat(seen.get(1)).hasMessageContaining("past their due date");
+        assertThat(seen.get(2)).isNull();
+        assertThat(seen.get(3)).hasMessageContaining("three books");
+        assertThrows(LendingForbiddenException.class, () -> registry.checkout(READER, () -> lendingDue(due)));
+    }
+
+    @Test
+    void checkoutAll_failedSaveDoesNotCount() {
+        final LocalDate due = LocalDate.now().plusDays(5);
+        when(lendingRepository.listOutstandingLimitDatesByReaderNumber(READER)).thenReturn(List.of());
+
+        assertThrows(IllegalStateException.class, () -> registry.checkoutAll(List.of(READER, READER, READER), rejections -> {
+            throw new IllegalStateException("save failed");
+        }));
+
+        final List<LendingForbiddenException> seen = new ArrayList<>();
+        registry.checkoutAll(List.of(READER, READER, READER), rejections -> {
+            seen.addAll(rejections);
+            return List.of();
+        });
+        assertThat(seen).containsOnlyNulls();
+    }
+
+    @Test
+    void checkout_parallelCheckoutsCannotExceedLimit() throws InterruptedException {
+        when(lendingRepository.listOutstandingLimitDatesByReaderNumber(READER)).thenReturn(List.of());
+        final Lending lending = lendingDue(LocalDate.now().plusDays(15));
+
+        final AtomicInteger created = new AtomicInteger();
+        final ExecutorService executor = Executors.newFixedThreadPool(8);
+        for (int i = 0; i < 50; i++) {
+            executor.submit(() -> {
+                try {
+                    registry.checkout(READER, () -> {
+                        created.incrementAndGet();
+                        return lending;
+                    });
+                } catch (LendingForbiddenException e) {
+                    // expected once the reader reaches the limit
+                }
+            });
+        }
+        executor.shutdown();
+        assertThat(executor.awaitTermination(10, TimeUnit.SECONDS)).isTrue();
+
+        assertThat(created.get()).isEqualTo(OutstandingLendingsRegistry.MAX_OUTSTANDING);
+    }
+}
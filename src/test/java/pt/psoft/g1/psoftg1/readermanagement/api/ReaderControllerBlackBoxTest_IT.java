@@ -11,6 +11,7 @@ import org.springframework.security.core.Authentication;
 import org.springframework.security.test.context.support.WithMockUser;
 import org.springframework.test.web.servlet.MockMvc;
 
+import pt.psoft.g1.psoftg1.shared.api.StreamingExporter;
 import pt.psoft.g1.psoftg1.readermanagement.model.BirthDate;
 import pt.psoft.g1.psoftg1.readermanagement.model.ReaderDetails;
 import pt.psoft.g1.psoftg1.readermanagement.services.ReaderService;
@@ -65,6 +66,9 @@ class ReaderControllerBlackBoxTest_IT {
     @MockBean
     private ApiNinjasService apiNinjasService;
 
+    @MockBean
+    private StreamingExporter streamingExporter;
+
     @Test
     @DisplayName("GET /api/readers returns list for librarian")
     void getData_asLibrarian_returnsList() throws Exception {
@@ -141,7 +145,7 @@ class ReaderControllerBlackBoxTest_IT {
         when(rd.getVersion()).thenReturn(0L);
         when(readerService.findByReaderNumber("2020/1")).thenReturn(Optional.of(rd));
 
-        when(fileStorageService.getFile(photo.getPhotoFile())).thenReturn(new byte[]{1,2,3});
+        when(fileStorageService.getFile(photo.getPhotoFile(), null)).thenReturn(new byte[]{1,2,3});
         when(fileStorageService.getExtension(photo.getPhotoFile())).thenReturn(Optional.of("png"));
 
         mvc.perform(get("/api/readers/{year}/{seq}/photo", "2020", "1").principal(auth))
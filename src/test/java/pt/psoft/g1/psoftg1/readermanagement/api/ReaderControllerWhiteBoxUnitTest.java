@@ -118,10 +118,10 @@ class ReaderControllerWhiteBoxUnitTest {
         when(rd.getPhoto()).thenReturn(photo);
         when(readerService.findByReaderNumber("2020/1")).thenReturn(Optional.of(rd));
 
-        when(fileStorageService.getFile("/tmp/f.png")).thenReturn(new byte[]{1, 2, 3});
+        when(fileStorageService.getFile("/tmp/f.png", null)).thenReturn(new byte[]{1, 2, 3});
         when(fileStorageService.getExtension("/tmp/f.png")).thenReturn(Optional.of("png"));
 
-        var resp = controller.getSpecificReaderPhoto(2020, 1, auth);
+        var resp = controller.getSpecificReaderPhoto(2020, 1, null, auth);
 
         assertThat(resp.getStatusCode().is2xxSuccessful()).isTrue();
         assertThat(resp.getBody()).isEqualTo(new byte[]{1, 2, 3});
@@ -136,6 +136,6 @@ class ReaderControllerWhiteBoxUnitTest {
         when(readerService.findByUsername("readerUser")).thenReturn(Optional.empty());
 
         assertThrows(org.springframework.security.access.AccessDeniedException.class,
-                () -> controller.getReaderOwnPhoto(auth));
+                () -> controller.getReaderOwnPhoto(null, auth));
     }
 }
\ No newline at end of file
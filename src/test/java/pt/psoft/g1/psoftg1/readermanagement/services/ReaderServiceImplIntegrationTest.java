@@ -7,6 +7,7 @@ import org.springframework.boot.test.mock.mockito.MockBean;
 import pt.psoft.g1.psoftg1.readermanagement.model.ReaderDetails;
 import pt.psoft.g1.psoftg1.readermanagement.repositories.ReaderRepository;
 import pt.psoft.g1.psoftg1.shared.repositories.PhotoRepository;
+import pt.psoft.g1.psoftg1.shared.services.SequenceService;
 import pt.psoft.g1.psoftg1.shared.repositories.ForbiddenNameRepository;
 import pt.psoft.g1.psoftg1.shared.model.ForbiddenName;
 import pt.psoft.g1.psoftg1.genremanagement.repositories.GenreRepository;
@@ -44,6 +45,9 @@ class ReaderServiceImplIntegrationTest {
     @MockBean
     PhotoRepository photoRepository;
 
+    @MockBean
+    SequenceService sequenceService;
+
     @Test
     void create_integration_shouldSave_whenValid() {
         CreateReaderRequest req = new CreateReaderRequest();
@@ -52,7 +56,7 @@ class ReaderServiceImplIntegrationTest {
 
         when(userRepo.findByUsername("integrationUser")).thenReturn(Optional.empty());
         when(forbiddenNameRepository.findByForbiddenNameIsContained(anyString())).thenReturn(List.of());
-        when(readerRepo.getCountFromCurrentYear()).thenReturn(1);
+        when(sequenceService.nextValue(eq(SequenceService.READER), anyInt(), any())).thenReturn(2);
 
         Reader mockReader = mock(Reader.class);
         ReaderDetails expected = mock(ReaderDetails.class);
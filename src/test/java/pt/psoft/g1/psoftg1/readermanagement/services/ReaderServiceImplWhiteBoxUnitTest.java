@@ -7,14 +7,18 @@ import org.mockito.InjectMocks;
 import org.mockito.Mock;
 import org.mockito.junit.jupiter.MockitoExtension;
 import org.springframework.data.domain.PageImpl;
+import pt.psoft.g1.psoftg1.bookmanagement.services.BookRecommender;
 import pt.psoft.g1.psoftg1.exceptions.ConflictException;
 import pt.psoft.g1.psoftg1.exceptions.NotFoundException;
+import pt.psoft.g1.psoftg1.lendingmanagement.services.LeaderboardEntryDTO;
+import pt.psoft.g1.psoftg1.lendingmanagement.services.LendingLeaderboards;
 import pt.psoft.g1.psoftg1.readermanagement.model.ReaderDetails;
 import pt.psoft.g1.psoftg1.readermanagement.repositories.ReaderRepository;
 import pt.psoft.g1.psoftg1.shared.repositories.PhotoRepository;
+import pt.psoft.g1.psoftg1.shared.services.SequenceService;
 import pt.psoft.g1.psoftg1.shared.repositories.ForbiddenNameRepository;
 import pt.psoft.g1.psoftg1.shared.model.ForbiddenName;
-import pt.psoft.g1.psoftg1.genremanagement.repositories.GenreRepository;
+import pt.psoft.g1.psoftg1.genremanagement.services.GenreRegistry;
 import pt.psoft.g1.psoftg1.usermanagement.repositories.UserRepository;
 import pt.psoft.g1.psoftg1.usermanagement.model.Reader;
 import java.time.LocalDate;
@@ -39,7 +43,7 @@ class ReaderServiceImplWhiteBoxUnitTest {
     ReaderMapper readerMapper;
 
     @Mock
-    GenreRepository genreRepo;
+    GenreRegistry genreRegistry;
 
     @Mock
     ForbiddenNameRepository forbiddenNameRepository;
@@ -47,6 +51,15 @@ class ReaderServiceImplWhiteBoxUnitTest {
     @Mock
     PhotoRepository photoRepository;
 
+    @Mock
+    SequenceService sequenceService;
+
+    @Mock
+    LendingLeaderboards lendingLeaderboards;
+
+    @Mock
+    BookRecommender bookRecommender;
+
     @InjectMocks
     ReaderServiceImpl service;
 
@@ -87,7 +100,7 @@ class ReaderServiceImplWhiteBoxUnitTest {
 
         when(userRepo.findByUsername("newuser")).thenReturn(Optional.empty());
         when(forbiddenNameRepository.findByForbiddenNameIsContained(anyString())).thenReturn(List.of());
-        when(readerRepo.getCountFromCurrentYear()).thenReturn(7);
+        when(sequenceService.nextValue(eq(SequenceService.READER), anyInt(), any())).thenReturn(8);
 
         Reader mockReader = mock(Reader.class);
         ReaderDetails expectedDetails = mock(ReaderDetails.class);
@@ -172,10 +185,20 @@ class ReaderServiceImplWhiteBoxUnitTest {
     @Test
     void findTopReaders_shouldReturnList_whenValid() {
         var rd = mock(ReaderDetails.class);
-        when(readerRepo.findTopReaders(any())).thenReturn(new PageImpl<>(List.of(rd)));
+        when(rd.getReaderNumber()).thenReturn("2024/1");
+        when(lendingLeaderboards.top(LendingLeaderboards.Board.READERS, LendingLeaderboards.Window.ALL_TIME, 3))
+                .thenReturn(List.of(new LeaderboardEntryDTO("2024/1", 4)));
+        when(readerRepo.findByReaderNumbers(List.of("2024/1"))).thenReturn(List.of(rd));
 
         var res = service.findTopReaders(3);
-        assertThat(res).hasSize(1);
+        assertThat(res).containsExactly(rd);
+    }
+
+    @Test
+    void searchReaders_shouldThrow_whenNameHasNoLettersOrDigits() {
+        assertThrows(IllegalArgumentException.class,
+                () -> service.searchReaders(null, new SearchReadersQuery("...", "", "")));
+        verify(readerRepo, never()).searchReaderDetails(any(), any());
     }
 
     @Test
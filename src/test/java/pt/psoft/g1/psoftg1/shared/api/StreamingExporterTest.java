@@ -0,0 +1,97 @@
+package pt.psoft.g1.psoftg1.shared.api;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.datatype.jsr310.JavaTimeModule;
+import jakarta.persistence.EntityManager;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.ResponseEntity;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.SimpleTransactionStatus;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+import pt.psoft.g1.psoftg1.authormanagement.services.AuthorExportDTO;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.stream.IntStream;
+import java.util.stream.Stream;
+import java.util.zip.GZIPInputStream;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.*;
+
+class StreamingExporterTest {
+    private EntityManager entityManager;
+    private StreamingExporter exporter;
+
+    @BeforeEach
+    void setUp() {
+        final PlatformTransactionManager transactionManager = mock(PlatformTransactionManager.class);
+        when(transactionManager.getTransaction(any())).thenReturn(new SimpleTransactionStatus());
+        entityManager = mock(EntityManager.class);
+        exporter = new StreamingExporter(transactionManager, entityManager, new ObjectMapper().registerModule(new JavaTimeModule()));
+    }
+
+    private static byte[] write(ResponseEntity<StreamingResponseBody> response) throws IOException {
+        final ByteArrayOutputStream out = new ByteArrayOutputStream();
+        response.getBody().writeTo(out);
+        return out.toByteArray();
+    }
+
+    @Test
+    void ensureCsvHasHeaderAndEscapedValues() throws IOException {
+        final var response = exporter.export("authors", AuthorExportDTO.COLUMNS,
+                () -> Stream.of(new AuthorExportDTO("1", "Pina", "Poet, \"journalist\""), new AuthorExportDTO("2", "Sophia", null)),
+                "csv", false);
+
+        assertEquals("authorNumber,name,bio\r\n1,Pina,\"Poet, \"\"journalist\"\"\"\r\n2,Sophia,\r\n",
+                new String(write(response), StandardCharsets.UTF_8));
+        assertEquals("attachment; filename=\"authors.csv\"", response.getHeaders().getFirst(HttpHeaders.CONTENT_DISPOSITION));
+    }
+
+    @Test
+    void ensureNdjsonWritesOneObjectPerLine() throws IOException {
+        final var response = exporter.export("authors", AuthorExportDTO.COLUMNS,
+                () -> Stream.of(new AuthorExportDTO("1", "Pina", "Poet")), "ndjson", false);
+
+        assertEquals("{\"authorNumber\":\"1\",\"name\":\"Pina\",\"bio\":\"Poet\"}\n",
+                new String(write(response), StandardCharsets.UTF_8));
+        assertEquals("application/x-ndjson;charset=UTF-8", response.getHeaders().getContentType().toString());
+    }
+
+    @Test
+    void ensureGzipIsDecodable() throws IOException {
+        final var response = exporter.export("authors", AuthorExportDTO.COLUMNS,
+                () -> Stream.of(new AuthorExportDTO("1", "Pina", "Poet")), "csv", true);
+
+        final byte[] body = write(response);
+        assertEquals("gzip", response.getHeaders().getFirst(HttpHeaders.CONTENT_ENCODING));
+        assertEquals("authorNumber,name,bio\r\n1,Pina,Poet\r\n",
+                new String(new GZIPInputStream(new ByteArrayInputStream(body)).readAllBytes(), StandardCharsets.UTF_8));
+    }
+
+    @Test
+    void ensurePersistenceContextIsClearedPeriodically() throws IOException {
+        write(exporter.export("authors", AuthorExportDTO.COLUMNS,
+                () -> IntStream.range(0, 1200).mapToObj(i -> new AuthorExportDTO(String.valueOf(i), "n", "b")),
+                "ndjson", false));
+
+        verify(entityManager, times(2)).clear();
+    }
+
+    @Test
+    void ensureUnknownFormatIsRejected() {
+        assertThrows(IllegalArgumentException.class,
+                () -> exporter.export("authors", AuthorExportDTO.COLUMNS, Stream::empty, "xml", false));
+    }
+
+    @Test
+    void ensurePlainValuesAreNotQuoted() {
+        assertEquals("2024/1", StreamingExporter.escapeCsv("2024/1"));
+        assertEquals("\"a\nb\"", StreamingExporter.escapeCsv("a\nb"));
+    }
+}
@@ -41,4 +41,28 @@ class NameTest {
         name.setName("Some other name");
         assertEquals("Some other name", name.toString());
     }
+
+    @Test
+    void ensureSearchKeyIgnoresDiacriticsAndCase() {
+        assertEquals("antonio lobo antunes", new Name("António Lobo  Antunes").getSearchKey());
+        assertEquals("joao", StringUtilsCustom.toSearchKey("JOÃO"));
+    }
+
+    @Test
+    void ensureNameMustHaveALetterOrDigit() {
+        assertThrows(IllegalArgumentException.class, () -> new Name("' -"));
+    }
+
+    @Test
+    void ensureSearchKeyRejectsTextWithoutLettersOrDigits() {
+        assertThrows(IllegalArgumentException.class, () -> StringUtilsCustom.toSearchKey("?!"));
+        assertFalse(StringUtilsCustom.hasSearchKey("-"));
+    }
+
+    @Test
+    void ensureSearchKeyFollowsTheName() {
+        final var name = new Name("Some name");
+        name.setName("Çávado");
+        assertEquals("cavado", name.getSearchKey());
+    }
 }
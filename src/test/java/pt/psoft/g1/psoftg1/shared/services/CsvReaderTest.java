@@ -0,0 +1,33 @@
+package pt.psoft.g1.psoftg1.shared.services;
+
+import org.junit.jupiter.api.Test;
+
+import java.io.StringReader;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class CsvReaderTest {
+    @Test
+    void ensureFieldsAreSplitOnCommas() {
+        final CsvReader reader = new CsvReader(new StringReader("a,b,,c\r\nd\n"));
+        assertEquals(List.of("a", "b", "", "c"), reader.next());
+        assertEquals(List.of("d"), reader.next());
+        assertNull(reader.next());
+    }
+
+    @Test
+    void ensureQuotedFieldsKeepCommasQuotesAndLineBreaks() {
+        final CsvReader reader = new CsvReader(new StringReader("\"Os Maias\",\"Eça; \"\"Queirós\"\"\",\"a\nb\"\nlast"));
+        assertEquals(List.of("Os Maias", "Eça; \"Queirós\"", "a\nb"), reader.next());
+        assertEquals(1, reader.getLine());
+        assertEquals(List.of("last"), reader.next());
+        assertEquals(3, reader.getLine());
+    }
+
+    @Test
+    void ensureUnclosedQuotesAreRejected() {
+        final CsvReader reader = new CsvReader(new StringReader("\"open,field\n"));
+        assertThrows(IllegalArgumentException.class, reader::next);
+    }
+}
@@ -0,0 +1,47 @@
+package pt.psoft.g1.psoftg1.shared.services;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class CursorTest {
+    @Test
+    void ensureKeysRoundTrip() {
+        final Cursor cursor = Cursor.decode(Cursor.encode("O Inspetor Max", "9782826012092"), 2);
+        assertEquals("O Inspetor Max", cursor.get(0));
+        assertEquals("9782826012092", cursor.get(1));
+    }
+
+    @Test
+    void ensureEmptyKeysAreKept() {
+        final Cursor cursor = Cursor.decode(Cursor.encode("", "2024/1"), 2);
+        assertEquals("", cursor.get(0));
+        assertEquals("2024/1", cursor.get(1));
+    }
+
+    @Test
+    void ensureTokenIsUrlSafe() {
+        assertTrue(Cursor.encode("???>>>", "a/b+c").matches("[A-Za-z0-9_-]+"));
+    }
+
+    @Test
+    void ensureNullKeysAreRejected() {
+        assertThrows(IllegalArgumentException.class, () -> Cursor.encode("a", null));
+    }
+
+    @Test
+    void ensureMalformedTokensAreRejected() {
+        assertThrows(IllegalArgumentException.class, () -> Cursor.decode("not base64!", 1));
+        assertThrows(IllegalArgumentException.class, () -> Cursor.decode(Cursor.encode("a", "b", "c"), 2));
+    }
+
+    @Test
+    void ensureNextCursorOnlyWhenPageIsFull() {
+        final Page page = new Page(1, 2);
+        assertNull(page.nextCursor(List.of(), Cursor::encode));
+        assertNull(page.nextCursor(List.of("a"), Cursor::encode));
+        assertEquals(Cursor.encode("b"), page.nextCursor(List.of("a", "b"), Cursor::encode));
+    }
+}
@@ -0,0 +1,88 @@
+package pt.psoft.g1.psoftg1.shared.services;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import javax.imageio.ImageIO;
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class FileStorageServiceTest {
+    @TempDir
+    Path uploadDir;
+
+    private FileStorageService service;
+
+    @BeforeEach
+    void setUp() {
+        final FileStorageProperties properties = new FileStorageProperties();
+        properties.setUploadDir(uploadDir.toString());
+        properties.setPhotoMaxSize(20000);
+        properties.setPhotoVariants(Map.of("small", 64, "medium", 256));
+        service = new FileStorageService(properties);
+    }
+
+    @AfterEach
+    void tearDown() {
+        service.shutdown();
+    }
+
+    private void writeImage(String fileName, int width, int height, String format) throws IOException {
+        ImageIO.write(new BufferedImage(width, height, BufferedImage.TYPE_INT_RGB), format,
+                uploadDir.resolve(fileName).toFile());
+    }
+
+    private BufferedImage read(byte[] image) throws IOException {
+        return ImageIO.read(new ByteArrayInputStream(image));
+    }
+
+    @Test
+    void ensureVariantsKeepTheAspectRatioAndFormat() throws IOException {
+        writeImage("photo.png", 400, 200, "png");
+        service.generateVariants("photo.png").join();
+
+        final BufferedImage small = read(service.getFile("photo.png", "small"));
+        assertEquals(64, small.getWidth());
+        assertEquals(32, small.getHeight());
+        assertTrue(Files.exists(uploadDir.resolve("photo-small.png")));
+        assertEquals(256, read(service.getFile("photo.png", "MEDIUM")).getWidth());
+        assertEquals(400, read(service.getFile("photo.png", null)).getWidth());
+    }
+
+    @Test
+    void ensureTheOriginalIsServedWhenSmallerThanTheVariantOrNotReady() throws IOException {
+        writeImage("photo.jpg", 100, 50, "jpeg");
+        service.generateVariants("photo.jpg").join();
+
+        assertEquals(64, read(service.getFile("photo.jpg", "small")).getWidth());
+        assertFalse(Files.exists(uploadDir.resolve("photo-medium.jpg")));
+        assertEquals(100, read(service.getFile("photo.jpg", "medium")).getWidth());
+
+        writeImage("other.jpg", 100, 50, "jpeg");
+        assertEquals(100, read(service.getFile("other.jpg", "small")).getWidth());
+    }
+
+    @Test
+    void ensureDeletingAPhotoDeletesItsVariants() throws IOException {
+        writeImage("photo.png", 400, 200, "png");
+        service.generateVariants("photo.png").join();
+
+        service.deleteFile("photo.png");
+
+        assertFalse(Files.exists(uploadDir.resolve("photo-small.png")));
+        assertFalse(Files.exists(uploadDir.resolve("photo-medium.png")));
+    }
+
+    @Test
+    void ensureUnknownSizesAreRejected() {
+        assertThrows(IllegalArgumentException.class, () -> service.getFile("photo.png", "huge"));
+    }
+}
@@ -0,0 +1,129 @@
+package pt.psoft.g1.psoftg1.shared.services;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.test.util.ReflectionTestUtils;
+import pt.psoft.g1.psoftg1.shared.repositories.YearSequenceRepository;
+
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.LongSupplier;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class SequenceServiceImplTest {
+    private static final LongSupplier NO_SEED = () -> 0;
+
+    @Mock
+    private YearSequenceRepository yearSequenceRepository;
+
+    @InjectMocks
+    private SequenceServiceImpl sequenceService;
+
+    @BeforeEach
+    void setUp() {
+        ReflectionTestUtils.setField(sequenceService, "sequenceBlockSize", 10);
+    }
+
+    @Test
+    void nextValue_handsOutBlockFromMemory() {
+        when(yearSequenceRepository.reserveBlock(eq("LENDING"), eq(2024), eq(10), any())).thenReturn(1L);
+
+        for (int i = 1; i <= 10; i++) {
+            assertThat(sequenceService.nextValue("LENDING", 2024, NO_SEED)).isEqualTo(i);
+        }
+
+        verify(yearSequenceRepository, times(1)).reserveBlock(anyString(), anyInt(), anyInt(), any());
+    }
+
+    @Test
+    void nextValue_reservesNewBlockWhenExhausted() {
+        when(yearSequenceRepository.reserveBlock(eq("LENDING"), eq(2024), eq(10), any())).thenReturn(1L, 31L);
+
+        for (int i = 0; i < 10; i++) {
+            sequenceService.nextValue("LENDING", 2024, NO_SEED);
+        }
+
+        assertThat(sequenceService.nextValue("LENDING", 2024, NO_SEED)).isEqualTo(31);
+        verify(yearSequenceRepository, times(2)).reserveBlock(anyString(), anyInt(), anyInt(), any());
+    }
+
+    @Test
+    void nextValue_rollsOverOnYearChange() {
+        when(yearSequenceRepository.reserveBlock(eq("LENDING"), eq(2024), eq(10), any())).thenReturn(41L);
+        when(yearSequenceRepository.reserveBlock(eq("LENDING"), eq(2025), eq(10), any())).thenReturn(1L);
+
+        assertThat(sequenceService.nextValue("LENDING", 2024, NO_SEED)).isEqualTo(41);
+        assertThat(sequenceService.nextValue("LENDING", 2025, NO_SEED)).isEqualTo(1);
+        assertThat(sequenceService.nextValue("LENDING", 2025, NO_SEED)).isEqualTo(2);
+    }
+
+    @Test
+    void nextValue_keepsSequencesIndependent() {
+        when(yearSequenceRepository.reserveBlock(eq("LENDING"), eq(2024), eq(10), any())).thenReturn(1L);
+        when(yearSequenceRepository.reserveBlock(eq("READER"), eq(2024), eq(10), any())).thenReturn(1L);
+
+        assertThat(sequenceService.nextValue("LENDING", 2024, NO_SEED)).isEqualTo(1);
+        assertThat(sequenceService.nextValue("READER", 2024, NO_SEED)).isEqualTo(1);
+    }
+
+    @Test
+    void nextValue_retriesWhenCounterCreatedConcurrently() {
+        when(yearSequenceRepository.reserveBlock(eq("LENDING"), eq(2024), eq(10), any()))
+                .thenThrow(new DataIntegrityViolationException("duplicate"))
+                .thenReturn(11L);
+
+        assertThat(sequenceService.nextValue("LENDING", 2024, NO_SEED)).isEqualTo(11);
+    }
+
+    @Test
+    void nextValues_takesRangeFromCurrentBlock() {
+        when(yearSequenceRepository.reserveBlock(eq("LENDING"), eq(2024), eq(10), any())).thenReturn(1L);
+
+        assertThat(sequenceService.nextValue("LENDING", 2024, NO_SEED)).isEqualTo(1);
+        assertThat(sequenceService.nextValues("LENDING", 2024, 5, NO_SEED)).isEqualTo(2);
+        assertThat(sequenceService.nextValue("LENDING", 2024, NO_SEED)).isEqualTo(7);
+
+        verify(yearSequenceRepository, times(1)).reserveBlock(anyString(), anyInt(), anyInt(), any());
+    }
+
+    @Test
+    void nextValues_reservesLargeRangeInOneAllocation() {
+        when(yearSequenceRepository.reserveBlock(eq("LENDING"), eq(2024), eq(10), any())).thenReturn(1L);
+        when(yearSequenceRepository.reserveBlock(eq("LENDING"), eq(2024), eq(25), any())).thenReturn(11L);
+
+        assertThat(sequenceService.nextValue("LENDING", 2024, NO_SEED)).isEqualTo(1);
+        assertThat(sequenceService.nextValues("LENDING", 2024, 25, NO_SEED)).isEqualTo(11);
+        assertThat(sequenceService.nextValue("LENDING", 2024, NO_SEED)).isEqualTo(2);
+    }
+
+    @Test
+    void nextValue_neverRepeatsUnderConcurrency() throws InterruptedException {
+        final AtomicLong lastReserved = new AtomicLong();
+        when(yearSequenceRepository.reserveBlock(eq("LENDING"), eq(2024), eq(10), any()))
+                .thenAnswer(invocation -> lastReserved.getAndAdd(10) + 1);
+
+        final Set<Integer> values = ConcurrentHashMap.newKeySet();
+        final ExecutorService executor = Executors.newFixedThreadPool(8);
+        for (int i = 0; i < 1000; i++) {
+            executor.submit(() -> values.add(sequenceService.nextValue("LENDING", 2024, NO_SEED)));
+        }
+        executor.shutdown();
+        assertThat(executor.awaitTermination(10, TimeUnit.SECONDS)).isTrue();
+
+        assertThat(values).hasSize(1000);
+        assertThat(lastReserved.get()).isEqualTo(1000);
+    }
+}
@@ -9,13 +9,16 @@ import org.junit.jupiter.api.extension.ExtendWith;
 import org.mockito.Mock;
 import org.mockito.junit.jupiter.MockitoExtension;
 import pt.psoft.g1.psoftg1.usermanagement.model.User;
+import pt.psoft.g1.psoftg1.shared.services.Cursor;
 import pt.psoft.g1.psoftg1.shared.services.Page;
 import pt.psoft.g1.psoftg1.usermanagement.services.SearchUsersQuery;
 
+import java.time.LocalDateTime;
 import java.util.Arrays;
 import java.util.List;
 
 import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
 import static org.mockito.Mockito.*;
 
 @ExtendWith(MockitoExtension.class)
@@ -36,6 +39,9 @@ class SpringDataUserRepositoryTest {
     @Mock
     private TypedQuery<User> typedQuery;
 
+    @Mock
+    private Path<Object> namePath;
+
     private UserRepoCustomImpl userRepoCustom;
 
     private User createTestUser(Long id, String username, String fullName) {
@@ -91,6 +97,7 @@ class SpringDataUserRepositoryTest {
         List<User> expectedUsers = Arrays.asList(user1, user2);
 
         // Setup mocks
+        doReturn(namePath).when(root).get("name");
         when(entityManager.getCriteriaBuilder()).thenReturn(criteriaBuilder);
         when(criteriaBuilder.createQuery(User.class)).thenReturn(criteriaQuery);
         when(criteriaQuery.from(User.class)).thenReturn(root);
@@ -165,5 +172,39 @@ class SpringDataUserRepositoryTest {
         verify(typedQuery).setMaxResults(5);
     }
 
+    @Test
+    void searchUsers_WithCursor_SeeksInsteadOfSkipping() {
+        // Given
+        Page page = new Page(1, 5, Cursor.encode(LocalDateTime.of(2024, 3, 1, 10, 0), 42L));
+        SearchUsersQuery query = new SearchUsersQuery();
+
+        when(entityManager.getCriteriaBuilder()).thenReturn(criteriaBuilder);
+        when(criteriaBuilder.createQuery(User.class)).thenReturn(criteriaQuery);
+        when(criteriaQuery.from(User.class)).thenReturn(root);
+        when(entityManager.createQuery(criteriaQuery)).thenReturn(typedQuery);
+        when(typedQuery.getResultList()).thenReturn(List.of());
+
+        // When
+        userRepoCustom.searchUsers(page, query);
+
+        // Then
+        verify(criteriaBuilder).lessThan(any(), eq(LocalDateTime.of(2024, 3, 1, 10, 0)));
+        verify(criteriaBuilder).lessThan(any(), eq(42L));
+        verify(typedQuery, never()).setFirstResult(anyInt());
+        verify(typedQuery).setMaxResults(5);
+    }
+
+    @Test
+    void searchUsers_WithMalformedCursor_Throws() {
+        Page page = new Page(1, 5, Cursor.encode("not-a-date", "x"));
+        SearchUsersQuery query = new SearchUsersQuery();
+
+        when(entityManager.getCriteriaBuilder()).thenReturn(criteriaBuilder);
+        when(criteriaBuilder.createQuery(User.class)).thenReturn(criteriaQuery);
+        when(criteriaQuery.from(User.class)).thenReturn(root);
+
+        assertThrows(IllegalArgumentException.class, () -> userRepoCustom.searchUsers(page, query));
+    }
+
     
 }
\ No newline at end of file